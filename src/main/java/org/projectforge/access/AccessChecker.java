@@ -39,6 +39,7 @@ import org.projectforge.user.UserRightDO;
 import org.projectforge.user.UserRightId;
 import org.projectforge.user.UserRightValue;
 import org.projectforge.user.UserRights;
+import org.projectforge.user.UserSecurityProfile;
 
 /**
  * This class contains some helper methods for evaluation of user and group access'.
@@ -86,17 +87,26 @@ public class AccessChecker
       }
       return false;
     }
-    final Collection<Integer> groupIds = userGroupCache.getUserGroups(user);
-    if (groupIds == null) {
-      // No groups are assigned to this user.
-      if (throwException == true) {
-        throw new AccessException(taskId, accessType, operationType);
+    final UserSecurityProfile profile = userGroupCache.getSecurityProfile(user.getId());
+    if (profile != null) {
+      for (final int groupId : profile.getGroupIds()) {
+        if (node.hasPermission(groupId, accessType, operationType) == true) {
+          return true;
+        }
       }
-      return false;
-    }
-    for (final Integer groupId : groupIds) {
-      if (node.hasPermission(groupId, accessType, operationType) == true) {
-        return true;
+    } else {
+      final Collection<Integer> groupIds = userGroupCache.getUserGroups(user);
+      if (groupIds == null) {
+        // No groups are assigned to this user.
+        if (throwException == true) {
+          throw new AccessException(taskId, accessType, operationType);
+        }
+        return false;
+      }
+      for (final Integer groupId : groupIds) {
+        if (node.hasPermission(groupId, accessType, operationType) == true) {
+          return true;
+        }
       }
     }
     if (throwException == true) {
@@ -309,6 +319,11 @@ public class AccessChecker
    */
   public boolean areUsersInSameGroup(final PFUserDO user1, final PFUserDO user2)
   {
+    final UserSecurityProfile profile1 = userGroupCache.getSecurityProfile(user1.getId());
+    final UserSecurityProfile profile2 = userGroupCache.getSecurityProfile(user2.getId());
+    if (profile1 != null && profile2 != null) {
+      return profile1.hasCommonGroup(profile2);
+    }
     final Collection<Integer> userGroups = userGroupCache.getUserGroups(user2);
     if (userGroups == null) {
       // No groups found.
@@ -539,7 +554,9 @@ public class AccessChecker
   {
     Validate.notNull(user);
     Validate.notNull(values);
-    final UserRightDO rightDO = user.getRight(rightId);
+    // The compiled profile contains the rights of the user as stored in the data base. Not yet saved users have no profile.
+    final UserSecurityProfile profile = userGroupCache.getSecurityProfile(user.getId());
+    final UserRightDO rightDO = profile != null ? profile.getRight(rightId) : user.getRight(rightId);
     final UserRight right = userRights.getRight(rightId);
     for (final UserRightValue value : values) {
       if ((rightDO == null || rightDO.getValue() == null) && right.matches(userGroupCache, user, value) == true) {
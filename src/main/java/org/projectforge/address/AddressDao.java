@@ -51,6 +51,7 @@ import org.projectforge.core.BaseDao;
 import org.projectforge.core.BaseSearchFilter;
 import org.projectforge.core.Configuration;
 import org.projectforge.core.ConfigurationParam;
+import org.projectforge.core.MassUpdateStatus;
 import org.projectforge.core.QueryFilter;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskDao;
@@ -610,8 +611,7 @@ public class AddressDao extends BaseDao<AddressDO>
       // Do nothing, number is empty.
       return;
     }
-    final String no = NumberHelper
-        .extractPhonenumber(number, configuration.getStringValue(ConfigurationParam.DEFAULT_COUNTRY_PHONE_PREFIX));
+    final String no = NumberHelper.extractPhonenumber(number, getCountryPhonePrefix());
     final String name = address.getName();
     pw.print("\"");
     if (StringUtils.isNotEmpty(name)) {
@@ -632,6 +632,62 @@ public class AddressDao extends BaseDao<AddressDO>
     pw.println(no + "\"");
   }
 
+  /**
+   * Builds the duplicate index of all not deleted addresses. Only the indexed fields are selected (no address objects are loaded).
+   * @return The index for finding duplicates and merge candidates of addresses to import.
+   */
+  @SuppressWarnings("unchecked")
+  public AddressDuplicateIndex buildDuplicateIndex()
+  {
+    final AddressDuplicateIndex index = new AddressDuplicateIndex(getCountryPhonePrefix());
+    final List<Object[]> list = getHibernateTemplate().find(
+        "select a.id, a.name, a.firstName, a.email, a.privateEmail, a.businessPhone, a.mobilePhone, a.privatePhone, a.privateMobilePhone"
+            + " from AddressDO a where a.deleted = false");
+    for (final Object[] row : list) {
+      index.add((Integer) row[0], (String) row[1], (String) row[2], new String[] { (String) row[3], (String) row[4]}, new String[] {
+          (String) row[5], (String) row[6], (String) row[7], (String) row[8]});
+    }
+    log.info("Duplicate index of " + list.size() + " addresses built.");
+    return index;
+  }
+
+  /**
+   * @return The default country phone prefix (e. g. +49) for normalizing phone numbers.
+   */
+  public String getCountryPhonePrefix()
+  {
+    return configuration.getStringValue(ConfigurationParam.DEFAULT_COUNTRY_PHONE_PREFIX);
+  }
+
+  /**
+   * Imports the given addresses: New addresses (without id) are inserted, addresses with id (merged with existing addresses) are updated.
+   * Every chunk of addresses is committed in its own transaction and flushed once (the inserts are sent as JDBC batches), failed addresses
+   * are rolled back and counted in the returned status. The full-text indexing is done asynchronously after the commit.
+   * @param list
+   * @return The status of the import.
+   * @see #massUpdateInChunks(List, org.projectforge.core.ExtendedBaseDO)
+   */
+  public MassUpdateStatus importAddresses(final List<AddressDO> list)
+  {
+    final MassUpdateStatus status = massUpdateInChunks(list, null);
+    log.info("Import of " + list.size() + " addresses finished: " + status);
+    return status;
+  }
+
+  /**
+   * Mass updates without master are imports (see {@link #importAddresses(List)}), the entries are already prepared.
+   * @see org.projectforge.core.BaseDao#massUpdateEntry(org.projectforge.core.ExtendedBaseDO, org.projectforge.core.ExtendedBaseDO,
+   *      java.lang.Object)
+   */
+  @Override
+  protected boolean massUpdateEntry(final AddressDO entry, final AddressDO master, final Object store)
+  {
+    if (master == null) {
+      return true;
+    }
+    return super.massUpdateEntry(entry, master, store);
+  }
+
   @Override
   public AddressDO newInstance()
   {
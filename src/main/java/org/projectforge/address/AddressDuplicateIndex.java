@@ -0,0 +1,260 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.address;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.projectforge.common.NumberHelper;
+
+/**
+ * Index of normalized names, e-mail addresses and phone numbers for finding duplicates and merge candidates of addresses (e. g. while
+ * importing vCards). The index holds only the normalized keys and the address ids, so it can be built for all addresses without loading
+ * the address objects.<br/>
+ * Only strong identity matches are candidates: The same e-mail address or the same name and a shared phone number. Phone numbers of
+ * several addresses (e. g. the switchboard number of a company) aren't used.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see AddressDao#buildDuplicateIndex()
+ */
+public class AddressDuplicateIndex
+{
+  /**
+   * Phone numbers with less digits aren't used for detecting duplicates (e. g. extensions).
+   */
+  private static final int MIN_PHONE_NUMBER_LENGTH = 6;
+
+  private static final int EMAIL_WEIGHT = 2;
+
+  private static final int PHONE_WEIGHT = 1;
+
+  private static final int NAME_WEIGHT = 1;
+
+  private static final Comparator<Match> BEST_FIRST = new Comparator<Match>() {
+    @Override
+    public int compare(final Match o1, final Match o2)
+    {
+      if (o1.score != o2.score) {
+        return o1.score > o2.score ? -1 : 1;
+      }
+      return o1.id.compareTo(o2.id);
+    }
+  };
+
+  private final String countryPrefix;
+
+  private final Map<String, Set<Integer>> nameIndex = new HashMap<String, Set<Integer>>();
+
+  private final Map<String, Set<Integer>> emailIndex = new HashMap<String, Set<Integer>>();
+
+  private final Map<String, Set<Integer>> phoneIndex = new HashMap<String, Set<Integer>>();
+
+  /**
+   * @param countryPrefix The default country phone prefix (e. g. +49) for normalizing the phone numbers.
+   */
+  public AddressDuplicateIndex(final String countryPrefix)
+  {
+    this.countryPrefix = countryPrefix;
+  }
+
+  public void add(final Integer id, final AddressDO address)
+  {
+    add(id, address.getName(), address.getFirstName(), new String[] { address.getEmail(), address.getPrivateEmail()}, getPhoneNumbers(address));
+  }
+
+  /**
+   * @param id The id of the address.
+   * @param name
+   * @param firstName
+   * @param emails The e-mail addresses (null values are ignored).
+   * @param phoneNumbers The phone numbers (null values are ignored).
+   */
+  public void add(final Integer id, final String name, final String firstName, final String[] emails, final String[] phoneNumbers)
+  {
+    put(nameIndex, normalizeName(name, firstName), id);
+    for (final String email : emails) {
+      put(emailIndex, normalizeEmail(email), id);
+    }
+    for (final String phoneNumber : phoneNumbers) {
+      put(phoneIndex, normalizePhoneNumber(phoneNumber), id);
+    }
+  }
+
+  /**
+   * @param address
+   * @return The ids of all addresses with the same e-mail address or with the same name and a shared phone number, ordered by the number of
+   *         matches (the best candidate first).
+   */
+  public Set<Integer> getCandidates(final AddressDO address)
+  {
+    final List<Match> matches = new ArrayList<Match>(getMatches(address));
+    Collections.sort(matches, BEST_FIRST);
+    final Set<Integer> result = new LinkedHashSet<Integer>();
+    for (final Match match : matches) {
+      result.add(match.id);
+    }
+    return result;
+  }
+
+  /**
+   * @param address
+   * @return The best matching candidate or null if no candidate was found.
+   * @see #getCandidates(AddressDO)
+   */
+  public Integer getBestCandidate(final AddressDO address)
+  {
+    Match best = null;
+    for (final Match match : getMatches(address)) {
+      if (best == null || BEST_FIRST.compare(match, best) < 0) {
+        best = match;
+      }
+    }
+    return best != null ? best.id : null;
+  }
+
+  private Collection<Match> getMatches(final AddressDO address)
+  {
+    final Map<Integer, Match> matches = new HashMap<Integer, Match>();
+    for (final String email : new String[] { address.getEmail(), address.getPrivateEmail()}) {
+      for (final Integer id : get(emailIndex, normalizeEmail(email))) {
+        getMatch(matches, id).score += EMAIL_WEIGHT;
+      }
+    }
+    final Set<Integer> nameIds = get(nameIndex, normalizeName(address.getName(), address.getFirstName()));
+    for (final String phoneNumber : getPhoneNumbers(address)) {
+      final Set<Integer> ids = get(phoneIndex, normalizePhoneNumber(phoneNumber));
+      if (ids.size() != 1) {
+        // Unknown or shared by several addresses.
+        continue;
+      }
+      final Integer id = ids.iterator().next();
+      if (matches.containsKey(id) == true || nameIds.contains(id) == true) {
+        getMatch(matches, id).score += PHONE_WEIGHT;
+      }
+    }
+    for (final Match match : matches.values()) {
+      if (nameIds.contains(match.id) == true) {
+        match.score += NAME_WEIGHT;
+      }
+    }
+    return matches.values();
+  }
+
+  /**
+   * @return Lower case first name and name without accents, white spaces and punctuation or null if name or first name is empty.
+   */
+  static String normalizeName(final String name, final String firstName)
+  {
+    if (StringUtils.isBlank(name) == true || StringUtils.isBlank(firstName) == true) {
+      return null;
+    }
+    final String str = Normalizer.normalize(firstName + "|" + name, Normalizer.Form.NFD).toLowerCase();
+    final StringBuilder buf = new StringBuilder(str.length());
+    for (int i = 0; i < str.length(); i++) {
+      final char ch = str.charAt(i);
+      if (Character.isLetterOrDigit(ch) == true || ch == '|') {
+        buf.append(ch);
+      }
+    }
+    return buf.toString();
+  }
+
+  static String normalizeEmail(final String email)
+  {
+    if (StringUtils.isBlank(email) == true) {
+      return null;
+    }
+    return email.trim().toLowerCase();
+  }
+
+  String normalizePhoneNumber(final String phoneNumber)
+  {
+    if (StringUtils.isBlank(phoneNumber) == true) {
+      return null;
+    }
+    final String result = NumberHelper.extractPhonenumber(phoneNumber, countryPrefix);
+    if (result == null || result.length() < MIN_PHONE_NUMBER_LENGTH) {
+      return null;
+    }
+    return result;
+  }
+
+  private static String[] getPhoneNumbers(final AddressDO address)
+  {
+    return new String[] { address.getBusinessPhone(), address.getMobilePhone(), address.getPrivatePhone(), address.getPrivateMobilePhone()};
+  }
+
+  private static void put(final Map<String, Set<Integer>> index, final String key, final Integer id)
+  {
+    if (key == null) {
+      return;
+    }
+    Set<Integer> ids = index.get(key);
+    if (ids == null) {
+      ids = new LinkedHashSet<Integer>(2);
+      index.put(key, ids);
+    }
+    ids.add(id);
+  }
+
+  private static Set<Integer> get(final Map<String, Set<Integer>> index, final String key)
+  {
+    final Set<Integer> ids = key != null ? index.get(key) : null;
+    if (ids == null) {
+      return Collections.emptySet();
+    }
+    return ids;
+  }
+
+  private static Match getMatch(final Map<Integer, Match> matches, final Integer id)
+  {
+    Match match = matches.get(id);
+    if (match == null) {
+      match = new Match(id);
+      matches.put(id, match);
+    }
+    return match;
+  }
+
+  private static class Match
+  {
+    final Integer id;
+
+    int score;
+
+    Match(final Integer id)
+    {
+      this.id = id;
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.address;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.projectforge.access.AccessChecker;
+import org.projectforge.common.BeanHelper;
+import org.projectforge.common.ImportStatus;
+import org.projectforge.common.ImportStorage;
+import org.projectforge.common.ImportedElement;
+import org.projectforge.common.ImportedSheet;
+import org.projectforge.core.ActionLog;
+import org.projectforge.core.MassUpdateStatus;
+import org.projectforge.core.UserException;
+import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bulk import of vCard files: The cards are read as stream into an {@link ImportStorage} (preview), reconciled against the existing
+ * addresses by an {@link AddressDuplicateIndex} (new addresses and merge candidates) and the selected addresses are committed in chunks
+ * (see {@link AddressDao#importAddresses(List)}).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+public class AddressImportDao extends HibernateDaoSupport
+{
+  public static final String SHEET_NAME = "vCards";
+
+  static final String[] DIFF_PROPERTIES = { "name", "firstName", "title", "organization", "division", "email", "privateEmail",
+    "businessPhone", "mobilePhone", "fax", "privatePhone", "privateMobilePhone", "addressText", "zipCode", "city", "country", "state",
+    "privateAddressText", "privateZipCode", "privateCity", "privateCountry", "privateState", "postalAddressText", "postalZipCode",
+    "postalCity", "postalCountry", "postalState", "website", "birthday", "comment"};
+
+  /**
+   * Maximum number of ids per query while loading the merge candidates.
+   */
+  private static final int LOAD_BLOCK_SIZE = 1000;
+
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AddressImportDao.class);
+
+  private AccessChecker accessChecker;
+
+  private AddressDao addressDao;
+
+  /**
+   * Reads the vCards of the given stream (UTF-8) into a new import storage. Cards which can't be parsed are skipped and logged in the given
+   * action log.
+   * @param is
+   * @param filename
+   * @param actionLog
+   * @return ImportStorage with the read addresses.
+   */
+  public ImportStorage<AddressDO> importVCards(final InputStream is, final String filename, final ActionLog actionLog)
+  {
+    accessChecker.checkRestrictedOrDemoUser();
+    log.info("importVCards called");
+    final ImportStorage<AddressDO> storage = new ImportStorage<AddressDO>();
+    storage.setFilename(filename);
+    final ImportedSheet<AddressDO> sheet = new ImportedSheet<AddressDO>();
+    sheet.setName(SHEET_NAME);
+    storage.addSheet(sheet);
+    final VCardAddressReader reader;
+    try {
+      reader = new VCardAddressReader(new InputStreamReader(is, "UTF-8"));
+      AddressDO address;
+      while ((address = reader.next()) != null) {
+        final ImportedElement<AddressDO> element = new ImportedElement<AddressDO>(storage.nextVal(), AddressDO.class, DIFF_PROPERTIES);
+        element.setValue(address);
+        sheet.addElement(element);
+        actionLog.incrementCounterSuccess();
+      }
+    } catch (final IOException ex) {
+      log.error("Exception encountered while reading vCard file '" + filename + "': " + ex.getMessage(), ex);
+      throw new UserException("address.book.vCardImport.error", ex.getMessage());
+    }
+    for (int i = 0; i < reader.getNumberOfSkippedCards(); i++) {
+      actionLog.incrementCounterErrors();
+    }
+    if (reader.getNumberOfSkippedCards() > 0) {
+      actionLog.logError("Skipped vCards (parse errors): " + reader.getNumberOfSkippedCards());
+    }
+    log.info("vCard file '" + filename + "' read: " + sheet.getElements().size() + " addresses.");
+    return storage;
+  }
+
+  /**
+   * Searches for every imported address a duplicate within the existing addresses and within the previous cards of the file (see
+   * {@link AddressDuplicateIndex}). For an existing duplicate the imported address is merged into a copy of the existing address (only
+   * empty fields are filled) and the existing address is shown as old value. Existing addresses without select access of the logged-in user
+   * aren't used as duplicates. New addresses are selected for the import, duplicates within the file are deselected.
+   * @param storage
+   * @param sheetName
+   */
+  public void reconcile(final ImportStorage<AddressDO> storage, final String sheetName)
+  {
+    accessChecker.checkRestrictedOrDemoUser();
+    Validate.notNull(storage.getSheets());
+    final ImportedSheet<AddressDO> sheet = storage.getNamedSheet(sheetName);
+    Validate.notNull(sheet);
+    log.info("Reconcile vCard import called");
+    final AddressDuplicateIndex dbIndex = addressDao.buildDuplicateIndex();
+    final AddressDuplicateIndex fileIndex = new AddressDuplicateIndex(addressDao.getCountryPhonePrefix());
+    final Map<ImportedElement<AddressDO>, Integer> mergeCandidates = new HashMap<ImportedElement<AddressDO>, Integer>();
+    int numberOfFileDuplicates = 0;
+    for (final ImportedElement<AddressDO> el : sheet.getElements()) {
+      final AddressDO address = el.getValue();
+      if (fileIndex.getBestCandidate(address) != null) {
+        // Duplicate of a previous card of this file.
+        el.setOldValue(null);
+        el.setSelected(false);
+        ++numberOfFileDuplicates;
+        continue;
+      }
+      fileIndex.add(el.getIndex(), address);
+      final Integer dbId = dbIndex.getBestCandidate(address);
+      if (dbId != null) {
+        mergeCandidates.put(el, dbId);
+      } else {
+        el.setOldValue(null);
+        el.setSelected(true);
+      }
+    }
+    final Map<Integer, AddressDO> dbAddresses = load(new HashSet<Integer>(mergeCandidates.values()));
+    for (final Map.Entry<ImportedElement<AddressDO>, Integer> entry : mergeCandidates.entrySet()) {
+      final ImportedElement<AddressDO> el = entry.getKey();
+      final AddressDO dbAddress = dbAddresses.get(entry.getValue());
+      if (dbAddress == null) {
+        el.setOldValue(null);
+        el.setSelected(true);
+        continue;
+      }
+      el.setValue(merge(dbAddress, el.getValue()));
+      el.setOldValue(dbAddress);
+      el.setSelected(true);
+    }
+    sheet.setStatus(ImportStatus.RECONCILED);
+    sheet.calculateStatistics();
+    sheet.setNumberOfCommittedElements(-1);
+    log.info("Reconcile vCard import finished: "
+        + sheet.getNumberOfNewElements()
+        + " new, "
+        + sheet.getNumberOfModifiedElements()
+        + " merged and "
+        + numberOfFileDuplicates
+        + " duplicates within the file.");
+  }
+
+  /**
+   * Imports all selected addresses (new ones are inserted, merged ones updated).
+   * @param storage
+   * @param sheetName
+   * @return The status of the import.
+   * @see AddressDao#importAddresses(List)
+   */
+  public MassUpdateStatus commit(final ImportStorage<AddressDO> storage, final String sheetName)
+  {
+    accessChecker.checkRestrictedOrDemoUser();
+    Validate.notNull(storage.getSheets());
+    final ImportedSheet<AddressDO> sheet = storage.getNamedSheet(sheetName);
+    Validate.notNull(sheet);
+    if (sheet.getStatus() != ImportStatus.RECONCILED) {
+      throw new UserException("common.import.action.commit.error.notReconciled");
+    }
+    log.info("Commit vCard import called");
+    final List<AddressDO> list = new ArrayList<AddressDO>();
+    for (final ImportedElement<AddressDO> el : sheet.getElements()) {
+      if (el.isSelected() == true) {
+        list.add(el.getValue());
+      }
+    }
+    final MassUpdateStatus status = addressDao.importAddresses(list);
+    sheet.setNumberOfCommittedElements(status.getUpdated());
+    sheet.setStatus(ImportStatus.IMPORTED);
+    return status;
+  }
+
+  /**
+   * @param dbAddress
+   * @param address
+   * @return A copy of the given data-base address, the empty fields (of the diff properties) are filled with the values of the given
+   *         imported address.
+   */
+  static AddressDO merge(final AddressDO dbAddress, final AddressDO address)
+  {
+    final AddressDO result = new AddressDO();
+    result.copyValuesFrom(dbAddress);
+    result.setId(dbAddress.getId());
+    for (final String property : DIFF_PROPERTIES) {
+      final Object value = BeanHelper.getProperty(address, property);
+      if (isEmpty(value) == true || isEmpty(BeanHelper.getProperty(result, property)) == false) {
+        continue;
+      }
+      BeanHelper.setProperty(result, property, value);
+    }
+    return result;
+  }
+
+  private static boolean isEmpty(final Object value)
+  {
+    if (value instanceof String) {
+      return StringUtils.isBlank((String) value);
+    }
+    return value == null;
+  }
+
+  /**
+   * @return The addresses with the given ids, the addresses without select access of the logged-in user are omitted.
+   */
+  private Map<Integer, AddressDO> load(final Set<Integer> ids)
+  {
+    final Map<Integer, AddressDO> result = new HashMap<Integer, AddressDO>();
+    final List<Integer> idList = new ArrayList<Integer>(ids);
+    for (int fromIndex = 0; fromIndex < idList.size(); fromIndex += LOAD_BLOCK_SIZE) {
+      final List<AddressDO> list = addressDao.internalLoad(idList.subList(fromIndex, Math.min(fromIndex + LOAD_BLOCK_SIZE, idList.size())));
+      for (final AddressDO address : list) {
+        if (addressDao.hasLoggedInUserSelectAccess(address, false) == true) {
+          result.put(address.getId(), address);
+        }
+      }
+    }
+    return result;
+  }
+
+  public void setAccessChecker(final AccessChecker accessChecker)
+  {
+    this.accessChecker = accessChecker;
+  }
+
+  public void setAddressDao(final AddressDao addressDao)
+  {
+    this.addressDao = addressDao;
+  }
+}
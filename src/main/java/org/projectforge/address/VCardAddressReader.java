@@ -0,0 +1,456 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.address;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.vcard.Parameter;
+import net.fortuna.ical4j.vcard.Parameter.Id;
+import net.fortuna.ical4j.vcard.Property;
+import net.fortuna.ical4j.vcard.VCard;
+import net.fortuna.ical4j.vcard.VCardBuilder;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+
+/**
+ * Reads the addresses of a vCard file card by card (streaming), so large files aren't parsed at once by {@link VCardBuilder#buildAll()}.
+ * @author M. Lauterbach (m.lauterbach@micromata.de)
+ * 
+ */
+public class VCardAddressReader
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(VCardAddressReader.class);
+
+  private final BufferedReader reader;
+
+  private int numberOfCards;
+
+  private int numberOfSkippedCards;
+
+  public VCardAddressReader(final Reader reader)
+  {
+    this.reader = new BufferedReader(reader);
+  }
+
+  /**
+   * Cards which can't be parsed are skipped (see {@link #getNumberOfSkippedCards()}).
+   * @return The address of the next vCard or null, if no more vCards are available.
+   * @throws IOException
+   */
+  public AddressDO next() throws IOException
+  {
+    List<String> lines;
+    while ((lines = readCard()) != null) {
+      ++numberOfCards;
+      try {
+        return convert(lines);
+      } catch (final ParserException ex) {
+        skip(ex);
+      } catch (final RuntimeException ex) {
+        skip(ex);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return The number of vCards read so far (including the skipped ones).
+   */
+  public int getNumberOfCards()
+  {
+    return numberOfCards;
+  }
+
+  /**
+   * @return The number of vCards which couldn't be parsed.
+   */
+  public int getNumberOfSkippedCards()
+  {
+    return numberOfSkippedCards;
+  }
+
+  private void skip(final Exception ex)
+  {
+    ++numberOfSkippedCards;
+    log.warn("Can't parse vCard #" + numberOfCards + " (skipped): " + ex.getMessage());
+  }
+
+  /**
+   * @return The lines from BEGIN:VCARD to END:VCARD or null if no more cards are available.
+   */
+  private List<String> readCard() throws IOException
+  {
+    List<String> lines = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (lines == null) {
+        if ("BEGIN:VCARD".equalsIgnoreCase(line.trim()) == true) {
+          lines = new ArrayList<String>();
+          lines.add(line);
+        }
+        continue;
+      }
+      lines.add(line);
+      if ("END:VCARD".equalsIgnoreCase(line.trim()) == true) {
+        return lines;
+      }
+    }
+    if (lines != null) {
+      log.warn("Incomplete vCard at the end of file ignored.");
+    }
+    return null;
+  }
+
+  private AddressDO convert(final List<String> lines) throws IOException, ParserException
+  {
+    final StringBuilder buf = new StringBuilder();
+    for (final String line : lines) {
+      buf.append(line).append("\r\n");
+    }
+    final VCard card = new VCardBuilder(new StringReader(buf.toString())).build();
+    final AddressDO newAddress = new AddressDO();
+
+    // //// SET BASE DATA
+    if (card.getProperty(net.fortuna.ical4j.vcard.Property.Id.N) != null) {
+      setName(card.getProperty(net.fortuna.ical4j.vcard.Property.Id.N), newAddress);
+    }
+    if (card.getProperty(net.fortuna.ical4j.vcard.Property.Id.ORG) != null) {
+      setOrganization(card.getProperty(net.fortuna.ical4j.vcard.Property.Id.ORG), newAddress);
+    }
+    if (card.getProperty(net.fortuna.ical4j.vcard.Property.Id.BDAY) != null) {
+      setBirth(card.getProperty(net.fortuna.ical4j.vcard.Property.Id.BDAY), newAddress);
+    }
+    if (card.getProperty(net.fortuna.ical4j.vcard.Property.Id.NOTE) != null) {
+      setNote(card.getProperty(net.fortuna.ical4j.vcard.Property.Id.NOTE), newAddress);
+    }
+
+    // //// SET ADDITIONAL DATA
+    final List<Property> li = card.getProperties();
+    setProperties(li, newAddress);
+
+    // handle item entries (of this card only)
+    final VCardItemElementHandler ih = new VCardItemElementHandler(lines);
+    if (!ih.getItemList().isEmpty())
+      setProperties(ih.getItemList(), newAddress);
+
+    newAddress.setAddressStatus(AddressStatus.UPTODATE);
+    newAddress.setDeleted(false);
+    newAddress.setContactStatus(ContactStatus.ACTIVE);
+    newAddress.setForm(FormOfAddress.UNKNOWN);
+
+    // //// CHECK IF THERE IS SOMETHING MORE TO ADD
+    if (StringUtils.isEmpty(newAddress.getAddressText()) == true) {
+      setOtherPropertiesToWork(li, newAddress);
+      if (!ih.getItemList().isEmpty() && StringUtils.isEmpty(newAddress.getAddressText()) == true) {
+        setOtherPropertiesToWork(ih.getItemList(), newAddress);
+      }
+    } else if (StringUtils.isEmpty(newAddress.getPrivateAddressText()) == true) {
+      setOtherPropertiesToPrivate(li, newAddress);
+      if (!ih.getItemList().isEmpty() && StringUtils.isEmpty(newAddress.getPostalAddressText()) == true)
+        setOtherPropertiesToPrivate(ih.getItemList(), newAddress);
+    } else {
+      setPostalProperties(li, newAddress);
+      if (!ih.getItemList().isEmpty() && StringUtils.isEmpty(newAddress.getPostalAddressText()) == true)
+        setPostalProperties(ih.getItemList(), newAddress);
+    }
+    return newAddress;
+  }
+
+  /**
+   * @param property
+   */
+  private void setNote(final Property property, final AddressDO address)
+  {
+    address.setComment(property.getValue());
+  }
+
+  /**
+   * @param li
+   */
+  private void setProperties(final List<Property> li, final AddressDO address)
+  {
+    for (final Property property : li) {
+      final List<Parameter> lii = property.getParameters(Id.TYPE);
+      for (final Parameter param : lii) {
+        if (param.getValue().equals("HOME"))
+          setHomeData(property, address);
+        else if (param.getValue().equals("WORK"))
+          setWorkData(property, address);
+      }
+    }
+  }
+
+  private void setPostalProperties(final List<Property> li, final AddressDO address)
+  {
+    for (final Property property : li) {
+      final List<Parameter> lii = property.getParameters(Id.TYPE);
+      for (final Parameter param : lii) {
+        if (param.getValue().equals("OTHER")) {
+          // ////SET WORK ADDRESS
+          if (property.getId().toString().equals("ADR")) {
+            final String str[] = StringUtils.split(property.getValue(), ';');
+            final int size = str.length;
+            if (size >= 1)
+              address.setPostalAddressText(str[0]);
+            if (size >= 2)
+              address.setPostalCity(str[1]);
+            if (size >= 3)
+              address.setPostalZipCode(str[2]);
+            if (size >= 4)
+              address.setPostalCountry(str[3]);
+            if (size >= 5)
+              address.setPostalState(str[4]);
+          }
+        }
+      }
+    }
+  }
+
+  private void setOtherPropertiesToWork(final List<Property> li, final AddressDO address)
+  {
+    for (final Property property : li) {
+      final List<Parameter> lii = property.getParameters(Id.TYPE);
+      for (final Parameter param : lii) {
+        if (param.getValue().equals("OTHER")) {
+          // ////SET WORK ADDRESS
+          if (property.getId().toString().equals("ADR")) {
+            final String str[] = StringUtils.split(property.getValue(), ';');
+            final int size = str.length;
+            if (size >= 1)
+              address.setAddressText(str[0]);
+            if (size >= 2)
+              address.setCity(str[1]);
+            if (size >= 3)
+              address.setZipCode(str[2]);
+            if (size >= 4)
+              address.setCountry(str[3]);
+            if (size >= 5)
+              address.setState(str[4]);
+          }
+        }
+      }
+    }
+  }
+
+  private void setOtherPropertiesToPrivate(final List<Property> li, final AddressDO address)
+  {
+    for (final Property property : li) {
+      final List<Parameter> lii = property.getParameters(Id.TYPE);
+      for (final Parameter param : lii) {
+        if (param.getValue().equals("OTHER")) {
+          // //// SET HOME ADDRESS
+          if (property.getId().toString().equals("ADR")) {
+            final String str[] = StringUtils.split(property.getValue(), ';');
+            final int size = str.length;
+            // street
+            if (size >= 1)
+              address.setPrivateAddressText(str[0]);
+            // city
+            if (size >= 2)
+              address.setPrivateCity(str[1]);
+            // zip code
+            if (size >= 3)
+              address.setPrivateZipCode(str[2]);
+            // country
+            if (size >= 4)
+              address.setPrivateCountry(str[3]);
+            // state
+            if (size >= 5)
+              address.setPrivateState(str[4]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param property
+   */
+  private void setBirth(final Property property, final AddressDO address)
+  {
+    if (property != null)
+      address.setBirthday(new Date(DateTime.parse(property.getValue()).getMillis()));
+  }
+
+  private void setName(final Property property, final AddressDO address)
+  {
+    final String str[] = StringUtils.split(property.getValue(), ';');
+    address.setName(str[0]);
+    address.setFirstName(str[1]);
+    if (str.length >= 3)
+      address.setTitle(str[2]);
+  }
+
+  private void setOrganization(final Property property, final AddressDO address)
+  {
+    final String org = StringUtils.substringBefore(property.getValue(), ";");
+    address.setOrganization(org);
+    final String division = StringUtils.substringAfter(property.getValue(), ";");
+    address.setDivision(division);
+  }
+
+  /**
+   * Create home newAddress
+   * 
+   * @param property
+   */
+  private void setHomeData(final Property property, final AddressDO address)
+  {
+    boolean telCheck = true; // to seperate phone and mobil number
+    // //// SET HOME EMAIL
+    if (property.getId().toString().equals("EMAIL"))
+      address.setPrivateEmail(property.getValue());
+
+    // //// SET HOME PHONE
+    if (property.getId().toString().equals("TEL")) {
+      final List<Parameter> list = property.getParameters();
+      for (final Parameter p : list) {
+        if (p.getValue().toString().equals("VOICE")) {
+          final String tel = getTel(property.getValue());
+
+          // phone number first, mobil number second
+          if (telCheck) {
+            address.setPrivatePhone(tel);
+            telCheck = false;
+            break;
+          } else {
+            address.setPrivateMobilePhone(tel);
+            break;
+          }
+        }
+        if (address.getPrivatePhone() == null && property.toString().contains("FAX") == false) {
+          address.setPrivatePhone(getTel(property.getValue()));
+        } else {
+          if (address.getPrivateMobilePhone() == null && property.toString().contains("FAX") == false) {
+            address.setPrivateMobilePhone(getTel(property.getValue()));
+          }
+        }
+      }
+    }
+
+    // //// SET FAX -> no private fax
+
+    // //// SET HOME ADDRESS
+    if (property.getId().toString().equals("ADR")) {
+      final String str[] = StringUtils.split(property.getValue(), ';');
+      final int size = str.length;
+      if (size >= 1)
+        address.setPrivateAddressText(str[0]);
+      if (size >= 2)
+        address.setPrivateCity(str[1]);
+      if (size >= 3)
+        address.setPrivateZipCode(str[2]);
+      if (size >= 4)
+        address.setPrivateCountry(str[3]);
+      if (size >= 5)
+        address.setPrivateState(str[4]);
+    }
+
+    // //// SET HOME URL -> no space for home url
+  }
+
+  /**
+   * @param property
+   * @return
+   */
+  private String getTel(String tel)
+  {
+    if (tel.startsWith("0")) {
+      tel = "+49 " + tel.substring(1);
+    } else {
+      if (!tel.startsWith("+"))
+        tel = "+49 " + tel;
+    }
+    return tel;
+  }
+
+  private void setWorkData(final Property property, final AddressDO address)
+  {
+    boolean telCheck = true; // to seperate phone and mobil number
+
+    // //// SET WORK PHONE
+    if (property.getId().toString().equals("TEL")) {
+      final List<Parameter> list = property.getParameters();
+      for (final Parameter p : list) {
+        if (p.getValue().toString().equals("VOICE")) {
+          final String tel = getTel(property.getValue());
+
+          // phone number first, mobil number second
+          if (telCheck) {
+            address.setBusinessPhone(tel);
+            telCheck = false;
+            break;
+          } else {
+            address.setMobilePhone(tel);
+            break;
+          }
+        }
+        // //// SET WORK FAX
+        if (p.getValue().toString().equals("FAX")) {
+          address.setFax(getTel(property.getValue()));
+        }
+        if (address.getBusinessPhone() == null && property.toString().contains("FAX") == false) {
+          address.setBusinessPhone(getTel(property.getValue()));
+        } else {
+          if (address.getMobilePhone() == null && property.toString().contains("FAX") == false) {
+            address.setMobilePhone(getTel(property.getValue()));
+          }
+        }
+      }
+    }
+
+    // //// SET WORK EMAIL
+    if (property.getId().toString().equals("EMAIL"))
+      address.setEmail(property.getValue());
+
+    // //// SET WORK ADDRESS
+    if (property.getId().toString().equals("ADR")) {
+      final String str[] = StringUtils.split(property.getValue(), ';');
+      final int size = str.length;
+      if (size >= 1)
+        address.setAddressText(str[0]);
+      if (size >= 2)
+        address.setCity(str[1]);
+      if (size >= 3)
+        address.setZipCode(str[2]);
+      if (size >= 4)
+        address.setCountry(str[3]);
+      if (size >= 5)
+        address.setState(str[4]);
+    }
+
+    // //// SET WORK URL
+    if (property.getId().toString().equals("URL"))
+      address.setWebsite(property.getValue());
+  }
+}
@@ -21,7 +21,7 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
-package org.projectforge.web.address;
+package org.projectforge.address;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
@@ -29,6 +29,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.List;
 
 import net.fortuna.ical4j.model.ValidationException;
 import net.fortuna.ical4j.vcard.Group;
@@ -58,74 +59,84 @@ public class VCardItemElementHandler
     try {
       String strLine;
       while ((strLine = br.readLine()) != null)   {
-        // looking for a item entry
-        if (strLine.startsWith("item") && !strLine.contains("X-AB")) {
-
-          // dissect the line by char
-          final String str[] = StringUtils.splitByCharacterType(strLine);
-
-          /*
-           * ignore "item" + "number" + "." (example: "item2.") cause is not needed.
-           * at index = 3 is the GroupId
-           */
-          final int n = 3;
-
-          // set Property.Id
-          final Id id = getItemId(str[n]);
-
-          final ArrayList<Parameter> param = new ArrayList<Parameter>();
-
-          boolean startSignFound = false;
-
-          String valueCache = "";
-          for (int i = n; i < str.length; i++){
-            // looking for parameters
-            if (str[i].equals("WORK") || str[i].equals("HOME")){
-              param.add(getParameter(str[i]));
-            }
-
-            /*
-             * looking for start sign.
-             * usually ":" but sometimes addresses starts with ":;;"
-             */
-            if (str[i].equals(":;;") || str[i].equals(":") || str[i].equals(":;") && !startSignFound){
-              startSignFound = true;
-            } else
-              if (startSignFound) {
-                // terminate unwanted signs.
-                if(str[i].equals(";") || str[i].equals(";;") || str[i].equals(".;"))
-                  valueCache = valueCache + ";";
-                else
-                  valueCache = valueCache + str[i];
-              }
-          }
+        handleLine(strLine);
+      }
+      in.close();
+    } catch (final IOException ex) {
+      //      log.fatal("Exception encountered " + ex, ex);
+    }
+  }
+
+  /**
+   * @param lines The lines of a single vCard.
+   */
+  public VCardItemElementHandler(final List<String> lines){
+    itemList = new ArrayList<Property>();
+    for (final String strLine : lines) {
+      handleLine(strLine);
+    }
+  }
+
+  private void handleLine(final String strLine){
+    // looking for a item entry
+    if (strLine.startsWith("item") && !strLine.contains("X-AB")) {
 
-          final String finalValue = valueCache;
-          // set property with group at index = 3
-          @SuppressWarnings("serial")
-          final Property property = new Property(new Group(str[n]), id, param) {
-            @Override
-            public void validate() throws ValidationException
-            {
-            }
-
-            @Override
-            public String getValue()
-            {
-              return finalValue;
-            }
-          };
-          itemList.add(property);
+      // dissect the line by char
+      final String str[] = StringUtils.splitByCharacterType(strLine);
 
+      /*
+       * ignore "item" + "number" + "." (example: "item2.") cause is not needed.
+       * at index = 3 is the GroupId
+       */
+      final int n = 3;
+
+      // set Property.Id
+      final Id id = getItemId(str[n]);
+
+      final ArrayList<Parameter> param = new ArrayList<Parameter>();
+
+      boolean startSignFound = false;
+
+      String valueCache = "";
+      for (int i = n; i < str.length; i++){
+        // looking for parameters
+        if (str[i].equals("WORK") || str[i].equals("HOME")){
+          param.add(getParameter(str[i]));
         }
+
+        /*
+         * looking for start sign.
+         * usually ":" but sometimes addresses starts with ":;;"
+         */
+        if (str[i].equals(":;;") || str[i].equals(":") || str[i].equals(":;") && !startSignFound){
+          startSignFound = true;
+        } else
+          if (startSignFound) {
+            // terminate unwanted signs.
+            if(str[i].equals(";") || str[i].equals(";;") || str[i].equals(".;"))
+              valueCache = valueCache + ";";
+            else
+              valueCache = valueCache + str[i];
+          }
       }
-      //      for (final Property p : itemList){
-      //        System.out.println("propterty val: " + p.getValue() + " ;;; id: " + p.getId() + " ;;; parameter: " + p.getParameters(Parameter.Id.TYPE));
-      //      }
 
-      in.close();
-    } catch (final IOException ex) {
-      //      log.fatal("Exception encountered " + ex, ex);
+      final String finalValue = valueCache;
+      // set property with group at index = 3
+      @SuppressWarnings("serial")
+      final Property property = new Property(new Group(str[n]), id, param) {
+        @Override
+        public void validate() throws ValidationException
+        {
+        }
+
+        @Override
+        public String getValue()
+        {
+          return finalValue;
+        }
+      };
+      itemList.add(property);
+
     }
   }
 
@@ -31,13 +31,14 @@ import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.projectforge.core.ConfigXml;
+import org.projectforge.core.ConfigurationListener;
 
 /**
  * 
  * @author Kai Reinhard (k.reinhard@micromata.de)
  * 
  */
-public class Holidays
+public class Holidays implements ConfigurationListener
 {
   private static final Logger log = Logger.getLogger(Holidays.class);
 
@@ -53,7 +54,12 @@ public class Holidays
 
   private Map<HolidayDefinition, ConfigureHoliday> reconfiguredHolidays = new HashMap<HolidayDefinition, ConfigureHoliday>();
 
-  private ConfigXml xmlConfiguration;
+  private volatile ConfigXml xmlConfiguration;
+
+  /**
+   * Incremented every time the holiday configuration is (re-)read.
+   */
+  private volatile int version;
 
   private Map<Integer, Holiday> computeHolidays(int year)
   {
@@ -174,17 +180,7 @@ public class Holidays
 
   private synchronized Map<Integer, Holiday> getHolidays(int year)
   {
-    if (xmlConfiguration == null) {
-      xmlConfiguration = ConfigXml.getInstance();
-      if (xmlConfiguration.getHolidays() != null) {
-        for (final ConfigureHoliday holiday : xmlConfiguration.getHolidays()) {
-          if (holiday.getId() != null) {
-            reconfiguredHolidays.put(holiday.getId(), holiday);
-          }
-        }
-        holidaysByYear.clear();
-      }
-    }
+    checkConfiguration();
     Map<Integer, Holiday> holidays = holidaysByYear.get(new Integer(year));
     if (holidays == null) {
       holidays = computeHolidays(year);
@@ -193,6 +189,59 @@ public class Holidays
     return holidays;
   }
 
+  /**
+   * Reads the holiday configuration if not yet done for the current configuration instance (e. g. replaced by test cases).
+   */
+  private void checkConfiguration()
+  {
+    final ConfigXml config = ConfigXml.getInstance();
+    if (xmlConfiguration != config) {
+      xmlConfiguration = config;
+      config.register(this);
+      readConfiguration();
+    }
+  }
+
+  private void readConfiguration()
+  {
+    reconfiguredHolidays.clear();
+    if (xmlConfiguration.getHolidays() != null) {
+      for (final ConfigureHoliday holiday : xmlConfiguration.getHolidays()) {
+        if (holiday.getId() != null) {
+          reconfiguredHolidays.put(holiday.getId(), holiday);
+        }
+      }
+    }
+    holidaysByYear.clear();
+    ++version;
+  }
+
+  /**
+   * The holidays are computed again after the config file is re-read.
+   * @see org.projectforge.core.ConfigurationListener#afterRead()
+   */
+  @Override
+  public synchronized void afterRead()
+  {
+    if (xmlConfiguration != null) {
+      readConfiguration();
+    }
+  }
+
+  /**
+   * Caches of values depending on the holidays (e. g. {@link WorkingDayIndex}) have to be cleared if the version changes.
+   * @return The version of the holiday configuration, incremented every time the configuration is (re-)read.
+   */
+  public int getVersion()
+  {
+    if (xmlConfiguration != ConfigXml.getInstance()) {
+      synchronized (this) {
+        checkConfiguration();
+      }
+    }
+    return version;
+  }
+
   public boolean isHoliday(int year, int dayOfYear)
   {
     return (getHolidays(year).containsKey(dayOfYear) == true);
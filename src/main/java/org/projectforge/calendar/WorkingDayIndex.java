@@ -0,0 +1,163 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.calendar;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.projectforge.common.DateHelper;
+
+/**
+ * Prefix sums of the working days per year (weekends and holidays, see {@link Holidays}). The working day arithmetic (e. g. adding 20
+ * working days to a date) is done by binary search instead of iterating day by day. <br/>
+ * Working days depend only on the year and the day of year (and therefore the day of week), so the index is independent of the time zone.
+ * The index is dropped if the holiday configuration changes (see {@link Holidays#getVersion()}).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class WorkingDayIndex
+{
+  /**
+   * Maximum number of years walked through per calculation.
+   */
+  private static final int MAX_YEARS = 100;
+
+  private static final WorkingDayIndex instance = new WorkingDayIndex();
+
+  private volatile Index index = new Index(-1);
+
+  private static class Index
+  {
+    /**
+     * The version of the holiday configuration this index is computed for.
+     */
+    final int holidaysVersion;
+
+    /**
+     * Key is the year. Value is the number of working days from January 1st up to the day of year (array index 0 is January 1st).
+     */
+    final Map<Integer, int[]> cumulatedWorkingDaysByYear = new ConcurrentHashMap<Integer, int[]>();
+
+    Index(final int holidaysVersion)
+    {
+      this.holidaysVersion = holidaysVersion;
+    }
+  }
+
+  public static WorkingDayIndex getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Same result as adding working days day by day (see {@link org.projectforge.common.DateHolder#addWorkingDays(int)}): the given day
+   * itself isn't counted.
+   * @param year
+   * @param dayOfYear 1 for January 1st.
+   * @param workingDays Number of working days to add (may be negative).
+   * @return The number of calendar days to add or null, if the result is out of the supported range.
+   */
+  public Integer getCalendarDays(final int year, final int dayOfYear, final int workingDays)
+  {
+    if (workingDays == 0) {
+      return 0;
+    }
+    int currentYear = year;
+    int[] cumulated = getCumulatedWorkingDays(currentYear);
+    // Number of calendar days from the given day to January 1st of the current year:
+    int offset = -(dayOfYear - 1);
+    int target;
+    if (workingDays > 0) {
+      // Search for the first day with cumulated working days >= target:
+      target = cumulated[dayOfYear - 1] + workingDays;
+      for (int i = 0; target > cumulated[cumulated.length - 1]; i++) {
+        if (i >= MAX_YEARS) {
+          return null;
+        }
+        target -= cumulated[cumulated.length - 1];
+        offset += cumulated.length;
+        cumulated = getCumulatedWorkingDays(++currentYear);
+      }
+    } else {
+      target = (dayOfYear > 1 ? cumulated[dayOfYear - 2] : 0) + workingDays + 1;
+      for (int i = 0; target < 1; i++) {
+        if (i >= MAX_YEARS) {
+          return null;
+        }
+        cumulated = getCumulatedWorkingDays(--currentYear);
+        target += cumulated[cumulated.length - 1];
+        offset -= cumulated.length;
+      }
+    }
+    return offset + findFirst(cumulated, target);
+  }
+
+  /**
+   * @return Index of the first element greater or equal than the given value.
+   */
+  private int findFirst(final int[] cumulated, final int value)
+  {
+    int lo = 0, hi = cumulated.length - 1;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (cumulated[mid] < value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private int[] getCumulatedWorkingDays(final int year)
+  {
+    Index current = index;
+    final int holidaysVersion = Holidays.getInstance().getVersion();
+    if (current.holidaysVersion != holidaysVersion) {
+      // Holiday configuration changed (or not yet read):
+      current = new Index(holidaysVersion);
+      index = current;
+    }
+    final Map<Integer, int[]> cumulatedWorkingDaysByYear = current.cumulatedWorkingDaysByYear;
+    int[] cumulated = cumulatedWorkingDaysByYear.get(year);
+    if (cumulated == null) {
+      final DayHolder day = new DayHolder(new Date(), DateHelper.UTC, Locale.ENGLISH);
+      day.setDate(year, Calendar.JANUARY, 1);
+      cumulated = new int[day.getCalendar().getActualMaximum(Calendar.DAY_OF_YEAR)];
+      int counter = 0;
+      for (int i = 0; i < cumulated.length; i++) {
+        if (day.isWorkingDay() == true) {
+          ++counter;
+        }
+        cumulated[i] = counter;
+        day.add(Calendar.DAY_OF_MONTH, 1);
+      }
+      cumulatedWorkingDaysByYear.put(year, cumulated);
+    }
+    return cumulated;
+  }
+}
@@ -23,12 +23,20 @@
 
 package org.projectforge.common;
 
+import java.io.Serializable;
+
+import org.projectforge.core.CacheInvalidationBus;
+import org.projectforge.core.CacheInvalidationListener;
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.MetricTimer;
+import org.projectforge.core.PerformanceMetrics;
+
 /**
  * This class is usefull, if the stored object of derived classes has to be cached. After reaching expireTime during a request, the method
  * refresh will be called.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
-public abstract class AbstractCache
+public abstract class AbstractCache implements CacheInvalidationListener
 {
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AbstractCache.class);
 
@@ -40,12 +48,19 @@ public abstract class AbstractCache
 
   protected long expireTime = 60 * TICKS_PER_MINUTE;
 
-  private transient long timeOfLastRefresh = -1;
+  private transient volatile long timeOfLastRefresh = -1;
 
-  private transient boolean isExpired = true;
+  private transient volatile boolean isExpired = true;
 
   private transient boolean refreshInProgress = false;
 
+  /**
+   * Usage of the cache without (hits) and with (misses) refresh and the refresh durations (see {@link PerformanceMetrics}).
+   */
+  private transient MetricCounter hitCounter, missCounter;
+
+  private transient MetricTimer refreshTimer;
+
   protected AbstractCache()
   {
   }
@@ -78,6 +93,25 @@ public abstract class AbstractCache
     this.isExpired = true;
   }
 
+  /**
+   * Registers this cache at the {@link CacheInvalidationBus} for being notified about modifications of the given entities on other nodes.
+   * @param entityClasses
+   */
+  protected void registerForInvalidation(final Class< ? >... entityClasses)
+  {
+    CacheInvalidationBus.register(this, entityClasses);
+  }
+
+  /**
+   * Expires the whole cache. Override this method for a fine-grained invalidation of the given entity.
+   * @see org.projectforge.core.CacheInvalidationListener#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    setExpired();
+  }
+
   /**
    * Sets the cache to expired and calls checkRefresh, which forces refresh.
    */
@@ -88,27 +122,57 @@ public abstract class AbstractCache
   }
 
   /**
-   * Checks the expire time and calls refresh, if cache is expired.
+   * Checks the expire time and calls refresh, if cache is expired. The check of an up-to-date cache needs no lock, so the request threads
+   * don't contend on the monitor of this cache. The refresh itself runs under the monitor of this cache and the refreshed data is published
+   * by the volatile write of timeOfLastRefresh after the refresh: While refreshing, timeOfLastRefresh marks the cache as expired, so other
+   * threads wait on the monitor instead of reading half-built data.
    */
-  protected synchronized void checkRefresh()
+  protected void checkRefresh()
+  {
+    if (this.isExpired == false && System.currentTimeMillis() - this.timeOfLastRefresh <= this.expireTime) {
+      final MetricCounter counter = hitCounter;
+      if (counter != null) {
+        counter.increment();
+      }
+      return;
+    }
+    checkRefreshSynchronized();
+  }
+
+  private synchronized void checkRefreshSynchronized()
   {
     if (refreshInProgress == true) {
       // Do nothing because refreshing is already in progress.
       return;
     }
+    if (refreshTimer == null) {
+      final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+      final String prefix = "cache." + getClass().getName().substring(getClass().getName().lastIndexOf('.') + 1) + ".";
+      hitCounter = metrics.getCounter(prefix + "hits");
+      missCounter = metrics.getCounter(prefix + "misses");
+      refreshTimer = metrics.getTimer(prefix + "refresh");
+    }
     if (this.isExpired == true || System.currentTimeMillis() - this.timeOfLastRefresh > this.expireTime) {
+      missCounter.increment();
+      final long start = System.nanoTime();
       try {
         refreshInProgress = true;
-        this.timeOfLastRefresh = System.currentTimeMillis();
+        final long now = System.currentTimeMillis();
+        this.timeOfLastRefresh = -1;
+        // Reset before refresh, so a call of setExpired during the refresh isn't lost:
+        this.isExpired = false;
         try {
           this.refresh();
         } catch (final Throwable ex) {
           log.error(ex.getMessage(), ex);
         }
-        this.isExpired = false;
+        this.timeOfLastRefresh = now;
       } finally {
         refreshInProgress = false;
+        refreshTimer.stop(start);
       }
+    } else {
+      hitCounter.increment();
     }
   }
 
@@ -0,0 +1,248 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.common;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.projectforge.core.CacheInvalidationBus;
+import org.projectforge.core.CacheInvalidationListener;
+import org.projectforge.core.TransactionHelper;
+
+/**
+ * Lock-free counters per user, e. g. for displaying the number of recent entries as badges beside the menu entries. Reading a counter
+ * never blocks and never queries the data base, so it may be called on every page render.<br/>
+ * The counted entities are hold as map (entity id -> user id) and the counters are maintained incrementally by the dao's via
+ * {@link #update(Integer, Integer)} after every insert, update or (un)delete (applied after the commit). After the expire time (and after the first access) the
+ * counters are reconciled asynchronously with the data base by calling {@link #loadCountedEntities()}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public abstract class AbstractCounterCache implements CacheInvalidationListener
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AbstractCounterCache.class);
+
+  private static final ExecutorService reconciliationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "counter-reconciliation");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final long expireTime;
+
+  private volatile Counters counters = new Counters();
+
+  private volatile long timeOfLastReconciliation = -1;
+
+  private final AtomicBoolean reconciliationInProgress = new AtomicBoolean();
+
+  /**
+   * Will be incremented on every update, so modifications during a running reconciliation are detected.
+   */
+  private final AtomicInteger modificationCounter = new AtomicInteger();
+
+  /**
+   * @param expireTime Time in milliseconds after that the counters are reconciled with the data base.
+   * @see AbstractCache#TICKS_PER_MINUTE
+   */
+  protected AbstractCounterCache(final long expireTime)
+  {
+    this.expireTime = expireTime;
+  }
+
+  /**
+   * Lock-free. If the counters aren't yet loaded, 0 is returned and the counters are loaded asynchronously.
+   * @param userId
+   * @return The current counter of the given user.
+   */
+  public int getCounter(final Integer userId)
+  {
+    checkReconciliation();
+    if (userId == null) {
+      return 0;
+    }
+    final AtomicInteger counter = counters.userCounters.get(userId);
+    return counter != null ? Math.max(counter.get(), 0) : 0;
+  }
+
+  /**
+   * Should be called after every modification of an entity (insert, update, mark as deleted, undelete and delete). If called inside a
+   * transaction, the counters are updated after the commit (and not at all on rollback).
+   * @param entityId The id of the modified entity.
+   * @param userId The user for whom the entity should be counted, or null if the entity shouldn't be counted (anymore).
+   */
+  public void update(final Integer entityId, final Integer userId)
+  {
+    if (entityId == null) {
+      return;
+    }
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        apply(entityId, userId);
+      }
+    });
+  }
+
+  private void apply(final Integer entityId, final Integer userId)
+  {
+    modificationCounter.incrementAndGet();
+    final Counters current = counters;
+    final Integer oldUserId = userId != null ? current.entities.put(entityId, userId) : current.entities.remove(entityId);
+    if (oldUserId != null && oldUserId.equals(userId) == true) {
+      // Nothing changed.
+      return;
+    }
+    if (oldUserId != null) {
+      current.add(oldUserId, -1);
+    }
+    if (userId != null) {
+      current.add(userId, 1);
+    }
+  }
+
+  /**
+   * Forces an asynchronous reconciliation before the expire time is reached.
+   */
+  public void setExpired()
+  {
+    timeOfLastReconciliation = -1;
+  }
+
+  /**
+   * Registers this cache at the {@link CacheInvalidationBus} for being notified about modifications of the given entities on other nodes.
+   * @param entityClasses
+   */
+  protected void registerForInvalidation(final Class< ? >... entityClasses)
+  {
+    CacheInvalidationBus.register(this, entityClasses);
+  }
+
+  /**
+   * The counted entity was modified on another node: Forces an asynchronous reconciliation on next access.
+   * @see org.projectforge.core.CacheInvalidationListener#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    setExpired();
+  }
+
+  private void checkReconciliation()
+  {
+    if (System.currentTimeMillis() - timeOfLastReconciliation <= expireTime) {
+      return;
+    }
+    if (reconciliationInProgress.compareAndSet(false, true) == false) {
+      // Reconciliation is already running.
+      return;
+    }
+    reconciliationExecutor.execute(new Runnable() {
+      @Override
+      public void run()
+      {
+        try {
+          reconcile();
+        } finally {
+          reconciliationInProgress.set(false);
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads all counted entities from the data base and replaces the current counters. Modifications done while loading are detected and
+   * force another reconciliation on next access.
+   */
+  public void reconcile()
+  {
+    final int modificationCounterBefore = modificationCounter.get();
+    final long now = System.currentTimeMillis();
+    final Map<Integer, Integer> entities;
+    try {
+      entities = loadCountedEntities();
+    } catch (final Exception ex) {
+      log.error("Exception encountered while reconciling counters of " + getClass().getSimpleName() + ": " + ex.getMessage(), ex);
+      timeOfLastReconciliation = now; // Don't try it again on every access.
+      return;
+    }
+    final Counters newCounters = new Counters();
+    if (entities != null) {
+      for (final Map.Entry<Integer, Integer> entry : entities.entrySet()) {
+        if (entry.getKey() == null || entry.getValue() == null) {
+          continue;
+        }
+        newCounters.entities.put(entry.getKey(), entry.getValue());
+        newCounters.add(entry.getValue(), 1);
+      }
+    }
+    counters = newCounters;
+    if (modificationCounter.get() == modificationCounterBefore) {
+      timeOfLastReconciliation = now;
+    } else {
+      // Entities were modified while loading, so the loaded counters may be out-dated already:
+      timeOfLastReconciliation = -1;
+    }
+    if (log.isDebugEnabled() == true) {
+      log.debug(getClass().getSimpleName() + " reconciled: " + newCounters.entities.size() + " counted entities.");
+    }
+  }
+
+  /**
+   * Will be called asynchronously for reconciliation.
+   * @return All entities to count: the key is the entity id and the value the user id for whom the entity is counted.
+   */
+  protected abstract Map<Integer, Integer> loadCountedEntities();
+
+  private static class Counters
+  {
+    final ConcurrentHashMap<Integer, Integer> entities = new ConcurrentHashMap<Integer, Integer>();
+
+    final ConcurrentHashMap<Integer, AtomicInteger> userCounters = new ConcurrentHashMap<Integer, AtomicInteger>();
+
+    void add(final Integer userId, final int delta)
+    {
+      AtomicInteger counter = userCounters.get(userId);
+      if (counter == null) {
+        final AtomicInteger newCounter = new AtomicInteger();
+        counter = userCounters.putIfAbsent(userId, newCounter);
+        if (counter == null) {
+          counter = newCounter;
+        }
+      }
+      counter.addAndGet(delta);
+    }
+  }
+}
@@ -27,12 +27,14 @@ import java.io.Serializable;
 import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.projectforge.calendar.DayHolder;
+import org.projectforge.calendar.WorkingDayIndex;
 import org.projectforge.user.PFUserContext;
 
 /**
@@ -714,10 +716,18 @@ public class DateHolder implements Serializable, Cloneable, Comparable<DateHolde
   /**
    * Adds the given number of days (non-working days will be skipped). Maximum allowed value is 10.000 (for avoiding end-less loops).
    * @param days Value can be positive or negative.
+   * @see WorkingDayIndex
    */
   public DateHolder addWorkingDays(final int days)
   {
     Validate.isTrue(days <= 10000);
+    if (calendar instanceof GregorianCalendar) {
+      final Integer calendarDays = WorkingDayIndex.getInstance().getCalendarDays(getYear(), getDayOfYear(), days);
+      if (calendarDays != null) {
+        calendar.add(Calendar.DAY_OF_MONTH, calendarDays);
+        return this;
+      }
+    }
     short sign = 1;
     if (days < 0) {
       sign = -1;
@@ -0,0 +1,130 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.common;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the reflective field meta data per class. The fields are determined and made accessible only once per class, so the
+ * reflective helpers (copy values, user preferences, xml de-serialization etc.) may iterate over the pre-computed arrays instead of calling
+ * {@link Class#getDeclaredFields()} and {@link AccessibleObject#setAccessible(AccessibleObject[], boolean)} on every call. <br/>
+ * The returned arrays are shared, please don't modify them.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class FieldMetadataRegistry
+{
+  private static final Map<Class< ? >, Field[]> declaredFieldsMap = new ConcurrentHashMap<Class< ? >, Field[]>();
+
+  private static final Map<Class< ? >, Field[]> allDeclaredFieldsMap = new ConcurrentHashMap<Class< ? >, Field[]>();
+
+  private static final Map<Class< ? >, Map<String, Field>> declaredFieldsByNameMap = new ConcurrentHashMap<Class< ? >, Map<String, Field>>();
+
+  private static final Map<Class< ? >, Map<Class< ? extends Annotation>, Field[]>> annotatedFieldsMap = new ConcurrentHashMap<Class< ? >, Map<Class< ? extends Annotation>, Field[]>>();
+
+  /**
+   * @param clazz
+   * @return The declared fields of the given class (without fields of the super classes), already set accessible.
+   */
+  public static Field[] getDeclaredFields(final Class< ? > clazz)
+  {
+    Field[] fields = declaredFieldsMap.get(clazz);
+    if (fields == null) {
+      fields = clazz.getDeclaredFields();
+      AccessibleObject.setAccessible(fields, true);
+      declaredFieldsMap.put(clazz, fields);
+    }
+    return fields;
+  }
+
+  /**
+   * @param clazz
+   * @return The declared fields of the given class and all its super classes, already set accessible.
+   * @see BeanHelper#getAllDeclaredFields(Class)
+   */
+  public static Field[] getAllDeclaredFields(final Class< ? > clazz)
+  {
+    Field[] fields = allDeclaredFieldsMap.get(clazz);
+    if (fields == null) {
+      fields = BeanHelper.getAllDeclaredFields(clazz);
+      AccessibleObject.setAccessible(fields, true);
+      allDeclaredFieldsMap.put(clazz, fields);
+    }
+    return fields;
+  }
+
+  /**
+   * @param clazz
+   * @param fieldName
+   * @return The declared field (already set accessible) of the given class (without fields of the super classes) or null if not exist.
+   */
+  public static Field getDeclaredField(final Class< ? > clazz, final String fieldName)
+  {
+    Map<String, Field> map = declaredFieldsByNameMap.get(clazz);
+    if (map == null) {
+      map = new HashMap<String, Field>();
+      for (final Field field : getDeclaredFields(clazz)) {
+        map.put(field.getName(), field);
+      }
+      map = Collections.unmodifiableMap(map);
+      declaredFieldsByNameMap.put(clazz, map);
+    }
+    return map.get(fieldName);
+  }
+
+  /**
+   * @param clazz
+   * @param annotationClass
+   * @return The declared fields of the given class (without fields of the super classes) annotated with the given annotation in the order
+   *         of their declaration, already set accessible.
+   */
+  public static Field[] getDeclaredFields(final Class< ? > clazz, final Class< ? extends Annotation> annotationClass)
+  {
+    Map<Class< ? extends Annotation>, Field[]> map = annotatedFieldsMap.get(clazz);
+    if (map == null) {
+      map = new ConcurrentHashMap<Class< ? extends Annotation>, Field[]>();
+      annotatedFieldsMap.put(clazz, map);
+    }
+    Field[] fields = map.get(annotationClass);
+    if (fields == null) {
+      final List<Field> list = new ArrayList<Field>();
+      for (final Field field : getDeclaredFields(clazz)) {
+        if (field.isAnnotationPresent(annotationClass) == true) {
+          list.add(field);
+        }
+      }
+      fields = list.toArray(new Field[list.size()]);
+      map.put(annotationClass, fields);
+    }
+    return fields;
+  }
+}
@@ -24,7 +24,6 @@
 package org.projectforge.core;
 
 import java.io.Serializable;
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
@@ -36,6 +35,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Basic;
 import javax.persistence.Column;
@@ -49,6 +49,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.hibernate.collection.PersistentSet;
 import org.projectforge.calendar.DayHolder;
+import org.projectforge.common.FieldMetadataRegistry;
 import org.projectforge.common.ReflectionToString;
 import org.projectforge.database.HibernateUtils;
 
@@ -64,6 +65,8 @@ public abstract class AbstractBaseDO<I extends Serializable> implements Extended
 
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AbstractBaseDO.class);
 
+  private static final Map<Class< ? >, CopyableField[]> copyableFieldsMap = new ConcurrentHashMap<Class< ? >, CopyableField[]>();
+
   @PropertyInfo(i18nKey = "created")
   private Date created;
 
@@ -225,25 +228,24 @@ public abstract class AbstractBaseDO<I extends Serializable> implements Extended
   private static ModificationStatus copyDeclaredFields(final Class< ? > srcClazz, final BaseDO< ? > src, final BaseDO< ? > dest,
       final String... ignoreFields)
   {
-    final Field[] fields = srcClazz.getDeclaredFields();
-    AccessibleObject.setAccessible(fields, true);
     ModificationStatus modificationStatus = null;
-    for (final Field field : fields) {
-      final String fieldName = field.getName();
-      if ((ignoreFields != null && ArrayUtils.contains(ignoreFields, fieldName) == true) || accept(field) == false) {
+    for (final CopyableField copyableField : getCopyableFields(srcClazz)) {
+      final Field field = copyableField.field;
+      final String fieldName = copyableField.name;
+      if (ignoreFields != null && ignoreFields.length > 0 && ArrayUtils.contains(ignoreFields, fieldName) == true) {
         continue;
       }
       try {
         final Object srcFieldValue = field.get(src);
         final Object destFieldValue = field.get(dest);
-        if (field.getType().isPrimitive() == true) {
+        if (copyableField.primitive == true) {
           if (ObjectUtils.equals(destFieldValue, srcFieldValue) == false) {
             field.set(dest, srcFieldValue);
             modificationStatus = getModificationStatus(modificationStatus, src, fieldName);
           }
           continue;
         } else if (srcFieldValue == null) {
-          if (field.getType() == String.class) {
+          if (copyableField.string == true) {
             if (StringUtils.isNotEmpty((String) destFieldValue) == true) {
               field.set(dest, null);
               modificationStatus = getModificationStatus(modificationStatus, src, fieldName);
@@ -292,8 +294,7 @@ public abstract class AbstractBaseDO<I extends Serializable> implements Extended
               destColl.add(srcEntry);
               modificationStatus = getModificationStatus(modificationStatus, src, fieldName);
             } else if (srcEntry instanceof BaseDO) {
-              final PFPersistancyBehavior behavior = field.getAnnotation(PFPersistancyBehavior.class);
-              if (behavior != null && behavior.autoUpdateCollectionEntries() == true) {
+              if (copyableField.autoUpdateCollectionEntries == true) {
                 BaseDO< ? > destEntry = null;
                 for (final Object entry : destColl) {
                   if (entry.equals(srcEntry) == true) {
@@ -347,12 +348,59 @@ public abstract class AbstractBaseDO<I extends Serializable> implements Extended
         throw new InternalError("Unexpected IllegalAccessException: " + ex.getMessage());
       }
     }
-    final Class< ? > superClazz = srcClazz.getSuperclass();
-    if (superClazz != null) {
-      final ModificationStatus st = copyDeclaredFields(superClazz, src, dest, ignoreFields);
-      modificationStatus = getModificationStatus(modificationStatus, st);
+    return modificationStatus != null ? modificationStatus : ModificationStatus.NONE;
+  }
+
+  /**
+   * @param clazz
+   * @return The accepted fields of the given class and all of its super classes (the fields of the class itself first).
+   * @see #accept(Field)
+   */
+  private static CopyableField[] getCopyableFields(final Class< ? > clazz)
+  {
+    CopyableField[] fields = copyableFieldsMap.get(clazz);
+    if (fields != null) {
+      return fields;
+    }
+    final List<CopyableField> list = new ArrayList<CopyableField>();
+    Class< ? > cls = clazz;
+    while (cls != null) {
+      for (final Field field : FieldMetadataRegistry.getDeclaredFields(cls)) {
+        if (accept(field) == true) {
+          list.add(new CopyableField(field));
+        }
+      }
+      cls = cls.getSuperclass();
+    }
+    fields = list.toArray(new CopyableField[list.size()]);
+    copyableFieldsMap.put(clazz, fields);
+    return fields;
+  }
+
+  /**
+   * Pre-computed meta data of a field used by {@link AbstractBaseDO#copyValues(BaseDO, BaseDO, String...)}.
+   */
+  private static class CopyableField
+  {
+    final Field field;
+
+    final String name;
+
+    final boolean primitive;
+
+    final boolean string;
+
+    final boolean autoUpdateCollectionEntries;
+
+    CopyableField(final Field field)
+    {
+      this.field = field;
+      this.name = field.getName();
+      this.primitive = field.getType().isPrimitive();
+      this.string = field.getType() == String.class;
+      final PFPersistancyBehavior behavior = field.getAnnotation(PFPersistancyBehavior.class);
+      this.autoUpdateCollectionEntries = behavior != null && behavior.autoUpdateCollectionEntries() == true;
     }
-    return modificationStatus;
   }
 
   protected static ModificationStatus getModificationStatus(final ModificationStatus currentStatus, final BaseDO< ? > src,
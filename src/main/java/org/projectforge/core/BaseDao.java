@@ -32,10 +32,15 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.Id;
 
@@ -46,6 +51,7 @@ import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.queryParser.MultiFieldQueryParser;
 import org.apache.lucene.util.Version;
 import org.hibernate.Criteria;
@@ -76,9 +82,12 @@ import org.projectforge.user.UserRightId;
 import org.projectforge.user.UserRights;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import de.micromata.hibernate.history.Historizable;
@@ -107,12 +116,34 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
    */
   public static final int MAX_MASS_UPDATE = 100;
 
+  /**
+   * Maximum allowed mass updates within one startMassUpdate call (processed asynchronously in chunks).
+   */
+  public static final int MAX_BULK_MASS_UPDATE = 10000;
+
+  /**
+   * Number of entries processed within one transaction (and one flush) by a chunked mass update.
+   */
+  public static final int MASS_UPDATE_CHUNK_SIZE = 100;
+
   public static final String MAX_MASS_UPDATE_EXCEEDED_EXCEPTION_I18N = "massUpdate.error.maximumNumberOfAllowedMassUpdatesExceeded";
 
   private static final List<DisplayHistoryEntry> EMPTY_HISTORY_ENTRIES = new ArrayList<DisplayHistoryEntry>();
 
   private static final Logger log = Logger.getLogger(BaseDao.class);
 
+  private static final ExecutorService massUpdateExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "mass-update-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
   private static final String[] luceneReservedWords = { "AND", "OR", "NOT"};
 
   /**
@@ -138,8 +169,20 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
 
   private static final String[] HISTORY_SEARCH_FIELDS = { "delta.oldValue", "delta.newValue"};
 
+  /**
+   * The analyzer is thread safe and therefore shared by all query parsers.
+   */
+  private static final Analyzer QUERY_ANALYZER = new ClassicAnalyzer(Version.LUCENE_31);
+
   protected Class<O> clazz;
 
+  /**
+   * Timers of the main operations of this DAO (see {@link PerformanceMetrics}).
+   */
+  private final MetricTimer getListTimer, getByIdTimer, saveTimer, updateTimer, markAsDeletedTimer;
+
+  private final FullTextQueryCache fullTextQueryCache;
+
   protected AccessChecker accessChecker;
 
   protected DatabaseDao databaseDao;
@@ -150,6 +193,10 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
 
   protected TransactionTemplate txTemplate;
 
+  protected FullTextIndexer fullTextIndexer;
+
+  protected CacheInvalidationBus cacheInvalidationBus;
+
   protected String[] searchFields;
 
   protected BaseDaoReindexRegistry baseDaoReindexRegistry = BaseDaoReindexRegistry.getSingleton();
@@ -266,6 +313,16 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     this.historyAdapter = historyAdapter;
   }
 
+  public void setFullTextIndexer(final FullTextIndexer fullTextIndexer)
+  {
+    this.fullTextIndexer = fullTextIndexer;
+  }
+
+  public void setCacheInvalidationBus(final CacheInvalidationBus cacheInvalidationBus)
+  {
+    this.cacheInvalidationBus = cacheInvalidationBus;
+  }
+
   @Override
   protected void initDao()
   {
@@ -278,6 +335,14 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
   protected BaseDao(final Class<O> clazz)
   {
     this.clazz = clazz;
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    final String prefix = "dao." + clazz.getSimpleName() + ".";
+    getListTimer = metrics.getTimer(prefix + "getList");
+    getByIdTimer = metrics.getTimer(prefix + "getById");
+    saveTimer = metrics.getTimer(prefix + "save");
+    updateTimer = metrics.getTimer(prefix + "update");
+    markAsDeletedTimer = metrics.getTimer(prefix + "markAsDeleted");
+    fullTextQueryCache = new FullTextQueryCache(clazz.getSimpleName());
   }
 
   public Class<O> getDOClass()
@@ -343,6 +408,20 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     return list;
   }
 
+  /**
+   * Counts the entries matching the given filter and determines their newest modification without loading them (no access checking, the
+   * restrictions of the filter's search filter aren't applied). Useful as fingerprint of a result set, e. g. for ETags.
+   * @param filter
+   * @return Array with the number of entries (Number) and the newest lastUpdate (Date, null if no entry matches).
+   */
+  @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+  public Object[] internalGetCountAndLastUpdate(final QueryFilter filter)
+  {
+    final Criteria criteria = filter.buildCriteria(getSession(), clazz);
+    criteria.setProjection(Projections.projectionList().add(Projections.rowCount()).add(Projections.max("lastUpdate")));
+    return (Object[]) criteria.uniqueResult();
+  }
+
   /**
    * This method is used by the searchDao and calls {@link #getList(BaseSearchFilter)} by default.
    * @param filter
@@ -375,16 +454,21 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
   @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
   public List<O> getList(final QueryFilter filter) throws AccessException
   {
-    checkLoggedInUserSelectAccess();
-    if (accessChecker.isRestrictedUser() == true) {
-      return null;
-    }
-    List<O> list = internalGetList(filter);
-    if (list == null || list.size() == 0) {
-      return list;
+    final long start = System.nanoTime();
+    try {
+      checkLoggedInUserSelectAccess();
+      if (accessChecker.isRestrictedUser() == true) {
+        return null;
+      }
+      List<O> list = internalGetList(filter);
+      if (list == null || list.size() == 0) {
+        return list;
+      }
+      list = extractEntriesWithSelectAccess(list);
+      return sort(list);
+    } finally {
+      getListTimer.stop(start);
     }
-    list = extractEntriesWithSelectAccess(list);
-    return sort(list);
   }
 
   /**
@@ -479,11 +563,16 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
   private org.apache.lucene.search.Query createFullTextQuery(final String[] searchFields, final QueryFilter queryFilter,
       final String searchString)
   {
-    final MultiFieldQueryParser parser = new MultiFieldQueryParser(LUCENE_VERSION, searchFields, new ClassicAnalyzer(Version.LUCENE_31));
+    org.apache.lucene.search.Query query = fullTextQueryCache.get(searchFields, searchString);
+    if (query != null) {
+      return query;
+    }
+    // The parser isn't thread safe:
+    final MultiFieldQueryParser parser = new MultiFieldQueryParser(LUCENE_VERSION, searchFields, QUERY_ANALYZER);
     parser.setAllowLeadingWildcard(true);
-    org.apache.lucene.search.Query query = null;
     try {
       query = parser.parse(searchString);
+      fullTextQueryCache.put(searchFields, searchString, query);
     } catch (final org.apache.lucene.queryParser.ParseException ex) {
       final String errorMsg = "Lucene error message: "
           + ex.getMessage()
@@ -633,16 +722,21 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
   @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
   public O getById(final Serializable id) throws AccessException
   {
-    if (accessChecker.isRestrictedUser() == true) {
-      return null;
-    }
-    checkLoggedInUserSelectAccess();
-    final O obj = internalGetById(id);
-    if (obj == null) {
-      return null;
+    final long start = System.nanoTime();
+    try {
+      if (accessChecker.isRestrictedUser() == true) {
+        return null;
+      }
+      checkLoggedInUserSelectAccess();
+      final O obj = internalGetById(id);
+      if (obj == null) {
+        return null;
+      }
+      checkLoggedInUserSelectAccess(obj);
+      return obj;
+    } finally {
+      getByIdTimer.stop(start);
     }
-    checkLoggedInUserSelectAccess(obj);
-    return obj;
   }
 
   @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
@@ -841,9 +935,14 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     if (avoidNullIdCheckBeforeSave == false) {
       Validate.isTrue(obj.getId() == null);
     }
-    checkLoggedInUserInsertAccess(obj);
-    accessChecker.checkRestrictedOrDemoUser();
-    return internalSave(obj);
+    final long start = System.nanoTime();
+    try {
+      checkLoggedInUserInsertAccess(obj);
+      accessChecker.checkRestrictedOrDemoUser();
+      return internalSave(obj);
+    } finally {
+      saveTimer.stop(start);
+    }
   }
 
   /**
@@ -947,6 +1046,16 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
    */
   @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW, isolation = Isolation.REPEATABLE_READ)
   public Serializable internalSave(final O obj)
+  {
+    return internalSave(obj, true);
+  }
+
+  /**
+   * @param obj
+   * @param flush If false, the session isn't flushed (for saving many objects within one transaction, the caller has to flush the session).
+   * @return the generated identifier.
+   */
+  private Serializable internalSave(final O obj, final boolean flush)
   {
     Validate.notNull(obj);
     obj.setCreated();
@@ -957,8 +1066,10 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     final Serializable id = session.save(obj);
     log.info("New object added (" + id + "): " + obj.toString());
     prepareHibernateSearch(obj, OperationType.INSERT);
-    session.flush();
-    Search.getFullTextSession(session).flushToIndexes();
+    if (flush == true) {
+      session.flush();
+    }
+    publishCacheInvalidation(id);
     afterSaveOrModify(obj);
     afterSave(obj);
     return id;
@@ -1029,7 +1140,12 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
       log.error(msg);
       throw new RuntimeException(msg);
     }
-    return internalUpdate(obj, true);
+    final long start = System.nanoTime();
+    try {
+      return internalUpdate(obj, true);
+    } finally {
+      updateTimer.stop(start);
+    }
   }
 
   /**
@@ -1053,6 +1169,18 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
    */
   @Transactional(readOnly = false, propagation = Propagation.REQUIRED, isolation = Isolation.REPEATABLE_READ)
   public ModificationStatus internalUpdate(final O obj, final boolean checkAccess)
+  {
+    return internalUpdate(obj, checkAccess, true);
+  }
+
+  /**
+   * @param obj
+   * @param checkAccess If false, any access check will be ignored.
+   * @param flush If false, the session isn't flushed (for updating many objects within one transaction, the caller has to flush the
+   *          session) and the dependent objects are re-indexed after the commit.
+   * @return true, if modifications were done, false if no modification detected.
+   */
+  private ModificationStatus internalUpdate(final O obj, final boolean checkAccess, final boolean flush)
   {
     onSaveOrModify(obj);
     if (checkAccess == true) {
@@ -1079,9 +1207,11 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
       log.info("No modifications detected (no update needed): " + dbObj.toString());
     }
     prepareHibernateSearch(obj, OperationType.UPDATE);
-    final Session session = getHibernateTemplate().getSessionFactory().getCurrentSession();
-    session.flush();
-    Search.getFullTextSession(session).flushToIndexes();
+    if (flush == true) {
+      final Session session = getHibernateTemplate().getSessionFactory().getCurrentSession();
+      session.flush();
+    }
+    publishCacheInvalidation(obj.getId());
     afterSaveOrModify(obj);
     if (supportAfterUpdate == true) {
       afterUpdate(obj, dbObjBackup, result != ModificationStatus.NONE);
@@ -1091,7 +1221,17 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
       afterUpdate(obj, null);
     }
     if (wantsReindexAllDependentObjects == true) {
-      reindexDependentObjects(obj);
+      if (flush == true) {
+        reindexDependentObjects(obj);
+      } else {
+        TransactionHelper.executeAfterCommit(new Runnable() {
+          @Override
+          public void run()
+          {
+            reindexDependentObjects(obj);
+          }
+        });
+      }
     }
     return result;
   }
@@ -1119,6 +1259,33 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     return backupObj;
   }
 
+  /**
+   * Writes the modification to the change-log of the cache invalidation bus (in the current transaction), so the caches of other nodes are
+   * invalidated.
+   * @param id
+   * @see CacheInvalidationBus#publish(Class, Serializable)
+   */
+  protected void publishCacheInvalidation(final Serializable id)
+  {
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.publish(clazz, id);
+    }
+  }
+
+  /**
+   * Read your writes: Waits until all modifications of the logged-in user are full-text indexed. Full-text searches don't wait
+   * automatically, call this method explicitly if the search has to find the user's own modifications (e. g. directly after saving, see
+   * AbstractEditPage returning to the list page).
+   * @return true if all modifications of the logged-in user are indexed, false if the time-out is reached.
+   */
+  public boolean waitForFullTextIndex()
+  {
+    if (fullTextIndexer == null) {
+      return true;
+    }
+    return fullTextIndexer.waitUntilIndexed(PFUserContext.getUserId(), FullTextIndexer.DEFAULT_READ_YOUR_WRITES_TIMEOUT);
+  }
+
   /**
    * Overwrite this method if you have lazy exceptions while Hibernate-Search re-indexes. See e. g. AuftragDao.
    * @param obj
@@ -1140,10 +1307,15 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
       log.error(msg);
       throw new RuntimeException(msg);
     }
-    final O dbObj = getHibernateTemplate().load(clazz, obj.getId(), LockMode.PESSIMISTIC_WRITE);
-    checkLoggedInUserDeleteAccess(obj, dbObj);
-    accessChecker.checkRestrictedOrDemoUser();
-    internalMarkAsDeleted(obj);
+    final long start = System.nanoTime();
+    try {
+      final O dbObj = getHibernateTemplate().load(clazz, obj.getId(), LockMode.PESSIMISTIC_WRITE);
+      checkLoggedInUserDeleteAccess(obj, dbObj);
+      accessChecker.checkRestrictedOrDemoUser();
+      internalMarkAsDeleted(obj);
+    } finally {
+      markAsDeletedTimer.stop(start);
+    }
   }
 
   @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW, isolation = Isolation.REPEATABLE_READ)
@@ -1161,7 +1333,7 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     dbObj.setLastUpdate();
     final Session session = getHibernateTemplate().getSessionFactory().getCurrentSession();
     session.flush();
-    Search.getFullTextSession(session).flushToIndexes();
+    publishCacheInvalidation(obj.getId());
     afterSaveOrModify(obj);
     afterDelete(obj);
     getSession().flush();
@@ -1192,6 +1364,7 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     checkLoggedInUserDeleteAccess(obj, dbObj);
     getHibernateTemplate().delete(dbObj);
     log.info("Object deleted: " + obj.toString());
+    publishCacheInvalidation(obj.getId());
     afterSaveOrModify(obj);
     afterDelete(obj);
   }
@@ -1227,7 +1400,7 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     log.info("Object undeleted: " + dbObj.toString());
     final Session session = getHibernateTemplate().getSessionFactory().getCurrentSession();
     session.flush();
-    Search.getFullTextSession(session).flushToIndexes();
+    publishCacheInvalidation(obj.getId());
     afterSaveOrModify(obj);
     afterUndelete(obj);
   }
@@ -1624,7 +1797,14 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     HibernateSearchDependentObjectsReindexer.getSingleton().reindexDependents(getHibernateTemplate(), obj);
   }
 
-  @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW)
+  /**
+   * Updates the given entries (at maximum {@link #MAX_MASS_UPDATE}) synchronously. As all entries fit into one chunk, the mass update runs
+   * in one new transaction (REQUIRES_NEW). If any entry fails, this transaction is rolled back and the entries are processed again, each in
+   * its own new transaction, so the failed entries don't leave partial modifications and all other entries are saved.
+   * @param list
+   * @param master
+   * @see #processMassUpdate(List, MassUpdateChunkProcessor, MassUpdateStatus)
+   */
   public void massUpdate(final List<O> list, final O master)
   {
     if (list == null || list.size() == 0) {
@@ -1634,18 +1814,214 @@ public abstract class BaseDao<O extends ExtendedBaseDO< ? extends Serializable>>
     if (list.size() > MAX_MASS_UPDATE) {
       throw new UserException(MAX_MASS_UPDATE_EXCEEDED_EXCEPTION_I18N, new Object[] { MAX_MASS_UPDATE});
     }
-    final Object store = prepareMassUpdateStore(list, master);
-    for (final O entry : list) {
-      if (massUpdateEntry(entry, master, store) == true) {
+    processMassUpdate(list, createMassUpdateChunkProcessor(list, master), new MassUpdateStatus(list.size()));
+  }
+
+  /**
+   * Starts a mass update of up to {@link #MAX_BULK_MASS_UPDATE} entries. The entries are processed asynchronously in chunks of
+   * {@link #MASS_UPDATE_CHUNK_SIZE} entries, every chunk in its own transaction.
+   * @param list
+   * @param master
+   * @return The status for watching the progress.
+   * @see #massUpdate(List, ExtendedBaseDO)
+   */
+  public MassUpdateStatus startMassUpdate(final List<O> list, final O master)
+  {
+    return startMassUpdate(list, createMassUpdateChunkProcessor(list, master));
+  }
+
+  private MassUpdateChunkProcessor<O> createMassUpdateChunkProcessor(final List<O> list, final O master)
+  {
+    return new MassUpdateChunkProcessor<O>() {
+      private Object store;
+
+      @Override
+      public void process(final List<O> chunk, final MassUpdateStatus chunkStatus)
+      {
+        if (store == null) {
+          // Prepared within the transaction of the first chunk.
+          store = prepareMassUpdateStore(list, master);
+        }
+        massUpdateChunk(chunk, master, store, chunkStatus);
+      }
+    };
+  }
+
+  /**
+   * Processes the given list asynchronously in chunks of {@link #MASS_UPDATE_CHUNK_SIZE} entries, every chunk in its own transaction. The
+   * logged-in user is passed to the processing thread.
+   * @param list
+   * @param processor
+   * @return The status for watching the progress.
+   * @see #processMassUpdate(List, MassUpdateChunkProcessor, MassUpdateStatus)
+   */
+  protected <T> MassUpdateStatus startMassUpdate(final List<T> list, final MassUpdateChunkProcessor<T> processor)
+  {
+    if (list != null && list.size() > MAX_BULK_MASS_UPDATE) {
+      throw new UserException(MAX_MASS_UPDATE_EXCEEDED_EXCEPTION_I18N, new Object[] { MAX_BULK_MASS_UPDATE});
+    }
+    final List<T> entries = list != null ? new ArrayList<T>(list) : new ArrayList<T>();
+    final MassUpdateStatus status = MassUpdateStatus.register(entries.size());
+    final PFUserDO user = PFUserContext.getUser();
+    log.info("Starting mass update of " + entries.size() + " entries of " + clazz.getName() + " (" + status.getId() + ").");
+    massUpdateExecutor.execute(new Runnable() {
+      @Override
+      public void run()
+      {
+        PFUserContext.setUser(user);
         try {
-          update(entry);
-        } catch (final Exception ex) {
-          log.info("Exception occured while updating entry inside mass update: " + entry);
+          processMassUpdate(entries, processor, status);
+        } finally {
+          status.finished();
+          PFUserContext.setUser(null);
+          log.info("Mass update of " + clazz.getName() + " finished (" + status.getId() + "): " + status);
         }
       }
+    });
+    return status;
+  }
+
+  /**
+   * Processes the given list synchronously in chunks of {@link #MASS_UPDATE_CHUNK_SIZE} entries, every chunk in its own new transaction
+   * (see {@link #processMassUpdate(List, MassUpdateChunkProcessor, MassUpdateStatus)}), so large lists (e. g. imports) don't fill the
+   * session. In contrast to {@link #startMassUpdate(List, ExtendedBaseDO)} the number of entries isn't limited. Please note: The chunks
+   * don't participate in the transaction of the caller.
+   * @param list
+   * @param master
+   * @return The status of the finished mass update.
+   */
+  protected MassUpdateStatus massUpdateInChunks(final List<O> list, final O master)
+  {
+    final MassUpdateStatus status = new MassUpdateStatus(list.size());
+    processMassUpdate(list, createMassUpdateChunkProcessor(list, master), status);
+    status.finished();
+    return status;
+  }
+
+  /**
+   * Processes the given list in chunks of {@link #MASS_UPDATE_CHUNK_SIZE} entries, every chunk in its own new transaction (REQUIRES_NEW).
+   * If a chunk fails, its transaction is rolled back completely and its entries are processed again one by one, each in its own new
+   * transaction. So a failed entry never leaves partial modifications (e. g. of a data-base object modified before a failing hook) and all
+   * other entries are saved.
+   * @param list
+   * @param processor
+   * @param status The counters of all committed chunks and entries are added.
+   */
+  protected <T> void processMassUpdate(final List<T> list, final MassUpdateChunkProcessor<T> processor, final MassUpdateStatus status)
+  {
+    final TransactionTemplate template = new TransactionTemplate(txTemplate.getTransactionManager());
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    for (int fromIndex = 0; fromIndex < list.size(); fromIndex += MASS_UPDATE_CHUNK_SIZE) {
+      final List<T> chunk = list.subList(fromIndex, Math.min(fromIndex + MASS_UPDATE_CHUNK_SIZE, list.size()));
+      if (processMassUpdateChunk(template, chunk, processor, status) == true || chunk.size() == 1) {
+        continue;
+      }
+      log.info("Chunk of mass update rolled back, processing its " + chunk.size() + " entries one by one.");
+      for (final T entry : chunk) {
+        processMassUpdateChunk(template, Collections.singletonList(entry), processor, status);
+      }
+    }
+  }
+
+  /**
+   * @return true if the chunk was committed, false if it was rolled back (the failure is only counted for single entries).
+   */
+  private <T> boolean processMassUpdateChunk(final TransactionTemplate template, final List<T> chunk,
+      final MassUpdateChunkProcessor<T> processor, final MassUpdateStatus status)
+  {
+    final MassUpdateStatus chunkStatus = new MassUpdateStatus(chunk.size());
+    try {
+      template.execute(new TransactionCallbackWithoutResult() {
+        @Override
+        protected void doInTransactionWithoutResult(final TransactionStatus txStatus)
+        {
+          processor.process(chunk, chunkStatus);
+        }
+      });
+      status.add(chunkStatus);
+      return true;
+    } catch (final Exception ex) {
+      if (chunk.size() == 1) {
+        log.info("Exception occured while updating entry inside mass update (rolled back): " + chunk.get(0) + ": " + ex.getMessage());
+        status.failed(1);
+      } else {
+        log.info("Exception occured inside mass update, chunk of " + chunk.size() + " entries rolled back: " + ex.getMessage());
+      }
+      return false;
     }
   }
 
+  /**
+   * Updates or inserts the given entries within the current transaction by {@link #internalUpdate(ExtendedBaseDO, boolean)} and
+   * {@link #internalSave(ExtendedBaseDO)}. The access to restricted/demo users is checked once and the data-base objects of the whole chunk
+   * are loaded (and locked) by one query. The session is flushed once per chunk, not per entry. Any exception of an entry is thrown, so the
+   * transaction of the chunk has to be rolled back (see {@link #processMassUpdate(List, MassUpdateChunkProcessor, MassUpdateStatus)}).
+   * @param chunk
+   * @param master
+   * @param store
+   * @param status The counters of this chunk.
+   */
+  @SuppressWarnings("unchecked")
+  protected void massUpdateChunk(final List<O> chunk, final O master, final Object store, final MassUpdateStatus status)
+  {
+    accessChecker.checkRestrictedOrDemoUser();
+    final Session session = getHibernateTemplate().getSessionFactory().getCurrentSession();
+    final List<Serializable> ids = new ArrayList<Serializable>(chunk.size());
+    for (final O entry : chunk) {
+      if (entry.getId() != null) {
+        ids.add(entry.getId());
+      }
+    }
+    final Set<Serializable> existingIds = new HashSet<Serializable>();
+    if (ids.size() > 0) {
+      // The data-base objects are now in the session, so internalUpdate doesn't need to select them one by one:
+      final List<O> dbObjs = session.createCriteria(clazz).add(Restrictions.in("id", ids)).setLockMode(LockMode.PESSIMISTIC_WRITE).list();
+      for (final O dbObj : dbObjs) {
+        existingIds.add(dbObj.getId());
+      }
+    }
+    for (final O entry : chunk) {
+      if (massUpdateEntry(entry, master, store) == false) {
+        status.skipped();
+      } else if (entry.getId() == null) {
+        checkLoggedInUserInsertAccess(entry);
+        TransactionHelper.executeAfterRollback(new Runnable() {
+          @Override
+          public void run()
+          {
+            // The entry is inserted again if processed one by one after the rollback of this chunk:
+            entry.setId(null);
+          }
+        });
+        internalSave(entry, false);
+        status.updated();
+      } else if (existingIds.contains(entry.getId()) == false) {
+        log.info("Object not found while updating entry inside mass update: " + entry);
+        status.failed(1);
+      } else if (internalUpdate(entry, true, false) != ModificationStatus.NONE) {
+        status.updated();
+      } else {
+        status.skipped();
+      }
+    }
+    session.flush();
+    log.info("Mass update of " + chunk.size() + " objects of " + clazz.getName() + " done: " + status);
+  }
+
+  /**
+   * Processes one chunk of an asynchronous mass update within its own transaction.
+   * @see BaseDao#startMassUpdate(List, MassUpdateChunkProcessor)
+   */
+  protected interface MassUpdateChunkProcessor<T>
+  {
+    /**
+     * @param chunk
+     * @param chunkStatus The counters of the given chunk (added to the status of the mass update after the commit).
+     * @throws RuntimeException if any entry fails, so the transaction of the chunk is rolled back.
+     */
+    public void process(final List<T> chunk, final MassUpdateStatus chunkStatus);
+  }
+
   /**
    * Object pass thru every massUpdateEntry call.
    * @param list
@@ -0,0 +1,405 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.metadata.ClassMetadata;
+import org.projectforge.common.AbstractCache;
+import org.projectforge.common.DateHelper;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Cache invalidation bus for running multiple ProjectForge nodes on the same data-base without any external message broker: Every
+ * modification of an entity, for which at least one cache is registered, is written by BaseDao to the change-log table
+ * (CacheInvalidationDO) in the same transaction as the modification itself. Each node polls this table and notifies the registered caches
+ * (entity class and id) about modifications done by other nodes.<br/>
+ * The entries are polled by their id (data-base sequence) and not by their creation time, so the clocks of the nodes don't matter. Because
+ * transactions may be committed in another order than their ids are assigned, each poll reads all entries above the high-water mark of
+ * some polls ago (look behind) and skips the already processed ones.<br/>
+ * The bus is only enabled if a polling interval is configured in config.xml (cacheInvalidationPollingInterval).<br/>
+ * The replication lag is measured as difference between the time of modification and the time of notification (the clocks of the nodes
+ * should be synchronized).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see ConfigXml#getCacheInvalidationPollingInterval()
+ */
+public class CacheInvalidationBus
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(CacheInvalidationBus.class);
+
+  /**
+   * Entries are polled above the high-water mark of the polls of this period, because transactions may be committed in another order than
+   * their ids are assigned. Transactions committed later than this period after writing the entry may be missed.
+   */
+  private static final long LOOK_BEHIND = AbstractCache.TICKS_PER_MINUTE;
+
+  /**
+   * Entries older than this time are deleted from the change-log table.
+   */
+  private static final long MAX_AGE = AbstractCache.TICKS_PER_HOUR;
+
+  private static final Map<Class< ? >, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<Class< ? >, List<CacheInvalidationListener>>();
+
+  private HibernateTemplate hibernateTemplate;
+
+  private TransactionTemplate txTemplate;
+
+  private final String nodeId;
+
+  private volatile boolean enabled;
+
+  private ScheduledExecutorService executor;
+
+  /**
+   * Ids of the already processed entries above the low-water mark.
+   */
+  private final TreeSet<Integer> processedIds = new TreeSet<Integer>();
+
+  /**
+   * The highest entry id of the last polls (the newest is the last one). The first one is the low-water mark for the next poll.
+   */
+  private final LinkedList<Integer> highWaterMarks = new LinkedList<Integer>();
+
+  /**
+   * Only for the statistics (the high-water marks are only used by the polling thread).
+   */
+  private volatile int currentHighWaterMark;
+
+  private int lookBehindPolls = 2;
+
+  private long timeOfLastPoll;
+
+  private long timeOfLastCleanup;
+
+  private long numberOfReceivedInvalidations;
+
+  private long sumOfLags;
+
+  private long lastLag;
+
+  private long maxLag;
+
+  /**
+   * Registers the given cache for notifications about modifications of the given entities on other nodes.
+   * @param listener
+   * @param entityClasses
+   */
+  public static void register(final CacheInvalidationListener listener, final Class< ? >... entityClasses)
+  {
+    for (final Class< ? > entityClass : entityClasses) {
+      synchronized (listeners) {
+        List<CacheInvalidationListener> list = listeners.get(entityClass);
+        if (list == null) {
+          list = new CopyOnWriteArrayList<CacheInvalidationListener>();
+          listeners.put(entityClass, list);
+        }
+        if (list.contains(listener) == false) {
+          list.add(listener);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param entityClass
+   * @return true if any cache is registered for the given entity class.
+   */
+  public static boolean isRegistered(final Class< ? > entityClass)
+  {
+    return listeners.containsKey(entityClass);
+  }
+
+  public CacheInvalidationBus()
+  {
+    String hostname;
+    try {
+      hostname = InetAddress.getLocalHost().getHostName();
+    } catch (final Exception ex) {
+      hostname = "unknown";
+    }
+    nodeId = hostname + ":" + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+  public void setHibernateTemplate(final HibernateTemplate hibernateTemplate)
+  {
+    this.hibernateTemplate = hibernateTemplate;
+  }
+
+  public void setTxTemplate(final TransactionTemplate txTemplate)
+  {
+    this.txTemplate = txTemplate;
+  }
+
+  /**
+   * @return The id of this node (host name and a random part).
+   */
+  public String getNodeId()
+  {
+    return nodeId;
+  }
+
+  public boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Starts polling if a polling interval is configured.
+   */
+  public synchronized void start()
+  {
+    final int pollingInterval = ConfigXml.getInstance().getCacheInvalidationPollingInterval();
+    if (pollingInterval <= 0 || executor != null) {
+      return;
+    }
+    timeOfLastPoll = System.currentTimeMillis();
+    lookBehindPolls = Math.max(2, (int) (LOOK_BEHIND / (pollingInterval * AbstractCache.TICKS_PER_SECOND)) + 1);
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable)
+      {
+        final Thread thread = new Thread(runnable, "cache-invalidation-bus");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run()
+      {
+        try {
+          poll();
+        } catch (final Throwable ex) {
+          log.error("Error while polling cache invalidations: " + ex.getMessage(), ex);
+        }
+      }
+    }, pollingInterval, pollingInterval, TimeUnit.SECONDS);
+    enabled = true;
+    log.info("Cache invalidation bus started (node '" + nodeId + "', polling interval " + pollingInterval + "s).");
+  }
+
+  public synchronized void shutdown()
+  {
+    if (executor == null) {
+      return;
+    }
+    enabled = false;
+    executor.shutdownNow();
+    executor = null;
+  }
+
+  /**
+   * Writes the modification of the given entity to the change-log table. Must be called inside the transaction of the modification. Does
+   * nothing if the bus isn't enabled or no cache is registered for the given entity class.
+   * @param entityClass
+   * @param id
+   */
+  public void publish(final Class< ? > entityClass, final Serializable id)
+  {
+    if (enabled == false || isRegistered(entityClass) == false) {
+      return;
+    }
+    final CacheInvalidationDO entry = new CacheInvalidationDO().setEntityClass(entityClass.getName())
+        .setEntityId(id != null ? String.valueOf(id) : null).setNodeId(nodeId).setCreated(new Date());
+    hibernateTemplate.save(entry);
+  }
+
+  /**
+   * Reads the modifications of the other nodes since the last polls and notifies the registered caches. The first poll only initializes the
+   * high-water mark (older modifications are already considered by the caches of this node).
+   */
+  void poll()
+  {
+    final long now = System.currentTimeMillis();
+    timeOfLastPoll = now;
+    final Integer lowWaterMark = getLowWaterMark();
+    @SuppressWarnings("unchecked")
+    final List<Object> list = (List<Object>) txTemplate.execute(new TransactionCallback() {
+      public Object doInTransaction(final TransactionStatus status)
+      {
+        if (now - timeOfLastCleanup > MAX_AGE / 10) {
+          timeOfLastCleanup = now;
+          hibernateTemplate.bulkUpdate("delete from CacheInvalidationDO where created < ?", new Date(now - MAX_AGE));
+        }
+        if (lowWaterMark == null) {
+          return hibernateTemplate.find("select max(id) from CacheInvalidationDO");
+        }
+        // The own entries are read too, because they raise the high-water mark:
+        return hibernateTemplate.find("from CacheInvalidationDO where id > ? order by id", lowWaterMark);
+      }
+    });
+    if (lowWaterMark == null) {
+      final Integer maxId = list.isEmpty() == false ? (Integer) list.get(0) : null;
+      initHighWaterMark(maxId != null ? maxId : 0);
+      return;
+    }
+    final List<CacheInvalidationDO> entries = new ArrayList<CacheInvalidationDO>(list.size());
+    for (final Object obj : list) {
+      entries.add((CacheInvalidationDO) obj);
+    }
+    process(entries, now);
+  }
+
+  /**
+   * @param highWaterMark All entries with an id lower or equal are ignored.
+   */
+  void initHighWaterMark(final int highWaterMark)
+  {
+    highWaterMarks.clear();
+    highWaterMarks.add(highWaterMark);
+    processedIds.clear();
+    currentHighWaterMark = highWaterMark;
+  }
+
+  /**
+   * @return The entries with an id greater than the low-water mark are read by the next poll or null if not yet initialized.
+   */
+  Integer getLowWaterMark()
+  {
+    return highWaterMarks.isEmpty() == true ? null : highWaterMarks.getFirst();
+  }
+
+  void setLookBehindPolls(final int lookBehindPolls)
+  {
+    this.lookBehindPolls = lookBehindPolls;
+  }
+
+  /**
+   * Notifies the registered caches about the given entries not yet processed and not written by this node and raises the high-water mark.
+   * @param entries Entries above the current low-water mark ordered by id.
+   * @param now
+   */
+  void process(final List<CacheInvalidationDO> entries, final long now)
+  {
+    int highWaterMark = highWaterMarks.getLast();
+    // Coalesce multiple modifications of the same entity:
+    final Map<String, CacheInvalidationDO> invalidations = new LinkedHashMap<String, CacheInvalidationDO>();
+    for (final CacheInvalidationDO entry : entries) {
+      final Integer id = entry.getId();
+      if (id > highWaterMark) {
+        highWaterMark = id;
+      }
+      if (processedIds.add(id) == false || nodeId.equals(entry.getNodeId()) == true) {
+        // Already processed or written by this node.
+        continue;
+      }
+      invalidations.put(entry.getEntityClass() + "#" + entry.getEntityId(), entry);
+      final long lag = now - entry.getCreated().getTime();
+      synchronized (this) {
+        ++numberOfReceivedInvalidations;
+        sumOfLags += lag;
+        lastLag = lag;
+        if (lag > maxLag) {
+          maxLag = lag;
+        }
+      }
+    }
+    highWaterMarks.addLast(highWaterMark);
+    currentHighWaterMark = highWaterMark;
+    while (highWaterMarks.size() > lookBehindPolls) {
+      highWaterMarks.removeFirst();
+    }
+    // Entries below the new low-water mark aren't read anymore:
+    processedIds.headSet(highWaterMarks.getFirst(), true).clear();
+    for (final CacheInvalidationDO entry : invalidations.values()) {
+      notifyListeners(entry);
+    }
+  }
+
+  private void notifyListeners(final CacheInvalidationDO entry)
+  {
+    final Class< ? > entityClass;
+    try {
+      entityClass = Class.forName(entry.getEntityClass());
+    } catch (final ClassNotFoundException ex) {
+      log.warn("Ignoring cache invalidation of unknown class: " + entry.getEntityClass());
+      return;
+    }
+    final List<CacheInvalidationListener> list = listeners.get(entityClass);
+    if (list == null) {
+      return;
+    }
+    final Serializable id = parseId(entityClass, entry.getEntityId());
+    for (final CacheInvalidationListener listener : list) {
+      try {
+        listener.invalidate(entityClass, id);
+      } catch (final Exception ex) {
+        log.error("Error while invalidating cache " + listener.getClass().getName() + ": " + ex.getMessage(), ex);
+      }
+    }
+  }
+
+  private Serializable parseId(final Class< ? > entityClass, final String value)
+  {
+    if (value == null) {
+      return null;
+    }
+    final ClassMetadata metadata = hibernateTemplate.getSessionFactory().getClassMetadata(entityClass);
+    final Class< ? > idClass = metadata != null ? metadata.getIdentifierType().getReturnedClass() : Integer.class;
+    if (Integer.class.equals(idClass) == true) {
+      return Integer.valueOf(value);
+    } else if (Long.class.equals(idClass) == true) {
+      return Long.valueOf(value);
+    }
+    return value;
+  }
+
+  /**
+   * @return Human readable statistics (replication lag) for the administration page.
+   */
+  public synchronized String getStatistics()
+  {
+    if (enabled == false) {
+      return "disabled (single node)";
+    }
+    final StringBuffer buf = new StringBuffer();
+    buf.append("node=").append(nodeId).append(", received=").append(numberOfReceivedInvalidations);
+    if (numberOfReceivedInvalidations > 0) {
+      buf.append(", lag: last=").append(lastLag).append("ms, average=").append(sumOfLags / numberOfReceivedInvalidations)
+      .append("ms, max=").append(maxLag).append("ms");
+    }
+    buf.append(", last poll=").append(DateHelper.formatIsoTimestamp(new Date(timeOfLastPoll)));
+    buf.append(", high-water mark=").append(currentHighWaterMark);
+    return buf.toString();
+  }
+}
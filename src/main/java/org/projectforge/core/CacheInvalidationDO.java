@@ -0,0 +1,143 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Change-log entry of the cache invalidation bus: Every modification of a cached entity is written in the same transaction as the
+ * modification itself. All other nodes poll these entries and invalidate their caches.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see CacheInvalidationBus
+ */
+@Entity
+@Table(name = "T_CACHE_INVALIDATION")
+public class CacheInvalidationDO
+{
+  private Integer id;
+
+  private String entityClass;
+
+  private String entityId;
+
+  private String nodeId;
+
+  private Date created;
+
+  @Id
+  @GeneratedValue
+  @Column(name = "pk")
+  public Integer getId()
+  {
+    return id;
+  }
+
+  public void setId(final Integer id)
+  {
+    this.id = id;
+  }
+
+  /**
+   * @return The class name of the modified entity.
+   */
+  @Column(name = "entity_class", length = 255, nullable = false)
+  public String getEntityClass()
+  {
+    return entityClass;
+  }
+
+  /**
+   * @param entityClass
+   * @return this for chaining.
+   */
+  public CacheInvalidationDO setEntityClass(final String entityClass)
+  {
+    this.entityClass = entityClass;
+    return this;
+  }
+
+  /**
+   * @return The id of the modified entity.
+   */
+  @Column(name = "entity_id", length = 255)
+  public String getEntityId()
+  {
+    return entityId;
+  }
+
+  /**
+   * @param entityId
+   * @return this for chaining.
+   */
+  public CacheInvalidationDO setEntityId(final String entityId)
+  {
+    this.entityId = entityId;
+    return this;
+  }
+
+  /**
+   * @return The node which modified the entity (the modifying node doesn't need to invalidate its own caches).
+   */
+  @Column(name = "node_id", length = 100, nullable = false)
+  public String getNodeId()
+  {
+    return nodeId;
+  }
+
+  /**
+   * @param nodeId
+   * @return this for chaining.
+   */
+  public CacheInvalidationDO setNodeId(final String nodeId)
+  {
+    this.nodeId = nodeId;
+    return this;
+  }
+
+  /**
+   * @return The time of the modification (used for measuring the replication lag).
+   */
+  @Column(nullable = false)
+  public Date getCreated()
+  {
+    return created;
+  }
+
+  /**
+   * @param created
+   * @return this for chaining.
+   */
+  public CacheInvalidationDO setCreated(final Date created)
+  {
+    this.created = created;
+    return this;
+  }
+}
@@ -0,0 +1,42 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.io.Serializable;
+
+/**
+ * Caches implementing this interface may be registered at the {@link CacheInvalidationBus} for being notified about modifications of
+ * entities on other nodes.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public interface CacheInvalidationListener
+{
+  /**
+   * The given entity was modified (inserted, updated or deleted) on another node.
+   * @param entityClass
+   * @param id
+   */
+  public void invalidate(final Class< ? > entityClass, final Serializable id);
+}
@@ -105,6 +105,8 @@ public class ConfigXml
 
   private static transient ConfigXml instance;
 
+  private static final int DEFAULT_SCRIPT_EXECUTION_TIMEOUT = 300;
+
   private static final String LOG4J_PROPERTY_FILE = "log4j.properties";
 
   private static final String LOG4J_PROPERTY_SOURCE_FILE = "appHomeDir-log4j.properties";
@@ -202,6 +204,12 @@ public class ConfigXml
 
   private String loginHandlerClass;
 
+  private Integer scriptExecutionTimeout;
+
+  private Integer cacheInvalidationPollingInterval;
+
+  private String fullTextIndexAccessType;
+
   /**
    * Separated list of main classes (separated by white chars and or ',').
    */
@@ -268,6 +276,9 @@ public class ConfigXml
     accountingConfig = new AccountingConfig();
     accountingConfig.reset();
     ldapConfig = new LdapConfig();
+    scriptExecutionTimeout = null;
+    cacheInvalidationPollingInterval = null;
+    fullTextIndexAccessType = null;
   }
 
   protected ConfigXml()
@@ -1118,6 +1129,47 @@ public class ConfigXml
     return loginHandlerClass;
   }
 
+  /**
+   * Groovy scripts of the users (script dao and scripting page) are executed in a dedicated thread pool. If the execution takes longer than
+   * this time-out, the script will be interrupted. Default is 300 seconds, 0 means no time-out (scripts will be executed in the caller's
+   * thread).
+   * @return the time-out in seconds.
+   */
+  public int getScriptExecutionTimeout()
+  {
+    return scriptExecutionTimeout != null ? scriptExecutionTimeout : DEFAULT_SCRIPT_EXECUTION_TIMEOUT;
+  }
+
+  /**
+   * Only needed if multiple ProjectForge nodes share the same data-base (e. g. behind a load balancer): All modifications of cached
+   * entities are written to a change-log table and each node polls this table in the given interval for invalidating its caches. Default
+   * is 0 (single node, no cache invalidation bus).
+   * @return the polling interval in seconds.
+   * @see CacheInvalidationBus
+   */
+  public int getCacheInvalidationPollingInterval()
+  {
+    return cacheInvalidationPollingInterval != null ? cacheInvalidationPollingInterval : 0;
+  }
+
+  /**
+   * Access type of the full text index directories (Hibernate Search: filesystem_access_type): auto, simple, nio or mmap. Default is mmap
+   * (memory mapped index files, the operating system's page cache is used instead of the Java heap) on 64 bit JVMs, otherwise auto
+   * (memory mapping of large indices may exceed the address space of 32 bit JVMs).
+   */
+  public String getFullTextIndexAccessType()
+  {
+    if (StringUtils.isNotBlank(fullTextIndexAccessType) == true) {
+      return fullTextIndexAccessType.trim();
+    }
+    final String dataModel = System.getProperty("sun.arch.data.model");
+    final String arch = System.getProperty("os.arch");
+    if ("64".equals(dataModel) == true || (dataModel == null && arch != null && arch.contains("64") == true)) {
+      return "mmap";
+    }
+    return "auto";
+  }
+
   /**
    * Here you can add menu entries to be hidden or can build your own menu tree or just modify the existing one. If you don't configure this
    * element, you will receive the standard ProjectForge menu containing all menu entries which are available for the system and the user. <br/>
@@ -23,6 +23,7 @@
 
 package org.projectforge.core;
 
+import java.io.File;
 import java.util.Calendar;
 
 import org.projectforge.common.DateHelper;
@@ -72,6 +73,11 @@ public class CronHourlyJob extends AbstractCronJob
     } catch (final Throwable ex) {
       log.error("While executing fix job for data base history entries: " + ex.getMessage(), ex);
     }
+    try {
+      PerformanceMetrics.getInstance().writeSnapshot(new File(ConfigXml.getInstance().getWorkingDirectory(), "metrics"));
+    } catch (final Throwable ex) {
+      log.error("While writing snapshot of performance metrics: " + ex.getMessage(), ex);
+    }
     log.info("Hourly job job finished.");
   }
 
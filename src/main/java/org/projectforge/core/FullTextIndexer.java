@@ -0,0 +1,763 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.ClassUtils;
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.annotations.ContainedIn;
+import org.hibernate.search.annotations.Indexed;
+import org.projectforge.common.AbstractCache;
+import org.projectforge.common.DateHelper;
+import org.projectforge.user.PFUserContext;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.micromata.hibernate.history.HistoryEntry;
+
+/**
+ * Asynchronous full-text indexing off the write path: The {@link FullTextIndexerEventListener} schedules all modified objects (after the
+ * commit of the transaction) and a single indexer thread re-indexes them in batches. Multiple modifications of the same object are
+ * coalesced to one index operation. The queue is journaled in a local file, so pending entries aren't lost on shutdown or crash and are
+ * re-indexed on the next start.<br/>
+ * The manual indexing strategy doesn't process {@link ContainedIn}, therefore the objects referenced by such fields (which embed the
+ * modified object in their index) are re-indexed by the indexer too. The references of deleted objects are scheduled by the event
+ * listener.<br/>
+ * Needs hibernate.search.indexing_strategy=manual and the registered event listener, otherwise (asynchronous=false) nothing is done and
+ * Hibernate Search indexes all modifications synchronously on commit.<br/>
+ * Read your writes: Full-text searches don't wait for the indexer. Use {@link #waitUntilIndexed(Integer, long)} explicitly for ensuring
+ * that all modifications of a user are indexed (e. g. before a full-text search of this user directly after saving an object).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class FullTextIndexer
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(FullTextIndexer.class);
+
+  public static final long DEFAULT_READ_YOUR_WRITES_TIMEOUT = 5 * AbstractCache.TICKS_PER_SECOND;
+
+  /**
+   * History entries of an indexed object are written in the same transaction, so they're a little bit older than the scheduling.
+   */
+  private static final long HISTORY_TIME_MARGIN = AbstractCache.TICKS_PER_MINUTE;
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private SessionFactory sessionFactory;
+
+  private boolean asynchronous;
+
+  private String journalFile;
+
+  private int batchSize = 1000;
+
+  private long batchDelay = 100;
+
+  /**
+   * Pending entries, key is class name and id. Re-scheduled entries are moved to the end, so the head is always the entry with the
+   * smallest sequence.
+   */
+  private final LinkedHashMap<String, Entry> queue = new LinkedHashMap<String, Entry>();
+
+  /**
+   * Sequence of the last scheduled entry per user (read your writes).
+   */
+  private final Map<Integer, Long> lastSequenceOfUsers = new HashMap<Integer, Long>();
+
+  private final Map<Class< ? >, Boolean> indexedClasses = new ConcurrentHashMap<Class< ? >, Boolean>();
+
+  private static final Map<Class< ? >, List<Field>> containedInFields = new ConcurrentHashMap<Class< ? >, List<Field>>();
+
+  private long lastScheduledSequence;
+
+  private long lastIndexedSequence;
+
+  private long numberOfIndexedObjects;
+
+  private long numberOfFailedObjects;
+
+  private long durationOfLastBatch;
+
+  private Date timeOfLastBatch;
+
+  /**
+   * Guards the journal file. The journal is written outside the lock of this indexer, so scheduling, waiting and statistics aren't blocked
+   * by file I/O. Lock order: journalLock before this.
+   */
+  private final Object journalLock = new Object();
+
+  private Writer journalWriter;
+
+  private Thread indexerThread;
+
+  private volatile boolean running;
+
+  public void setSessionFactory(final SessionFactory sessionFactory)
+  {
+    this.sessionFactory = sessionFactory;
+  }
+
+  /**
+   * The event listener registered at the session factory schedules all modified entities at this indexer.
+   * @param eventListener
+   */
+  public void setEventListener(final FullTextIndexerEventListener eventListener)
+  {
+    eventListener.setFullTextIndexer(this);
+  }
+
+  /**
+   * @param asynchronous If true, the modified objects are indexed by the indexer thread. Please set this option only if Hibernate Search's
+   *          indexing strategy is manual.
+   */
+  public void setAsynchronous(final boolean asynchronous)
+  {
+    this.asynchronous = asynchronous;
+  }
+
+  public boolean isAsynchronous()
+  {
+    return asynchronous;
+  }
+
+  /**
+   * @param journalFile The file of the durable queue.
+   */
+  public void setJournalFile(final String journalFile)
+  {
+    this.journalFile = journalFile;
+  }
+
+  /**
+   * @param batchSize Maximum number of objects indexed within one transaction (default is 1,000).
+   */
+  public void setBatchSize(final int batchSize)
+  {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param batchDelay Time in milliseconds the indexer waits for further modifications before starting a batch (default is 100ms).
+   */
+  public void setBatchDelay(final long batchDelay)
+  {
+    this.batchDelay = batchDelay;
+  }
+
+  /**
+   * Replays the journal and starts the indexer thread (if asynchronous).
+   */
+  public void start()
+  {
+    synchronized (journalLock) {
+      synchronized (this) {
+        if (asynchronous == false || indexerThread != null) {
+          return;
+        }
+        readJournal();
+      }
+      writeJournal();
+      synchronized (this) {
+        startThread();
+      }
+    }
+  }
+
+  private void startThread()
+  {
+    running = true;
+    indexerThread = new Thread("full-text-indexer") {
+      @Override
+      public void run()
+      {
+        FullTextIndexer.this.run();
+      }
+    };
+    indexerThread.setDaemon(true);
+    indexerThread.start();
+    log.info("Asynchronous full-text indexer started (" + queue.size() + " pending entries).");
+  }
+
+  /**
+   * Stops the indexer thread. Pending entries remain in the journal and are indexed on next start.
+   */
+  public void shutdown()
+  {
+    final Thread thread;
+    synchronized (this) {
+      if (indexerThread == null) {
+        return;
+      }
+      running = false;
+      thread = indexerThread;
+      indexerThread = null;
+      notifyAll();
+    }
+    try {
+      thread.join(10 * AbstractCache.TICKS_PER_SECOND);
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (journalLock) {
+      IOUtils.closeQuietly(journalWriter);
+      journalWriter = null;
+    }
+    log.info("Asynchronous full-text indexer stopped (" + getQueueSize() + " pending entries).");
+  }
+
+  /**
+   * Schedules the given object for (re-)indexing. If called inside a transaction the object is scheduled after the commit. If the object
+   * doesn't exist anymore on indexing, it's purged from the index.
+   * @param clazz
+   * @param id
+   */
+  public void schedule(final Class< ? > clazz, final Serializable id)
+  {
+    if (asynchronous == false || id == null || isIndexed(clazz) == false) {
+      return;
+    }
+    final Integer userId = PFUserContext.getUserId();
+    if (TransactionSynchronizationManager.isSynchronizationActive() == true) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit()
+        {
+          enqueue(clazz, id, userId);
+        }
+      });
+    } else {
+      enqueue(clazz, id, userId);
+    }
+  }
+
+  /**
+   * Waits until all objects scheduled by the given user are indexed.
+   * @param userId
+   * @param timeout Maximum time to wait in milliseconds.
+   * @return true if all modifications of the given user are indexed, false if the timeout is reached.
+   */
+  public synchronized boolean waitUntilIndexed(final Integer userId, final long timeout)
+  {
+    if (asynchronous == false || userId == null) {
+      return true;
+    }
+    final Long sequence = lastSequenceOfUsers.get(userId);
+    if (sequence == null) {
+      return true;
+    }
+    final boolean indexed = waitUntilSequenceIndexed(sequence, timeout);
+    if (indexed == true && sequence.equals(lastSequenceOfUsers.get(userId)) == true) {
+      lastSequenceOfUsers.remove(userId);
+    }
+    return indexed;
+  }
+
+  /**
+   * Waits until all scheduled objects (of all users) are indexed, e. g. for tests.
+   * @param timeout Maximum time to wait in milliseconds.
+   * @return true if all scheduled objects are indexed, false if the timeout is reached.
+   */
+  public synchronized boolean waitUntilAllIndexed(final long timeout)
+  {
+    if (asynchronous == false) {
+      return true;
+    }
+    return waitUntilSequenceIndexed(lastScheduledSequence, timeout);
+  }
+
+  /**
+   * Must be called inside the lock of this indexer.
+   */
+  private boolean waitUntilSequenceIndexed(final long sequence, final long timeout)
+  {
+    final long end = System.currentTimeMillis() + timeout;
+    while (lastIndexedSequence < sequence && indexerThread != null) {
+      final long remaining = end - System.currentTimeMillis();
+      if (remaining <= 0) {
+        log.info("Time-out of " + timeout + "ms reached while waiting for the full-text indexer (" + queue.size() + " pending entries).");
+        return false;
+      }
+      try {
+        wait(remaining);
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return lastIndexedSequence >= sequence;
+  }
+
+  /**
+   * @return The number of pending objects.
+   */
+  public synchronized int getQueueSize()
+  {
+    return queue.size();
+  }
+
+  /**
+   * @return The time in milliseconds since the oldest pending modification was scheduled or 0 if no entry is pending.
+   */
+  public synchronized long getLag()
+  {
+    if (queue.isEmpty() == true) {
+      return 0;
+    }
+    return System.currentTimeMillis() - queue.values().iterator().next().lastScheduled;
+  }
+
+  /**
+   * @return Human readable statistics for the administration page.
+   */
+  public synchronized String getStatistics()
+  {
+    if (asynchronous == false) {
+      return "synchronous";
+    }
+    final StringBuffer buf = new StringBuffer();
+    buf.append("pending=").append(queue.size()).append(", lag=").append(getLag()).append("ms, indexed=").append(numberOfIndexedObjects);
+    if (numberOfFailedObjects > 0) {
+      buf.append(", failed=").append(numberOfFailedObjects);
+    }
+    if (timeOfLastBatch != null) {
+      buf.append(", last batch=").append(DateHelper.formatIsoTimestamp(timeOfLastBatch)).append(" (").append(durationOfLastBatch)
+      .append("ms)");
+    }
+    return buf.toString();
+  }
+
+  private void enqueue(final Class< ? > clazz, final Serializable id, final Integer userId)
+  {
+    synchronized (journalLock) {
+      synchronized (this) {
+        final long sequence = ++lastScheduledSequence;
+        final String key = getKey(clazz, id);
+        Entry entry = queue.remove(key);
+        if (entry == null) {
+          entry = new Entry(clazz, id);
+        }
+        entry.sequence = sequence;
+        entry.lastScheduled = System.currentTimeMillis();
+        queue.put(key, entry);
+        if (userId != null) {
+          lastSequenceOfUsers.put(userId, sequence);
+        }
+        notifyAll();
+      }
+      // The entry is journaled before the indexer may process it (the journal is rewritten after each batch under the journalLock).
+      appendJournal(clazz, id);
+    }
+  }
+
+  private void run()
+  {
+    while (running == true) {
+      try {
+        synchronized (this) {
+          while (running == true && queue.isEmpty() == true) {
+            wait();
+          }
+        }
+        if (running == false) {
+          break;
+        }
+        // Wait a little bit for coalescing further modifications:
+        Thread.sleep(batchDelay);
+        final List<Entry> batch = takeBatch();
+        if (processBatch(batch) == false) {
+          Thread.sleep(10 * batchDelay);
+        }
+      } catch (final InterruptedException ex) {
+        break;
+      } catch (final Throwable ex) {
+        log.error("Error in full-text indexer: " + ex.getMessage(), ex);
+      }
+    }
+  }
+
+  private synchronized List<Entry> takeBatch()
+  {
+    final List<Entry> batch = new ArrayList<Entry>(Math.min(batchSize, queue.size()));
+    final Iterator<Entry> it = queue.values().iterator();
+    while (it.hasNext() == true && batch.size() < batchSize) {
+      batch.add(it.next());
+      it.remove();
+    }
+    return batch;
+  }
+
+  /**
+   * Indexes all entries of the given batch within one transaction (one index writer commit).
+   * @return true if successful, false if the batch failed and was re-queued.
+   */
+  private boolean processBatch(final List<Entry> batch)
+  {
+    final long start = System.currentTimeMillis();
+    Session session = null;
+    Transaction tx = null;
+    boolean success = false;
+    try {
+      session = sessionFactory.openSession();
+      final FullTextSession fullTextSession = Search.getFullTextSession(session);
+      fullTextSession.setFlushMode(FlushMode.MANUAL);
+      fullTextSession.setCacheMode(CacheMode.IGNORE);
+      tx = fullTextSession.beginTransaction();
+      // Objects embedding several modified objects (@ContainedIn) are indexed only once per batch:
+      final Set<Object> indexedContainers = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      for (final Entry entry : batch) {
+        index(fullTextSession, entry, indexedContainers);
+      }
+      tx.commit();
+      success = true;
+    } catch (final Exception ex) {
+      log.error("Error while indexing " + batch.size() + " objects: " + ex.getMessage(), ex);
+      if (tx != null) {
+        try {
+          tx.rollback();
+        } catch (final Exception ex2) {
+          log.error("Error while rolling back transaction of full-text indexer: " + ex2.getMessage(), ex2);
+        }
+      }
+    } finally {
+      if (session != null) {
+        session.close();
+      }
+    }
+    synchronized (this) {
+      if (success == true) {
+        numberOfIndexedObjects += batch.size();
+      } else {
+        requeue(batch);
+      }
+      durationOfLastBatch = System.currentTimeMillis() - start;
+      timeOfLastBatch = new Date();
+      // All entries scheduled before the head of the queue are indexed now:
+      lastIndexedSequence = queue.isEmpty() == true ? lastScheduledSequence : queue.values().iterator().next().sequence - 1;
+      notifyAll();
+    }
+    writeJournal();
+    if (log.isDebugEnabled() == true) {
+      log.debug("Batch of " + batch.size() + " objects indexed in " + durationOfLastBatch + "ms.");
+    }
+    return success;
+  }
+
+  private void requeue(final List<Entry> batch)
+  {
+    for (final Entry entry : batch) {
+      final String key = getKey(entry.clazz, entry.id);
+      if (queue.containsKey(key) == true) {
+        // Entry was re-scheduled in the meantime.
+        continue;
+      }
+      if (++entry.attempts >= MAX_ATTEMPTS) {
+        log.error("Giving up indexing of " + key + " after " + entry.attempts + " attempts. Please re-index manually.");
+        ++numberOfFailedObjects;
+        continue;
+      }
+      queue.put(key, entry);
+    }
+  }
+
+  private void index(final FullTextSession fullTextSession, final Entry entry, final Set<Object> indexedContainers)
+  {
+    final Object obj = fullTextSession.get(entry.clazz, entry.id);
+    if (obj == null) {
+      fullTextSession.purge(entry.clazz, entry.id);
+    } else {
+      index(fullTextSession, obj);
+      indexContainedIn(fullTextSession, obj, indexedContainers);
+    }
+    if (entry.id instanceof Integer == false) {
+      return;
+    }
+    final List< ? > historyEntries = fullTextSession
+        .createQuery("from " + HistoryEntry.class.getName() + " e where e.className = ? and e.entityId = ? and e.timestamp >= ?")
+        .setString(0, ClassUtils.getShortClassName(entry.clazz)).setInteger(1, (Integer) entry.id)
+        .setTimestamp(2, new Date(entry.firstScheduled - HISTORY_TIME_MARGIN)).list();
+    for (final Object historyEntry : historyEntries) {
+      fullTextSession.index(historyEntry);
+    }
+  }
+
+  private void index(final FullTextSession fullTextSession, final Object obj)
+  {
+    if (obj instanceof ExtendedBaseDO< ? >) {
+      ((ExtendedBaseDO< ? >) obj).recalculate();
+    }
+    fullTextSession.index(obj);
+  }
+
+  /**
+   * Re-indexes the objects referenced by the {@link ContainedIn} fields of the given object (recursively).
+   */
+  private void indexContainedIn(final FullTextSession fullTextSession, final Object obj, final Set<Object> indexedContainers)
+  {
+    for (Object container : getContainedIn(obj, false)) {
+      if (container instanceof HibernateProxy) {
+        container = ((HibernateProxy) container).getHibernateLazyInitializer().getImplementation();
+      }
+      if (indexedContainers.add(container) == false) {
+        continue;
+      }
+      if (isIndexed(container.getClass()) == true) {
+        index(fullTextSession, container);
+      }
+      indexContainedIn(fullTextSession, container, indexedContainers);
+    }
+  }
+
+  /**
+   * @param obj
+   * @param initializedOnly If true, uninitialized lazy collections are skipped (e. g. for deleted objects, they can't be loaded anymore).
+   * @return The objects referenced by the {@link ContainedIn} fields of the given object. The objects may be uninitialized proxies.
+   */
+  static List<Object> getContainedIn(final Object obj, final boolean initializedOnly)
+  {
+    final List<Field> fields = getContainedInFields(obj.getClass());
+    if (fields.isEmpty() == true) {
+      return Collections.emptyList();
+    }
+    final List<Object> result = new ArrayList<Object>();
+    for (final Field field : fields) {
+      final Object value;
+      try {
+        value = field.get(obj);
+      } catch (final IllegalAccessException ex) {
+        log.error("Can't get value of field " + field + ": " + ex.getMessage(), ex);
+        continue;
+      }
+      if (value == null) {
+        continue;
+      }
+      final Collection< ? > values;
+      if (value instanceof Collection< ? >) {
+        values = (Collection< ? >) value;
+      } else if (value instanceof Map< ? , ? >) {
+        values = ((Map< ? , ? >) value).values();
+      } else {
+        result.add(value);
+        continue;
+      }
+      if (initializedOnly == true && Hibernate.isInitialized(value) == false) {
+        continue;
+      }
+      for (final Object element : values) {
+        if (element != null) {
+          result.add(element);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<Field> getContainedInFields(final Class< ? > clazz)
+  {
+    List<Field> fields = containedInFields.get(clazz);
+    if (fields == null) {
+      fields = new ArrayList<Field>();
+      for (Class< ? > cls = clazz; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+        for (final Field field : cls.getDeclaredFields()) {
+          if (field.isAnnotationPresent(ContainedIn.class) == true) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      containedInFields.put(clazz, fields);
+    }
+    return fields;
+  }
+
+  private boolean isIndexed(final Class< ? > clazz)
+  {
+    Boolean indexed = indexedClasses.get(clazz);
+    if (indexed == null) {
+      indexed = clazz.isAnnotationPresent(Indexed.class);
+      indexedClasses.put(clazz, indexed);
+    }
+    return indexed;
+  }
+
+  /**
+   * Must be called inside the journalLock.
+   */
+  private void appendJournal(final Class< ? > clazz, final Serializable id)
+  {
+    if (journalWriter == null) {
+      return;
+    }
+    try {
+      journalWriter.write(clazz.getName() + "\t" + id + "\n");
+      journalWriter.flush();
+    } catch (final IOException ex) {
+      log.error("Error while writing journal of full-text indexer '" + journalFile + "': " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Rewrites the journal with the pending entries only. Only the copy of the pending entries is taken inside the lock of this indexer.
+   */
+  void writeJournal()
+  {
+    if (StringUtils.isBlank(journalFile) == true) {
+      return;
+    }
+    synchronized (journalLock) {
+      final List<String> lines;
+      synchronized (this) {
+        lines = new ArrayList<String>(queue.size());
+        for (final Entry entry : queue.values()) {
+          lines.add(entry.clazz.getName() + "\t" + entry.id + "\n");
+        }
+      }
+      IOUtils.closeQuietly(journalWriter);
+      journalWriter = null;
+      try {
+        final File file = new File(journalFile);
+        if (file.getParentFile() != null) {
+          file.getParentFile().mkdirs();
+        }
+        journalWriter = new OutputStreamWriter(new FileOutputStream(file, false), "UTF-8");
+        for (final String line : lines) {
+          journalWriter.write(line);
+        }
+        journalWriter.flush();
+      } catch (final IOException ex) {
+        log.error("Error while writing journal of full-text indexer '" + journalFile + "': " + ex.getMessage(), ex);
+      }
+    }
+  }
+
+  /**
+   * Must be called inside the lock of this indexer.
+   */
+  void readJournal()
+  {
+    if (StringUtils.isBlank(journalFile) == true) {
+      return;
+    }
+    final File file = new File(journalFile);
+    if (file.exists() == false) {
+      return;
+    }
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] tokens = StringUtils.split(line, '\t');
+        if (tokens == null || tokens.length != 2) {
+          continue;
+        }
+        try {
+          final Class< ? > clazz = Class.forName(tokens[0]);
+          final Serializable id = parseId(clazz, tokens[1]);
+          final String key = getKey(clazz, id);
+          final Entry entry = queue.containsKey(key) == true ? queue.get(key) : new Entry(clazz, id);
+          entry.sequence = ++lastScheduledSequence;
+          queue.put(key, entry);
+        } catch (final Exception ex) {
+          log.warn("Ignoring entry of journal of full-text indexer: " + line + " (" + ex.getMessage() + ")");
+        }
+      }
+    } catch (final IOException ex) {
+      log.error("Error while reading journal of full-text indexer '" + journalFile + "': " + ex.getMessage(), ex);
+    } finally {
+      IOUtils.closeQuietly(reader);
+    }
+    lastIndexedSequence = 0;
+  }
+
+  private Serializable parseId(final Class< ? > clazz, final String value)
+  {
+    final ClassMetadata metadata = sessionFactory.getClassMetadata(clazz);
+    final Class< ? > idClass = metadata != null ? metadata.getIdentifierType().getReturnedClass() : Integer.class;
+    if (Integer.class.equals(idClass) == true) {
+      return Integer.valueOf(value);
+    } else if (Long.class.equals(idClass) == true) {
+      return Long.valueOf(value);
+    }
+    return value;
+  }
+
+  private static String getKey(final Class< ? > clazz, final Serializable id)
+  {
+    return clazz.getName() + "#" + id;
+  }
+
+  private static class Entry
+  {
+    final Class< ? > clazz;
+
+    final Serializable id;
+
+    final long firstScheduled = System.currentTimeMillis();
+
+    long lastScheduled = firstScheduled;
+
+    long sequence;
+
+    int attempts;
+
+    Entry(final Class< ? > clazz, final Serializable id)
+    {
+      this.clazz = clazz;
+      this.id = id;
+    }
+  }
+}
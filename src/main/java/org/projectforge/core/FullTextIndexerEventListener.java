@@ -0,0 +1,137 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.io.Serializable;
+
+import org.hibernate.EntityMode;
+import org.hibernate.event.AbstractCollectionEvent;
+import org.hibernate.event.EventSource;
+import org.hibernate.event.PostCollectionRecreateEvent;
+import org.hibernate.event.PostCollectionRecreateEventListener;
+import org.hibernate.event.PostCollectionRemoveEvent;
+import org.hibernate.event.PostCollectionRemoveEventListener;
+import org.hibernate.event.PostCollectionUpdateEvent;
+import org.hibernate.event.PostCollectionUpdateEventListener;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.HibernateProxyHelper;
+import org.hibernate.proxy.LazyInitializer;
+
+/**
+ * Replaces Hibernate Search's event based indexing (indexing strategy manual): Every inserted, updated or deleted entity is scheduled at
+ * the {@link FullTextIndexer}, independent of the write path (BaseDao or direct usage of the HibernateTemplate or session such as
+ * PersonalAddressDao, InitDatabaseDao or SkillTree).<br/>
+ * The indexer is set by the {@link FullTextIndexer} itself, otherwise the session factory would depend on the indexer and vice versa.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class FullTextIndexerEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+PostCollectionRecreateEventListener, PostCollectionRemoveEventListener, PostCollectionUpdateEventListener
+{
+  private static final long serialVersionUID = -2916329757209386374L;
+
+  private transient FullTextIndexer fullTextIndexer;
+
+  void setFullTextIndexer(final FullTextIndexer fullTextIndexer)
+  {
+    this.fullTextIndexer = fullTextIndexer;
+  }
+
+  @Override
+  public void onPostInsert(final PostInsertEvent event)
+  {
+    schedule(event.getPersister().getMappedClass(EntityMode.POJO), event.getId());
+  }
+
+  @Override
+  public void onPostUpdate(final PostUpdateEvent event)
+  {
+    schedule(event.getPersister().getMappedClass(EntityMode.POJO), event.getId());
+  }
+
+  @Override
+  public void onPostDelete(final PostDeleteEvent event)
+  {
+    schedule(event.getPersister().getMappedClass(EntityMode.POJO), event.getId());
+    // The indexer can't load the deleted object anymore, so the objects embedding it (@ContainedIn) are scheduled here:
+    scheduleContainedIn(event.getEntity(), event.getSession());
+  }
+
+  @Override
+  public void onPostRecreateCollection(final PostCollectionRecreateEvent event)
+  {
+    scheduleOwner(event);
+  }
+
+  @Override
+  public void onPostRemoveCollection(final PostCollectionRemoveEvent event)
+  {
+    scheduleOwner(event);
+  }
+
+  @Override
+  public void onPostUpdateCollection(final PostCollectionUpdateEvent event)
+  {
+    scheduleOwner(event);
+  }
+
+  private void scheduleOwner(final AbstractCollectionEvent event)
+  {
+    final Object owner = event.getAffectedOwnerOrNull();
+    if (owner == null) {
+      return;
+    }
+    schedule(HibernateProxyHelper.getClassWithoutInitializingProxy(owner), event.getAffectedOwnerIdOrNull());
+  }
+
+  private void scheduleContainedIn(final Object entity, final EventSource session)
+  {
+    if (fullTextIndexer == null || entity == null) {
+      return;
+    }
+    for (final Object container : FullTextIndexer.getContainedIn(entity, true)) {
+      if (container instanceof HibernateProxy) {
+        final LazyInitializer initializer = ((HibernateProxy) container).getHibernateLazyInitializer();
+        schedule(initializer.getPersistentClass(), initializer.getIdentifier());
+      } else if (session != null) {
+        schedule(container.getClass(), session.getContextEntityIdentifier(container));
+      }
+    }
+  }
+
+  private void schedule(final Class< ? > clazz, final Serializable id)
+  {
+    final FullTextIndexer indexer = fullTextIndexer;
+    if (indexer == null || clazz == null) {
+      return;
+    }
+    indexer.schedule(clazz, id);
+  }
+}
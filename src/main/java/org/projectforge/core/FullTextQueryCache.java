@@ -0,0 +1,115 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.search.Query;
+
+/**
+ * LRU cache of parsed Lucene queries of one entity class (one cache per {@link BaseDao}). Parsing the search strings with the
+ * MultiFieldQueryParser over all search fields is expensive for entities with many fields (e. g. addresses), but the users mostly repeat
+ * the same search strings (paging, sorting, re-displaying list pages). The key consists of the search fields and the (already modified)
+ * search string. Search strings with parse errors aren't cached.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class FullTextQueryCache
+{
+  /**
+   * Maximum number of parsed queries per entity class.
+   */
+  public static final int MAX_SIZE = 100;
+
+  private final Map<String, Query> queries = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+    private static final long serialVersionUID = -2281472963655342147L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Query> eldest)
+    {
+      return size() > MAX_SIZE;
+    }
+  };
+
+  private final MetricCounter hitCounter, missCounter;
+
+  /**
+   * @param name Name used for the hit and miss counters (see {@link PerformanceMetrics}), e. g. the simple name of the entity class.
+   */
+  public FullTextQueryCache(final String name)
+  {
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    hitCounter = metrics.getCounter("lucene." + name + ".queryCache.hits");
+    missCounter = metrics.getCounter("lucene." + name + ".queryCache.misses");
+  }
+
+  /**
+   * @param searchFields
+   * @param searchString
+   * @return A copy of the cached query or null, if not cached. The copy may be modified by the caller.
+   */
+  public Query get(final String[] searchFields, final String searchString)
+  {
+    final Query query;
+    synchronized (queries) {
+      query = queries.get(getKey(searchFields, searchString));
+    }
+    if (query == null) {
+      missCounter.increment();
+      return null;
+    }
+    hitCounter.increment();
+    return (Query) query.clone();
+  }
+
+  public void put(final String[] searchFields, final String searchString, final Query query)
+  {
+    final Query copy = (Query) query.clone();
+    synchronized (queries) {
+      queries.put(getKey(searchFields, searchString), copy);
+    }
+  }
+
+  public void clear()
+  {
+    synchronized (queries) {
+      queries.clear();
+    }
+  }
+
+  public int getSize()
+  {
+    synchronized (queries) {
+      return queries.size();
+    }
+  }
+
+  static String getKey(final String[] searchFields, final String searchString)
+  {
+    return StringUtils.join(searchFields, ',') + "\n" + searchString;
+  }
+}
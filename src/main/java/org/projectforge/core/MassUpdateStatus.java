@@ -0,0 +1,226 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.projectforge.common.AbstractCache;
+
+/**
+ * Progress of a mass update running asynchronously in chunks (see {@link BaseDao#startMassUpdate(java.util.List, ExtendedBaseDO)}). The
+ * status is registered under an id, so web pages should only store the id and get the current status via {@link #get(String)}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class MassUpdateStatus
+{
+  /**
+   * Finished mass updates are removed from the registry after this time.
+   */
+  private static final long MAX_AGE_OF_FINISHED = AbstractCache.TICKS_PER_HOUR;
+
+  private static final Map<String, MassUpdateStatus> registry = new ConcurrentHashMap<String, MassUpdateStatus>();
+
+  private final String id;
+
+  private final int total;
+
+  private final AtomicInteger processed = new AtomicInteger();
+
+  private final AtomicInteger updated = new AtomicInteger();
+
+  private final AtomicInteger skipped = new AtomicInteger();
+
+  private final AtomicInteger failed = new AtomicInteger();
+
+  private final long startTime;
+
+  private volatile long endTime;
+
+  /**
+   * Creates and registers a new status.
+   * @param total Number of entries to process.
+   */
+  public static MassUpdateStatus register(final int total)
+  {
+    final long now = System.currentTimeMillis();
+    for (final Iterator<MassUpdateStatus> it = registry.values().iterator(); it.hasNext() == true;) {
+      final MassUpdateStatus status = it.next();
+      if (status.isFinished() == true && now - status.endTime > MAX_AGE_OF_FINISHED) {
+        it.remove();
+      }
+    }
+    final MassUpdateStatus status = new MassUpdateStatus(UUID.randomUUID().toString(), total);
+    registry.put(status.getId(), status);
+    return status;
+  }
+
+  /**
+   * @param id
+   * @return The status or null if not found (unknown or outdated).
+   */
+  public static MassUpdateStatus get(final String id)
+  {
+    if (id == null) {
+      return null;
+    }
+    return registry.get(id);
+  }
+
+  /**
+   * Creates an unregistered status, e. g. for counting the entries of a single chunk.
+   * @param total
+   */
+  public MassUpdateStatus(final int total)
+  {
+    this(null, total);
+  }
+
+  private MassUpdateStatus(final String id, final int total)
+  {
+    this.id = id;
+    this.total = total;
+    this.startTime = System.currentTimeMillis();
+  }
+
+  /**
+   * The entry was processed and modified.
+   */
+  void updated()
+  {
+    updated.incrementAndGet();
+    processed.incrementAndGet();
+  }
+
+  /**
+   * The entry was processed without any modification or wasn't ready for mass update (see {@link BaseDao#massUpdateEntry}).
+   */
+  void skipped()
+  {
+    skipped.incrementAndGet();
+    processed.incrementAndGet();
+  }
+
+  /**
+   * The update of the given number of entries failed.
+   */
+  void failed(final int number)
+  {
+    failed.addAndGet(number);
+    processed.addAndGet(number);
+  }
+
+  /**
+   * Adds the counters of the given (committed) chunk.
+   * @param chunkStatus
+   */
+  void add(final MassUpdateStatus chunkStatus)
+  {
+    updated.addAndGet(chunkStatus.getUpdated());
+    skipped.addAndGet(chunkStatus.getSkipped());
+    failed.addAndGet(chunkStatus.getFailed());
+    processed.addAndGet(chunkStatus.getProcessed());
+  }
+
+  void finished()
+  {
+    endTime = System.currentTimeMillis();
+  }
+
+  public String getId()
+  {
+    return id;
+  }
+
+  public int getTotal()
+  {
+    return total;
+  }
+
+  public int getProcessed()
+  {
+    return processed.get();
+  }
+
+  public int getUpdated()
+  {
+    return updated.get();
+  }
+
+  public int getSkipped()
+  {
+    return skipped.get();
+  }
+
+  public int getFailed()
+  {
+    return failed.get();
+  }
+
+  /**
+   * @return Progress in percent (0-100).
+   */
+  public int getProgressInPercent()
+  {
+    if (total == 0) {
+      return 100;
+    }
+    return Math.min(100, getProcessed() * 100 / total);
+  }
+
+  public boolean isFinished()
+  {
+    return endTime > 0;
+  }
+
+  /**
+   * @return The duration in millis (until now if not yet finished).
+   */
+  public long getDuration()
+  {
+    return (isFinished() == true ? endTime : System.currentTimeMillis()) - startTime;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "processed="
+        + getProcessed()
+        + "/"
+        + total
+        + ", updated="
+        + getUpdated()
+        + ", skipped="
+        + getSkipped()
+        + ", failed="
+        + getFailed()
+        + ", duration="
+        + getDuration()
+        + "ms";
+  }
+}
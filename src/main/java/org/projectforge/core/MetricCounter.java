@@ -0,0 +1,78 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Low-overhead counter striped by thread (e. g. for cache hits and misses).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see PerformanceMetrics
+ */
+public class MetricCounter
+{
+  private final String name;
+
+  private final AtomicLongArray stripes = new AtomicLongArray(MetricTimer.STRIPES);
+
+  MetricCounter(final String name)
+  {
+    this.name = name;
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  public void increment()
+  {
+    stripes.incrementAndGet((int) (Thread.currentThread().getId() & (MetricTimer.STRIPES - 1)));
+  }
+
+  /**
+   * @param delta The value to add, e. g. a number of bytes.
+   */
+  public void add(final long delta)
+  {
+    stripes.addAndGet((int) (Thread.currentThread().getId() & (MetricTimer.STRIPES - 1)), delta);
+  }
+
+  public long getCount()
+  {
+    long count = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      count += stripes.get(i);
+    }
+    return count;
+  }
+
+  public void reset()
+  {
+    for (int i = 0; i < stripes.length(); i++) {
+      stripes.set(i, 0);
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Low-overhead timer: the durations are counted in a histogram with logarithmic buckets (bucket i holds durations below 2^i
+ * microseconds). The histogram is striped by thread, so concurrent threads rarely update the same counters.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see PerformanceMetrics
+ */
+public class MetricTimer
+{
+  static final int STRIPES = 8;
+
+  static final int BUCKETS = 36;
+
+  private static final int TOTAL = BUCKETS;
+
+  private static final int MAX = BUCKETS + 1;
+
+  private final String name;
+
+  private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+  MetricTimer(final String name)
+  {
+    this.name = name;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new AtomicLongArray(BUCKETS + 2);
+    }
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * Usage:
+   * 
+   * <pre>
+   * final long start = System.nanoTime();
+   * try {
+   *   ...
+   * } finally {
+   *   timer.stop(start);
+   * }
+   * </pre>
+   * @param startNanos Result of {@link System#nanoTime()} at the start of the measured operation.
+   */
+  public void stop(final long startNanos)
+  {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public void record(final long nanos)
+  {
+    final AtomicLongArray stripe = stripes[(int) (Thread.currentThread().getId() & (STRIPES - 1))];
+    stripe.incrementAndGet(getBucket(nanos));
+    stripe.addAndGet(TOTAL, nanos);
+    long max;
+    while ((max = stripe.get(MAX)) < nanos) {
+      if (stripe.compareAndSet(MAX, max, nanos) == true) {
+        break;
+      }
+    }
+  }
+
+  public void reset()
+  {
+    for (final AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < stripe.length(); i++) {
+        stripe.set(i, 0);
+      }
+    }
+  }
+
+  /**
+   * @return The summed up values of all stripes.
+   */
+  public Snapshot getSnapshot()
+  {
+    final long[] buckets = new long[BUCKETS];
+    long count = 0, total = 0, max = 0;
+    for (final AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < BUCKETS; i++) {
+        final long value = stripe.get(i);
+        buckets[i] += value;
+        count += value;
+      }
+      total += stripe.get(TOTAL);
+      max = Math.max(max, stripe.get(MAX));
+    }
+    return new Snapshot(name, count, total, max, buckets);
+  }
+
+  static int getBucket(final long nanos)
+  {
+    final long micros = nanos / 1000;
+    if (micros <= 0) {
+      return 0;
+    }
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * Values of a timer. All durations are given in milliseconds. The percentiles are upper bounds (precision of the histogram buckets).
+   */
+  public static class Snapshot
+  {
+    private final String name;
+
+    private final long count;
+
+    private final double total;
+
+    private final double mean;
+
+    private final double max;
+
+    private final double p50;
+
+    private final double p95;
+
+    private final double p99;
+
+    Snapshot(final String name, final long count, final long totalNanos, final long maxNanos, final long[] buckets)
+    {
+      this.name = name;
+      this.count = count;
+      this.total = totalNanos / 1000000.0;
+      this.mean = count > 0 ? total / count : 0.0;
+      this.max = maxNanos / 1000000.0;
+      this.p50 = getPercentile(buckets, count, 0.50);
+      this.p95 = getPercentile(buckets, count, 0.95);
+      this.p99 = getPercentile(buckets, count, 0.99);
+    }
+
+    private double getPercentile(final long[] buckets, final long count, final double percentile)
+    {
+      if (count == 0) {
+        return 0.0;
+      }
+      final long threshold = (long) Math.ceil(count * percentile);
+      long sum = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        sum += buckets[i];
+        if (sum >= threshold) {
+          // Upper bound of bucket i is 2^i microseconds, but not more than the measured maximum:
+          return Math.min((1L << i) / 1000.0, max);
+        }
+      }
+      return max;
+    }
+
+    public String getName()
+    {
+      return name;
+    }
+
+    public long getCount()
+    {
+      return count;
+    }
+
+    public double getTotal()
+    {
+      return total;
+    }
+
+    public double getMean()
+    {
+      return mean;
+    }
+
+    public double getMax()
+    {
+      return max;
+    }
+
+    public double getP50()
+    {
+      return p50;
+    }
+
+    public double getP95()
+    {
+      return p95;
+    }
+
+    public double getP99()
+    {
+      return p99;
+    }
+  }
+}
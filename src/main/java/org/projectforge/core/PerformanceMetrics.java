@@ -0,0 +1,337 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.projectforge.common.AbstractCache;
+import org.projectforge.common.DateHelper;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Registry of all timers and counters of ProjectForge (DAO operations, cache refreshs and hits, Wicket requests per page class) including
+ * the Hibernate statistics. The metrics are available via JMX ({@value #OBJECT_NAME}), the admin page and as CSV/JSON snapshots written
+ * hourly to the working directory (sub directory metrics).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class PerformanceMetrics implements PerformanceMetricsMBean
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(PerformanceMetrics.class);
+
+  public static final String OBJECT_NAME = "org.projectforge:type=PerformanceMetrics";
+
+  /**
+   * Snapshot files older than this time are deleted.
+   */
+  private static final long MAX_SNAPSHOT_AGE = 7 * 24 * AbstractCache.TICKS_PER_HOUR;
+
+  private static final PerformanceMetrics instance = new PerformanceMetrics();
+
+  private final ConcurrentMap<String, MetricTimer> timers = new ConcurrentHashMap<String, MetricTimer>();
+
+  private final ConcurrentMap<String, MetricCounter> counters = new ConcurrentHashMap<String, MetricCounter>();
+
+  private SessionFactory sessionFactory;
+
+  private ObjectName objectName;
+
+  public static PerformanceMetrics getInstance()
+  {
+    return instance;
+  }
+
+  private PerformanceMetrics()
+  {
+  }
+
+  /**
+   * @param name
+   * @return The timer with the given name (created if not yet exist).
+   */
+  public MetricTimer getTimer(final String name)
+  {
+    MetricTimer timer = timers.get(name);
+    if (timer == null) {
+      timer = new MetricTimer(name);
+      final MetricTimer existing = timers.putIfAbsent(name, timer);
+      if (existing != null) {
+        timer = existing;
+      }
+    }
+    return timer;
+  }
+
+  /**
+   * @param name
+   * @return The counter with the given name (created if not yet exist).
+   */
+  public MetricCounter getCounter(final String name)
+  {
+    MetricCounter counter = counters.get(name);
+    if (counter == null) {
+      counter = new MetricCounter(name);
+      final MetricCounter existing = counters.putIfAbsent(name, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * @return The snapshots of all used timers sorted by name.
+   */
+  public List<MetricTimer.Snapshot> getTimerSnapshots()
+  {
+    final List<MetricTimer.Snapshot> result = new ArrayList<MetricTimer.Snapshot>();
+    for (final MetricTimer timer : timers.values()) {
+      final MetricTimer.Snapshot snapshot = timer.getSnapshot();
+      if (snapshot.getCount() > 0) {
+        result.add(snapshot);
+      }
+    }
+    Collections.sort(result, new Comparator<MetricTimer.Snapshot>() {
+      @Override
+      public int compare(final MetricTimer.Snapshot o1, final MetricTimer.Snapshot o2)
+      {
+        return o1.getName().compareTo(o2.getName());
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return All counters and the Hibernate statistics (prefix hibernate.) sorted by name.
+   */
+  public Map<String, Long> getCounterValues()
+  {
+    final Map<String, Long> result = new TreeMap<String, Long>();
+    for (final MetricCounter counter : counters.values()) {
+      result.put(counter.getName(), counter.getCount());
+    }
+    if (sessionFactory != null) {
+      final Statistics stats = sessionFactory.getStatistics();
+      if (stats.isStatisticsEnabled() == true) {
+        result.put("hibernate.entityLoadCount", stats.getEntityLoadCount());
+        result.put("hibernate.entityFetchCount", stats.getEntityFetchCount());
+        result.put("hibernate.entityInsertCount", stats.getEntityInsertCount());
+        result.put("hibernate.entityUpdateCount", stats.getEntityUpdateCount());
+        result.put("hibernate.collectionLoadCount", stats.getCollectionLoadCount());
+        result.put("hibernate.queryExecutionCount", stats.getQueryExecutionCount());
+        result.put("hibernate.queryExecutionMaxTime", stats.getQueryExecutionMaxTime());
+        result.put("hibernate.queryCacheHitCount", stats.getQueryCacheHitCount());
+        result.put("hibernate.queryCacheMissCount", stats.getQueryCacheMissCount());
+        result.put("hibernate.secondLevelCacheHitCount", stats.getSecondLevelCacheHitCount());
+        result.put("hibernate.secondLevelCacheMissCount", stats.getSecondLevelCacheMissCount());
+        result.put("hibernate.prepareStatementCount", stats.getPrepareStatementCount());
+        result.put("hibernate.flushCount", stats.getFlushCount());
+        result.put("hibernate.transactionCount", stats.getTransactionCount());
+        result.put("hibernate.sessionOpenCount", stats.getSessionOpenCount());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @see org.projectforge.core.PerformanceMetricsMBean#getCsvSnapshot()
+   */
+  @Override
+  public String getCsvSnapshot()
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append("name;count;total ms;mean ms;max ms;p50 ms;p95 ms;p99 ms\n");
+    for (final MetricTimer.Snapshot snapshot : getTimerSnapshots()) {
+      buf.append(snapshot.getName()).append(";").append(snapshot.getCount()).append(";").append(format(snapshot.getTotal())).append(";")
+      .append(format(snapshot.getMean())).append(";").append(format(snapshot.getMax())).append(";").append(format(snapshot.getP50()))
+      .append(";").append(format(snapshot.getP95())).append(";").append(format(snapshot.getP99())).append("\n");
+    }
+    for (final Map.Entry<String, Long> entry : getCounterValues().entrySet()) {
+      buf.append(entry.getKey()).append(";").append(entry.getValue()).append(";;;;;;\n");
+    }
+    return buf.toString();
+  }
+
+  /**
+   * @see org.projectforge.core.PerformanceMetricsMBean#getJsonSnapshot()
+   */
+  @Override
+  public String getJsonSnapshot()
+  {
+    final Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+    snapshot.put("timestamp", DateHelper.formatAsUTC(new Date()));
+    snapshot.put("timers", getTimerSnapshots());
+    snapshot.put("counters", getCounterValues());
+    return new GsonBuilder().setPrettyPrinting().create().toJson(snapshot);
+  }
+
+  /**
+   * @return Html table of the 20 timers with the highest total duration and the hit ratios of all caches.
+   */
+  public String getHtmlSummary()
+  {
+    final List<MetricTimer.Snapshot> snapshots = getTimerSnapshots();
+    Collections.sort(snapshots, new Comparator<MetricTimer.Snapshot>() {
+      @Override
+      public int compare(final MetricTimer.Snapshot o1, final MetricTimer.Snapshot o2)
+      {
+        return Double.compare(o2.getTotal(), o1.getTotal());
+      }
+    });
+    final StringBuilder buf = new StringBuilder();
+    buf.append("<table class=\"table table-condensed\"><tr><th>name</th><th>count</th><th>total ms</th><th>mean ms</th>"
+        + "<th>p95 ms</th><th>max ms</th></tr>");
+    for (final MetricTimer.Snapshot snapshot : snapshots.subList(0, Math.min(20, snapshots.size()))) {
+      buf.append("<tr><td>").append(StringEscapeUtils.escapeHtml(snapshot.getName())).append("</td><td>").append(snapshot.getCount())
+      .append("</td><td>").append(format(snapshot.getTotal())).append("</td><td>").append(format(snapshot.getMean())).append("</td><td>")
+      .append(format(snapshot.getP95())).append("</td><td>").append(format(snapshot.getMax())).append("</td></tr>");
+    }
+    buf.append("</table>");
+    final Map<String, Long> counterValues = getCounterValues();
+    buf.append("<table class=\"table table-condensed\"><tr><th>cache</th><th>hits</th><th>misses</th><th>hit ratio</th></tr>");
+    for (final Map.Entry<String, Long> entry : counterValues.entrySet()) {
+      final String name = entry.getKey();
+      if (name.endsWith(".hits") == false) {
+        continue;
+      }
+      final String cache = name.substring(0, name.length() - ".hits".length());
+      final long hits = entry.getValue();
+      final Long misses = counterValues.get(cache + ".misses");
+      final long total = hits + (misses != null ? misses : 0);
+      buf.append("<tr><td>").append(StringEscapeUtils.escapeHtml(cache)).append("</td><td>").append(hits).append("</td><td>")
+      .append(misses != null ? misses : 0).append("</td><td>").append(total > 0 ? format(100.0 * hits / total) + "%" : "-")
+      .append("</td></tr>");
+    }
+    buf.append("</table>");
+    return buf.toString();
+  }
+
+  /**
+   * @see org.projectforge.core.PerformanceMetricsMBean#reset()
+   */
+  @Override
+  public void reset()
+  {
+    log.info("Resetting all performance metrics.");
+    for (final MetricTimer timer : timers.values()) {
+      timer.reset();
+    }
+    for (final MetricCounter counter : counters.values()) {
+      counter.reset();
+    }
+    if (sessionFactory != null) {
+      sessionFactory.getStatistics().clear();
+    }
+  }
+
+  /**
+   * Writes the current snapshot as CSV and JSON file to the given directory. Snapshot files older than 7 days are deleted.
+   * @param directory
+   */
+  public void writeSnapshot(final File directory)
+  {
+    try {
+      if (directory.exists() == false) {
+        directory.mkdirs();
+      }
+      final String suffix = DateHelper.getTimestampAsFilenameSuffix(new Date());
+      FileUtils.writeStringToFile(new File(directory, "metrics_" + suffix + ".csv"), getCsvSnapshot(), "UTF-8");
+      FileUtils.writeStringToFile(new File(directory, "metrics_" + suffix + ".json"), getJsonSnapshot(), "UTF-8");
+      final File[] files = directory.listFiles();
+      if (files != null) {
+        final long maxAge = System.currentTimeMillis() - MAX_SNAPSHOT_AGE;
+        for (final File file : files) {
+          if (file.getName().startsWith("metrics_") == true && file.lastModified() < maxAge) {
+            file.delete();
+          }
+        }
+      }
+    } catch (final IOException ex) {
+      log.error("Can't write performance metrics snapshot to directory '" + directory.getAbsolutePath() + "': " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Registers this bean at the platform MBean server (Spring init method).
+   */
+  public void registerMBean()
+  {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      objectName = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(objectName) == false) {
+        server.registerMBean(this, objectName);
+      }
+    } catch (final Exception ex) {
+      log.error("Can't register performance metrics as MBean: " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Unregisters this bean from the platform MBean server (Spring destroy method).
+   */
+  public void unregisterMBean()
+  {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (final Exception ex) {
+      log.warn("Can't unregister performance metrics MBean: " + ex.getMessage());
+    }
+    objectName = null;
+  }
+
+  public void setSessionFactory(final SessionFactory sessionFactory)
+  {
+    this.sessionFactory = sessionFactory;
+  }
+
+  private String format(final double value)
+  {
+    return String.format(Locale.ENGLISH, "%.3f", value);
+  }
+}
@@ -0,0 +1,47 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+/**
+ * JMX interface of the {@link PerformanceMetrics}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public interface PerformanceMetricsMBean
+{
+  /**
+   * @return All timers and counters as CSV.
+   */
+  public String getCsvSnapshot();
+
+  /**
+   * @return All timers and counters as JSON.
+   */
+  public String getJsonSnapshot();
+
+  /**
+   * Resets all timers and counters (including the Hibernate statistics).
+   */
+  public void reset();
+}
@@ -0,0 +1,76 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helper for updating caches and other in-memory structures consistently with the data base.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class TransactionHelper
+{
+  /**
+   * Executes the given task after the commit of the current transaction. If the transaction is rolled back, the task isn't executed at all.
+   * Outside of a transaction the task is executed immediately. Use this method for updating caches from the dao's after-save hooks, so a
+   * rolled back modification doesn't remain in the cache.
+   * @param task
+   */
+  public static void executeAfterCommit(final Runnable task)
+  {
+    if (TransactionSynchronizationManager.isSynchronizationActive() == true) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit()
+        {
+          task.run();
+        }
+      });
+    } else {
+      task.run();
+    }
+  }
+
+  /**
+   * Executes the given task after the rollback of the current transaction, e. g. for resetting in-memory objects modified by the rolled
+   * back transaction. Outside of a transaction the task is never executed.
+   * @param task
+   */
+  public static void executeAfterRollback(final Runnable task)
+  {
+    if (TransactionSynchronizationManager.isSynchronizationActive() == true) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(final int status)
+        {
+          if (status == STATUS_ROLLED_BACK) {
+            task.run();
+          }
+        }
+      });
+    }
+  }
+}
@@ -48,6 +48,8 @@ public class AutoSessionFactoryBean extends AnnotationSessionFactoryBean
   /** The logger */
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AutoSessionFactoryBean.class);
 
+  private static final String FS_ACCESS_TYPE_PROPERTY = "hibernate.search.default.filesystem_access_type";
+
   private boolean schemaUpdate;
 
   @Override
@@ -86,6 +88,11 @@ public class AutoSessionFactoryBean extends AnnotationSessionFactoryBean
     .property("oldValue", ElementType.METHOD).field().index(Index.TOKENIZED).store(Store.NO) //
     .property("newValue", ElementType.METHOD).field().index(Index.TOKENIZED).store(Store.NO); //
     config.getProperties().put("hibernate.search.model_mapping", mapping);
+    if (config.getProperties().containsKey(FS_ACCESS_TYPE_PROPERTY) == false) {
+      final String accessType = ConfigXml.getInstance().getFullTextIndexAccessType();
+      log.info("Using full text index directories with access type: " + accessType);
+      config.getProperties().put(FS_ACCESS_TYPE_PROPERTY, accessType);
+    }
     super.postProcessAnnotationConfiguration(config);
   }
 
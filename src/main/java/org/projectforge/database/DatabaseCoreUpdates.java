@@ -28,12 +28,14 @@ import java.util.List;
 
 import org.projectforge.address.AddressDO;
 import org.projectforge.continuousdb.DatabaseResultRow;
+import org.projectforge.continuousdb.SchemaGenerator;
 import org.projectforge.continuousdb.Table;
 import org.projectforge.continuousdb.TableAttribute;
 import org.projectforge.continuousdb.UpdateEntry;
 import org.projectforge.continuousdb.UpdateEntryImpl;
 import org.projectforge.continuousdb.UpdatePreCheckStatus;
 import org.projectforge.continuousdb.UpdateRunningStatus;
+import org.projectforge.core.CacheInvalidationDO;
 import org.projectforge.fibu.AuftragDO;
 import org.projectforge.fibu.AuftragsPositionDO;
 import org.projectforge.fibu.EingangsrechnungDO;
@@ -63,6 +65,30 @@ public class DatabaseCoreUpdates
   public static List<UpdateEntry> getUpdateEntries()
   {
     final List<UpdateEntry> list = new ArrayList<UpdateEntry>();
+    // /////////////////////////////////////////////////////////////////
+    // 5.3.1
+    // /////////////////////////////////////////////////////////////////
+    list.add(new UpdateEntryImpl(CORE_REGION_ID, "5.3.1", "2026-10-18", "Adds table t_cache_invalidation.") {
+
+      @Override
+      public UpdatePreCheckStatus runPreCheck()
+      {
+        if (dao.doEntitiesExist(CacheInvalidationDO.class) == false) {
+          return UpdatePreCheckStatus.READY_FOR_UPDATE;
+        }
+        return UpdatePreCheckStatus.ALREADY_UPDATED;
+      }
+
+      @Override
+      public UpdateRunningStatus runUpdate()
+      {
+        if (dao.doEntitiesExist(CacheInvalidationDO.class) == false) {
+          new SchemaGenerator(dao).add(CacheInvalidationDO.class).createSchema();
+        }
+        return UpdateRunningStatus.DONE;
+      }
+    });
+
     // /////////////////////////////////////////////////////////////////
     // 5.3
     // /////////////////////////////////////////////////////////////////
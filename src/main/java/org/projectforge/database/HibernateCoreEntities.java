@@ -58,6 +58,7 @@ class HibernateCoreEntities
     org.projectforge.address.AddressDO.class, //
     org.projectforge.address.PersonalAddressDO.class, //
     org.projectforge.book.BookDO.class, //
+    org.projectforge.core.CacheInvalidationDO.class, //
     org.projectforge.core.ConfigurationDO.class, //
     org.projectforge.database.DatabaseUpdateDO.class, //
     org.projectforge.gantt.GanttChartDO.class, //
@@ -26,8 +26,8 @@ package org.projectforge.export;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
+import org.projectforge.renderer.ChartRenderService;
 
 public class ExportJFreeChart
 {
@@ -41,6 +41,8 @@ public class ExportJFreeChart
 
   private JFreeChartImageType imageType = JFreeChartImageType.JPEG;
 
+  private String dataVersion;
+
   public ExportJFreeChart(final JFreeChart jFreeChart, final int width, final int height)
   {
     this.jFreeChart = jFreeChart;
@@ -49,27 +51,19 @@ public class ExportJFreeChart
   }
 
   /**
+   * The rendered image is cached if a data version is given (see {@link #setDataVersion(String)}).
    * @param out
    * @return extension png or jpg for usage as file name extension.
    */
   public String write(final OutputStream out)
   {
-    final JFreeChart chart = getJFreeChart();
-    final int width = getWidth();
-    final int height = getHeight();
-    String extension = null;
+    final JFreeChartImageType imageType = getImageType();
     try {
-      if (getImageType() == JFreeChartImageType.PNG) {
-        extension = "png";
-        ChartUtilities.writeChartAsPNG(out, chart, width, height);
-      } else {
-        extension = "jpg";
-        ChartUtilities.writeChartAsJPEG(out, chart, width, height);
-      }
+      out.write(imageType.render(getJFreeChart(), "export", dataVersion, getWidth(), getHeight()));
     } catch (final IOException ex) {
       log.error("Exception encountered " + ex, ex);
     }
-    return extension;
+    return imageType.getExtension();
   }
 
   public JFreeChart getJFreeChart()
@@ -97,4 +91,21 @@ public class ExportJFreeChart
     this.imageType = imageType;
     return this;
   }
+
+  public String getDataVersion()
+  {
+    return dataVersion;
+  }
+
+  /**
+   * @param dataVersion Version of the chart data (e. g. a hash code of all values the chart depends on). If given, the rendered image is
+   *          cached and re-used for the same data version, size and image type.
+   * @return this for chaining.
+   * @see ChartRenderService
+   */
+  public ExportJFreeChart setDataVersion(final String dataVersion)
+  {
+    this.dataVersion = dataVersion;
+    return this;
+  }
 }
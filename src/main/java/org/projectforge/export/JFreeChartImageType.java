@@ -21,9 +21,68 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.export;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+import org.projectforge.renderer.ChartRenderService;
+
 public enum JFreeChartImageType
 {
-  JPEG, PNG;
+  JPEG("jpg"), PNG("png");
+
+  private String extension;
+
+  private JFreeChartImageType(final String extension)
+  {
+    this.extension = extension;
+  }
+
+  /**
+   * @return png or jpg for usage as file name extension.
+   */
+  public String getExtension()
+  {
+    return extension;
+  }
+
+  public void write(final OutputStream out, final JFreeChart chart, final int width, final int height) throws IOException
+  {
+    if (this == PNG) {
+      ChartUtilities.writeChartAsPNG(out, chart, width, height);
+    } else {
+      ChartUtilities.writeChartAsJPEG(out, chart, width, height);
+    }
+  }
+
+  /**
+   * Renders the given chart. If a data version is given, the rendered image is cached (see {@link ChartRenderService}).
+   * @param chart
+   * @param category The kind of the chart (part of the cache key).
+   * @param dataVersion Version of the chart data or null, if the image shouldn't be cached.
+   * @param width
+   * @param height
+   * @return The rendered image.
+   */
+  public byte[] render(final JFreeChart chart, final String category, final String dataVersion, final int width, final int height)
+  {
+    return ChartRenderService.getInstance().render(category, dataVersion, width, height, name(), new ChartRenderService.Renderer() {
+      @Override
+      public byte[] render()
+      {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+          write(baos, chart, width, height);
+        } catch (final IOException ex) {
+          throw new RuntimeException(ex);
+        }
+        return baos.toByteArray();
+      }
+    });
+  }
 }
@@ -41,6 +41,8 @@ import org.apache.commons.lang.Validate;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.projectforge.access.OperationType;
+import org.projectforge.common.AbstractCache;
+import org.projectforge.common.AbstractCounterCache;
 import org.projectforge.common.DateHelper;
 import org.projectforge.common.NumberHelper;
 import org.projectforge.core.BaseDao;
@@ -62,8 +64,10 @@ import org.projectforge.user.UserDao;
 import org.projectforge.user.UserRightId;
 import org.projectforge.xml.stream.XmlObjectReader;
 import org.projectforge.xml.stream.XmlObjectWriter;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
 
 public class AuftragDao extends BaseDao<AuftragDO>
 {
@@ -87,7 +91,18 @@ public class AuftragDao extends BaseDao<AuftragDO>
 
   private SendMail sendMail;
 
-  private Integer abgeschlossenNichtFakturiert;
+  /**
+   * All closed and not invoiced orders are counted for this single key.
+   */
+  private static final Integer ABGESCHLOSSEN_NF_KEY = 0;
+
+  private final AbstractCounterCache abgeschlossenNichtFakturiertCache = new AbstractCounterCache(30 * AbstractCache.TICKS_PER_MINUTE) {
+    @Override
+    protected Map<Integer, Integer> loadCountedEntities()
+    {
+      return internalGetAbgeschlossenNichtFakturiert();
+    }
+  };
 
   private RechnungCache rechnungCache;
 
@@ -309,22 +324,45 @@ public class AuftragDao extends BaseDao<AuftragDO>
     return list.get(0).getPosition(positionNummer);
   }
 
-  public synchronized int getAbgeschlossenNichtFakturiertAnzahl()
+  /**
+   * The result is cached and lock-free (therefore you can call this method very often, e. g. on every page render).
+   * @return The number of closed and not (fully) invoiced orders.
+   */
+  public int getAbgeschlossenNichtFakturiertAnzahl()
   {
-    if (abgeschlossenNichtFakturiert != null) {
-      return abgeschlossenNichtFakturiert;
-    }
-    final AuftragFilter filter = new AuftragFilter();
-    filter.setListType(AuftragFilter.FILTER_ABGESCHLOSSEN_NF);
-    try {
-      final List<AuftragDO> list = getList(filter, false);
-      abgeschlossenNichtFakturiert = list != null ? list.size() : 0;
-      return abgeschlossenNichtFakturiert;
-    } catch (final Exception ex) {
-      log.error("Exception ocurred while getting number of closed and not invoiced orders: " + ex.getMessage(), ex);
-      // Exception e. g. if data-base update is needed.
-      return 0;
-    }
+    return abgeschlossenNichtFakturiertCache.getCounter(ABGESCHLOSSEN_NF_KEY);
+  }
+
+  /**
+   * Called (asynchronously) for reconciliation of the closed and not invoiced orders counter.
+   * @return Map with the ids of all closed and not invoiced orders as keys.
+   */
+  private Map<Integer, Integer> internalGetAbgeschlossenNichtFakturiert()
+  {
+    final Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+    txTemplate.execute(new TransactionCallback() {
+      public Object doInTransaction(final TransactionStatus status)
+      {
+        final AuftragFilter filter = new AuftragFilter();
+        filter.setListType(AuftragFilter.FILTER_ABGESCHLOSSEN_NF);
+        final List<AuftragDO> list = getList(filter, false);
+        if (list != null) {
+          for (final AuftragDO order : list) {
+            result.put(order.getId(), ABGESCHLOSSEN_NF_KEY);
+          }
+        }
+        return null;
+      }
+    });
+    return result;
+  }
+
+  private static boolean isAbgeschlossenNichtFakturiert(final AuftragDO order)
+  {
+    return order.isDeleted() == false
+        && order.getAuftragsStatus() != null
+        && order.isVollstaendigFakturiert() == false
+        && order.isAbgeschlossenUndNichtVollstaendigFakturiert() == true;
   }
 
   @Override
@@ -459,7 +497,6 @@ public class AuftragDao extends BaseDao<AuftragDO>
         position.checkVollstaendigFakturiert();
       }
     }
-    abgeschlossenNichtFakturiert = null;
     final String uiStatusAsXml = XmlObjectWriter.writeAsXml(obj.getUiStatus());
     obj.setUiStatusAsXml(uiStatusAsXml);
   }
@@ -468,11 +505,18 @@ public class AuftragDao extends BaseDao<AuftragDO>
   protected void afterSaveOrModify(final AuftragDO obj)
   {
     super.afterSaveOrModify(obj);
+    abgeschlossenNichtFakturiertCache.update(obj.getId(), isAbgeschlossenNichtFakturiert(obj) == true ? ABGESCHLOSSEN_NF_KEY : null);
     if (taskTree != null) {
       taskTree.refreshOrderPositionReferences();
     }
   }
 
+  @Override
+  protected void afterDelete(final AuftragDO obj)
+  {
+    abgeschlossenNichtFakturiertCache.update(obj.getId(), null);
+  }
+
   @Override
   protected void afterLoad(final AuftragDO obj)
   {
@@ -25,6 +25,7 @@ package org.projectforge.fibu;
 
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -57,6 +58,8 @@ public class EingangsrechnungDao extends BaseDao<EingangsrechnungDO>
 
   private KontoDao kontoDao;
 
+  private InvoicePaymentCache invoicePaymentCache;
+
   public EingangsrechnungDao()
   {
     super(EingangsrechnungDO.class);
@@ -132,6 +135,18 @@ public class EingangsrechnungDao extends BaseDao<EingangsrechnungDO>
     RechnungDao.readUiStatusFromXml(obj);
   }
 
+  @Override
+  protected void afterSaveOrModify(final EingangsrechnungDO obj)
+  {
+    invoicePaymentCache.update(obj);
+  }
+
+  @Override
+  protected void afterDelete(final EingangsrechnungDO obj)
+  {
+    invoicePaymentCache.remove(obj);
+  }
+
   @Override
   protected String[] getAdditionalSearchFields()
   {
@@ -186,6 +201,30 @@ public class EingangsrechnungDao extends BaseDao<EingangsrechnungDO>
     return result;
   }
 
+  /**
+   * Loads all not yet paid invoices via the open-items index of {@link InvoicePaymentCache} (instead of scanning all invoices).
+   * @return All invoices not yet paid.
+   */
+  @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+  public List<EingangsrechnungDO> getOpenInvoices()
+  {
+    checkLoggedInUserSelectAccess();
+    if (accessChecker.isRestrictedUser() == true) {
+      return null;
+    }
+    final Collection<Integer> ids = invoicePaymentCache.getOpenCreditorInvoiceIds();
+    final List<EingangsrechnungDO> result = new ArrayList<EingangsrechnungDO>();
+    if (ids.isEmpty() == true) {
+      return result;
+    }
+    for (final EingangsrechnungDO invoice : internalLoad(ids)) {
+      if (invoice.isDeleted() == false && invoice.isBezahlt() == false) {
+        result.add(invoice);
+      }
+    }
+    return sort(extractEntriesWithSelectAccess(result));
+  }
+
   /**
    * Gets history entries of super and adds all history entries of the EingangsrechnungsPositionDO childs.
    * @see org.projectforge.core.BaseDao#getDisplayHistoryEntries(org.projectforge.core.ExtendedBaseDO)
@@ -277,6 +316,11 @@ public class EingangsrechnungDao extends BaseDao<EingangsrechnungDO>
     this.kontoDao = kontoDao;
   }
 
+  public void setInvoicePaymentCache(final InvoicePaymentCache invoicePaymentCache)
+  {
+    this.invoicePaymentCache = invoicePaymentCache;
+  }
+
 
   /**
    * @see org.projectforge.core.BaseDao#useOwnCriteriaCacheRegion()
@@ -0,0 +1,324 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.projectforge.common.AbstractCache;
+import org.projectforge.core.TransactionHelper;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+
+/**
+ * Caches the payment delay statistics of all paid invoices and creditor invoices of the last year and the ids of all open (not paid)
+ * invoices and creditor invoices (open-items index). The cache is updated incrementally by RechnungDao and EingangsrechnungDao after any
+ * modification (after the commit), so the liquidity forecast doesn't need to scan the whole invoice history.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class InvoicePaymentCache extends AbstractCache
+{
+  private static Logger log = Logger.getLogger(InvoicePaymentCache.class);
+
+  /**
+   * Only invoices of the last year are considered for the payment delay statistics.
+   */
+  public static final int TIME_WINDOW_IN_DAYS = 365;
+
+  private HibernateTemplate hibernateTemplate;
+
+  private KontoCache kontoCache;
+
+  private PaymentDelayStatistics debitorStatistics;
+
+  private PaymentDelayStatistics creditorStatistics;
+
+  private Set<Integer> openDebitorInvoiceIds;
+
+  private Set<Integer> openCreditorInvoiceIds;
+
+  /**
+   * The cache is updated incrementally, the complete reload every 24 hours is only done for safety.
+   */
+  public InvoicePaymentCache()
+  {
+    super(24 * TICKS_PER_HOUR);
+  }
+
+  /**
+   * @param invoice
+   * @param kontoCache
+   * @return The groups (project, customer, account and customer text) for the payment delay statistics of the given invoice.
+   */
+  public static String[] getGroups(final RechnungDO invoice, final KontoCache kontoCache)
+  {
+    final List<String> groups = new ArrayList<String>();
+    final Integer projectId = invoice.getProjektId();
+    if (projectId != null) {
+      groups.add("project#" + projectId);
+    }
+    final Integer customerId = invoice.getKundeId();
+    if (customerId != null) {
+      groups.add("customer#" + customerId);
+    }
+    final KontoDO account = kontoCache != null ? kontoCache.getKonto(invoice) : null;
+    final Integer accountId = account != null ? account.getId() : null;
+    if (accountId != null) {
+      groups.add("account#" + accountId);
+    }
+    String customerText = invoice.getKundeText();
+    if (customerText != null) {
+      customerText = customerText.toLowerCase();
+      groups.add("customer:" + customerText);
+      if (customerText.length() > 5) {
+        customerText = customerText.substring(0, 5);
+      }
+      groups.add("shortCustomer:" + customerText);
+    }
+    return groups.toArray(new String[groups.size()]);
+  }
+
+  /**
+   * @param invoice
+   * @return The groups (account and creditor text) for the payment delay statistics of the given creditor invoice.
+   */
+  public static String[] getGroups(final EingangsrechnungDO invoice)
+  {
+    final List<String> groups = new ArrayList<String>();
+    final KontoDO account = invoice.getKonto();
+    final Integer accountId = account != null ? account.getId() : null;
+    if (accountId != null) {
+      groups.add("account#" + accountId);
+    }
+    String creditorText = invoice.getKreditor();
+    if (creditorText != null) {
+      creditorText = creditorText.toLowerCase();
+      groups.add("creditor:" + creditorText);
+      if (creditorText.length() > 5) {
+        creditorText = creditorText.substring(0, 5);
+      }
+      groups.add("shortCreditor:" + creditorText);
+    }
+    return groups.toArray(new String[groups.size()]);
+  }
+
+  public PaymentDelayStatistics getDebitorStatistics()
+  {
+    checkRefresh();
+    return debitorStatistics;
+  }
+
+  public PaymentDelayStatistics getCreditorStatistics()
+  {
+    checkRefresh();
+    return creditorStatistics;
+  }
+
+  /**
+   * @return The ids of all invoices not yet paid.
+   */
+  public Collection<Integer> getOpenDebitorInvoiceIds()
+  {
+    checkRefresh();
+    synchronized (openDebitorInvoiceIds) {
+      return new ArrayList<Integer>(openDebitorInvoiceIds);
+    }
+  }
+
+  /**
+   * @return The ids of all creditor invoices not yet paid.
+   */
+  public Collection<Integer> getOpenCreditorInvoiceIds()
+  {
+    checkRefresh();
+    synchronized (openCreditorInvoiceIds) {
+      return new ArrayList<Integer>(openCreditorInvoiceIds);
+    }
+  }
+
+  /**
+   * Should be called after any modification of the given invoice. The cache is updated after the commit of the current transaction.
+   * @param invoice
+   */
+  public void update(final RechnungDO invoice)
+  {
+    if (invoice.isDeleted() == true) {
+      remove(invoice);
+      return;
+    }
+    scheduleUpdate(invoice, getGroups(invoice, kontoCache), true);
+  }
+
+  /**
+   * Should be called after any modification of the given creditor invoice. The cache is updated after the commit of the current
+   * transaction.
+   * @param invoice
+   */
+  public void update(final EingangsrechnungDO invoice)
+  {
+    if (invoice.isDeleted() == true) {
+      remove(invoice);
+      return;
+    }
+    scheduleUpdate(invoice, getGroups(invoice), false);
+  }
+
+  public void remove(final RechnungDO invoice)
+  {
+    scheduleRemove(invoice.getId(), true);
+  }
+
+  public void remove(final EingangsrechnungDO invoice)
+  {
+    scheduleRemove(invoice.getId(), false);
+  }
+
+  /**
+   * The values are taken from the invoice immediately, the cache is updated after the commit. Updates and {@link #refresh()} are
+   * synchronized on this cache, so no update gets lost by a concurrent refresh.
+   */
+  private void scheduleUpdate(final AbstractRechnungDO< ? > invoice, final String[] groups, final boolean debitor)
+  {
+    final Integer invoiceId = invoice.getId();
+    if (invoiceId == null) {
+      return;
+    }
+    final boolean paid = invoice.isBezahlt();
+    final Date dateOfInvoice = invoice.getDatum();
+    final Date dateOfPayment = invoice.getBezahlDatum();
+    final int amount = paid == true ? invoice.getGrossSum().intValue() : 0;
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        synchronized (InvoicePaymentCache.this) {
+          final PaymentDelayStatistics statistics = debitor == true ? debitorStatistics : creditorStatistics;
+          if (statistics == null) {
+            // Not yet initialized.
+            return;
+          }
+          update(invoiceId, paid, dateOfInvoice, dateOfPayment, amount, groups, statistics, debitor == true ? openDebitorInvoiceIds
+              : openCreditorInvoiceIds);
+        }
+      }
+    });
+  }
+
+  private void scheduleRemove(final Integer invoiceId, final boolean debitor)
+  {
+    if (invoiceId == null) {
+      return;
+    }
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        synchronized (InvoicePaymentCache.this) {
+          final PaymentDelayStatistics statistics = debitor == true ? debitorStatistics : creditorStatistics;
+          if (statistics == null) {
+            return;
+          }
+          final Set<Integer> openIds = debitor == true ? openDebitorInvoiceIds : openCreditorInvoiceIds;
+          synchronized (openIds) {
+            openIds.remove(invoiceId);
+          }
+          statistics.remove(invoiceId);
+        }
+      }
+    });
+  }
+
+  private static void update(final AbstractRechnungDO< ? > invoice, final PaymentDelayStatistics statistics, final Set<Integer> openIds,
+      final String[] groups)
+  {
+    if (invoice.getId() == null) {
+      return;
+    }
+    final boolean paid = invoice.isBezahlt();
+    update(invoice.getId(), paid, invoice.getDatum(), invoice.getBezahlDatum(), paid == true ? invoice.getGrossSum().intValue() : 0, groups,
+        statistics, openIds);
+  }
+
+  private static void update(final Integer invoiceId, final boolean paid, final Date dateOfInvoice, final Date dateOfPayment,
+      final int amount, final String[] groups, final PaymentDelayStatistics statistics, final Set<Integer> openIds)
+  {
+    if (paid == true) {
+      synchronized (openIds) {
+        openIds.remove(invoiceId);
+      }
+      statistics.update(invoiceId, dateOfInvoice, dateOfPayment, amount, groups);
+    } else {
+      synchronized (openIds) {
+        openIds.add(invoiceId);
+      }
+      statistics.remove(invoiceId);
+    }
+  }
+
+  /**
+   * This method will be called by CacheHelper and is synchronized on this cache (as well as the incremental updates).
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected void refresh()
+  {
+    log.info("Initializing InvoicePaymentCache ...");
+    final PaymentDelayStatistics newDebitorStatistics = new PaymentDelayStatistics(TIME_WINDOW_IN_DAYS);
+    final Set<Integer> newOpenDebitorInvoiceIds = new HashSet<Integer>();
+    final List<RechnungDO> invoices = hibernateTemplate.find("from RechnungDO t where t.deleted = false");
+    for (final RechnungDO invoice : invoices) {
+      update(invoice, newDebitorStatistics, newOpenDebitorInvoiceIds, getGroups(invoice, kontoCache));
+    }
+    final PaymentDelayStatistics newCreditorStatistics = new PaymentDelayStatistics(TIME_WINDOW_IN_DAYS);
+    final Set<Integer> newOpenCreditorInvoiceIds = new HashSet<Integer>();
+    final List<EingangsrechnungDO> creditorInvoices = hibernateTemplate.find("from EingangsrechnungDO t where t.deleted = false");
+    for (final EingangsrechnungDO invoice : creditorInvoices) {
+      update(invoice, newCreditorStatistics, newOpenCreditorInvoiceIds, getGroups(invoice));
+    }
+    this.openDebitorInvoiceIds = newOpenDebitorInvoiceIds;
+    this.openCreditorInvoiceIds = newOpenCreditorInvoiceIds;
+    this.debitorStatistics = newDebitorStatistics;
+    this.creditorStatistics = newCreditorStatistics;
+    log.info("Initializing of InvoicePaymentCache done: "
+        + newOpenDebitorInvoiceIds.size()
+        + " open invoices, "
+        + newOpenCreditorInvoiceIds.size()
+        + " open creditor invoices.");
+  }
+
+  public void setHibernateTemplate(final HibernateTemplate hibernateTemplate)
+  {
+    this.hibernateTemplate = hibernateTemplate;
+  }
+
+  public void setKontoCache(final KontoCache kontoCache)
+  {
+    this.kontoCache = kontoCache;
+  }
+}
@@ -23,6 +23,7 @@
 
 package org.projectforge.fibu;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,11 @@ public class KontoCache extends AbstractCache
   /** The key is the order id. */
   private Map<Integer, KontoDO> accountMapById;
 
+  public KontoCache()
+  {
+    registerForInvalidation(KontoDO.class);
+  }
+
   public boolean isEmpty()
   {
     checkRefresh();
@@ -146,6 +152,28 @@ public class KontoCache extends AbstractCache
     log.info("Initializing of KontoCache done.");
   }
 
+  /**
+   * Reloads only the modified account (copy on write).
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    final Map<Integer, KontoDO> current = accountMapById;
+    if (current == null || id instanceof Integer == false) {
+      super.invalidate(entityClass, id);
+      return;
+    }
+    final KontoDO konto = hibernateTemplate.get(KontoDO.class, id);
+    final Map<Integer, KontoDO> map = new HashMap<Integer, KontoDO>(current);
+    if (konto == null || konto.isDeleted() == true) {
+      map.remove(id);
+    } else {
+      map.put(konto.getId(), konto);
+    }
+    this.accountMapById = map;
+  }
+
   public void setHibernateTemplate(final HibernateTemplate hibernateTemplate)
   {
     this.hibernateTemplate = hibernateTemplate;
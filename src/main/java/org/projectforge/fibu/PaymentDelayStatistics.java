@@ -0,0 +1,239 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.projectforge.calendar.DayHolder;
+
+/**
+ * Holds the payment delays (days between date of invoice and date of payment) of paid invoices aggregated by different groups (such as
+ * customer, project, account etc.). The statistics are maintained incrementally: the contribution of a single invoice may be updated or
+ * removed at any time without re-calculating the statistics of all invoices. Contributions of invoices older than the time window are
+ * removed on the next access.<br/>
+ * This class is thread safe.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class PaymentDelayStatistics implements Serializable
+{
+  private static final long serialVersionUID = -3286150834815519713L;
+
+  private final int timeWindowInDays;
+
+  /** The key is the invoice id. */
+  private final Map<Integer, Contribution> contributions = new HashMap<Integer, Contribution>();
+
+  private final TreeSet<Contribution> contributionsByDate = new TreeSet<Contribution>(new Comparator<Contribution>() {
+    @Override
+    public int compare(final Contribution o1, final Contribution o2)
+    {
+      if (o1.dateOfInvoice != o2.dateOfInvoice) {
+        return o1.dateOfInvoice < o2.dateOfInvoice ? -1 : 1;
+      }
+      return o1.invoiceId.compareTo(o2.invoiceId);
+    }
+  });
+
+  /** The key is the group, such as "customer#42". */
+  private final Map<String, Values> valuesMap = new HashMap<String, Values>();
+
+  /**
+   * @param timeWindowInDays Only invoices of the last given days are considered (0 means no time window).
+   */
+  public PaymentDelayStatistics(final int timeWindowInDays)
+  {
+    this.timeWindowInDays = timeWindowInDays;
+  }
+
+  /**
+   * Adds or replaces the contribution of the given invoice to all given groups. If the date of invoice or the date of payment isn't given
+   * any previous contribution of this invoice is removed.
+   * @param invoiceId
+   * @param dateOfInvoice
+   * @param dateOfPayment
+   * @param amount The weight of the payment delay (gross sum of the invoice).
+   * @param groups
+   */
+  public synchronized void update(final Integer invoiceId, final Date dateOfInvoice, final Date dateOfPayment, final int amount,
+      final String... groups)
+  {
+    remove(invoiceId);
+    if (invoiceId == null || dateOfInvoice == null || dateOfPayment == null || groups == null) {
+      return;
+    }
+    final Contribution contribution = new Contribution();
+    contribution.invoiceId = invoiceId;
+    contribution.dateOfInvoice = dateOfInvoice.getTime();
+    contribution.timeForPayment = new DayHolder(dateOfInvoice).daysBetween(new DayHolder(dateOfPayment));
+    contribution.amount = amount;
+    contribution.groups = groups;
+    contributions.put(invoiceId, contribution);
+    contributionsByDate.add(contribution);
+    for (final String group : groups) {
+      if (group == null) {
+        continue;
+      }
+      Values values = valuesMap.get(group);
+      if (values == null) {
+        values = new Values();
+        valuesMap.put(group, values);
+      }
+      values.add(contribution.timeForPayment, amount, 1);
+    }
+  }
+
+  /**
+   * Removes any contribution of the given invoice.
+   * @param invoiceId
+   */
+  public synchronized void remove(final Integer invoiceId)
+  {
+    if (invoiceId == null) {
+      return;
+    }
+    final Contribution contribution = contributions.remove(invoiceId);
+    if (contribution == null) {
+      return;
+    }
+    contributionsByDate.remove(contribution);
+    for (final String group : contribution.groups) {
+      if (group == null) {
+        continue;
+      }
+      final Values values = valuesMap.get(group);
+      if (values == null) {
+        continue;
+      }
+      values.add(contribution.timeForPayment, -contribution.amount, -1);
+      if (values.numberOfValues <= 0) {
+        valuesMap.remove(group);
+      }
+    }
+  }
+
+  /**
+   * @param group
+   * @return A copy of the aggregated values of the given group or null if no paid invoice exists for this group.
+   */
+  public synchronized Values getValues(final String group)
+  {
+    evictOutdatedContributions();
+    final Values values = valuesMap.get(group);
+    if (values == null) {
+      return null;
+    }
+    final Values result = new Values();
+    result.add(values);
+    return result;
+  }
+
+  /**
+   * @return The number of considered paid invoices.
+   */
+  public synchronized int size()
+  {
+    evictOutdatedContributions();
+    return contributions.size();
+  }
+
+  private void evictOutdatedContributions()
+  {
+    if (timeWindowInDays <= 0) {
+      return;
+    }
+    final long minDate = new DayHolder().add(Calendar.DAY_OF_YEAR, -timeWindowInDays).getTimeInMillis();
+    while (contributionsByDate.isEmpty() == false && contributionsByDate.first().dateOfInvoice < minDate) {
+      remove(contributionsByDate.first().invoiceId);
+    }
+  }
+
+  private static class Contribution implements Serializable
+  {
+    private static final long serialVersionUID = 1620766549062473211L;
+
+    Integer invoiceId;
+
+    long dateOfInvoice;
+
+    int timeForPayment;
+
+    int amount;
+
+    String[] groups;
+  }
+
+  /**
+   * Aggregated payment delays of a group, the weighted average is calculated with long values (no overflow for large amounts).
+   */
+  public static class Values implements Serializable
+  {
+    private static final long serialVersionUID = -6424960536104262497L;
+
+    private long weightedSum;
+
+    private long weightSum;
+
+    private int numberOfValues;
+
+    private void add(final int timeForPayment, final int amount, final int count)
+    {
+      weightedSum += (long) timeForPayment * amount;
+      weightSum += amount;
+      numberOfValues += count;
+    }
+
+    private void add(final Values other)
+    {
+      weightedSum += other.weightedSum;
+      weightSum += other.weightSum;
+      numberOfValues += other.numberOfValues;
+    }
+
+    /**
+     * @return The average payment delay in days weighted by the amounts of the invoices.
+     */
+    public int getWeightedAverage()
+    {
+      if (weightSum == 0) {
+        return 0;
+      }
+      return (int) (weightedSum / weightSum);
+    }
+
+    /**
+     * @return The number of paid invoices.
+     */
+    public int getNumberOfValues()
+    {
+      return numberOfValues;
+    }
+  }
+}
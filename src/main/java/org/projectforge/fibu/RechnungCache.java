@@ -23,6 +23,7 @@
 
 package org.projectforge.fibu;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +43,8 @@ public class RechnungCache extends AbstractCache
 {
   private static Logger log = Logger.getLogger(RechnungCache.class);
 
+  private static final String QUERY = "from RechnungsPositionDO t left join fetch t.auftragsPosition left join fetch t.auftragsPosition.auftrag where t.auftragsPosition is not null";
+
   private HibernateTemplate hibernateTemplate;
 
   /** The key is the order id. */
@@ -50,6 +53,34 @@ public class RechnungCache extends AbstractCache
   /** The key is the order position id. */
   private Map<Integer, Set<RechnungsPositionVO>> invoicePositionMapByAuftragsPositionId;
 
+  public RechnungCache()
+  {
+    registerForInvalidation(RechnungDO.class);
+  }
+
+  /**
+   * Reloads only the positions of the modified invoice (copy on write).
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    if (invoicePositionMapByAuftragId == null || invoicePositionMapByAuftragsPositionId == null || id instanceof Integer == false) {
+      super.invalidate(entityClass, id);
+      return;
+    }
+    final List<RechnungsPositionDO> list = hibernateTemplate.find(QUERY + " and t.rechnung.id = ?", id);
+    final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragId = copyWithoutInvoice(invoicePositionMapByAuftragId, (Integer) id);
+    final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragsPositionId = copyWithoutInvoice(invoicePositionMapByAuftragsPositionId,
+        (Integer) id);
+    for (final RechnungsPositionDO pos : list) {
+      add(pos, mapByAuftragId, mapByAuftragsPositionId, true);
+    }
+    this.invoicePositionMapByAuftragId = mapByAuftragId;
+    this.invoicePositionMapByAuftragsPositionId = mapByAuftragsPositionId;
+  }
+
   public Set<RechnungsPositionVO> getRechnungsPositionVOSetByAuftragId(final Integer auftragId)
   {
     checkRefresh();
@@ -73,40 +104,78 @@ public class RechnungCache extends AbstractCache
     // This method must not be synchronized because it works with a new copy of maps.
     final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragId = new HashMap<Integer, Set<RechnungsPositionVO>>();
     final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragsPositionId = new HashMap<Integer, Set<RechnungsPositionVO>>();
-    final List<RechnungsPositionDO> list = hibernateTemplate.find("from RechnungsPositionDO t left join fetch t.auftragsPosition left join fetch t.auftragsPosition.auftrag where t.auftragsPosition is not null");
+    final List<RechnungsPositionDO> list = hibernateTemplate.find(QUERY);
     for (final RechnungsPositionDO pos : list) {
-      if (pos.getAuftragsPosition() == null || pos.getAuftragsPosition().getAuftrag() == null) {
-        log.error("Assigned order position expected: " + pos);
-        continue;
-      } else if (pos.isDeleted() == true || pos.getRechnung() == null || pos.getRechnung().isDeleted() == true || pos.getRechnung().getNummer() == null) {
-        // Invoice position or invoice is deleted.
-        continue;
-      }
-      final AuftragsPositionDO auftragsPosition = pos.getAuftragsPosition();
-      final AuftragDO auftrag = auftragsPosition.getAuftrag();
-      Set<RechnungsPositionVO> setByAuftragId = mapByAuftragId.get(auftrag.getId());
-      if (setByAuftragId == null) {
-        setByAuftragId = new TreeSet<RechnungsPositionVO>();
-        mapByAuftragId.put(auftrag.getId(), setByAuftragId);
-      }
-      Set<RechnungsPositionVO> setByAuftragsPositionId = mapByAuftragsPositionId.get(auftragsPosition.getId());
-      if (setByAuftragsPositionId == null) {
-        setByAuftragsPositionId = new TreeSet<RechnungsPositionVO>();
-        mapByAuftragsPositionId.put(auftragsPosition.getId(), setByAuftragsPositionId);
-      }
-      final RechnungsPositionVO vo = new RechnungsPositionVO(pos);
-      if (setByAuftragId.contains(vo) == false) {
-        setByAuftragId.add(vo);
-      }
-      if (setByAuftragsPositionId.contains(vo) == false) {
-        setByAuftragsPositionId.add(vo);
-      }
+      add(pos, mapByAuftragId, mapByAuftragsPositionId, false);
     }
     this.invoicePositionMapByAuftragId = mapByAuftragId;
     this.invoicePositionMapByAuftragsPositionId = mapByAuftragsPositionId;
     log.info("Initializing of RechnungCache done.");
   }
 
+  /**
+   * @param copyOnWrite If true, the sets of the given maps are shared with the published maps and are therefore copied before modification.
+   */
+  private static void add(final RechnungsPositionDO pos, final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragId,
+      final Map<Integer, Set<RechnungsPositionVO>> mapByAuftragsPositionId, final boolean copyOnWrite)
+  {
+    if (pos.getAuftragsPosition() == null || pos.getAuftragsPosition().getAuftrag() == null) {
+      log.error("Assigned order position expected: " + pos);
+      return;
+    } else if (pos.isDeleted() == true || pos.getRechnung() == null || pos.getRechnung().isDeleted() == true || pos.getRechnung().getNummer() == null) {
+      // Invoice position or invoice is deleted.
+      return;
+    }
+    final AuftragsPositionDO auftragsPosition = pos.getAuftragsPosition();
+    final AuftragDO auftrag = auftragsPosition.getAuftrag();
+    final RechnungsPositionVO vo = new RechnungsPositionVO(pos);
+    add(mapByAuftragId, auftrag.getId(), vo, copyOnWrite);
+    add(mapByAuftragsPositionId, auftragsPosition.getId(), vo, copyOnWrite);
+  }
+
+  private static void add(final Map<Integer, Set<RechnungsPositionVO>> map, final Integer key, final RechnungsPositionVO vo,
+      final boolean copyOnWrite)
+  {
+    Set<RechnungsPositionVO> set = map.get(key);
+    if (set == null) {
+      set = new TreeSet<RechnungsPositionVO>();
+      map.put(key, set);
+    } else if (copyOnWrite == true) {
+      set = new TreeSet<RechnungsPositionVO>(set);
+      map.put(key, set);
+    }
+    if (set.contains(vo) == false) {
+      set.add(vo);
+    }
+  }
+
+  /**
+   * @return A copy of the given map without the positions of the given invoice. Only the modified sets are copied.
+   */
+  private static Map<Integer, Set<RechnungsPositionVO>> copyWithoutInvoice(final Map<Integer, Set<RechnungsPositionVO>> map,
+      final Integer rechnungId)
+  {
+    final Map<Integer, Set<RechnungsPositionVO>> result = new HashMap<Integer, Set<RechnungsPositionVO>>(map.size());
+    for (final Map.Entry<Integer, Set<RechnungsPositionVO>> entry : map.entrySet()) {
+      Set<RechnungsPositionVO> set = entry.getValue();
+      for (final RechnungsPositionVO vo : entry.getValue()) {
+        if (rechnungId.equals(vo.getRechnungId()) == true) {
+          set = new TreeSet<RechnungsPositionVO>();
+          for (final RechnungsPositionVO other : entry.getValue()) {
+            if (rechnungId.equals(other.getRechnungId()) == false) {
+              set.add(other);
+            }
+          }
+          break;
+        }
+      }
+      if (set.isEmpty() == false) {
+        result.put(entry.getKey(), set);
+      }
+    }
+    return result;
+  }
+
   public void setHibernateTemplate(final HibernateTemplate hibernateTemplate)
   {
     this.hibernateTemplate = hibernateTemplate;
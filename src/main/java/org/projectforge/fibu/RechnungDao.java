@@ -82,6 +82,8 @@ public class RechnungDao extends BaseDao<RechnungDO>
 
   private RechnungCache rechnungCache;
 
+  private InvoicePaymentCache invoicePaymentCache;
+
   public static BigDecimal getNettoSumme(final Collection<RechnungsPositionVO> col)
   {
     BigDecimal nettoSumme = BigDecimal.ZERO;
@@ -136,6 +138,19 @@ public class RechnungDao extends BaseDao<RechnungDO>
     return rechnungCache;
   }
 
+  public void setInvoicePaymentCache(final InvoicePaymentCache invoicePaymentCache)
+  {
+    this.invoicePaymentCache = invoicePaymentCache;
+  }
+
+  /**
+   * @return the invoicePaymentCache
+   */
+  public InvoicePaymentCache getInvoicePaymentCache()
+  {
+    return invoicePaymentCache;
+  }
+
   public RechnungDao()
   {
     super(RechnungDO.class);
@@ -265,6 +280,13 @@ public class RechnungDao extends BaseDao<RechnungDO>
   protected void afterSaveOrModify(final RechnungDO obj)
   {
     rechnungCache.setExpired(); // Expire the cache because assignments to order position may be changed.
+    invoicePaymentCache.update(obj);
+  }
+
+  @Override
+  protected void afterDelete(final RechnungDO obj)
+  {
+    invoicePaymentCache.remove(obj);
   }
 
   /**
@@ -352,6 +374,30 @@ public class RechnungDao extends BaseDao<RechnungDO>
     return result;
   }
 
+  /**
+   * Loads all not yet paid invoices via the open-items index of {@link InvoicePaymentCache} (instead of scanning all invoices).
+   * @return All invoices not yet paid.
+   */
+  @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+  public List<RechnungDO> getOpenInvoices()
+  {
+    checkLoggedInUserSelectAccess();
+    if (accessChecker.isRestrictedUser() == true) {
+      return null;
+    }
+    final Collection<Integer> ids = invoicePaymentCache.getOpenDebitorInvoiceIds();
+    final List<RechnungDO> result = new ArrayList<RechnungDO>();
+    if (ids.isEmpty() == true) {
+      return result;
+    }
+    for (final RechnungDO invoice : internalLoad(ids)) {
+      if (invoice.isDeleted() == false && invoice.isBezahlt() == false) {
+        result.add(invoice);
+      }
+    }
+    return sort(extractEntriesWithSelectAccess(result));
+  }
+
   @Override
   protected List<RechnungDO> sort(final List<RechnungDO> list)
   {
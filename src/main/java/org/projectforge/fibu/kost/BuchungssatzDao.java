@@ -33,7 +33,9 @@ import org.projectforge.access.OperationType;
 import org.projectforge.core.BaseDao;
 import org.projectforge.core.BaseSearchFilter;
 import org.projectforge.core.QueryFilter;
+import org.projectforge.core.TransactionHelper;
 import org.projectforge.core.UserException;
+import org.projectforge.fibu.kost.reporting.BusinessAssessmentCache;
 import org.projectforge.user.PFUserDO;
 import org.projectforge.user.ProjectForgeGroup;
 
@@ -48,11 +50,18 @@ public class BuchungssatzDao extends BaseDao<BuchungssatzDO>
     return ADDITIONAL_SEARCH_FIELDS;
   }
 
+  private BusinessAssessmentCache businessAssessmentCache;
+
   public BuchungssatzDao()
   {
     super(BuchungssatzDO.class);
   }
 
+  public void setBusinessAssessmentCache(final BusinessAssessmentCache businessAssessmentCache)
+  {
+    this.businessAssessmentCache = businessAssessmentCache;
+  }
+
   /**
    * List of all years witch BuchungssatzDO entries: select min(year), max(year) from t_fibu_buchungssatz.
    * @return
@@ -184,6 +193,25 @@ public class BuchungssatzDao extends BaseDao<BuchungssatzDO>
     return accessChecker.isUserMemberOfGroup(user, throwException, ProjectForgeGroup.FINANCE_GROUP);
   }
 
+  /**
+   * Clears the cached business assessments after the commit of any modification (e. g. DATEV import), so no business assessment of the
+   * uncommitted records is cached.
+   * @see org.projectforge.core.BaseDao#afterSaveOrModify(org.projectforge.core.ExtendedBaseDO)
+   */
+  @Override
+  protected void afterSaveOrModify(final BuchungssatzDO obj)
+  {
+    if (businessAssessmentCache != null) {
+      TransactionHelper.executeAfterCommit(new Runnable() {
+        @Override
+        public void run()
+        {
+          businessAssessmentCache.setExpired();
+        }
+      });
+    }
+  }
+
   @Override
   public BuchungssatzDO newInstance()
   {
@@ -120,12 +120,19 @@ public class BusinessAssessment implements Serializable
     this.month = month;
   }
 
+  /**
+   * Sums up the given account records in one pass (see {@link BusinessAssessmentCalculator}). Records not matching any row are marked as
+   * ignored.
+   * @param records
+   */
   public void setAccountRecords(final List<BuchungssatzDO> records)
   {
     if (CollectionUtils.isEmpty(rows) == true) {
       return;
     }
     if (CollectionUtils.isNotEmpty(records) == true) {
+      final BusinessAssessmentCalculator calculator = BusinessAssessmentCalculator.getInstance(config);
+      final BusinessAssessmentCalculator.Amounts amounts = new BusinessAssessmentCalculator.Amounts(rows.size());
       for (final BuchungssatzDO record : records) {
         counter++;
         // Diese Berechnungen werden anhand des Wertenachweises einer Bwa geführt:
@@ -136,22 +143,33 @@ public class BusinessAssessment implements Serializable
         if (account == null || account.getNummer() == null) {
           continue;
         }
-        final int accountNumber = account.getNummer();
-        boolean found = false;
-        for (final BusinessAssessmentRow row : rows) {
-          if (row.doesMatch(accountNumber) == true) {
-            row.addAccountRecord(record);
-            found = true;
-            break;
-          }
-        }
-        if (found == false) {
+        final int rowIndex = calculator.getRowIndex(account.getNummer());
+        if (rowIndex < 0) {
           log.warn("Ignoring Satz: " + record);
           record.setIgnore(true);
+          continue;
+        }
+        amounts.add(rowIndex, BusinessAssessmentCalculator.toCents(record.getBetrag()));
+        if (storeAccountRecordsInRows == true) {
+          rows.get(rowIndex).addAccountRecord(record);
         }
       }
-      recalculate();
+      setAmounts(amounts);
+    }
+  }
+
+  /**
+   * Sets the amounts of all rows, e. g. pre-calculated or cached ones. Afterwards all calculated rows (value scripts) are recalculated.
+   * @param amounts Must be calculated for the same business assessment configuration.
+   */
+  public void setAmounts(final BusinessAssessmentCalculator.Amounts amounts)
+  {
+    for (int i = 0; i < rows.size() && i < amounts.getNumberOfRows(); i++) {
+      if (amounts.hasAccountRecords(i) == true) {
+        rows.get(i).setAmount(amounts.getAmount(i));
+      }
     }
+    recalculate();
   }
 
   public void recalculate()
@@ -0,0 +1,289 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu.kost;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.projectforge.common.IntRanges;
+import org.projectforge.common.Range;
+import org.projectforge.fibu.KontoDO;
+
+/**
+ * Aggregation engine for business assessments. The account number ranges of all rows are flattened once into a sorted primitive index of
+ * disjoint account number segments, so the row of an account record is found by binary search instead of checking the ranges of every row.
+ * The amounts are summed up as long cents.<br/>
+ * An instance is immutable and thread safe. Use {@link #getInstance(BusinessAssessmentConfig)} for sharing an instance as long as the
+ * configuration isn't changed.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class BusinessAssessmentCalculator
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(BusinessAssessmentCalculator.class);
+
+  private static volatile BusinessAssessmentCalculator instance;
+
+  private final BusinessAssessmentConfig config;
+
+  private final int numberOfRows;
+
+  /**
+   * Sorted start account numbers of the segments, a segment ends before the start of the next segment.
+   */
+  private final int[] segmentStarts;
+
+  /**
+   * The index of the first row matching the segment with the same index, or -1 if no row matches.
+   */
+  private final int[] segmentRows;
+
+  /**
+   * @param config
+   * @return The shared calculator for the given configuration (a new calculator is created if the configuration was reloaded).
+   */
+  public static BusinessAssessmentCalculator getInstance(final BusinessAssessmentConfig config)
+  {
+    BusinessAssessmentCalculator calculator = instance;
+    if (calculator == null || calculator.config != config) {
+      calculator = new BusinessAssessmentCalculator(config);
+      instance = calculator;
+    }
+    return calculator;
+  }
+
+  /**
+   * @param amount
+   * @return The given amount in cents (rounded half up if the amount has more than 2 fraction digits).
+   */
+  public static long toCents(final BigDecimal amount)
+  {
+    if (amount == null) {
+      return 0;
+    }
+    return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+  }
+
+  public static BigDecimal fromCents(final long cents)
+  {
+    return BigDecimal.valueOf(cents, 2);
+  }
+
+  public BusinessAssessmentCalculator(final BusinessAssessmentConfig config)
+  {
+    this.config = config;
+    final List<BusinessAssessmentRowConfig> rowConfigs = config != null ? config.getRows() : null;
+    if (rowConfigs == null) {
+      this.numberOfRows = 0;
+      this.segmentStarts = new int[0];
+      this.segmentRows = new int[0];
+      return;
+    }
+    this.numberOfRows = rowConfigs.size();
+    // Every boundary of every range starts a new segment:
+    final TreeSet<Integer> boundaries = new TreeSet<Integer>();
+    for (final BusinessAssessmentRowConfig rowConfig : rowConfigs) {
+      final IntRanges ranges = rowConfig.getAccountNumberRanges();
+      if (ranges == null) {
+        continue;
+      }
+      if (ranges.getRanges() != null) {
+        for (final Range<Integer> range : ranges.getRanges()) {
+          addSegment(boundaries, range.getMinValue(), range.getMaxValue());
+        }
+      }
+      if (ranges.getValues() != null) {
+        for (final Integer value : ranges.getValues()) {
+          addSegment(boundaries, value, value);
+        }
+      }
+    }
+    segmentStarts = new int[boundaries.size()];
+    segmentRows = new int[boundaries.size()];
+    int i = 0;
+    for (final Integer start : boundaries) {
+      segmentStarts[i] = start;
+      // All account numbers of a segment match the same rows, so the segment start is representative (first match wins as before):
+      segmentRows[i] = -1;
+      for (int row = 0; row < numberOfRows; row++) {
+        final IntRanges ranges = rowConfigs.get(row).getAccountNumberRanges();
+        if (ranges != null && ranges.doesMatch(start) == true) {
+          segmentRows[i] = row;
+          break;
+        }
+      }
+      i++;
+    }
+  }
+
+  private void addSegment(final TreeSet<Integer> boundaries, final int from, final int to)
+  {
+    boundaries.add(from);
+    if (to < Integer.MAX_VALUE) {
+      boundaries.add(to + 1);
+    }
+  }
+
+  /**
+   * @param accountNumber
+   * @return The index of the first row matching the given account number or -1 if no row matches.
+   */
+  public int getRowIndex(final int accountNumber)
+  {
+    int pos = Arrays.binarySearch(segmentStarts, accountNumber);
+    if (pos < 0) {
+      pos = -pos - 2; // Segment starting before the account number.
+      if (pos < 0) {
+        return -1;
+      }
+    }
+    return segmentRows[pos];
+  }
+
+  /**
+   * Without side effects, the records have to be classified before (see {@link #classify(BuchungssatzDO)}).
+   * @param record
+   * @return The index of the first row matching the account of the given record or -1 if the record should be ignored or has no account.
+   */
+  public int getRowIndex(final BuchungssatzDO record)
+  {
+    if (record.isIgnore() == true) {
+      return -1;
+    }
+    final KontoDO account = record.getKonto();
+    if (account == null || account.getNummer() == null) {
+      return -1;
+    }
+    return getRowIndex(account.getNummer());
+  }
+
+  /**
+   * Should be called once for every loaded record. Records with an account not matching any row are marked as ignored (as done by
+   * {@link BusinessAssessment#setAccountRecords(List)}), so they're displayed as ignored records in the reports.
+   * @param record
+   * @return The index of the first row matching the account of the given record or -1 if the record should be ignored or has no account.
+   */
+  public int classify(final BuchungssatzDO record)
+  {
+    final int rowIndex = getRowIndex(record);
+    if (rowIndex < 0 && record.isIgnore() == false && record.getKonto() != null && record.getKonto().getNummer() != null) {
+      log.warn("Ignoring Satz: " + record);
+      record.setIgnore(true);
+    }
+    return rowIndex;
+  }
+
+  public int getNumberOfRows()
+  {
+    return numberOfRows;
+  }
+
+  /**
+   * Sums up all given records in one pass. The records are classified (see {@link #classify(BuchungssatzDO)}).
+   * @param records
+   * @return The amounts of all rows.
+   */
+  public Amounts calculate(final Collection<BuchungssatzDO> records)
+  {
+    final Amounts amounts = new Amounts(numberOfRows);
+    if (records == null) {
+      return amounts;
+    }
+    for (final BuchungssatzDO record : records) {
+      final int row = classify(record);
+      if (row >= 0) {
+        amounts.add(row, toCents(record.getBetrag()));
+      }
+    }
+    return amounts;
+  }
+
+  /**
+   * The amounts (in cents) of all rows of a business assessment. Rows without any account record have no amount (null), so rows with an
+   * amount of zero are distinguishable from rows without any account records.
+   */
+  public static class Amounts implements Serializable
+  {
+    private static final long serialVersionUID = -1487215014632236420L;
+
+    private final long[] cents;
+
+    private final boolean[] hasAccountRecords;
+
+    public Amounts(final int numberOfRows)
+    {
+      cents = new long[numberOfRows];
+      hasAccountRecords = new boolean[numberOfRows];
+    }
+
+    public void add(final int row, final long value)
+    {
+      cents[row] += value;
+      hasAccountRecords[row] = true;
+    }
+
+    /**
+     * @param other Must be of the same business assessment configuration.
+     * @return this for chaining.
+     */
+    public Amounts add(final Amounts other)
+    {
+      for (int row = 0; row < cents.length && row < other.cents.length; row++) {
+        if (other.hasAccountRecords[row] == true) {
+          add(row, other.cents[row]);
+        }
+      }
+      return this;
+    }
+
+    public int getNumberOfRows()
+    {
+      return cents.length;
+    }
+
+    public long getCents(final int row)
+    {
+      return cents[row];
+    }
+
+    public boolean hasAccountRecords(final int row)
+    {
+      return hasAccountRecords[row];
+    }
+
+    /**
+     * @param row
+     * @return The amount of the given row or null if the row has no account records.
+     */
+    public BigDecimal getAmount(final int row)
+    {
+      return hasAccountRecords[row] == true ? fromCents(cents[row]) : null;
+    }
+  }
+}
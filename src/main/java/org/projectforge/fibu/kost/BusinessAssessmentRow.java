@@ -93,21 +93,28 @@ public class BusinessAssessmentRow implements Serializable
   }
 
   /**
-   * Addiert den Kontoumsatz und falls setStoreBuchungsaetze(true) gesetzt wurde, wird der Buchungssatz intern hinzugefügt.
+   * Falls setStoreBuchungsaetze(true) gesetzt wurde, wird der Buchungssatz intern hinzugefügt. Der Betrag wird von
+   * {@link BusinessAssessment#setAccountRecords(List)} summiert und per {@link #setAmount(BigDecimal)} gesetzt.
    * @param satz
    */
-  public void addAccountRecord(final BuchungssatzDO record)
+  void addAccountRecord(final BuchungssatzDO record)
   {
     accountRecordsExist = true;
-    if (amount == null) {
-      amount = BigDecimal.ZERO;
-    }
-    amount = amount.add(record.getBetrag());
     if (this.accountRecords != null) {
       this.accountRecords.add(record);
     }
   }
 
+  /**
+   * Sets the amount summed up from the account records of this row. A value script of this row is ignored afterwards.
+   * @param amount
+   */
+  void setAmount(final BigDecimal amount)
+  {
+    accountRecordsExist = true;
+    this.amount = amount;
+  }
+
   /**
    * @return the amount
    */
@@ -23,6 +23,7 @@
 
 package org.projectforge.fibu.kost;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -60,6 +61,53 @@ public class KostCache extends AbstractCache
   
   private boolean kost2EntriesExists = false;
 
+  public KostCache()
+  {
+    registerForInvalidation(Kost1DO.class, Kost2DO.class, Kost2ArtDO.class);
+  }
+
+  /**
+   * Reloads only the modified cost unit (copy on write) or the cost types.
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public synchronized void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    if (kost1Map == null || kost2Map == null || id instanceof Integer == false) {
+      super.invalidate(entityClass, id);
+    } else if (Kost1DO.class.equals(entityClass) == true) {
+      final Kost1DO kost1 = hibernateTemplate.get(Kost1DO.class, id);
+      final Map<Integer, Kost1DO> map = new HashMap<Integer, Kost1DO>(kost1Map);
+      if (kost1 == null) {
+        map.remove(id);
+      } else {
+        map.put(kost1.getId(), kost1);
+      }
+      this.kost1Map = map;
+    } else if (Kost2DO.class.equals(entityClass) == true) {
+      final Kost2DO kost2 = hibernateTemplate.get(Kost2DO.class, id);
+      final Map<Integer, Kost2DO> map = new HashMap<Integer, Kost2DO>(kost2Map);
+      if (kost2 == null) {
+        map.remove(id);
+      } else {
+        map.put(kost2.getId(), kost2);
+      }
+      boolean exists = false;
+      for (final Kost2DO entry : map.values()) {
+        if (entry.isDeleted() == false) {
+          exists = true;
+          break;
+        }
+      }
+      this.kost2Map = map;
+      this.kost2EntriesExists = exists;
+    } else if (Kost2ArtDO.class.equals(entityClass) == true) {
+      updateKost2Arts();
+    } else {
+      super.invalidate(entityClass, id);
+    }
+  }
+
   public Kost2DO getKost2(final Integer kost2Id)
   {
     if (NumberHelper.greaterZero(kost2Id) == false) {
@@ -0,0 +1,116 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu.kost.reporting;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.projectforge.common.AbstractCache;
+import org.projectforge.fibu.kost.BusinessAssessmentCalculator;
+import org.projectforge.fibu.kost.BusinessAssessmentConfig;
+
+/**
+ * Caches the business assessment amounts of every report (node of the report objective tree) per month. The amounts of a period are the
+ * sum of the monthly amounts. The cache is cleared after any modification of the account records (e. g. DATEV import).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class BusinessAssessmentCache extends AbstractCache
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(BusinessAssessmentCache.class);
+
+  /**
+   * The key is the root report objective (the uploaded objective tree is hold by the user's session, so the cache entries are freed
+   * together with the session). The key of the value map is the report id and the month.
+   */
+  private Map<ReportObjective, Map<String, BusinessAssessmentCalculator.Amounts>> map;
+
+  private BusinessAssessmentConfig config;
+
+  public BusinessAssessmentCache()
+  {
+    super(TICKS_PER_HOUR);
+  }
+
+  /**
+   * @param rootObjective The objective of the root report.
+   * @param reportId
+   * @param year
+   * @param month 0-based.
+   * @param config The amounts were calculated with this business assessment configuration.
+   * @return The cached amounts or null if not cached.
+   */
+  public BusinessAssessmentCalculator.Amounts getAmounts(final ReportObjective rootObjective, final String reportId, final int year,
+      final int month, final BusinessAssessmentConfig config)
+  {
+    checkRefresh();
+    synchronized (this) {
+      if (this.config != config) {
+        return null;
+      }
+      final Map<String, BusinessAssessmentCalculator.Amounts> amountsMap = map.get(rootObjective);
+      return amountsMap != null ? amountsMap.get(getKey(reportId, year, month)) : null;
+    }
+  }
+
+  /**
+   * @see #getAmounts(ReportObjective, String, int, int, BusinessAssessmentConfig)
+   */
+  public void putAmounts(final ReportObjective rootObjective, final String reportId, final int year, final int month,
+      final BusinessAssessmentConfig config, final BusinessAssessmentCalculator.Amounts amounts)
+  {
+    checkRefresh();
+    synchronized (this) {
+      if (this.config != config) {
+        // Configuration was reloaded, therefore all cached amounts are out-dated:
+        map.clear();
+        this.config = config;
+      }
+      Map<String, BusinessAssessmentCalculator.Amounts> amountsMap = map.get(rootObjective);
+      if (amountsMap == null) {
+        amountsMap = new HashMap<String, BusinessAssessmentCalculator.Amounts>();
+        map.put(rootObjective, amountsMap);
+      }
+      amountsMap.put(getKey(reportId, year, month), amounts);
+    }
+  }
+
+  private String getKey(final String reportId, final int year, final int month)
+  {
+    return reportId + "#" + year + "-" + month;
+  }
+
+  /**
+   * This method will be called by CacheHelper and is synchronized.
+   */
+  @Override
+  protected void refresh()
+  {
+    log.info("Clearing BusinessAssessmentCache.");
+    synchronized (this) {
+      map = new WeakHashMap<ReportObjective, Map<String, BusinessAssessmentCalculator.Amounts>>();
+    }
+  }
+}
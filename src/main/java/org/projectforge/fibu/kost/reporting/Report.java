@@ -37,6 +37,8 @@ import org.projectforge.fibu.KostFormatter;
 import org.projectforge.fibu.kost.AccountingConfig;
 import org.projectforge.fibu.kost.BuchungssatzDO;
 import org.projectforge.fibu.kost.BusinessAssessment;
+import org.projectforge.fibu.kost.BusinessAssessmentCalculator;
+import org.projectforge.fibu.kost.BusinessAssessmentRow;
 import org.projectforge.fibu.kost.BusinessAssessmentTable;
 import org.projectforge.user.PFUserContext;
 
@@ -65,6 +67,8 @@ public class Report implements Serializable
 
   private transient BusinessAssessment businessAssessment;
 
+  private transient BusinessAssessmentCalculator.Amounts businessAssessmentAmounts;
+
   private transient BusinessAssessmentTable businessAssessmentTable;
 
   private int fromYear;
@@ -166,12 +170,53 @@ public class Report implements Serializable
     if (this.businessAssessment == null) {
       this.businessAssessment = new BusinessAssessment(AccountingConfig.getInstance().getBusinessAssessmentConfig());
       this.businessAssessment.setReference(this);
-      this.businessAssessment.setStoreAccountRecordsInRows(true);
-      this.businessAssessment.setAccountRecords(this.buchungssaetze);
+      if (this.businessAssessmentAmounts != null) {
+        // Already calculated (see ReportDao), the account records of the rows are available via getAccountRecords(BusinessAssessmentRow).
+        this.businessAssessment.setAmounts(this.businessAssessmentAmounts);
+      } else {
+        this.businessAssessment.setStoreAccountRecordsInRows(true);
+        this.businessAssessment.setAccountRecords(this.buchungssaetze);
+      }
     }
     return this.businessAssessment;
   }
 
+  /**
+   * Sets the pre-calculated amounts of the business assessment of this report.
+   * @param amounts
+   * @see ReportDao#loadReport(Report)
+   */
+  void setBusinessAssessmentAmounts(final BusinessAssessmentCalculator.Amounts amounts)
+  {
+    this.businessAssessmentAmounts = amounts;
+    this.businessAssessment = null;
+    this.businessAssessmentTable = null;
+  }
+
+  /**
+   * @param row Row of the business assessment of this report.
+   * @return All account records of this report summed up in the given row (the records were classified by the {@link ReportDao}).
+   */
+  public List<BuchungssatzDO> getAccountRecords(final BusinessAssessmentRow row)
+  {
+    if (row.getAccountRecords() != null) {
+      return row.getAccountRecords();
+    }
+    final List<BuchungssatzDO> result = new ArrayList<BuchungssatzDO>();
+    final int rowIndex = getBusinessAssessment().getRows().indexOf(row);
+    if (rowIndex < 0 || this.buchungssaetze == null) {
+      return result;
+    }
+    final BusinessAssessmentCalculator calculator = BusinessAssessmentCalculator.getInstance(AccountingConfig.getInstance()
+        .getBusinessAssessmentConfig());
+    for (final BuchungssatzDO record : this.buchungssaetze) {
+      if (calculator.getRowIndex(record) == rowIndex) {
+        result.add(record);
+      }
+    }
+    return result;
+  }
+
   /**
    * Creates an array with all business assessment's of the child reports.
    * @param prependThisReport If true then the business assessment of this report will be prepend as first column.
@@ -387,6 +432,7 @@ public class Report implements Serializable
     this.buchungssaetze = new ArrayList<BuchungssatzDO>();
     this.buchungssatzSet = new HashSet<BuchungssatzDO>();
     this.businessAssessment = null;
+    this.businessAssessmentAmounts = null;
     this.businessAssessmentTable = null;
     this.childReports = null;
     this.duplicates = null;
@@ -24,12 +24,19 @@
 package org.projectforge.fibu.kost.reporting;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.projectforge.access.AccessChecker;
+import org.projectforge.fibu.kost.AccountingConfig;
 import org.projectforge.fibu.kost.BuchungssatzDO;
 import org.projectforge.fibu.kost.BuchungssatzDao;
 import org.projectforge.fibu.kost.BuchungssatzFilter;
+import org.projectforge.fibu.kost.BusinessAssessmentCalculator;
+import org.projectforge.fibu.kost.BusinessAssessmentConfig;
 import org.projectforge.user.ProjectForgeGroup;
 import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 import org.springframework.transaction.annotation.Propagation;
@@ -53,6 +60,8 @@ public class ReportDao extends HibernateDaoSupport
 
   private BuchungssatzDao buchungssatzDao;
 
+  private BusinessAssessmentCache businessAssessmentCache;
+
   public ReportDao()
   {
     xstream = new XStream();
@@ -102,6 +111,151 @@ public class ReportDao extends HibernateDaoSupport
     filter.setToMonth(report.getToMonth());
     final List<BuchungssatzDO> list = buchungssatzDao.getList(filter);
     report.select(list);
+    calculateBusinessAssessments(report);
+  }
+
+  /**
+   * Calculates the business assessments of the given report and all descendant reports. The row index and the amount of every account
+   * record is calculated only once for the whole report tree, the monthly amounts of every report are cached.
+   * @param report The root report.
+   * @see BusinessAssessmentCache
+   */
+  private void calculateBusinessAssessments(final Report report)
+  {
+    final BusinessAssessmentConfig config = AccountingConfig.getInstance().getBusinessAssessmentConfig();
+    if (config == null) {
+      return;
+    }
+    final BusinessAssessmentCalculator calculator = BusinessAssessmentCalculator.getInstance(config);
+    final List<BuchungssatzDO> records = report.getBuchungssaetze();
+    final int size = records != null ? records.size() : 0;
+    final Map<BuchungssatzDO, Integer> recordIndex = new IdentityHashMap<BuchungssatzDO, Integer>(size);
+    final int[] rowIndexes = new int[size];
+    final long[] cents = new long[size];
+    final int[] months = new int[size];
+    for (int i = 0; i < size; i++) {
+      final BuchungssatzDO record = records.get(i);
+      recordIndex.put(record, i);
+      rowIndexes[i] = calculator.classify(record); // Marks records not matching any row as ignored.
+      cents[i] = BusinessAssessmentCalculator.toCents(record.getBetrag());
+      months[i] = getMonthKey(record.getYear(), record.getMonth());
+    }
+    final List<Integer> monthKeys = getMonthKeys(report);
+    final Map<Integer, Integer> monthPositions = new HashMap<Integer, Integer>();
+    for (final Integer monthKey : monthKeys) {
+      monthPositions.put(monthKey, monthPositions.size());
+    }
+    final Context context = new Context();
+    context.calculator = calculator;
+    context.config = config;
+    context.rootObjective = report.getReportObjective();
+    context.recordIndex = recordIndex;
+    context.rowIndexes = rowIndexes;
+    context.cents = cents;
+    context.months = months;
+    context.monthKeys = monthKeys;
+    context.monthPositions = monthPositions;
+    calculateBusinessAssessments(context, report);
+  }
+
+  private void calculateBusinessAssessments(final Context context, final Report report)
+  {
+    final int numberOfRows = context.calculator.getNumberOfRows();
+    final BusinessAssessmentCalculator.Amounts[] monthlyAmounts = new BusinessAssessmentCalculator.Amounts[context.monthKeys.size()];
+    boolean cached = true;
+    for (int i = 0; i < monthlyAmounts.length; i++) {
+      final int monthKey = context.monthKeys.get(i);
+      monthlyAmounts[i] = businessAssessmentCache.getAmounts(context.rootObjective, report.getId(), monthKey / 100, monthKey % 100,
+          context.config);
+      if (monthlyAmounts[i] == null) {
+        cached = false;
+        break;
+      }
+    }
+    if (cached == false) {
+      for (int i = 0; i < monthlyAmounts.length; i++) {
+        monthlyAmounts[i] = new BusinessAssessmentCalculator.Amounts(numberOfRows);
+      }
+      if (report.getBuchungssaetze() != null) {
+        for (final BuchungssatzDO record : report.getBuchungssaetze()) {
+          final Integer pos = context.recordIndex.get(record);
+          if (pos == null || context.rowIndexes[pos] < 0) {
+            continue;
+          }
+          final Integer monthPos = context.monthPositions.get(context.months[pos]);
+          if (monthPos != null) {
+            monthlyAmounts[monthPos].add(context.rowIndexes[pos], context.cents[pos]);
+          }
+        }
+      }
+      for (int i = 0; i < monthlyAmounts.length; i++) {
+        final int monthKey = context.monthKeys.get(i);
+        businessAssessmentCache.putAmounts(context.rootObjective, report.getId(), monthKey / 100, monthKey % 100, context.config,
+            monthlyAmounts[i]);
+      }
+    }
+    final BusinessAssessmentCalculator.Amounts amounts = new BusinessAssessmentCalculator.Amounts(numberOfRows);
+    for (final BusinessAssessmentCalculator.Amounts monthly : monthlyAmounts) {
+      amounts.add(monthly);
+    }
+    report.setBusinessAssessmentAmounts(amounts);
+    if (report.hasChilds() == true) {
+      for (final Report child : report.getChilds()) {
+        calculateBusinessAssessments(context, child);
+      }
+    }
+  }
+
+  /**
+   * @return The keys (year * 100 + month) of all months of the report's period (same semantic as in BuchungssatzDao#getList).
+   */
+  private List<Integer> getMonthKeys(final Report report)
+  {
+    final List<Integer> result = new ArrayList<Integer>();
+    if (report.getFromMonth() < 0) {
+      for (int month = 0; month <= 11; month++) {
+        result.add(getMonthKey(report.getFromYear(), month));
+      }
+    } else if (report.getToYear() > 0) {
+      int year = report.getFromYear();
+      int month = report.getFromMonth();
+      while (year < report.getToYear() || (year == report.getToYear() && month <= report.getToMonth())) {
+        result.add(getMonthKey(year, month));
+        if (++month > 11) {
+          month = 0;
+          year++;
+        }
+      }
+    } else {
+      result.add(getMonthKey(report.getFromYear(), report.getFromMonth()));
+    }
+    return result;
+  }
+
+  private int getMonthKey(final Integer year, final Integer month)
+  {
+    return (year != null ? year : 0) * 100 + (month != null ? month : 0);
+  }
+
+  private static class Context
+  {
+    BusinessAssessmentCalculator calculator;
+
+    BusinessAssessmentConfig config;
+
+    ReportObjective rootObjective;
+
+    Map<BuchungssatzDO, Integer> recordIndex;
+
+    int[] rowIndexes;
+
+    long[] cents;
+
+    int[] months;
+
+    List<Integer> monthKeys;
+
+    Map<Integer, Integer> monthPositions;
   }
 
   public ReportObjective deserializeFromXML(String xml)
@@ -141,4 +295,9 @@ public class ReportDao extends HibernateDaoSupport
   {
     this.buchungssatzDao = buchungssatzDao;
   }
+
+  public void setBusinessAssessmentCache(final BusinessAssessmentCache businessAssessmentCache)
+  {
+    this.businessAssessmentCache = businessAssessmentCache;
+  }
 }
@@ -32,6 +32,9 @@ import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+import org.projectforge.common.Crypt;
 import org.projectforge.common.DateHolder;
 import org.projectforge.export.SVGColor;
 import org.projectforge.export.SVGHelper;
@@ -70,6 +73,8 @@ public class GanttChart
 
   private transient Map<GanttTask, ObjectInfo> objectMap = new HashMap<GanttTask, ObjectInfo>();
 
+  private transient GanttScheduler scheduler;
+
   private class ObjectInfo
   {
     final Date fromDate;
@@ -185,7 +190,13 @@ public class GanttChart
       return null;
     }
     int row = 0;
-    final Collection<GanttTask> allVisibleGanttObjects = recalculate();
+    final Collection<GanttTask> allVisibleGanttObjects;
+    if (scheduler == null || scheduler.getVersion() == 0) {
+      allVisibleGanttObjects = recalculate();
+    } else {
+      // Already calculated (see recalculate(GanttTask...)).
+      allVisibleGanttObjects = calculatePeriod();
+    }
     if (settings.getFromDate() != null) {
       fromDate = settings.getFromDate();
     }
@@ -320,7 +331,81 @@ public class GanttChart
    */
   public Collection<GanttTask> recalculate()
   {
-    rootNode.recalculate();
+    getScheduler().schedule();
+    return calculatePeriod();
+  }
+
+  /**
+   * Recalculates only the start and end dates of the given modified nodes and of all nodes depending on them.
+   * @param modifiedNodes
+   * @return All visible nodes.
+   * @see GanttScheduler#reschedule(GanttTask...)
+   */
+  public Collection<GanttTask> recalculate(final GanttTask... modifiedNodes)
+  {
+    getScheduler().reschedule(modifiedNodes);
+    return calculatePeriod();
+  }
+
+  /**
+   * The version is a SHA-1 digest of all values the rendered diagram depends on (tasks, style, settings and the current day). Use this
+   * version for caching the rendered diagram.
+   */
+  public String getVersion()
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append(new ReflectionToStringBuilder(style, ToStringStyle.SHORT_PREFIX_STYLE).toString());
+    buf.append(new ReflectionToStringBuilder(settings, ToStringStyle.SHORT_PREFIX_STYLE).setExcludeFieldNames(new String[] { "openNodes"})
+    .toString());
+    buf.append(new DateHolder().setBeginOfDay().getTimeInMillis());
+    appendVersion(buf, rootNode);
+    return Crypt.digest(buf.toString(), "SHA-1");
+  }
+
+  private void appendVersion(final StringBuilder buf, final GanttTask node)
+  {
+    if (node == null) {
+      return;
+    }
+    buf.append('[').append(node.getId()).append('|').append(node.getTitle()).append('|').append(node.getWorkpackageCode()).append('|')
+    .append(node.getType()).append('|').append(node.isVisible()).append('|').append(getTime(node.getStartDate())).append('|')
+    .append(getTime(node.getEndDate())).append('|').append(node.getDuration()).append('|').append(node.getProgress()).append('|')
+    .append(node.getPredecessorId()).append('|').append(node.getPredecessorOffset()).append('|').append(node.getRelationType());
+    if (node.getChildren() != null) {
+      for (final GanttTask child : node.getChildren()) {
+        appendVersion(buf, child);
+      }
+    }
+    buf.append(']');
+  }
+
+  private Long getTime(final Date date)
+  {
+    return date != null ? date.getTime() : null;
+  }
+
+  public GanttScheduler getScheduler()
+  {
+    if (scheduler == null) {
+      scheduler = new GanttScheduler(rootNode);
+    }
+    return scheduler;
+  }
+
+  /**
+   * Re-uses the scheduler of a previous chart of the same tree (already calculated dates), e. g. for redrawing after editing some tasks.
+   * @param scheduler
+   */
+  public void setScheduler(final GanttScheduler scheduler)
+  {
+    if (scheduler.getRootNode() != rootNode) {
+      throw new IllegalArgumentException("Scheduler of another Gantt tree.");
+    }
+    this.scheduler = scheduler;
+  }
+
+  private Collection<GanttTask> calculatePeriod()
+  {
     fromDate = toDate = null;
     final Collection<GanttTask> allVisibleGanttObjects = getAllVisibleGanttObjects(new ArrayList<GanttTask>(), rootNode);
     for (final GanttTask node : allVisibleGanttObjects) {
@@ -39,8 +39,12 @@ import org.dom4j.Document;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
 import org.projectforge.common.BeanHelper;
+import org.projectforge.common.Crypt;
 import org.projectforge.common.NumberHelper;
 import org.projectforge.core.BaseDao;
+import org.projectforge.renderer.BatikImageRenderer;
+import org.projectforge.renderer.ChartRenderService;
+import org.projectforge.renderer.ImageFormat;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskDao;
 import org.projectforge.task.TaskTree;
@@ -116,6 +120,42 @@ public class GanttChartDao extends BaseDao<GanttChartDO>
     return exportAsXml(ganttChart, false);
   }
 
+  /**
+   * The version of the rendered image used as cache key: SHA-1 digest of the id of the Gantt chart, the locale of the logged-in user and
+   * the version of the Gantt chart (see {@link GanttChart#getVersion()}).
+   * @param ganttChartId The id of the Gantt chart or null for unsaved Gantt charts.
+   * @param ganttChart
+   */
+  public static String getImageVersion(final Integer ganttChartId, final GanttChart ganttChart)
+  {
+    return Crypt.digest(ganttChartId + "|" + PFUserContext.getLocale() + "|" + ganttChart.getVersion(), "SHA-1");
+  }
+
+  /**
+   * Renders the Gantt diagram in the given format. The rendered image is cached as long as the image version is unmodified (see
+   * {@link #getImageVersion(Integer, GanttChart)}), so repeated exports and redraws of the same diagram are served without transcoding.
+   * @param ganttChartId The id of the Gantt chart or null for unsaved Gantt charts.
+   * @param ganttChart
+   * @param imageFormat
+   * @return The image or null, if the Gantt chart has nothing to display.
+   */
+  public byte[] exportAsImage(final Integer ganttChartId, final GanttChart ganttChart, final ImageFormat imageFormat)
+  {
+    final int width = ganttChart.getWidth();
+    return ChartRenderService.getInstance().render("gantt", getImageVersion(ganttChartId, ganttChart), width, 0, imageFormat.name(),
+        new ChartRenderService.Renderer() {
+          @Override
+          public byte[] render()
+          {
+            final org.w3c.dom.Document document = ganttChart.create();
+            if (document == null) {
+              return null;
+            }
+            return BatikImageRenderer.getByteArray(document, width, imageFormat);
+          }
+        });
+  }
+
   @XmlObject(alias = "ProjectForge")
   public class MyRootElement extends ProjectForgeRootElement
   {
@@ -0,0 +1,280 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.gantt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.projectforge.calendar.Holidays;
+
+/**
+ * Calculates the start and end dates of all tasks of a Gantt tree. The dependency graph (a task depends on its predecessor and on its
+ * children) is sorted topologically once, so every task is calculated exactly one time after all tasks it depends on (no deep recursion
+ * through {@link GanttUtils}). After modifications of some tasks only these tasks and all tasks depending on them are re-calculated (see
+ * {@link #getModifiedNodes()} and {@link #reschedule(GanttTask...)}).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class GanttScheduler
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(GanttScheduler.class);
+
+  private final GanttTask rootNode;
+
+  /**
+   * All tasks of the tree in topological order: predecessors and children before the tasks depending on them. Tasks with cyclic
+   * dependencies are appended at the end.
+   */
+  private List<GanttTask> order;
+
+  /**
+   * Key is the task, value is the list of the tasks depending on it (successors and parent).
+   */
+  private Map<GanttTask, List<GanttTask>> dependentsMap;
+
+  /**
+   * The scheduling relevant values of every task at its last calculation (see {@link #getModifiedNodes()}).
+   */
+  private final Map<GanttTask, String> signatures = new IdentityHashMap<GanttTask, String>();
+
+  /**
+   * The working days of the calculated dates depend on the holidays.
+   */
+  private int holidaysVersion;
+
+  private int version;
+
+  public GanttScheduler(final GanttTask rootNode)
+  {
+    this.rootNode = rootNode;
+  }
+
+  /**
+   * Re-calculates all tasks.
+   */
+  public synchronized GanttScheduler schedule()
+  {
+    buildGraph();
+    signatures.clear();
+    holidaysVersion = Holidays.getInstance().getVersion();
+    for (final GanttTask node : order) {
+      reset(node);
+    }
+    calculate(order);
+    ++version;
+    return this;
+  }
+
+  /**
+   * Re-calculates only the given tasks and all tasks depending on them (directly or transitively). Tasks moved to other parents are
+   * handled, if the old and the new parent are given as modified tasks too (see {@link #getModifiedNodes()}).
+   * @param modifiedNodes
+   */
+  public synchronized GanttScheduler reschedule(final GanttTask... modifiedNodes)
+  {
+    if (order == null || holidaysVersion != Holidays.getInstance().getVersion()) {
+      return schedule();
+    }
+    // Rebuild the graph, because predecessors or children may be modified.
+    buildGraph();
+    final Map<GanttTask, Boolean> affected = new IdentityHashMap<GanttTask, Boolean>();
+    final LinkedList<GanttTask> queue = new LinkedList<GanttTask>();
+    for (final GanttTask node : modifiedNodes) {
+      if (node != null && dependentsMap.containsKey(node) == true && affected.put(node, Boolean.TRUE) == null) {
+        queue.add(node);
+      }
+    }
+    while (queue.isEmpty() == false) {
+      final GanttTask node = queue.removeFirst();
+      for (final GanttTask dependent : dependentsMap.get(node)) {
+        if (affected.put(dependent, Boolean.TRUE) == null) {
+          queue.add(dependent);
+        }
+      }
+    }
+    final List<GanttTask> affectedOrder = new ArrayList<GanttTask>(affected.size());
+    for (final GanttTask node : order) {
+      if (affected.containsKey(node) == true) {
+        reset(node);
+        affectedOrder.add(node);
+      }
+    }
+    calculate(affectedOrder);
+    ++version;
+    if (log.isDebugEnabled() == true) {
+      log.debug("Re-calculated " + affectedOrder.size() + " of " + order.size() + " Gantt tasks.");
+    }
+    return this;
+  }
+
+  /**
+   * @return All tasks of the tree whose scheduling relevant values (start and end date, duration, predecessor, relation type and offset,
+   *         children) were modified since their last calculation, including new tasks. All tasks, if not yet scheduled.
+   */
+  public synchronized GanttTask[] getModifiedNodes()
+  {
+    final List<GanttTask> result = new ArrayList<GanttTask>();
+    collectModifiedNodes(rootNode, new IdentityHashMap<GanttTask, Boolean>(), result);
+    return result.toArray(new GanttTask[result.size()]);
+  }
+
+  /**
+   * @return The number of (re-)calculations.
+   */
+  public int getVersion()
+  {
+    return version;
+  }
+
+  public GanttTask getRootNode()
+  {
+    return rootNode;
+  }
+
+  /**
+   * @return All tasks of the tree in topological order.
+   */
+  public List<GanttTask> getOrder()
+  {
+    return order;
+  }
+
+  private void buildGraph()
+  {
+    final List<GanttTask> nodes = new ArrayList<GanttTask>();
+    dependentsMap = new IdentityHashMap<GanttTask, List<GanttTask>>();
+    collectNodes(rootNode, nodes);
+    final Map<GanttTask, Integer> inDegrees = new IdentityHashMap<GanttTask, Integer>();
+    for (final GanttTask node : nodes) {
+      int inDegree = 0;
+      final GanttTask predecessor = node.getPredecessor();
+      if (predecessor != null && dependentsMap.containsKey(predecessor) == true) {
+        dependentsMap.get(predecessor).add(node);
+        ++inDegree;
+      }
+      if (node.getChildren() != null) {
+        for (final GanttTask child : node.getChildren()) {
+          dependentsMap.get(child).add(node);
+          ++inDegree;
+        }
+      }
+      inDegrees.put(node, inDegree);
+    }
+    // Kahn's algorithm:
+    order = new ArrayList<GanttTask>(nodes.size());
+    final LinkedList<GanttTask> queue = new LinkedList<GanttTask>();
+    for (final GanttTask node : nodes) {
+      if (inDegrees.get(node) == 0) {
+        queue.add(node);
+      }
+    }
+    while (queue.isEmpty() == false) {
+      final GanttTask node = queue.removeFirst();
+      order.add(node);
+      for (final GanttTask dependent : dependentsMap.get(node)) {
+        final int inDegree = inDegrees.get(dependent) - 1;
+        inDegrees.put(dependent, inDegree);
+        if (inDegree == 0) {
+          queue.add(dependent);
+        }
+      }
+    }
+    if (order.size() < nodes.size()) {
+      log.warn("Cyclic dependencies found in Gantt tree of: " + rootNode);
+      for (final GanttTask node : nodes) {
+        if (inDegrees.get(node) > 0) {
+          // Calculated by GanttUtils with circular reference detection.
+          order.add(node);
+        }
+      }
+    }
+  }
+
+  private void collectNodes(final GanttTask node, final List<GanttTask> nodes)
+  {
+    if (dependentsMap.containsKey(node) == true) {
+      return;
+    }
+    dependentsMap.put(node, new ArrayList<GanttTask>());
+    nodes.add(node);
+    if (node.getChildren() != null) {
+      for (final GanttTask child : node.getChildren()) {
+        collectNodes(child, nodes);
+      }
+    }
+  }
+
+  private void reset(final GanttTask node)
+  {
+    node.setCalculatedStartDate(null).setStartDateCalculated(false);
+    node.setCalculatedEndDate(null).setEndDateCalculated(false);
+  }
+
+  private void calculate(final List<GanttTask> nodes)
+  {
+    for (final GanttTask node : nodes) {
+      GanttUtils.getCalculatedStartDate(node);
+      GanttUtils.getCalculatedEndDate(node);
+      signatures.put(node, getSignature(node));
+    }
+  }
+
+  private void collectModifiedNodes(final GanttTask node, final Map<GanttTask, Boolean> visited, final List<GanttTask> result)
+  {
+    if (node == null || visited.put(node, Boolean.TRUE) != null) {
+      return;
+    }
+    if (getSignature(node).equals(signatures.get(node)) == false) {
+      result.add(node);
+    }
+    if (node.getChildren() != null) {
+      for (final GanttTask child : node.getChildren()) {
+        collectModifiedNodes(child, visited, result);
+      }
+    }
+  }
+
+  private static String getSignature(final GanttTask node)
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append(getTime(node.getStartDate())).append('|').append(getTime(node.getEndDate())).append('|').append(node.getDuration())
+    .append('|').append(node.getPredecessor() != null ? node.getPredecessor().getId() : null).append('|')
+    .append(node.getPredecessorOffset()).append('|').append(node.getRelationType());
+    if (node.getChildren() != null) {
+      for (final GanttTask child : node.getChildren()) {
+        buf.append('|').append(child.getId());
+      }
+    }
+    return buf.toString();
+  }
+
+  private static Long getTime(final Date date)
+  {
+    return date != null ? date.getTime() : null;
+  }
+}
@@ -30,6 +30,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.naming.NameNotFoundException;
 
@@ -40,6 +43,7 @@ import org.projectforge.user.LoginDefaultHandler;
 import org.projectforge.user.LoginResult;
 import org.projectforge.user.LoginResultStatus;
 import org.projectforge.user.PFUserDO;
+import org.projectforge.user.UserGroupCache;
 
 import arlut.csd.crypto.SmbEncrypt;
 
@@ -77,6 +81,26 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
 
   private boolean refreshInProgress;
 
+  /**
+   * Writes the targeted updates of users and groups to the LDAP (one thread, so the updates don't run concurrently).
+   */
+  private static final ExecutorService ldapUpdateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "ldap-master-update");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  /**
+   * Ids of the modified users and groups not yet written to the LDAP, guarded by pendingUserIds.
+   */
+  private final Set<Integer> pendingUserIds = new HashSet<Integer>(), pendingGroupIds = new HashSet<Integer>();
+
+  private boolean updatePending;
+
   /**
    * @see org.projectforge.ldap.LdapLoginHandler#initialize()
    */
@@ -166,7 +190,7 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
         synchronized (LdapMasterLoginHandler.this) {
           try {
             refreshInProgress = true;
-            updateLdap(users, groups);
+            updateLdap(users, groups, true);
           } finally {
             refreshInProgress = false;
           }
@@ -175,6 +199,78 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
     }.start();
   }
 
+  /**
+   * Updates only the modified users and groups in the LDAP. The groups of the modified users are updated too, because the group members
+   * depend on the system access of the users (deleted or deactivated users aren't members). The updates are done by one background thread:
+   * modifications notified while an update is pending are written together.
+   * @see org.projectforge.user.LoginHandler#afterUserGroupCacheUpdate(java.util.Collection, java.util.Collection)
+   */
+  @Override
+  public void afterUserGroupCacheUpdate(final Collection<Integer> userIds, final Collection<Integer> groupIds)
+  {
+    synchronized (pendingUserIds) {
+      pendingUserIds.addAll(userIds);
+      pendingGroupIds.addAll(groupIds);
+      if (updatePending == true) {
+        // Will be written by the pending update.
+        return;
+      }
+      updatePending = true;
+    }
+    ldapUpdateExecutor.execute(new Runnable() {
+      @Override
+      public void run()
+      {
+        final Set<Integer> modifiedUserIds;
+        final Set<Integer> modifiedGroupIds;
+        synchronized (pendingUserIds) {
+          modifiedUserIds = new HashSet<Integer>(pendingUserIds);
+          modifiedGroupIds = new HashSet<Integer>(pendingGroupIds);
+          pendingUserIds.clear();
+          pendingGroupIds.clear();
+          updatePending = false;
+        }
+        updateLdap(modifiedUserIds, modifiedGroupIds);
+      }
+    });
+  }
+
+  private void updateLdap(final Set<Integer> userIds, final Set<Integer> groupIds)
+  {
+    final UserGroupCache userGroupCache = Registry.instance().getUserGroupCache();
+    final List<PFUserDO> users = new ArrayList<PFUserDO>();
+    final Set<Integer> allGroupIds = new HashSet<Integer>(groupIds);
+    for (final Integer userId : userIds) {
+      final PFUserDO user = userGroupCache.getUser(userId);
+      if (user == null) {
+        continue;
+      }
+      users.add(user);
+      final Collection<Integer> userGroupIds = userGroupCache.getUserGroups(user);
+      if (userGroupIds != null) {
+        allGroupIds.addAll(userGroupIds);
+      }
+    }
+    final List<GroupDO> groups = new ArrayList<GroupDO>();
+    for (final Integer groupId : allGroupIds) {
+      final GroupDO group = userGroupCache.getGroup(groupId);
+      if (group != null) {
+        groups.add(group);
+      }
+    }
+    if (users.isEmpty() == true && groups.isEmpty() == true) {
+      return;
+    }
+    synchronized (this) {
+      try {
+        refreshInProgress = true;
+        updateLdap(users, groups, false);
+      } finally {
+        refreshInProgress = false;
+      }
+    }
+  }
+
   /**
    * @return true if currently a cache refresh is running, otherwise false.
    */
@@ -183,7 +279,13 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
     return refreshInProgress;
   }
 
-  private void updateLdap(final Collection<PFUserDO> users, final Collection<GroupDO> groups)
+  /**
+   * @param users
+   * @param groups
+   * @param complete If true, all users and groups are given, otherwise only the modified ones (the shadow password maps are updated and not
+   *          replaced and the members of the groups are also resolved by the not given LDAP users).
+   */
+  private void updateLdap(final Collection<PFUserDO> users, final Collection<GroupDO> groups, final boolean complete)
   {
     new LdapTemplate(ldapConnector) {
       @Override
@@ -194,8 +296,10 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
         final List<LdapUser> ldapUsers = getAllLdapUsers(ctx);
         final List<LdapUser> updatedLdapUsers = new ArrayList<LdapUser>();
         int error = 0, unmodified = 0, created = 0, updated = 0, deleted = 0, renamed = 0;
-        final Set<Integer> shadowUsersWithoutLdapPasswords = new HashSet<Integer>();
-        final Map<Integer, String> shadowSambaNTPasswords = new HashMap<Integer, String>();
+        final Set<Integer> shadowUsersWithoutLdapPasswords = complete == true ? new HashSet<Integer>() : new HashSet<Integer>(
+            usersWithoutLdapPasswords);
+        final Map<Integer, String> shadowSambaNTPasswords = complete == true ? new HashMap<Integer, String>() : new HashMap<Integer, String>(
+            sambaNTPasswords);
         final boolean sambaConfigured = ldapConfig.getSambaAccountsConfig() != null;
         for (final PFUserDO user : users) {
           final LdapUser updatedLdapUser = PFUserDOConverter.convert(user);
@@ -296,7 +400,13 @@ public class LdapMasterLoginHandler extends LdapLoginHandler
             + " deleted.");
         // Now get all groups:
         final List<LdapGroup> ldapGroups = getAllLdapGroups(ctx);
-        final Map<Integer, LdapUser> ldapUserMap = getUserMap(updatedLdapUsers);
+        final Map<Integer, LdapUser> ldapUserMap;
+        if (complete == true) {
+          ldapUserMap = getUserMap(updatedLdapUsers);
+        } else {
+          ldapUserMap = getUserMap(ldapUsers);
+          ldapUserMap.putAll(getUserMap(updatedLdapUsers));
+        }
         error = unmodified = created = updated = renamed = deleted = 0;
         for (final GroupDO group : groups) {
           try {
@@ -243,6 +243,15 @@ public class LdapSlaveLoginHandler extends LdapLoginHandler
     }.start();
   }
 
+  /**
+   * Do nothing: the LDAP is the master system and ProjectForge's users and groups are updated by the next refresh of the cache.
+   * @see org.projectforge.user.LoginHandler#afterUserGroupCacheUpdate(java.util.Collection, java.util.Collection)
+   */
+  @Override
+  public void afterUserGroupCacheUpdate(final Collection<Integer> userIds, final Collection<Integer> groupIds)
+  {
+  }
+
   /**
    * @return true if currently a cache refresh is running, otherwise false.
    */
@@ -42,6 +42,7 @@ import javax.mail.Multipart;
 import javax.mail.Part;
 import javax.mail.Session;
 import javax.mail.Store;
+import javax.mail.UIDFolder;
 import javax.mail.search.FlagTerm;
 
 import org.projectforge.core.ConfigXml;
@@ -100,7 +101,6 @@ public class MailAccount
           + this.mailAcccountConfig.getProtocol());
       return null;
     }
-    final List<Mail> table = new ArrayList<Mail>();
     try {
       int totalMessages = folder.getMessageCount();
       log.debug("New messages: " + folder.getNewMessageCount());
@@ -115,13 +115,33 @@ public class MailAccount
       } else {
         msgs = folder.getMessages();
       }
-      // Use a suitable FetchProfile
-      final FetchProfile fp = new FetchProfile();
-      fp.add(FetchProfile.Item.ENVELOPE);
-      fp.add(FetchProfile.Item.FLAGS);
-      fp.add("X-Mailer");
-      folder.fetch(msgs, fp);
+      return getMails(msgs);
+    } catch (javax.mail.MessagingException ex) {
+      log.info(ex.getMessage(), ex);
+      throw new RuntimeException(ex);
+    }
+  }
 
+  /**
+   * Fetches the envelopes, flags and UIDs of the given messages with one request and gets their contents.
+   * @param msgs Messages of the opened folder.
+   * @return The mails sorted by date.
+   */
+  public Mail[] getMails(final Message[] msgs)
+  {
+    final List<Mail> table = new ArrayList<Mail>();
+    try {
+      if (folder != null) {
+        // Use a suitable FetchProfile
+        final FetchProfile fp = new FetchProfile();
+        fp.add(FetchProfile.Item.ENVELOPE);
+        fp.add(FetchProfile.Item.FLAGS);
+        if (folder instanceof UIDFolder) {
+          fp.add(UIDFolder.FetchProfileItem.UID);
+        }
+        fp.add("X-Mailer");
+        folder.fetch(msgs, fp);
+      }
       for (int i = 0; i < msgs.length; i++) {
         final Mail mail = new Mail();
         setEnvelope(mail, msgs[i]);
@@ -146,6 +166,84 @@ public class MailAccount
     }
   }
 
+  /**
+   * @return The UIDVALIDITY of the opened folder or -1 if the folder doesn't support UIDs (e. g. POP3).
+   */
+  public long getUIDValidity()
+  {
+    if (folder instanceof UIDFolder == false) {
+      return -1;
+    }
+    try {
+      return ((UIDFolder) folder).getUIDValidity();
+    } catch (final MessagingException ex) {
+      log.error("Exception encountered while getting UIDVALIDITY of folder: " + ex, ex);
+      return -1;
+    }
+  }
+
+  /**
+   * @return The UID of the last message of the opened folder, 0 if the folder is empty or -1 if the folder doesn't support UIDs.
+   */
+  public long getLastUID()
+  {
+    if (folder instanceof UIDFolder == false) {
+      return -1;
+    }
+    try {
+      final int count = folder.getMessageCount();
+      if (count == 0) {
+        return 0;
+      }
+      return ((UIDFolder) folder).getUID(folder.getMessage(count));
+    } catch (final MessagingException ex) {
+      log.error("Exception encountered while getting UID of the last message: " + ex, ex);
+      return -1;
+    }
+  }
+
+  /**
+   * @param message
+   * @return The UID of the given message or -1 if the folder doesn't support UIDs.
+   */
+  public long getUID(final Message message)
+  {
+    if (folder instanceof UIDFolder == false) {
+      return -1;
+    }
+    try {
+      return ((UIDFolder) folder).getUID(message);
+    } catch (final MessagingException ex) {
+      log.error("Exception encountered while getting UID of message: " + ex, ex);
+      return -1;
+    }
+  }
+
+  /**
+   * Gets the messages with an UID greater than the given one. Only the message references are got, please use
+   * {@link #getMails(Message[])} for fetching the envelopes and contents (e. g. in batches).
+   * @param lastUID
+   * @return The messages ordered by UID.
+   */
+  public Message[] getMessagesSinceUID(final long lastUID)
+  {
+    final UIDFolder uidFolder = (UIDFolder) folder;
+    try {
+      final Message[] msgs = uidFolder.getMessagesByUID(lastUID + 1, UIDFolder.LASTUID);
+      final List<Message> result = new ArrayList<Message>(msgs.length);
+      for (final Message msg : msgs) {
+        // The IMAP server returns the last message for the range n:* also if its UID is less than n:
+        if (msg != null && uidFolder.getUID(msg) > lastUID) {
+          result.add(msg);
+        }
+      }
+      return result.toArray(new Message[result.size()]);
+    } catch (javax.mail.MessagingException ex) {
+      log.info(ex.getMessage(), ex);
+      throw new RuntimeException(ex);
+    }
+  }
+
   /**
    * Opens the connection to the mailserver. Don't forget to call disconnect if this method returns true!
    * @param mbox The folder name to open. If null then the default folder will be opened.
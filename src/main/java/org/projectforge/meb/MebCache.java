@@ -23,54 +23,69 @@
 
 package org.projectforge.meb;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.log4j.Logger;
 import org.projectforge.common.AbstractCache;
+import org.projectforge.common.AbstractCounterCache;
 
 /**
- * The number of recent MEB entries is cached. Accessible via MebDao.
+ * The number of recent MEB entries is cached (lock-free). Accessible via MebDao.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
-public class MebCache extends AbstractCache
+public class MebCache extends AbstractCounterCache
 {
-  private static Logger log = Logger.getLogger(MebCache.class);
-
-  /** The key is the user id and the value is the number of recent MEB entries. */
-  private Map<Integer, Integer> recentEntriesMap;
+  /**
+   * Unassigned entries (without owner) are counted for this pseudo user id.
+   */
+  static final Integer UNASSIGNED = -1;
 
-  private MebDao mebDao;
+  private final MebDao mebDao;
 
   /**
-   * Refreshes every 30 minutes. After any modifications via MebDao this cache will be refreshed.
+   * Reconciles every 30 minutes. After any modifications via MebDao the counters will be updated.
    */
   public MebCache(final MebDao mebDao)
   {
-    super(30 * TICKS_PER_MINUTE);
+    super(30 * AbstractCache.TICKS_PER_MINUTE);
     this.mebDao = mebDao;
   }
 
-  int getRecentMEBEntries(final Integer userId)
+  /**
+   * @param userId
+   * @param includeUnassigned If true then the number of unassigned entries (without owner) is added.
+   * @return The number of recent entries of the given user.
+   */
+  int getRecentMEBEntries(final Integer userId, final boolean includeUnassigned)
   {
-    checkRefresh();
-    final Integer result = recentEntriesMap.get(userId);
-    if (result != null) {
-      return result;
-    }
-    final int counter = mebDao.internalGetRecentMEBEntries(userId);
-    synchronized (recentEntriesMap) {
-      recentEntriesMap.put(userId, counter);
+    int counter = getCounter(userId);
+    if (includeUnassigned == true) {
+      counter += getCounter(UNASSIGNED);
     }
     return counter;
   }
 
+  void update(final MebEntryDO entry)
+  {
+    update(entry.getId(), getCountedUserId(entry.getOwnerId(), entry.getStatus(), entry.isDeleted()));
+  }
+
   /**
-   * This method will be called by CacheHelper and is synchronized via getData();
+   * @return The owner id if the entry is recent, {@link #UNASSIGNED} if the entry has no owner or null if the entry isn't counted at all.
    */
-  protected void refresh()
+  static Integer getCountedUserId(final Integer ownerId, final MebEntryStatus status, final boolean deleted)
+  {
+    if (deleted == true) {
+      return null;
+    }
+    if (ownerId == null) {
+      return UNASSIGNED;
+    }
+    return status == MebEntryStatus.RECENT ? ownerId : null;
+  }
+
+  @Override
+  protected Map<Integer, Integer> loadCountedEntities()
   {
-    log.info("Clearing MebCache.");
-    recentEntriesMap = new HashMap<Integer, Integer>();
+    return mebDao.internalGetRecentMEBEntries();
   }
 }
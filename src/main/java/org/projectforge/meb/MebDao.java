@@ -28,8 +28,14 @@ import java.security.NoSuchAlgorithmException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
@@ -129,7 +135,7 @@ public class MebDao extends BaseDao<MebEntryDO>
   /**
    * Get the number of recent MEB entries for the logged in user. If the user is member of the admin group then the number of unassigned
    * entries (owner not set) will be added. <br/>
-   * The result is cached (therefore you can call this method very often).
+   * The result is cached and lock-free (therefore you can call this method very often, e. g. on every page render).
    * @param userId If null then the current logged in user is assumed.
    * @return Number of recent (and unassigned) MEB entries.
    */
@@ -138,28 +144,28 @@ public class MebDao extends BaseDao<MebEntryDO>
     if (userId == null) {
       userId = PFUserContext.getUserId();
     }
-    return mebCache.getRecentMEBEntries(userId);
+    return mebCache.getRecentMEBEntries(userId, accessChecker.isLoggedInUserMemberOfAdminGroup());
   }
 
   /**
-   * Called by MebCache to get the number of recent entries for the given users. For administrative users the number of unassigned entries
-   * (without owner) is added.
-   * @param userId
-   * @return Number of recent (and unassigned) MEB entries.
+   * Called by MebCache (asynchronously) to get all recent entries and all unassigned entries (without owner).
+   * @return Map with the id of every counted entry as key and the owner id (or {@link MebCache#UNASSIGNED}) as value.
    */
-  int internalGetRecentMEBEntries(final Integer userId)
+  Map<Integer, Integer> internalGetRecentMEBEntries()
   {
     final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
-    try {
-      int counter = jdbc.queryForInt("SELECT COUNT(*) FROM t_meb_entry where owner_fk=" + userId + " and status='RECENT'");
-      if (accessChecker.isLoggedInUserMemberOfAdminGroup() == true) {
-        counter += jdbc.queryForInt("SELECT COUNT(*) FROM t_meb_entry where owner_fk is null");
+    final List<Map<String, Object>> rows = jdbc
+        .queryForList("SELECT pk, owner_fk, status FROM t_meb_entry where deleted=false and (owner_fk is null or status='RECENT')");
+    final Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+    for (final Map<String, Object> row : rows) {
+      final Number ownerId = (Number) row.get("owner_fk");
+      final MebEntryStatus status = MebEntryStatus.RECENT.name().equals(row.get("status")) == true ? MebEntryStatus.RECENT : null;
+      final Integer userId = MebCache.getCountedUserId(ownerId != null ? ownerId.intValue() : null, status, false);
+      if (userId != null) {
+        result.put(((Number) row.get("pk")).intValue(), userId);
       }
-      return counter;
-    } catch (final Exception ex) {
-      log.error(ex.getMessage(), ex);
-      return 0;
     }
+    return result;
   }
 
   /**
@@ -183,62 +189,121 @@ public class MebDao extends BaseDao<MebEntryDO>
    * @param entry
    * @return Number of new imported messages.
    */
-  @SuppressWarnings("unchecked")
   @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW, isolation = Isolation.REPEATABLE_READ)
   public boolean checkAndAddEntry(final MebEntryDO entry, final String source)
   {
-    Validate.notNull(entry.getSender());
-    Validate.notNull(entry.getDate());
-    Validate.notNull(entry.getMessage());
-    entry.setStatus(MebEntryStatus.RECENT);
+    return internalCheckAndAddEntries(Collections.singletonList(entry), source) == 1;
+  }
+
+  /**
+   * Bulk version of {@link #checkAndAddEntry(MebEntryDO, String)}: The already imported entries are detected by one query for all given
+   * entries and the new entries are inserted within one transaction (the session is flushed once at the end).
+   * @param entries
+   * @param source
+   * @return Number of new imported messages.
+   */
+  @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW, isolation = Isolation.REPEATABLE_READ)
+  public int checkAndAddEntries(final List<MebEntryDO> entries, final String source)
+  {
+    return internalCheckAndAddEntries(entries, source);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int internalCheckAndAddEntries(final List<MebEntryDO> entries, final String source)
+  {
+    if (entries == null || entries.isEmpty() == true) {
+      return 0;
+    }
+    final List<String> checkSums = new ArrayList<String>(entries.size());
+    for (final MebEntryDO entry : entries) {
+      Validate.notNull(entry.getSender());
+      Validate.notNull(entry.getDate());
+      Validate.notNull(entry.getMessage());
+      entry.setStatus(MebEntryStatus.RECENT);
+      checkSums.add(createCheckSum(entry.getMessage()));
+    }
     synchronized (this) {
-      final String checkSum = createCheckSum(entry.getMessage());
-      // First check weather the entry is already in the data base or not.
-      final List<ImportedMebEntryDO> entryList = getHibernateTemplate().find(
-          "from ImportedMebEntryDO e where e.sender = ? and e.date = ? and e.checkSum = ?",
-          new Object[] { entry.getSender(), entry.getDate(), checkSum});
-      if (entryList != null && entryList.size() > 0) {
-        return false;
+      // First check weather the entries are already in the data base or not.
+      final List<ImportedMebEntryDO> importedList = getSession()
+          .createQuery("from ImportedMebEntryDO e where e.checkSum in (:checkSums)")
+          .setParameterList("checkSums", new HashSet<String>(checkSums)).list();
+      final Set<String> importedKeys = new HashSet<String>();
+      for (final ImportedMebEntryDO imported : importedList) {
+        importedKeys.add(getImportKey(imported.getSender(), imported.getDate(), imported.getCheckSum()));
       }
       // Try to assign the owner from the sender string.
       final List<Object[]> userList = (List<Object[]>) getSession().createQuery(
           "select id, personalMebMobileNumbers from PFUserDO u where deleted = false and personalMebMobileNumbers is not null").list();
-      final String senderNumber = StringHelper.removeNonDigits(entry.getSender());
-      Integer pk = null;
-      for (final Object[] user : userList) {
-        final String personalPhoneIdentifiers = StringHelper.removeNonDigits((String) user[1]);
-        if (personalPhoneIdentifiers.length() == 0) {
+      int counter = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        final MebEntryDO entry = entries.get(i);
+        final String checkSum = checkSums.get(i);
+        if (importedKeys.add(getImportKey(entry.getSender(), entry.getDate(), checkSum)) == false) {
+          // Already imported (or given twice).
           continue;
         }
-        if (personalPhoneIdentifiers.contains(senderNumber) == true) {
-          if (pk != null) {
-            log.warn("Sender string '" + entry.getSender() + "' found twice (user pk's): " + pk + ", " + user[0]);
-          } else {
-            pk = (Integer) user[0];
-          }
+        final Integer pk = getOwnerId(userList, entry.getSender());
+        if (pk != null) {
+          final PFUserDO user = (PFUserDO) getSession().load(PFUserDO.class, pk);
+          entry.setOwner(user);
         }
+        internalSave(entry);
+        final ImportedMebEntryDO imported = new ImportedMebEntryDO();
+        imported.setCheckSum(checkSum);
+        imported.setDate(entry.getDate());
+        imported.setSender(entry.getSender());
+        imported.setCreated();
+        imported.setLastUpdate();
+        imported.setSource(source);
+        getHibernateTemplate().save(imported);
+        counter++;
       }
-      if (pk != null) {
-        final PFUserDO user = (PFUserDO) getSession().load(PFUserDO.class, pk);
-        entry.setOwner(user);
+      getSession().flush();
+      return counter;
+    }
+  }
+
+  private static String getImportKey(final String sender, final Date date, final String checkSum)
+  {
+    return sender + "|" + date.getTime() + "|" + checkSum;
+  }
+
+  /**
+   * @param userList List of user id's and their personal MEB mobile numbers.
+   * @param sender
+   * @return The id of the user with the sender's number as personal MEB mobile number or null if not found. If found
+   *         twice, the first one is returned.
+   */
+  private Integer getOwnerId(final List<Object[]> userList, final String sender)
+  {
+    final String senderNumber = StringHelper.removeNonDigits(sender);
+    Integer pk = null;
+    for (final Object[] user : userList) {
+      final String personalPhoneIdentifiers = StringHelper.removeNonDigits((String) user[1]);
+      if (personalPhoneIdentifiers.length() == 0) {
+        continue;
+      }
+      if (personalPhoneIdentifiers.contains(senderNumber) == true) {
+        if (pk != null) {
+          log.warn("Sender string '" + sender + "' found twice (user pk's): " + pk + ", " + user[0]);
+        } else {
+          pk = (Integer) user[0];
+        }
       }
-      internalSave(entry);
-      final ImportedMebEntryDO imported = new ImportedMebEntryDO();
-      imported.setCheckSum(checkSum);
-      imported.setDate(entry.getDate());
-      imported.setSender(entry.getSender());
-      imported.setCreated();
-      imported.setLastUpdate();
-      imported.setSource(source);
-      getHibernateTemplate().save(imported);
-      return true;
     }
+    return pk;
   }
 
   @Override
   protected void afterSaveOrModify(MebEntryDO obj)
   {
-    mebCache.setExpired();
+    mebCache.update(obj);
+  }
+
+  @Override
+  protected void afterDelete(final MebEntryDO obj)
+  {
+    mebCache.update(obj.getId(), null);
   }
 
   @Override
@@ -21,14 +21,19 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.meb;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import javax.mail.Flags;
+import javax.mail.Message;
 import javax.mail.MessagingException;
 
 import org.projectforge.core.ConfigXml;
@@ -38,7 +43,9 @@ import org.projectforge.mail.MailAccountConfig;
 import org.projectforge.mail.MailFilter;
 
 /**
- * Gets the messages from a mail account and assigns them to the MEB user's inboxes.
+ * Gets the messages from a mail account and assigns them to the MEB user's inboxes.<br/>
+ * The UIDVALIDITY and the last UID of the INBOX are remembered, so the polling of recent mails only fetches the mails received since the
+ * last polling (if the mail server supports UIDs such as IMAP).
  * @author Kai Reinhard (k.reinhard@micromata.de)
  * 
  */
@@ -46,8 +53,22 @@ public class MebMailClient
 {
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(MebMailClient.class);
 
+  /**
+   * Number of mails fetched from the mail server and imported together.
+   */
+  static final int BATCH_SIZE = 100;
+
   private MebDao mebDao;
 
+  /** The account (user@host) of the last synchronization. */
+  private String syncAccount;
+
+  /** The UIDVALIDITY of the INBOX of the last synchronization. */
+  private long syncUIDValidity = -1;
+
+  /** The highest UID of the INBOX already imported or -1 if unknown. */
+  private long syncLastUID = -1;
+
   /**
    * 
    * @param onlyRecentMails If true then only unseen mail will be got from the mail server and afterwards they will be set as seen.
@@ -55,77 +76,62 @@ public class MebMailClient
    */
   public synchronized int getNewMessages(final boolean onlyRecentMails, final boolean markRecentMailsAsSeen)
   {
-    int counter = 0;
-    final MailFilter filter = new MailFilter();
-    if (onlyRecentMails == true) {
-      filter.setOnlyRecent(true);
-    }
     final MailAccountConfig cfg = ConfigXml.getInstance().getMebMailAccount();
     if (cfg == null || cfg.getHostname() == null) {
       // No mail account configured.
       return 0;
     }
     final MailAccount mailAccount = new MailAccount(cfg);
+    return getNewMessages(mailAccount, cfg.getUsername() + "@" + cfg.getHostname(), onlyRecentMails, markRecentMailsAsSeen);
+  }
+
+  /**
+   * If only recent mails are requested and the last UID of the given account is known (and the UIDVALIDITY of the INBOX is unchanged)
+   * then only the mails with a greater UID are fetched. Otherwise all (unseen) mails are checked. The mails are fetched and imported in
+   * batches of {@link #BATCH_SIZE}.
+   * @param mailAccount
+   * @param account The account (user@host) for detecting changes of the configured mail account.
+   * @param onlyRecentMails
+   * @param markRecentMailsAsSeen
+   * @return Number of new imported messages.
+   */
+  synchronized int getNewMessages(final MailAccount mailAccount, final String account, final boolean onlyRecentMails,
+      final boolean markRecentMailsAsSeen)
+  {
+    int counter = 0;
     try {
       // If mark messages as seen is set then open mbox read-write.
       mailAccount.connect("INBOX", markRecentMailsAsSeen);
+      final long uidValidity = mailAccount.getUIDValidity();
+      if (account.equals(syncAccount) == false || uidValidity != syncUIDValidity) {
+        // Other account or the UIDs of the INBOX are re-assigned by the mail server:
+        syncAccount = account;
+        syncUIDValidity = uidValidity;
+        syncLastUID = -1;
+      }
+      if (onlyRecentMails == true && uidValidity >= 0 && syncLastUID >= 0) {
+        final Message[] msgs = mailAccount.getMessagesSinceUID(syncLastUID);
+        for (int i = 0; i < msgs.length; i += BATCH_SIZE) {
+          final Message[] batch = Arrays.copyOfRange(msgs, i, Math.min(i + BATCH_SIZE, msgs.length));
+          counter += importMails(mailAccount.getMails(batch), markRecentMailsAsSeen);
+          for (final Message msg : batch) {
+            syncLastUID = Math.max(syncLastUID, mailAccount.getUID(msg));
+          }
+        }
+        return counter;
+      }
+      // Get the last UID first, mails received while checking all mails will be checked again by the next synchronization:
+      final long lastUID = mailAccount.getLastUID();
+      final MailFilter filter = new MailFilter();
+      if (onlyRecentMails == true) {
+        filter.setOnlyRecent(true);
+      }
       final Mail[] mails = mailAccount.getMails(filter);
       if (mails != null) {
-        for (final Mail mail : mails) {
-          final MebEntryDO entry = new MebEntryDO();
-          entry.setDate(mail.getDate());
-          final String content = mail.getContent();
-          final BufferedReader reader = new BufferedReader(new StringReader(content.trim()));
-          try {
-            StringBuffer buf = null;
-            while (reader.ready() == true) {
-              final String line = reader.readLine();
-              if (line == null) {
-                break;
-              }
-              if (line.startsWith("date=") == true) {
-                if (line.length() > 5) {
-                  final String dateString = line.substring(5);
-                  final Date date = MebDao.parseDate(dateString);
-                  entry.setDate(date);
-                }
-              } else if (line.startsWith("sender=") == true) {
-                if (line.length() > 7) {
-                  final String sender = line.substring(7);
-                  entry.setSender(sender);
-                }
-              } else if (line.startsWith("msg=") == true) {
-                if (line.length() > 4) {
-                  final String msg = line.substring(4);
-                  buf = new StringBuffer();
-                  buf.append(msg);
-                }
-              } else if (buf != null) {
-                buf.append(line);
-              } else {
-                entry.setSender(line); // First row is the sender.
-                buf = new StringBuffer(); // The message follows.
-              }
-            }
-            if (buf != null) {
-              entry.setMessage(buf.toString().trim());
-            }
-          } catch (IOException ex) {
-            log.fatal("Exception encountered " + ex, ex);
-          }
-          if (mebDao.checkAndAddEntry(entry, "MAIL") == true) {
-            counter++;
-          }
-          if (markRecentMailsAsSeen == true) {
-            try {
-              mail.getMessage().setFlag(Flags.Flag.SEEN, true);
-              //mail.getMessage().saveChanges();
-            } catch (MessagingException ex) {
-              log.error("Exception encountered while setting message flag SEEN as true: " + ex, ex);
-            }
-          }
-          // log.info(mail);
+        for (int i = 0; i < mails.length; i += BATCH_SIZE) {
+          counter += importMails(Arrays.copyOfRange(mails, i, Math.min(i + BATCH_SIZE, mails.length)), markRecentMailsAsSeen);
         }
+        syncLastUID = lastUID;
       }
       return counter;
     } finally {
@@ -133,6 +139,82 @@ public class MebMailClient
     }
   }
 
+  private int importMails(final Mail[] mails, final boolean markRecentMailsAsSeen)
+  {
+    final List<MebEntryDO> entries = new ArrayList<MebEntryDO>(mails.length);
+    for (final Mail mail : mails) {
+      final MebEntryDO entry = createEntry(mail.getDate(), mail.getContent());
+      if (entry.getSender() == null || entry.getDate() == null || entry.getMessage() == null) {
+        log.warn("Ignoring mail without sender, date or message: " + mail);
+        continue;
+      }
+      entries.add(entry);
+    }
+    final int counter = mebDao.checkAndAddEntries(entries, "MAIL");
+    if (markRecentMailsAsSeen == true) {
+      for (final Mail mail : mails) {
+        try {
+          mail.getMessage().setFlag(Flags.Flag.SEEN, true);
+          //mail.getMessage().saveChanges();
+        } catch (MessagingException ex) {
+          log.error("Exception encountered while setting message flag SEEN as true: " + ex, ex);
+        }
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * Parses the content of a MEB mail.
+   * @param date The date of the mail, used if no date is given by the content.
+   * @param content
+   * @return The MEB entry.
+   */
+  static MebEntryDO createEntry(final Date date, final String content)
+  {
+    final MebEntryDO entry = new MebEntryDO();
+    entry.setDate(date);
+    final BufferedReader reader = new BufferedReader(new StringReader(content.trim()));
+    try {
+      StringBuffer buf = null;
+      while (reader.ready() == true) {
+        final String line = reader.readLine();
+        if (line == null) {
+          break;
+        }
+        if (line.startsWith("date=") == true) {
+          if (line.length() > 5) {
+            final String dateString = line.substring(5);
+            final Date parsedDate = MebDao.parseDate(dateString);
+            entry.setDate(parsedDate);
+          }
+        } else if (line.startsWith("sender=") == true) {
+          if (line.length() > 7) {
+            final String sender = line.substring(7);
+            entry.setSender(sender);
+          }
+        } else if (line.startsWith("msg=") == true) {
+          if (line.length() > 4) {
+            final String msg = line.substring(4);
+            buf = new StringBuffer();
+            buf.append(msg);
+          }
+        } else if (buf != null) {
+          buf.append(line);
+        } else {
+          entry.setSender(line); // First row is the sender.
+          buf = new StringBuffer(); // The message follows.
+        }
+      }
+      if (buf != null) {
+        entry.setMessage(buf.toString().trim());
+      }
+    } catch (IOException ex) {
+      log.fatal("Exception encountered " + ex, ex);
+    }
+    return entry;
+  }
+
   public void setMebDao(MebDao mebDao)
   {
     this.mebDao = mebDao;
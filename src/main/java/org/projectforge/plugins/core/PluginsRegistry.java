@@ -34,6 +34,7 @@ import org.projectforge.core.CronSetup;
 import org.projectforge.plugins.memo.MemoPlugin;
 import org.projectforge.plugins.teamcal.TeamCalPlugin;
 import org.projectforge.plugins.todo.ToDoPlugin;
+import org.projectforge.user.I18nHelper;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
@@ -159,6 +160,8 @@ public class PluginsRegistry
       beanFactory.autowireBeanProperties(plugin, AutowireCapableBeanFactory.AUTOWIRE_BY_NAME, false);
       plugin.init();
     }
+    // The resource bundles of the plugins are now registered:
+    I18nHelper.initialize();
   }
 
   public void registerCronJobs(final CronSetup cronSetup)
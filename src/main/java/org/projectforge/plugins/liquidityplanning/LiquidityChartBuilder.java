@@ -39,6 +39,7 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 import org.projectforge.calendar.DayHolder;
 import org.projectforge.charting.XYChartBuilder;
+import org.projectforge.common.Crypt;
 import org.projectforge.scripting.I18n;
 import org.projectforge.user.PFUserContext;
 
@@ -50,6 +51,26 @@ public class LiquidityChartBuilder
 {
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(LiquidityChartBuilder.class);
 
+  /**
+   * The version is a SHA-1 digest of all values the charts depend on (entries, settings, the current day and the locale of the logged-in
+   * user). Use this version for caching the rendered charts (see {@link org.projectforge.renderer.ChartRenderService}).
+   * @param forecast
+   * @param settings
+   * @return
+   */
+  public String getDataVersion(final LiquidityForecast forecast, final LiquidityForecastSettings settings)
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append(settings.getStartAmount()).append('|').append(settings.getNextDays()).append('|')
+    .append(settings.getExpectencyForRecentMonths()).append('|').append(new DayHolder().getTimeInMillis()).append('|')
+    .append(PFUserContext.getLocale());
+    for (final LiquidityEntry entry : forecast.getEntries()) {
+      buf.append('[').append(entry.getAmount()).append('|').append(entry.getDateOfPayment()).append('|')
+      .append(entry.getExpectedDateOfPayment()).append(']');
+    }
+    return Crypt.digest(buf.toString(), "SHA-1");
+  }
+
   /**
    * @param forecast
    * @param settings (next days)
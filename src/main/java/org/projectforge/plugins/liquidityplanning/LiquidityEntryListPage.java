@@ -25,7 +25,6 @@ package org.projectforge.plugins.liquidityplanning;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
@@ -44,13 +43,11 @@ import org.projectforge.excel.ContentProvider;
 import org.projectforge.excel.ExportColumn;
 import org.projectforge.excel.ExportSheet;
 import org.projectforge.export.DOListExcelExporter;
-import org.projectforge.fibu.EingangsrechnungDO;
 import org.projectforge.fibu.EingangsrechnungDao;
+import org.projectforge.fibu.InvoicePaymentCache;
 import org.projectforge.fibu.InvoicesExcelExport;
 import org.projectforge.fibu.PaymentStatus;
-import org.projectforge.fibu.RechnungDO;
 import org.projectforge.fibu.RechnungDao;
-import org.projectforge.fibu.RechnungFilter;
 import org.projectforge.web.calendar.DateTimeFormatter;
 import org.projectforge.web.wicket.AbstractListPage;
 import org.projectforge.web.wicket.CellItemListener;
@@ -237,22 +234,12 @@ IListPageColumnsCreator<LiquidityEntryDO>
       final LiquidityEntryDao liquidityEntryDao)
   {
     final LiquidityForecast forecast = new LiquidityForecast();
-    // Consider only invoices of the last year:
-    final java.sql.Date fromDate = new DayHolder().add(Calendar.DAY_OF_YEAR, -365).getSQLDate();
-    {
-      final List<RechnungDO> paidInvoices = rechnungDao.getList(new RechnungFilter().setShowBezahlt().setFromDate(fromDate));
-      forecast.calculateExpectedTimeOfPayments(paidInvoices);
-      final List<RechnungDO> invoices = rechnungDao.getList(new RechnungFilter().setShowUnbezahlt());
-      forecast.setInvoices(invoices);
-    }
-    {
-      final List<EingangsrechnungDO> paidInvoices = eingangsrechnungDao
-          .getList(new RechnungFilter().setShowBezahlt().setFromDate(fromDate));
-      forecast.calculateExpectedTimeOfCreditorPayments(paidInvoices);
-      final List<EingangsrechnungDO> creditorInvoices = eingangsrechnungDao.getList(new RechnungFilter()
-      .setListType(RechnungFilter.FILTER_UNBEZAHLT));
-      forecast.setCreditorInvoices(creditorInvoices);
-    }
+    // The payment statistics (invoices of the last year) and the open invoices are maintained incrementally by the InvoicePaymentCache:
+    final InvoicePaymentCache invoicePaymentCache = rechnungDao.getInvoicePaymentCache();
+    forecast.setDebitorPaymentStatistics(invoicePaymentCache.getDebitorStatistics());
+    forecast.setInvoices(rechnungDao.getOpenInvoices());
+    forecast.setCreditorPaymentStatistics(invoicePaymentCache.getCreditorStatistics());
+    forecast.setCreditorInvoices(eingangsrechnungDao.getOpenInvoices());
     final List<LiquidityEntryDO> list = liquidityEntryDao.getList(new LiquidityFilter().setPaymentStatus(PaymentStatus.UNPAID));
     forecast.set(list);
     forecast.build();
@@ -29,22 +29,21 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.projectforge.calendar.DayHolder;
 import org.projectforge.fibu.EingangsrechnungDO;
+import org.projectforge.fibu.InvoicePaymentCache;
 import org.projectforge.fibu.KontoCache;
 import org.projectforge.fibu.KontoDO;
 import org.projectforge.fibu.KundeDO;
 import org.projectforge.fibu.KundeFormatter;
+import org.projectforge.fibu.PaymentDelayStatistics;
 import org.projectforge.fibu.ProjektDO;
 import org.projectforge.fibu.ProjektFormatter;
 import org.projectforge.fibu.RechnungDO;
 import org.projectforge.registry.Registry;
-import org.projectforge.statistics.IntAggregatedValues;
 
 /**
  * @author Kai Reinhard (k.reinhard@micromata.de)
@@ -65,12 +64,12 @@ public class LiquidityForecast implements Serializable
   /**
    * Used for calculating the expected date of payment for future invoices.
    */
-  private final Map<String, IntAggregatedValues> aggregatedDebitorInvoicesValuesMap = new HashMap<String, IntAggregatedValues>();
+  private transient PaymentDelayStatistics debitorPaymentStatistics;
 
   /**
-   * Used for calculating the expected date of payment for future invoices.
+   * Used for calculating the expected date of payment for future creditor invoices.
    */
-  private final Map<String, IntAggregatedValues> aggregatedCreditorInvoicesValuesMap = new HashMap<String, IntAggregatedValues>();
+  private transient PaymentDelayStatistics creditorPaymentStatistics;
 
   private Collection<EingangsrechnungDO> creditorInvoices;
 
@@ -157,41 +156,28 @@ public class LiquidityForecast implements Serializable
       return this;
     }
     final KontoCache accountCache = Registry.instance().getKontoCache();
+    this.debitorPaymentStatistics = new PaymentDelayStatistics(0);
     for (final RechnungDO invoice : list) {
-      final DayHolder date = new DayHolder(invoice.getDatum());
-      final DayHolder dateOfPayment = new DayHolder(invoice.getBezahlDatum());
-      if (date == null || dateOfPayment == null) {
-        continue;
-      }
-      final int timeForPayment = date.daysBetween(dateOfPayment);
-      final int amount = invoice.getGrossSum().intValue();
-      // Store values for different groups:
-      final Integer projectId = invoice.getProjektId();
-      if (projectId != null) {
-        ensureAndAddDebitorPaymentValue("project#" + projectId, timeForPayment, amount);
-      }
-      final Integer customerId = invoice.getKundeId();
-      if (customerId != null) {
-        ensureAndAddDebitorPaymentValue("customer#" + customerId, timeForPayment, amount);
-      }
-      final KontoDO account = accountCache.getKonto(invoice);
-      final Integer accountId = account != null ? account.getId() : null;
-      if (accountId != null) {
-        ensureAndAddDebitorPaymentValue("account#" + accountId, timeForPayment, amount);
-      }
-      String customerText = invoice.getKundeText();
-      if (customerText != null) {
-        customerText = customerText.toLowerCase();
-        ensureAndAddDebitorPaymentValue("customer:" + customerText, timeForPayment, amount);
-        if (customerText.length() > 5) {
-          customerText = customerText.substring(0, 5);
-        }
-        ensureAndAddDebitorPaymentValue("shortCustomer:" + customerText, timeForPayment, amount);
-      }
+      this.debitorPaymentStatistics.update(invoice.getId(), invoice.getDatum(), invoice.getBezahlDatum(), invoice.getGrossSum().intValue(),
+          InvoicePaymentCache.getGroups(invoice, accountCache));
     }
     return this;
   }
 
+  /**
+   * Uses the given (pre-calculated) statistics for calculating the expected date of payment of future invoices instead of
+   * {@link #calculateExpectedTimeOfPayments(Collection)}.<br/>
+   * Should be called before {@link #setInvoices(Collection)}!
+   * @param statistics
+   * @return this for chaining.
+   * @see InvoicePaymentCache#getDebitorStatistics()
+   */
+  public LiquidityForecast setDebitorPaymentStatistics(final PaymentDelayStatistics statistics)
+  {
+    this.debitorPaymentStatistics = statistics;
+    return this;
+  }
+
   private void setExpectedTimeOfPayment(final LiquidityEntry entry, final RechnungDO invoice)
   {
     Date dateOfInvoice = invoice.getDatum();
@@ -234,7 +220,7 @@ public class LiquidityForecast implements Serializable
 
   private boolean setExpectedDateOfPayment(final LiquidityEntry entry, final Date dateOfInvoice, final String mapKey, final String area)
   {
-    final IntAggregatedValues values = aggregatedDebitorInvoicesValuesMap.get(mapKey);
+    final PaymentDelayStatistics.Values values = debitorPaymentStatistics != null ? debitorPaymentStatistics.getValues(mapKey) : null;
     if (values != null && values.getNumberOfValues() >= 1) {
       entry.setExpectedDateOfPayment(getDate(dateOfInvoice, values.getWeightedAverage()));
       entry.setComment(mapKey
@@ -251,16 +237,6 @@ public class LiquidityForecast implements Serializable
     }
   }
 
-  private void ensureAndAddDebitorPaymentValue(final String mapId, final int timeForPayment, final int amount)
-  {
-    IntAggregatedValues values = aggregatedDebitorInvoicesValuesMap.get(mapId);
-    if (values == null) {
-      values = new IntAggregatedValues();
-      aggregatedDebitorInvoicesValuesMap.put(mapId, values);
-    }
-    values.add(timeForPayment, amount);
-  }
-
   /**
    * For calculating the expected date of payment of future invoices. <br/>
    * Should be called before {@link #setInvoices(Collection)}!
@@ -271,32 +247,28 @@ public class LiquidityForecast implements Serializable
     if (list == null) {
       return this;
     }
+    this.creditorPaymentStatistics = new PaymentDelayStatistics(0);
     for (final EingangsrechnungDO invoice : list) {
-      final DayHolder date = new DayHolder(invoice.getDatum());
-      final DayHolder dateOfPayment = new DayHolder(invoice.getBezahlDatum());
-      if (date == null || dateOfPayment == null) {
-        continue;
-      }
-      final int timeForPayment = date.daysBetween(dateOfPayment);
-      final int amount = invoice.getGrossSum().intValue();
-      final KontoDO account = invoice.getKonto();
-      final Integer accountId = account != null ? account.getId() : null;
-      if (accountId != null) {
-        ensureAndAddCreditorPaymentValue("account#" + accountId, timeForPayment, amount);
-      }
-      String creditorText = invoice.getKreditor();
-      if (creditorText != null) {
-        creditorText = creditorText.toLowerCase();
-        ensureAndAddCreditorPaymentValue("creditor:" + creditorText, timeForPayment, amount);
-        if (creditorText.length() > 5) {
-          creditorText = creditorText.substring(0, 5);
-        }
-        ensureAndAddCreditorPaymentValue("shortCreditor:" + creditorText, timeForPayment, amount);
-      }
+      this.creditorPaymentStatistics.update(invoice.getId(), invoice.getDatum(), invoice.getBezahlDatum(),
+          invoice.getGrossSum().intValue(), InvoicePaymentCache.getGroups(invoice));
     }
     return this;
   }
 
+  /**
+   * Uses the given (pre-calculated) statistics for calculating the expected date of payment of future creditor invoices instead of
+   * {@link #calculateExpectedTimeOfCreditorPayments(Collection)}.<br/>
+   * Should be called before {@link #setCreditorInvoices(Collection)}!
+   * @param statistics
+   * @return this for chaining.
+   * @see InvoicePaymentCache#getCreditorStatistics()
+   */
+  public LiquidityForecast setCreditorPaymentStatistics(final PaymentDelayStatistics statistics)
+  {
+    this.creditorPaymentStatistics = statistics;
+    return this;
+  }
+
   private void setExpectedTimeOfPayment(final LiquidityEntry entry, final EingangsrechnungDO invoice)
   {
     Date dateOfInvoice = invoice.getDatum();
@@ -327,7 +299,7 @@ public class LiquidityForecast implements Serializable
   private boolean setExpectedDateOfCreditorPayment(final LiquidityEntry entry, final Date dateOfInvoice, final String mapKey,
       final String area)
   {
-    final IntAggregatedValues values = aggregatedCreditorInvoicesValuesMap.get(mapKey);
+    final PaymentDelayStatistics.Values values = creditorPaymentStatistics != null ? creditorPaymentStatistics.getValues(mapKey) : null;
     if (values != null && values.getNumberOfValues() >= 1) {
       entry.setExpectedDateOfPayment(getDate(dateOfInvoice, values.getWeightedAverage()));
       entry.setComment(mapKey
@@ -344,16 +316,6 @@ public class LiquidityForecast implements Serializable
     }
   }
 
-  private void ensureAndAddCreditorPaymentValue(final String mapId, final int timeForPayment, final int amount)
-  {
-    IntAggregatedValues values = aggregatedCreditorInvoicesValuesMap.get(mapId);
-    if (values == null) {
-      values = new IntAggregatedValues();
-      aggregatedCreditorInvoicesValuesMap.put(mapId, values);
-    }
-    values.add(timeForPayment, amount);
-  }
-
   private Date getDate(final Date date, final int timeOfPayment)
   {
     final DayHolder day = new DayHolder(date);
@@ -93,16 +93,19 @@ public class LiquidityForecastPage extends AbstractStandardFormPage
     }
     super.onBeforeRender();
     final LiquidityChartBuilder chartBuilder = new LiquidityChartBuilder();
+    final String dataVersion = chartBuilder.getDataVersion(forecast, form.getSettings());
     {
       final JFreeChart chart = chartBuilder.createXYPlot(forecast, form.getSettings());
-      final JFreeChartImage image = new JFreeChartImage(ImagePanel.IMAGE_ID, chart, IMAGE_WIDTH, IMAGE_HEIGHT);
+      final JFreeChartImage image = new JFreeChartImage(ImagePanel.IMAGE_ID, chart, IMAGE_WIDTH, IMAGE_HEIGHT).setDataVersion(
+          "liquidityForecastXYPlot", dataVersion);
       image.add(AttributeModifier.replace("width", String.valueOf(IMAGE_WIDTH)));
       image.add(AttributeModifier.replace("height", String.valueOf(IMAGE_HEIGHT)));
       xyPlotImage.replaceImage(image);
     }
     {
       final JFreeChart chart = chartBuilder.createBarChart(forecast, form.getSettings());
-      final JFreeChartImage image = new JFreeChartImage(ImagePanel.IMAGE_ID, chart, IMAGE_WIDTH, IMAGE_HEIGHT);
+      final JFreeChartImage image = new JFreeChartImage(ImagePanel.IMAGE_ID, chart, IMAGE_WIDTH, IMAGE_HEIGHT).setDataVersion(
+          "liquidityForecastBarChart", dataVersion);
       image.add(AttributeModifier.replace("width", String.valueOf(IMAGE_WIDTH)));
       image.add(AttributeModifier.replace("height", String.valueOf(IMAGE_HEIGHT)));
       barChartImage.replaceImage(image);
@@ -23,6 +23,7 @@
 
 package org.projectforge.plugins.marketing;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,11 +34,10 @@ import org.projectforge.address.AddressDO;
 import org.projectforge.address.AddressDao;
 import org.projectforge.core.BaseDao;
 import org.projectforge.core.BaseSearchFilter;
+import org.projectforge.core.MassUpdateStatus;
 import org.projectforge.core.QueryFilter;
 import org.projectforge.core.UserException;
 import org.projectforge.user.UserRightId;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 /**
@@ -100,7 +100,11 @@ public class AddressCampaignValueDao extends BaseDao<AddressCampaignValueDO>
     addressCampaignValue.setAddress(address);
   }
 
-  @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW)
+  /**
+   * Mass update of up to {@link #MAX_MASS_UPDATE} addresses in one new transaction (if any entry fails, the entries are processed again one
+   * by one).
+   * @see BaseDao#processMassUpdate(List, org.projectforge.core.BaseDao.MassUpdateChunkProcessor, MassUpdateStatus)
+   */
   public void massUpdate(final List<AddressDO> list, final AddressCampaignDO addressCampaign, final String value, final String comment)
   {
     if (list == null || list.size() == 0) {
@@ -110,10 +114,69 @@ public class AddressCampaignValueDao extends BaseDao<AddressCampaignValueDO>
     if (list.size() > MAX_MASS_UPDATE) {
       throw new UserException(MAX_MASS_UPDATE_EXCEEDED_EXCEPTION_I18N, new Object[] { MAX_MASS_UPDATE});
     }
-    for (final AddressDO address : list) {
-      AddressCampaignValueDO addressCampaignValue = get(address.getId(), addressCampaign.getId());
-      if (addressCampaignValue == null) {
-        addressCampaignValue = new AddressCampaignValueDO();
+    processMassUpdate(list, createMassUpdateChunkProcessor(addressCampaign, value, comment), new MassUpdateStatus(list.size()));
+  }
+
+  /**
+   * Mass update of more than {@link #MAX_MASS_UPDATE} addresses, processed asynchronously in chunks.
+   * @see BaseDao#startMassUpdate(List, org.projectforge.core.BaseDao.MassUpdateChunkProcessor)
+   */
+  public MassUpdateStatus startMassUpdate(final List<AddressDO> list, final AddressCampaignDO addressCampaign, final String value,
+      final String comment)
+  {
+    return startMassUpdate(list, createMassUpdateChunkProcessor(addressCampaign, value, comment));
+  }
+
+  private MassUpdateChunkProcessor<AddressDO> createMassUpdateChunkProcessor(final AddressCampaignDO addressCampaign, final String value,
+      final String comment)
+  {
+    return new MassUpdateChunkProcessor<AddressDO>() {
+      @Override
+      public void process(final List<AddressDO> chunk, final MassUpdateStatus chunkStatus)
+      {
+        massUpdateChunk(prepareMassUpdateEntries(chunk, addressCampaign, value, comment), null, null, chunkStatus);
+      }
+    };
+  }
+
+  /**
+   * The entries are already prepared by {@link #prepareMassUpdateEntries(List, AddressCampaignDO, String, String)}.
+   * @see org.projectforge.core.BaseDao#massUpdateEntry(org.projectforge.core.ExtendedBaseDO, org.projectforge.core.ExtendedBaseDO,
+   *      java.lang.Object)
+   */
+  @Override
+  protected boolean massUpdateEntry(final AddressCampaignValueDO entry, final AddressCampaignValueDO master, final Object store)
+  {
+    return true;
+  }
+
+  /**
+   * Gets the existing campaign values of the given addresses by one query and returns the entries to update (copies of the existing ones)
+   * or to insert.
+   */
+  @SuppressWarnings("unchecked")
+  private List<AddressCampaignValueDO> prepareMassUpdateEntries(final List<AddressDO> addresses, final AddressCampaignDO addressCampaign,
+      final String value, final String comment)
+  {
+    final List<Integer> addressIds = new ArrayList<Integer>(addresses.size());
+    for (final AddressDO address : addresses) {
+      addressIds.add(address.getId());
+    }
+    final List<AddressCampaignValueDO> dbList = getHibernateTemplate().findByNamedParam(
+        "from AddressCampaignValueDO a where a.addressCampaign.id = :addressCampaignId and a.address.id in (:addressIds)",
+        new String[] { "addressCampaignId", "addressIds"}, new Object[] { addressCampaign.getId(), addressIds});
+    final Map<Integer, AddressCampaignValueDO> dbMap = new HashMap<Integer, AddressCampaignValueDO>();
+    for (final AddressCampaignValueDO dbValue : dbList) {
+      dbMap.put(dbValue.getAddressId(), dbValue);
+    }
+    final List<AddressCampaignValueDO> entries = new ArrayList<AddressCampaignValueDO>(addresses.size());
+    for (final AddressDO address : addresses) {
+      final AddressCampaignValueDO addressCampaignValue = new AddressCampaignValueDO();
+      final AddressCampaignValueDO dbValue = dbMap.get(address.getId());
+      if (dbValue != null) {
+        copyValues(dbValue, addressCampaignValue);
+        addressCampaignValue.setDeleted(false);
+      } else {
         setAddress(addressCampaignValue, address.getId());
         addressCampaignValue.setAddressCampaign(addressCampaign);
       }
@@ -123,21 +186,9 @@ public class AddressCampaignValueDao extends BaseDao<AddressCampaignValueDO>
       if (StringUtils.isEmpty(comment) == false) {
         addressCampaignValue.setComment(comment);
       }
-      if (addressCampaignValue.getId() != null) {
-        try {
-          addressCampaignValue.setDeleted(false);
-          update(addressCampaignValue);
-        } catch (final Exception ex) {
-          log.info("Exception occured while updating entry inside mass update: " + addressCampaignValue);
-        }
-      } else {
-        try {
-          save(addressCampaignValue);
-        } catch (final Exception ex) {
-          log.info("Exception occured while inserting entry inside mass update: " + addressCampaignValue);
-        }
-      }
+      entries.add(addressCampaignValue);
     }
+    return entries;
   }
 
   @Override
@@ -114,7 +114,16 @@ public class AddressCampaignValueMassUpdatePage extends AbstractMassEditPage
   @Override
   protected void updateAll()
   {
+    if (isMassUpdateInProgress() == true) {
+      // Mass update is already running.
+      return;
+    }
     final AddressCampaignValueDO data = form.data;
+    if (isAsynchronousMassUpdate(addresses.size()) == true) {
+      showMassUpdateProgress(addressCampaignValueDao.startMassUpdate(addresses, data.getAddressCampaign(), data.getValue(),
+          data.getComment()));
+      return;
+    }
     addressCampaignValueDao.massUpdate(addresses, data.getAddressCampaign(), data.getValue(), data.getComment());
     super.updateAll();
   }
@@ -28,7 +28,9 @@ import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.projectforge.core.BaseDao;
+import org.projectforge.core.TransactionHelper;
 import org.projectforge.core.UserException;
+import org.projectforge.registry.Registry;
 import org.projectforge.task.TaskDao;
 import org.projectforge.user.PFUserDO;
 import org.projectforge.user.UserRightId;
@@ -86,13 +88,24 @@ public class SkillDao extends BaseDao<SkillDO>
   }
 
   /**
-   * Sets the tree as expired to force a refresh (rebuild of tree).
+   * Sets the tree as expired to force a refresh (rebuild of tree). The roll-ups of the skill matrix index are re-built too.
    * @see org.projectforge.core.BaseDao#afterSaveOrModify(org.projectforge.core.ExtendedBaseDO)
    */
   @Override
   protected void afterSaveOrModify(final SkillDO obj)
   {
     getSkillTree().setExpired();
+    final SkillRatingDao skillRatingDao = Registry.instance().getDao(SkillRatingDao.class);
+    if (skillRatingDao != null) {
+      // Otherwise the roll-ups may be re-built with the old skill tree before the commit:
+      TransactionHelper.executeAfterCommit(new Runnable() {
+        @Override
+        public void run()
+        {
+          skillRatingDao.getSkillMatrixIndex().setRollupsExpired();
+        }
+      });
+    }
   }
 
   public SkillTree getSkillTree()
@@ -0,0 +1,89 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix;
+
+import java.io.Serializable;
+
+/**
+ * Result entry of {@link SkillMatrixIndex#getBestMatches(java.util.Collection, SkillRating, boolean, int)}: a user and how well the user
+ * matches the requested skills.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SkillMatch implements Comparable<SkillMatch>, Serializable
+{
+  private static final long serialVersionUID = -3871209451727010236L;
+
+  private final Integer userId;
+
+  private final int numberOfMatchedSkills;
+
+  private final int score;
+
+  SkillMatch(final Integer userId, final int numberOfMatchedSkills, final int score)
+  {
+    this.userId = userId;
+    this.numberOfMatchedSkills = numberOfMatchedSkills;
+    this.score = score;
+  }
+
+  public Integer getUserId()
+  {
+    return userId;
+  }
+
+  /**
+   * @return The number of requested skills the user is rated for with at least the required rating.
+   */
+  public int getNumberOfMatchedSkills()
+  {
+    return numberOfMatchedSkills;
+  }
+
+  /**
+   * @return The sum of the best ratings of the user in the requested skills (1 for {@link SkillRating#UNKNOWN} up to 6 for
+   *         {@link SkillRating#EXPERT}).
+   */
+  public int getScore()
+  {
+    return score;
+  }
+
+  /**
+   * Best matches first: ordered by number of matched skills and score (descending).
+   * @see java.lang.Comparable#compareTo(java.lang.Object)
+   */
+  @Override
+  public int compareTo(final SkillMatch o)
+  {
+    if (numberOfMatchedSkills != o.numberOfMatchedSkills) {
+      return numberOfMatchedSkills > o.numberOfMatchedSkills ? -1 : 1;
+    }
+    if (score != o.score) {
+      return score > o.score ? -1 : 1;
+    }
+    return userId.compareTo(o.userId);
+  }
+}
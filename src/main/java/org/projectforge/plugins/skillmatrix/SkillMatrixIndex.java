@@ -0,0 +1,462 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.projectforge.common.AbstractCache;
+import org.projectforge.registry.Registry;
+
+/**
+ * In-memory index of all skill ratings for answering queries such as "which users have at least rating N in this skill or any sub skill"
+ * without data base access and without walking through the skill paths of every rating.<br/>
+ * For every skill the users are stored as bit sets per rating level (bit set of level n contains all users rated with level n or higher).
+ * The bit sets are rolled up the {@link SkillTree}, so the query of a whole sub tree is a single bit set look-up and multi skill queries
+ * are ANDs and ORs of bit sets. The index is updated by the {@link SkillRatingDao} after the commit of every modification of a rating, the
+ * roll-ups are re-built after modifications of the skill tree by the {@link SkillDao}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SkillMatrixIndex extends AbstractCache
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(SkillMatrixIndex.class);
+
+  private static final SkillRating[] LEVELS = SkillRating.values();
+
+  private SkillRatingDao skillRatingDao;
+
+  private SkillTree skillTree;
+
+  /**
+   * User id -> index of the user's bit in the bit sets.
+   */
+  private Map<Integer, Integer> userIndex;
+
+  /**
+   * Index of the bit -> user id.
+   */
+  private List<Integer> userIds;
+
+  /**
+   * Rating id -> skill id and user id of the indexed rating (needed if the skill or user of a rating is changed).
+   */
+  private Map<Integer, Integer[]> indexedRatings;
+
+  private Map<Integer, Entry> entries;
+
+  private boolean rollupsExpired;
+
+  public SkillMatrixIndex()
+  {
+    super(AbstractCache.TICKS_PER_HOUR);
+  }
+
+  /**
+   * @param skillId
+   * @param minRating The minimal rating (inclusive). If null, every rating matches (also ratings of unrateable skills).
+   * @param includeSubSkills If true, the users rated in any sub skill are also matching.
+   * @return The ids of all matching users.
+   */
+  public synchronized Set<Integer> getUserIds(final Integer skillId, final SkillRating minRating, final boolean includeSubSkills)
+  {
+    return getUserIds(Collections.singletonList(skillId), minRating, includeSubSkills, false);
+  }
+
+  /**
+   * @param skillIds
+   * @param minRating The minimal rating (inclusive). If null, every rating matches (also ratings of unrateable skills).
+   * @param includeSubSkills If true, the users rated in any sub skill are also matching.
+   * @param matchAll If true, the users have to match all given skills (AND), otherwise at least one of the skills (OR).
+   * @return The ids of all matching users.
+   */
+  public synchronized Set<Integer> getUserIds(final Collection<Integer> skillIds, final SkillRating minRating,
+      final boolean includeSubSkills, final boolean matchAll)
+  {
+    checkRefresh();
+    checkRollups();
+    final int level = getLevel(minRating);
+    BitSet result = null;
+    for (final Integer skillId : skillIds) {
+      final BitSet users = getBitSet(skillId, level, includeSubSkills);
+      if (result == null) {
+        result = (BitSet) users.clone();
+      } else if (matchAll == true) {
+        result.and(users);
+      } else {
+        result.or(users);
+      }
+    }
+    return toUserIds(result);
+  }
+
+  /**
+   * Ranks all users rated with at least the given minimal rating in any of the given skills.
+   * @param skillIds
+   * @param minRating The minimal rating (inclusive). If null, every rating matches (also ratings of unrateable skills).
+   * @param includeSubSkills If true, the best rating of the sub tree is used.
+   * @param maxResults The maximum size of the result list.
+   * @return The best matching users, sorted by number of matched skills and score.
+   * @see SkillMatch#compareTo(SkillMatch)
+   */
+  public synchronized List<SkillMatch> getBestMatches(final Collection<Integer> skillIds, final SkillRating minRating,
+      final boolean includeSubSkills, final int maxResults)
+  {
+    checkRefresh();
+    checkRollups();
+    final int minLevel = getLevel(minRating);
+    final List<BitSet[]> bitSets = new ArrayList<BitSet[]>();
+    final BitSet candidates = new BitSet();
+    for (final Integer skillId : skillIds) {
+      final Entry entry = skillId != null ? entries.get(skillId) : null;
+      if (entry == null) {
+        continue;
+      }
+      final BitSet[] levels = includeSubSkills == true && entry.rollup != null ? entry.rollup : entry.atLeast;
+      bitSets.add(levels);
+      candidates.or(levels[minLevel]);
+    }
+    final List<SkillMatch> result = new ArrayList<SkillMatch>();
+    for (int bit = candidates.nextSetBit(0); bit >= 0; bit = candidates.nextSetBit(bit + 1)) {
+      int numberOfMatchedSkills = 0;
+      int score = 0;
+      for (final BitSet[] levels : bitSets) {
+        if (levels[minLevel].get(bit) == false) {
+          continue;
+        }
+        ++numberOfMatchedSkills;
+        for (int level = LEVELS.length - 1; level >= minLevel; level--) {
+          if (levels[level].get(bit) == true) {
+            score += level + 1;
+            break;
+          }
+        }
+      }
+      result.add(new SkillMatch(userIds.get(bit), numberOfMatchedSkills, score));
+    }
+    Collections.sort(result);
+    return result.size() > maxResults ? new ArrayList<SkillMatch>(result.subList(0, maxResults)) : result;
+  }
+
+  /**
+   * @param skillIds
+   * @param includeSubSkills
+   * @return The given skill ids and the ids of all (not deleted) descendants if includeSubSkills is true.
+   */
+  public Set<Integer> getSkillIds(final Collection<Integer> skillIds, final boolean includeSubSkills)
+  {
+    final Set<Integer> result = new LinkedHashSet<Integer>();
+    for (final Integer skillId : skillIds) {
+      if (includeSubSkills == false) {
+        result.add(skillId);
+        continue;
+      }
+      final SkillNode node = getSkillTree().getSkillNodeById(skillId);
+      if (node != null) {
+        addSkillIds(result, node);
+      }
+    }
+    return result;
+  }
+
+  private void addSkillIds(final Set<Integer> result, final SkillNode node)
+  {
+    result.add(node.getId());
+    if (node.hasChilds() == true) {
+      for (final SkillNode child : node.getChilds()) {
+        if (child.getSkill().isDeleted() == false) {
+          addSkillIds(result, child);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param rating
+   * @see #updateRating(Integer, Integer, Integer, SkillRating, boolean)
+   */
+  void updateRating(final SkillRatingDO rating)
+  {
+    updateRating(rating.getId(), rating.getSkillId(), rating.getUserId(), rating.getSkillRating(), rating.isDeleted());
+  }
+
+  /**
+   * Updates the index after saving, updating or deleting the rating with the given values. Called by {@link SkillRatingDao} after the
+   * commit.
+   */
+  synchronized void updateRating(final Integer ratingId, final Integer skillId, final Integer userId, final SkillRating skillRating,
+      final boolean deleted)
+  {
+    checkRefresh();
+    final Integer[] indexed = indexedRatings.remove(ratingId);
+    if (indexed != null) {
+      setLevel(indexed[0], indexed[1], -1);
+      updateRollups(indexed[0]);
+    }
+    if (deleted == true || skillId == null || userId == null) {
+      return;
+    }
+    index(ratingId, skillId, userId, skillRating);
+    updateRollups(skillId);
+  }
+
+  /**
+   * The roll-ups are re-built on next usage. Called by {@link SkillDao} after modifications of the skill tree.
+   */
+  synchronized void setRollupsExpired()
+  {
+    rollupsExpired = true;
+  }
+
+  private void index(final Integer ratingId, final Integer skillId, final Integer userId, final SkillRating skillRating)
+  {
+    // Ratings of unrateable skills have no rating value and are indexed with the lowest level:
+    final int level = getLevel(skillRating);
+    setLevel(skillId, userId, level);
+    indexedRatings.put(ratingId, new Integer[] { skillId, userId});
+  }
+
+  /**
+   * @param level -1 for removing the rating.
+   */
+  private void setLevel(final Integer skillId, final Integer userId, final int level)
+  {
+    Entry entry = entries.get(skillId);
+    if (entry == null) {
+      if (level < 0) {
+        return;
+      }
+      entry = new Entry();
+      entries.put(skillId, entry);
+    }
+    Integer bit = userIndex.get(userId);
+    if (bit == null) {
+      if (level < 0) {
+        return;
+      }
+      bit = userIds.size();
+      userIds.add(userId);
+      userIndex.put(userId, bit);
+    }
+    for (int i = 0; i < LEVELS.length; i++) {
+      entry.atLeast[i].set(bit, level >= i);
+    }
+  }
+
+  private BitSet getBitSet(final Integer skillId, final int level, final boolean includeSubSkills)
+  {
+    final Entry entry = skillId != null ? entries.get(skillId) : null;
+    if (entry == null) {
+      return new BitSet();
+    }
+    if (includeSubSkills == true && entry.rollup != null) {
+      return entry.rollup[level];
+    }
+    return entry.atLeast[level];
+  }
+
+  private Set<Integer> toUserIds(final BitSet bitSet)
+  {
+    final Set<Integer> result = new LinkedHashSet<Integer>();
+    if (bitSet == null) {
+      return result;
+    }
+    for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1)) {
+      result.add(userIds.get(bit));
+    }
+    return result;
+  }
+
+  private int getLevel(final SkillRating rating)
+  {
+    return rating != null ? rating.ordinal() : 0;
+  }
+
+  /**
+   * Re-computes the roll-ups of the given skill and all its ancestors.
+   */
+  private void updateRollups(final Integer skillId)
+  {
+    if (rollupsExpired == true) {
+      return;
+    }
+    SkillNode node = getSkillTree().getSkillNodeById(skillId);
+    if (node == null) {
+      // Skill not yet known by the skill tree:
+      rollupsExpired = true;
+      return;
+    }
+    while (node != null) {
+      computeRollup(node);
+      node = node.getParent();
+    }
+  }
+
+  private void checkRollups()
+  {
+    if (rollupsExpired == false) {
+      return;
+    }
+    final long start = System.currentTimeMillis();
+    for (final Entry entry : entries.values()) {
+      entry.rollup = null;
+    }
+    final SkillNode root = getSkillTree().getRootSkillNode();
+    if (root != null) {
+      buildRollups(root);
+    }
+    rollupsExpired = false;
+    if (log.isDebugEnabled() == true) {
+      log.debug("Roll-ups of skill matrix index built in " + (System.currentTimeMillis() - start) + "ms.");
+    }
+  }
+
+  private void buildRollups(final SkillNode node)
+  {
+    if (node.hasChilds() == true) {
+      for (final SkillNode child : node.getChilds()) {
+        buildRollups(child);
+      }
+    }
+    computeRollup(node);
+  }
+
+  /**
+   * The roll-up of a skill is the OR of the skill's own bit sets and the roll-ups of all not deleted child skills.
+   */
+  private void computeRollup(final SkillNode node)
+  {
+    Entry entry = entries.get(node.getId());
+    if (entry == null) {
+      entry = new Entry();
+      entries.put(node.getId(), entry);
+    }
+    final BitSet[] rollup = new BitSet[LEVELS.length];
+    for (int i = 0; i < LEVELS.length; i++) {
+      rollup[i] = (BitSet) entry.atLeast[i].clone();
+    }
+    if (node.hasChilds() == true) {
+      for (final SkillNode child : node.getChilds()) {
+        if (child.getSkill().isDeleted() == true) {
+          continue;
+        }
+        final Entry childEntry = entries.get(child.getId());
+        if (childEntry == null || childEntry.rollup == null) {
+          continue;
+        }
+        for (int i = 0; i < LEVELS.length; i++) {
+          rollup[i].or(childEntry.rollup[i]);
+        }
+      }
+    }
+    entry.rollup = rollup;
+  }
+
+  private SkillTree getSkillTree()
+  {
+    if (skillTree == null) {
+      skillTree = Registry.instance().getDao(SkillDao.class).getSkillTree();
+    }
+    return skillTree;
+  }
+
+  /**
+   * Only for tests, otherwise the skill tree of the {@link SkillDao} is used.
+   * @param skillTree the skillTree to set
+   * @return this for chaining.
+   */
+  SkillMatrixIndex setSkillTree(final SkillTree skillTree)
+  {
+    this.skillTree = skillTree;
+    return this;
+  }
+
+  /**
+   * @param skillRatingDao the skillRatingDao to set
+   * @return this for chaining.
+   */
+  SkillMatrixIndex setSkillRatingDao(final SkillRatingDao skillRatingDao)
+  {
+    this.skillRatingDao = skillRatingDao;
+    return this;
+  }
+
+  /**
+   * Reads all skill ratings from the data base.
+   * @see org.projectforge.common.AbstractCache#refresh()
+   */
+  @Override
+  protected void refresh()
+  {
+    log.info("Initializing skill matrix index ...");
+    userIndex = new HashMap<Integer, Integer>();
+    userIds = new ArrayList<Integer>();
+    indexedRatings = new HashMap<Integer, Integer[]>();
+    entries = new HashMap<Integer, Entry>();
+    final List<SkillRatingDO> list = skillRatingDao.internalLoadAll();
+    int counter = 0;
+    if (list != null) {
+      for (final SkillRatingDO rating : list) {
+        if (rating.isDeleted() == true || rating.getSkillId() == null || rating.getUserId() == null) {
+          continue;
+        }
+        index(rating.getId(), rating.getSkillId(), rating.getUserId(), rating.getSkillRating());
+        ++counter;
+      }
+    }
+    rollupsExpired = true;
+    log.info("Initializing skill matrix index done (" + counter + " ratings of " + userIds.size() + " users).");
+  }
+
+  /**
+   * The indexed users of one skill.
+   */
+  private static class Entry
+  {
+    /**
+     * Users rated with the level (index of the array) or higher.
+     */
+    private final BitSet[] atLeast = new BitSet[LEVELS.length];
+
+    /**
+     * Users rated with the level (index of the array) or higher in this skill or any sub skill. Null if not yet built.
+     */
+    private BitSet[] rollup;
+
+    private Entry()
+    {
+      for (int i = 0; i < LEVELS.length; i++) {
+        atLeast[i] = new BitSet();
+      }
+    }
+  }
+}
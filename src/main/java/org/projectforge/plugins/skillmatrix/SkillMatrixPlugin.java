@@ -25,9 +25,11 @@ package org.projectforge.plugins.skillmatrix;
 
 import org.projectforge.continuousdb.UpdateEntry;
 import org.projectforge.plugins.core.AbstractPlugin;
+import org.projectforge.plugins.skillmatrix.rest.SkillMatrixRest;
 import org.projectforge.user.UserPrefArea;
 import org.projectforge.web.MenuItemDef;
 import org.projectforge.web.MenuItemDefId;
+import org.projectforge.web.rest.RestCallRegistry;
 
 /**
  * @author Billy Duong (b.duong@micromata.de)
@@ -95,6 +97,8 @@ public class SkillMatrixPlugin extends AbstractPlugin
 
     // All the i18n stuff:
     addResourceBundle(RESOURCE_BUNDLE_NAME);
+
+    RestCallRegistry.getInstance().register(SkillMatrixRest.class);
   }
 
   /**
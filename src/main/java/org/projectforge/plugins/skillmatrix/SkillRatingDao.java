@@ -23,13 +23,18 @@
 
 package org.projectforge.plugins.skillmatrix;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.Restrictions;
+import org.projectforge.common.StringHelper;
 import org.projectforge.core.BaseDao;
 import org.projectforge.core.BaseSearchFilter;
 import org.projectforge.core.QueryFilter;
+import org.projectforge.core.TransactionHelper;
 import org.projectforge.core.UserException;
 import org.projectforge.registry.Registry;
 import org.projectforge.user.UserRightId;
@@ -59,10 +64,18 @@ public class SkillRatingDao extends BaseDao<SkillRatingDO>
 
   private static final String[] ADDITIONAL_SEARCH_FIELDS = new String[] { "skill.title" };
 
+  private final SkillMatrixIndex skillMatrixIndex;
+
   public SkillRatingDao()
   {
     super(SkillRatingDO.class);
     userRightId = USER_RIGHT_ID;
+    skillMatrixIndex = new SkillMatrixIndex().setSkillRatingDao(this);
+  }
+
+  public SkillMatrixIndex getSkillMatrixIndex()
+  {
+    return skillMatrixIndex;
   }
 
   @Override
@@ -82,6 +95,28 @@ public class SkillRatingDao extends BaseDao<SkillRatingDO>
     }
   }
 
+  /**
+   * Updates the skill matrix index after the commit of the transaction (rolled back modifications aren't indexed).
+   * @see org.projectforge.core.BaseDao#afterSaveOrModify(org.projectforge.core.ExtendedBaseDO)
+   */
+  @Override
+  protected void afterSaveOrModify(final SkillRatingDO obj)
+  {
+    // The values are copied, because the given object may be modified by the caller until the transaction is committed:
+    final Integer ratingId = obj.getId();
+    final Integer skillId = obj.getSkillId();
+    final Integer userId = obj.getUserId();
+    final SkillRating skillRating = obj.getSkillRating();
+    final boolean deleted = obj.isDeleted();
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        skillMatrixIndex.updateRating(ratingId, skillId, userId, skillRating, deleted);
+      }
+    });
+  }
+
   /**
    * 
    * @param skillRating that needs to be validated.
@@ -130,6 +165,16 @@ public class SkillRatingDao extends BaseDao<SkillRatingDO>
     }
     final QueryFilter queryFilter = new QueryFilter(myFilter);
 
+    if (StringUtils.isNotBlank(myFilter.getSkillIds()) == true) {
+      // Only the ratings of the matching users for the selected skills (found by the skill matrix index):
+      final List<Integer> skillIds = getSkillIds(myFilter.getSkillIds());
+      final Collection<Integer> userIds = skillMatrixIndex.getUserIds(skillIds, myFilter.getSkillRating(), true, myFilter.isMatchAll());
+      if (skillIds.isEmpty() == true || userIds.isEmpty() == true) {
+        return new ArrayList<SkillRatingDO>();
+      }
+      queryFilter.add(Restrictions.in("user.id", userIds));
+      queryFilter.add(Restrictions.in("skill.id", skillMatrixIndex.getSkillIds(skillIds, true)));
+    }
     if (myFilter.getSkillRating() != null) {
       final Object[] values = SkillRating.getRequiredExperienceValues(myFilter
           .getSkillRating());
@@ -138,6 +183,22 @@ public class SkillRatingDao extends BaseDao<SkillRatingDO>
     return getList(queryFilter);
   }
 
+  /**
+   * @param skillIds Coma separated list of skill ids.
+   * @return The list of skill ids.
+   */
+  public static List<Integer> getSkillIds(final String skillIds)
+  {
+    final List<Integer> list = new ArrayList<Integer>();
+    if (StringUtils.isBlank(skillIds) == true) {
+      return list;
+    }
+    for (final int id : StringHelper.splitToInts(skillIds, ",", false)) {
+      list.add(id);
+    }
+    return list;
+  }
+
   public SkillRatingDO setSkill(final SkillRatingDO rating, final Integer id)
   {
     final SkillDO skill = Registry.instance().getDao(SkillDao.class).getSkillTree().getSkillById(id);
@@ -40,6 +40,12 @@ public class SkillRatingFilter extends BaseSearchFilter
   @XStreamAsAttribute
   private SkillRating skillRating;
 
+  @XStreamAsAttribute
+  private String skillIds;
+
+  @XStreamAsAttribute
+  private boolean matchAll;
+
   public SkillRatingFilter()
   {
   }
@@ -59,4 +65,31 @@ public class SkillRatingFilter extends BaseSearchFilter
     this.skillRating = skillRating;
   }
 
+  /**
+   * @return Coma separated list of skill ids. Only users rated in these skills (or any sub skill) with at least the required experience
+   *         are shown.
+   */
+  public String getSkillIds()
+  {
+    return skillIds;
+  }
+
+  public void setSkillIds(final String skillIds)
+  {
+    this.skillIds = skillIds;
+  }
+
+  /**
+   * @return If true, the users have to be rated in all of the selected skills, otherwise in at least one.
+   */
+  public boolean isMatchAll()
+  {
+    return matchAll;
+  }
+
+  public void setMatchAll(final boolean matchAll)
+  {
+    this.matchAll = matchAll;
+  }
+
 }
@@ -23,14 +23,26 @@
 
 package org.projectforge.plugins.skillmatrix;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.apache.wicket.model.Model;
 import org.apache.wicket.model.PropertyModel;
+import org.projectforge.common.StringHelper;
+import org.projectforge.registry.Registry;
+import org.projectforge.user.PFUserDO;
 import org.projectforge.web.wicket.AbstractListForm;
 import org.projectforge.web.wicket.bootstrap.GridSize;
 import org.projectforge.web.wicket.components.LabelValueChoiceRenderer;
+import org.projectforge.web.wicket.flowlayout.DivPanel;
+import org.projectforge.web.wicket.flowlayout.DivTextPanel;
 import org.projectforge.web.wicket.flowlayout.DropDownChoicePanel;
 import org.projectforge.web.wicket.flowlayout.FieldsetPanel;
 
+import com.vaynberg.wicket.select2.Select2MultiChoice;
+
 /**
  * @author Billy Duong (b.duong@micromata.de)
  * 
@@ -43,6 +55,16 @@ public class SkillRatingListForm extends AbstractListForm<SkillRatingFilter, Ski
 
   public static final String I18N_KEY_REQUIRED_EXPERIENCE = "plugins.skillmatrix.search.reqiuredExperience";
 
+  public static final String I18N_KEY_SKILLS = "plugins.skillmatrix.search.skills";
+
+  public static final String I18N_KEY_MATCH_ALL = "plugins.skillmatrix.search.matchAll";
+
+  public static final String I18N_KEY_BEST_MATCHES = "plugins.skillmatrix.search.bestMatches";
+
+  private static final int MAX_BEST_MATCHES = 10;
+
+  private final SkillsProvider skillsProvider = new SkillsProvider();
+
   /**
    * @param parentPage
    */
@@ -51,13 +73,38 @@ public class SkillRatingListForm extends AbstractListForm<SkillRatingFilter, Ski
     super(parentPage);
   }
 
+  @SuppressWarnings("serial")
   @Override
   protected void init()
   {
     super.init();
     {
-      // Required experience
+      // Skills (queried by the skill matrix index)
       gridBuilder.newSplitPanel(GridSize.COL100);
+      final FieldsetPanel fs = gridBuilder.newFieldset(getString(I18N_KEY_SKILLS));
+      final Select2MultiChoice<SkillDO> skills = new Select2MultiChoice<SkillDO>(fs.getSelect2MultiChoiceId(),
+          new PropertyModel<Collection<SkillDO>>(this, "skills"), skillsProvider);
+      fs.add(skills);
+    }
+    {
+      // Best matching employees for the selected skills
+      final FieldsetPanel fs = new FieldsetPanel(gridBuilder.getPanel(), getString(I18N_KEY_BEST_MATCHES)) {
+        @Override
+        public boolean isVisible()
+        {
+          return StringUtils.isNotBlank(getSearchFilter().getSkillIds());
+        }
+      }.suppressLabelForWarning();
+      fs.add(new DivTextPanel(fs.newChildId(), new Model<String>() {
+        @Override
+        public String getObject()
+        {
+          return getBestMatchesAsString();
+        }
+      }));
+    }
+    {
+      // Required experience
       final FieldsetPanel fs = gridBuilder.newFieldset(getString(I18N_KEY_REQUIRED_EXPERIENCE)).suppressLabelForWarning();
       fs.getFieldset().setOutputMarkupId(true);
       final LabelValueChoiceRenderer<SkillRating> ratingChoiceRenderer = new LabelValueChoiceRenderer<SkillRating>(this,
@@ -69,6 +116,49 @@ public class SkillRatingListForm extends AbstractListForm<SkillRatingFilter, Ski
     }
   }
 
+  /**
+   * @see org.projectforge.web.wicket.AbstractListForm#onOptionsPanelCreate(org.projectforge.web.wicket.flowlayout.FieldsetPanel,
+   *      org.projectforge.web.wicket.flowlayout.DivPanel)
+   */
+  @Override
+  protected void onOptionsPanelCreate(final FieldsetPanel optionsFieldsetPanel, final DivPanel optionsCheckBoxesPanel)
+  {
+    optionsCheckBoxesPanel.add(createAutoRefreshCheckBoxPanel(optionsCheckBoxesPanel.newChildId(),
+        new PropertyModel<Boolean>(getSearchFilter(), "matchAll"), getString(I18N_KEY_MATCH_ALL)));
+  }
+
+  /**
+   * Used by the select field (property model).
+   */
+  public Collection<SkillDO> getSkills()
+  {
+    return skillsProvider.getSortedSkills(getSearchFilter().getSkillIds());
+  }
+
+  /**
+   * Used by the select field (property model).
+   */
+  public void setSkills(final Collection<SkillDO> skills)
+  {
+    getSearchFilter().setSkillIds(skillsProvider.getSkillIds(skills));
+  }
+
+  private String getBestMatchesAsString()
+  {
+    final List<SkillMatch> matches = parentPage.getBestMatches(MAX_BEST_MATCHES);
+    final StringBuffer buf = new StringBuffer();
+    boolean first = true;
+    for (final SkillMatch match : matches) {
+      final PFUserDO user = Registry.instance().getUserGroupCache().getUser(match.getUserId());
+      if (user == null) {
+        continue;
+      }
+      first = StringHelper.append(buf, first, user.getFullname() + " (" + match.getNumberOfMatchedSkills() + "/" + match.getScore() + ")",
+          ", ");
+    }
+    return buf.toString();
+  }
+
   /**
    * @see org.projectforge.web.wicket.AbstractListForm#newSearchFilterInstance()
    */
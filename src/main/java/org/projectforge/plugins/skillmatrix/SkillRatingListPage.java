@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.wicket.extensions.markup.html.repeater.data.grid.ICellPopulator;
 import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.IColumn;
@@ -158,6 +159,22 @@ IListPageColumnsCreator<SkillRatingDO>
     form.add(dataTable);
   }
 
+  /**
+   * @param maxResults
+   * @return The best matching users for the skills and the required experience of the search filter (empty list if no skills are
+   *         selected).
+   * @see SkillMatrixIndex#getBestMatches(java.util.Collection, SkillRating, boolean, int)
+   */
+  List<SkillMatch> getBestMatches(final int maxResults)
+  {
+    final SkillRatingFilter filter = form.getSearchFilter();
+    if (StringUtils.isBlank(filter.getSkillIds()) == true) {
+      return new ArrayList<SkillMatch>();
+    }
+    return skillRatingDao.getSkillMatrixIndex().getBestMatches(SkillRatingDao.getSkillIds(filter.getSkillIds()), filter.getSkillRating(),
+        true, maxResults);
+  }
+
   /**
    * @see org.projectforge.web.wicket.AbstractListPage#getBaseDao()
    */
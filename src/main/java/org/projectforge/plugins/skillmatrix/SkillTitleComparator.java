@@ -0,0 +1,55 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Sorts skills by title (case insensitive). Skills with the same title (of different parents) are sorted by id.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SkillTitleComparator implements Comparator<SkillDO>, Serializable
+{
+  private static final long serialVersionUID = 6322784810526376904L;
+
+  /**
+   * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public int compare(final SkillDO s1, final SkillDO s2)
+  {
+    final String n1 = s1 != null && s1.getTitle() != null ? s1.getTitle().toLowerCase() : "";
+    final String n2 = s2 != null && s2.getTitle() != null ? s2.getTitle().toLowerCase() : "";
+    final int result = n1.compareTo(n2);
+    if (result != 0) {
+      return result;
+    }
+    final Integer id1 = s1 != null && s1.getId() != null ? s1.getId() : -1;
+    final Integer id2 = s2 != null && s2.getId() != null ? s2.getId() : -1;
+    return id1.compareTo(id2);
+  }
+}
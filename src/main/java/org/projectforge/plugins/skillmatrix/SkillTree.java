@@ -135,6 +135,15 @@ public class SkillTree extends AbstractCache implements Serializable
     return skillMap.get(id);
   }
 
+  /**
+   * @return A copy of the list of all skill nodes (including the deleted ones).
+   */
+  public List<SkillNode> getSkillNodes()
+  {
+    checkRefresh();
+    return new ArrayList<SkillNode>(skillMap.values());
+  }
+
   public SkillDO getSkill(final String title)
   {
     if (StringUtils.isEmpty(title)) {
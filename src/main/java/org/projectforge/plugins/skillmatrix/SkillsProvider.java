@@ -0,0 +1,179 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.commons.lang.StringUtils;
+import org.projectforge.common.NumberHelper;
+import org.projectforge.common.StringHelper;
+import org.projectforge.registry.Registry;
+
+import com.vaynberg.wicket.select2.Response;
+import com.vaynberg.wicket.select2.TextChoiceProvider;
+
+/**
+ * Choice provider of all (not deleted) skills for selecting multiple skills.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SkillsProvider extends TextChoiceProvider<SkillDO>
+{
+  private static final long serialVersionUID = 2580471925913684527L;
+
+  private int pageSize = 20;
+
+  /**
+   * @param skillIds Coma separated list of skill ids.
+   * @return The skills sorted by title.
+   */
+  public Collection<SkillDO> getSortedSkills(final String skillIds)
+  {
+    final Collection<SkillDO> result = new TreeSet<SkillDO>(new SkillTitleComparator());
+    if (StringUtils.isEmpty(skillIds) == true) {
+      return result;
+    }
+    for (final Integer skillId : SkillRatingDao.getSkillIds(skillIds)) {
+      final SkillDO skill = getSkillTree().getSkillById(skillId);
+      if (skill != null) {
+        result.add(skill);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param skills
+   * @return Coma separated list of the ids of the given skills.
+   */
+  public String getSkillIds(final Collection<SkillDO> skills)
+  {
+    final StringBuffer buf = new StringBuffer();
+    boolean first = true;
+    if (skills != null) {
+      for (final SkillDO skill : skills) {
+        if (skill.getId() != null) {
+          first = StringHelper.append(buf, first, String.valueOf(skill.getId()), ",");
+        }
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * @param pageSize the pageSize to set
+   * @return this for chaining.
+   */
+  public SkillsProvider setPageSize(final int pageSize)
+  {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  /**
+   * @see com.vaynberg.wicket.select2.TextChoiceProvider#getDisplayText(java.lang.Object)
+   */
+  @Override
+  protected String getDisplayText(final SkillDO choice)
+  {
+    return choice.getTitle();
+  }
+
+  /**
+   * @see com.vaynberg.wicket.select2.TextChoiceProvider#getId(java.lang.Object)
+   */
+  @Override
+  protected Object getId(final SkillDO choice)
+  {
+    return choice.getId();
+  }
+
+  /**
+   * @see com.vaynberg.wicket.select2.ChoiceProvider#query(java.lang.String, int, com.vaynberg.wicket.select2.Response)
+   */
+  @Override
+  public void query(String term, final int page, final Response<SkillDO> response)
+  {
+    final SkillTree skillTree = getSkillTree();
+    final Collection<SkillDO> sortedSkills = new TreeSet<SkillDO>(new SkillTitleComparator());
+    term = term != null ? term.toLowerCase() : "";
+    for (final SkillNode node : skillTree.getSkillNodes()) {
+      final SkillDO skill = node.getSkill();
+      if (skill.isDeleted() == true || skillTree.isRootNode(node) == true) {
+        continue;
+      }
+      final String title = skill.getTitle();
+      if (title != null && title.toLowerCase().contains(term) == true) {
+        sortedSkills.add(skill);
+      }
+    }
+    final List<SkillDO> result = new ArrayList<SkillDO>();
+    final int offset = page * pageSize;
+    int matched = 0;
+    boolean hasMore = false;
+    for (final SkillDO skill : sortedSkills) {
+      if (result.size() == pageSize) {
+        hasMore = true;
+        break;
+      }
+      if (++matched > offset) {
+        result.add(skill);
+      }
+    }
+    response.addAll(result);
+    response.setHasMore(hasMore);
+  }
+
+  /**
+   * @see com.vaynberg.wicket.select2.ChoiceProvider#toChoices(java.util.Collection)
+   */
+  @Override
+  public Collection<SkillDO> toChoices(final Collection<String> ids)
+  {
+    final List<SkillDO> list = new ArrayList<SkillDO>();
+    if (ids == null) {
+      return list;
+    }
+    for (final String str : ids) {
+      final Integer skillId = NumberHelper.parseInteger(str);
+      if (skillId == null) {
+        continue;
+      }
+      final SkillDO skill = getSkillTree().getSkillById(skillId);
+      if (skill != null) {
+        list.add(skill);
+      }
+    }
+    return list;
+  }
+
+  private SkillTree getSkillTree()
+  {
+    return Registry.instance().getDao(SkillDao.class).getSkillTree();
+  }
+}
@@ -0,0 +1,72 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix.rest;
+
+import org.projectforge.plugins.skillmatrix.SkillMatch;
+import org.projectforge.rest.objects.UserObject;
+
+/**
+ * REST object of a {@link SkillMatch}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SkillMatchObject
+{
+  private UserObject user;
+
+  private int numberOfMatchedSkills;
+
+  private int score;
+
+  public UserObject getUser()
+  {
+    return user;
+  }
+
+  public void setUser(final UserObject user)
+  {
+    this.user = user;
+  }
+
+  public int getNumberOfMatchedSkills()
+  {
+    return numberOfMatchedSkills;
+  }
+
+  public void setNumberOfMatchedSkills(final int numberOfMatchedSkills)
+  {
+    this.numberOfMatchedSkills = numberOfMatchedSkills;
+  }
+
+  public int getScore()
+  {
+    return score;
+  }
+
+  public void setScore(final int score)
+  {
+    this.score = score;
+  }
+}
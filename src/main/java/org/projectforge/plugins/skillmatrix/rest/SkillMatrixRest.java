@@ -0,0 +1,142 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang.StringUtils;
+import org.projectforge.plugins.skillmatrix.SkillMatch;
+import org.projectforge.plugins.skillmatrix.SkillMatrixIndex;
+import org.projectforge.plugins.skillmatrix.SkillRating;
+import org.projectforge.plugins.skillmatrix.SkillRatingDao;
+import org.projectforge.registry.Registry;
+import org.projectforge.rest.JsonUtils;
+import org.projectforge.rest.objects.UserObject;
+import org.projectforge.user.PFUserDO;
+import org.projectforge.user.UserGroupCache;
+import org.projectforge.web.rest.converter.PFUserDOConverter;
+
+/**
+ * REST interface for the queries of the {@link SkillMatrixIndex}.
+ * 
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+@Path("skillmatrix")
+public class SkillMatrixRest
+{
+  private static final int DEFAULT_MAX_RESULTS = 50;
+
+  private final SkillRatingDao skillRatingDao;
+
+  public SkillMatrixRest()
+  {
+    this.skillRatingDao = Registry.instance().getDao(SkillRatingDao.class);
+  }
+
+  /**
+   * Rest-Call for {@link SkillMatrixIndex#getUserIds(java.util.Collection, SkillRating, boolean, boolean)}.
+   * @param skillIds Coma separated list of skill ids.
+   * @param minRating Name of the required {@link SkillRating}, e. g. HIGH.
+   * @param matchAll If true, the users have to be rated in all given skills, otherwise in any.
+   */
+  @GET
+  @Path("users")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getUsers( //
+      @QueryParam("skillIds") final String skillIds, //
+      @QueryParam("minRating") final String minRating, //
+      @QueryParam("matchAll") final Boolean matchAll, //
+      @QueryParam("subSkills") final Boolean subSkills)
+  {
+    skillRatingDao.hasLoggedInUserSelectAccess(true);
+    final UserGroupCache userGroupCache = Registry.instance().getUserGroupCache();
+    final List<UserObject> result = new ArrayList<UserObject>();
+    for (final Integer userId : skillRatingDao.getSkillMatrixIndex().getUserIds(SkillRatingDao.getSkillIds(skillIds),
+        getSkillRating(minRating), subSkills != Boolean.FALSE, matchAll == Boolean.TRUE)) {
+      final PFUserDO user = userGroupCache.getUser(userId);
+      if (user != null) {
+        result.add(PFUserDOConverter.getUserObject(user));
+      }
+    }
+    final String json = JsonUtils.toJson(result);
+    return Response.ok(json).build();
+  }
+
+  /**
+   * Rest-Call for {@link SkillMatrixIndex#getBestMatches(java.util.Collection, SkillRating, boolean, int)}.
+   * @param skillIds Coma separated list of skill ids.
+   * @param minRating Name of the required {@link SkillRating}, e. g. HIGH.
+   * @param maxResults Default is 50.
+   */
+  @GET
+  @Path("bestMatches")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getBestMatches( //
+      @QueryParam("skillIds") final String skillIds, //
+      @QueryParam("minRating") final String minRating, //
+      @QueryParam("subSkills") final Boolean subSkills, //
+      @QueryParam("maxResults") final Integer maxResults)
+  {
+    skillRatingDao.hasLoggedInUserSelectAccess(true);
+    final UserGroupCache userGroupCache = Registry.instance().getUserGroupCache();
+    final List<SkillMatchObject> result = new ArrayList<SkillMatchObject>();
+    final List<SkillMatch> matches = skillRatingDao.getSkillMatrixIndex().getBestMatches(SkillRatingDao.getSkillIds(skillIds),
+        getSkillRating(minRating), subSkills != Boolean.FALSE, maxResults != null ? maxResults : DEFAULT_MAX_RESULTS);
+    for (final SkillMatch match : matches) {
+      final PFUserDO user = userGroupCache.getUser(match.getUserId());
+      if (user == null) {
+        continue;
+      }
+      final SkillMatchObject obj = new SkillMatchObject();
+      obj.setUser(PFUserDOConverter.getUserObject(user));
+      obj.setNumberOfMatchedSkills(match.getNumberOfMatchedSkills());
+      obj.setScore(match.getScore());
+      result.add(obj);
+    }
+    final String json = JsonUtils.toJson(result);
+    return Response.ok(json).build();
+  }
+
+  private SkillRating getSkillRating(final String minRating)
+  {
+    if (StringUtils.isBlank(minRating) == true) {
+      return null;
+    }
+    try {
+      return SkillRating.valueOf(minRating.trim().toUpperCase());
+    } catch (final IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
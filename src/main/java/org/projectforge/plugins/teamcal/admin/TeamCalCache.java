@@ -23,6 +23,7 @@
 
 package org.projectforge.plugins.teamcal.admin;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -53,6 +54,11 @@ public class TeamCalCache extends AbstractCache
 
   private Map<Integer, TeamCalDO> calendarMap;
 
+  private TeamCalCache()
+  {
+    registerForInvalidation(TeamCalDO.class);
+  }
+
   public static TeamCalCache getInstance()
   {
     return instance;
@@ -116,6 +122,28 @@ public class TeamCalCache extends AbstractCache
     return set;
   }
 
+  /**
+   * Reloads only the modified calendar (copy on write).
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    final Map<Integer, TeamCalDO> current = calendarMap;
+    if (current == null || teamCalDao == null || id instanceof Integer == false) {
+      super.invalidate(entityClass, id);
+      return;
+    }
+    final TeamCalDO cal = teamCalDao.internalGetById(id);
+    final Map<Integer, TeamCalDO> map = new HashMap<Integer, TeamCalDO>(current);
+    if (cal == null) {
+      map.remove(id);
+    } else {
+      map.put(cal.getId(), cal);
+    }
+    this.calendarMap = map;
+  }
+
   /**
    * This method will be called by CacheHelper and is synchronized via getData();
    */
@@ -170,6 +170,17 @@ public class TeamEventDao extends BaseDao<TeamEventDO>
     event.setRecurrenceUntil(recurrenceUntil);
   }
 
+  /**
+   * Removes the pre-calculated occurrences of the modified or deleted event from the occurrence index.
+   * @see org.projectforge.core.BaseDao#afterSaveOrModify(org.projectforge.core.ExtendedBaseDO)
+   */
+  @Override
+  protected void afterSaveOrModify(final TeamEventDO event)
+  {
+    super.afterSaveOrModify(event);
+    TeamEventOccurrenceIndex.instance().invalidate(TeamEventDO.class, event.getId());
+  }
+
   /**
    * This method also returns recurrence events outside the time period of the given filter but affecting the time-period (e. g. older
    * recurrence events without end date or end date inside or after the given time period). If calculateRecurrenceEvents is true, only the
@@ -204,6 +215,7 @@ public class TeamEventDao extends BaseDao<TeamEventDO>
       list.addAll(recurrenceEvents);
     }
     final TimeZone timeZone = PFUserContext.getTimeZone();
+    final TeamEventOccurrenceIndex occurrenceIndex = TeamEventOccurrenceIndex.instance();
     if (list != null) {
       for (final TeamEventDO eventDO : list) {
         if (eventDO.hasRecurrence() == false) {
@@ -215,7 +227,7 @@ public class TeamEventDao extends BaseDao<TeamEventDO>
           result.add(eventDO);
           continue;
         }
-        final Collection<TeamEvent> events = TeamEventUtils.getRecurrenceEvents(teamEventFilter.getStartDate(),
+        final Collection<TeamEvent> events = occurrenceIndex.getRecurrenceEvents(teamEventFilter.getStartDate(),
             teamEventFilter.getEndDate(), eventDO, timeZone);
         if (events == null) {
           continue;
@@ -0,0 +1,280 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.teamcal.event;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.projectforge.core.CacheInvalidationBus;
+import org.projectforge.core.CacheInvalidationListener;
+
+/**
+ * Index of the pre-calculated occurrences of recurring team events. The occurrences of a recurring event are calculated (via ical4j) only
+ * once for a rolling time window (one year in the past up to two years in the future) and stored as sorted array of start times per
+ * calendar, event and time zone. Requests of calendar views within this time window are simple range lookups. <br/>
+ * An entry is re-calculated if the event was modified (start/end date, recurrence rule or recurrence exceptions), requests outside the
+ * time window are calculated directly by {@link TeamEventUtils#getRecurrenceEvents(Date, Date, TeamEventDO, TimeZone)}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class TeamEventOccurrenceIndex implements CacheInvalidationListener
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(TeamEventOccurrenceIndex.class);
+
+  private static final long ONE_DAY = 1000L * 60 * 60 * 24;
+
+  static final long WINDOW_PAST = 365 * ONE_DAY;
+
+  static final long WINDOW_FUTURE = 2 * 365 * ONE_DAY;
+
+  /**
+   * Maximum number of indexed events (per time zone). If exceeded, the whole index will be cleared.
+   */
+  private static final int MAX_SIZE = 100000;
+
+  private static final TeamEventOccurrenceIndex instance = new TeamEventOccurrenceIndex();
+
+  /**
+   * Key is the calendar id, the value is the map of occurrences by event id and time zone.
+   */
+  private final Map<Integer, Map<String, Occurrences>> calendarMap = new ConcurrentHashMap<Integer, Map<String, Occurrences>>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  public static TeamEventOccurrenceIndex instance()
+  {
+    return instance;
+  }
+
+  private TeamEventOccurrenceIndex()
+  {
+    CacheInvalidationBus.register(this, TeamEventDO.class);
+  }
+
+  /**
+   * Same result as {@link TeamEventUtils#getRecurrenceEvents(Date, Date, TeamEventDO, TimeZone)}, but the occurrences are taken from the
+   * index.
+   * @param startDate
+   * @param endDate
+   * @param event
+   * @param timeZone
+   * @return The occurrences (the event itself or {@link TeamRecurrenceEvent}s) with start date inside the given time period.
+   */
+  public Collection<TeamEvent> getRecurrenceEvents(final Date startDate, final Date endDate, final TeamEventDO event,
+      final TimeZone timeZone)
+  {
+    if (event.hasRecurrence() == false) {
+      return null;
+    }
+    if (startDate == null || endDate == null || event.getId() == null || event.getCalendarId() == null) {
+      return TeamEventUtils.getRecurrenceEvents(startDate, endDate, event, timeZone);
+    }
+    final String key = getKey(event.getId(), timeZone);
+    final String fingerprint = getFingerprint(event);
+    final Map<String, Occurrences> map = getOccurrencesMap(event.getCalendarId());
+    Occurrences occurrences = map.get(key);
+    if (occurrences == null
+        || occurrences.fingerprint.equals(fingerprint) == false
+        || occurrences.covers(startDate.getTime(), endDate.getTime()) == false) {
+      final long now = System.currentTimeMillis();
+      final long windowStart = now - WINDOW_PAST;
+      final long windowEnd = now + WINDOW_FUTURE;
+      if (startDate.getTime() < windowStart || endDate.getTime() > windowEnd) {
+        // Outside of the indexed time period:
+        return TeamEventUtils.getRecurrenceEvents(startDate, endDate, event, timeZone);
+      }
+      occurrences = calculateOccurrences(event, timeZone, fingerprint, windowStart, windowEnd);
+      if (map.put(key, occurrences) == null && size.incrementAndGet() > MAX_SIZE) {
+        log.info("Maximum size of team event occurrence index exceeded, clearing index.");
+        clear();
+      }
+    }
+    return occurrences.getEvents(startDate.getTime(), endDate.getTime(), event, timeZone);
+  }
+
+  /**
+   * Removes all entries of the given event.
+   * @see org.projectforge.core.CacheInvalidationListener#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    if (id == null) {
+      return;
+    }
+    final String prefix = id + "@";
+    for (final Map<String, Occurrences> map : calendarMap.values()) {
+      for (final Iterator<String> it = map.keySet().iterator(); it.hasNext() == true;) {
+        if (it.next().startsWith(prefix) == true) {
+          it.remove();
+          size.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes all entries of the given calendar (e. g. after an update of an external subscribed calendar).
+   * @param calendarId
+   */
+  public void invalidateCalendar(final Integer calendarId)
+  {
+    final Map<String, Occurrences> map = calendarMap.remove(calendarId);
+    if (map != null) {
+      size.addAndGet(-map.size());
+    }
+  }
+
+  public void clear()
+  {
+    calendarMap.clear();
+    size.set(0);
+  }
+
+  /**
+   * @return The number of indexed events.
+   */
+  public int getSize()
+  {
+    return size.get();
+  }
+
+  private Map<String, Occurrences> getOccurrencesMap(final Integer calendarId)
+  {
+    Map<String, Occurrences> map = calendarMap.get(calendarId);
+    if (map == null) {
+      synchronized (calendarMap) {
+        map = calendarMap.get(calendarId);
+        if (map == null) {
+          map = new ConcurrentHashMap<String, Occurrences>();
+          calendarMap.put(calendarId, map);
+        }
+      }
+    }
+    return map;
+  }
+
+  private Occurrences calculateOccurrences(final TeamEventDO event, final TimeZone timeZone, final String fingerprint,
+      final long windowStart, final long windowEnd)
+  {
+    final Collection<TeamEvent> events = TeamEventUtils.getRecurrenceEvents(new Date(windowStart), new Date(windowEnd), event, timeZone);
+    final long[] startTimes = new long[events != null ? events.size() : 0];
+    int masterIndex = -1;
+    if (events != null) {
+      int i = 0;
+      for (final TeamEvent ev : events) {
+        if (ev == event) {
+          masterIndex = i;
+        }
+        startTimes[i++] = ev.getStartDate().getTime();
+      }
+    }
+    return new Occurrences(fingerprint, windowStart, windowEnd, startTimes, masterIndex);
+  }
+
+  private static String getKey(final Integer eventId, final TimeZone timeZone)
+  {
+    return eventId + "@" + timeZone.getID();
+  }
+
+  /**
+   * @return All fields of the event the occurrences depend on.
+   */
+  private static String getFingerprint(final TeamEventDO event)
+  {
+    return new StringBuilder() //
+    .append(event.getStartDate() != null ? event.getStartDate().getTime() : 0).append("|") //
+    .append(event.getEndDate() != null ? event.getEndDate().getTime() : 0).append("|") //
+    .append(event.isAllDay()).append("|") //
+    .append(event.getRecurrenceRule()).append("|") //
+    .append(event.getRecurrenceExDate()).toString();
+  }
+
+  /**
+   * The pre-calculated occurrences of one event (immutable).
+   */
+  private static class Occurrences
+  {
+    final String fingerprint;
+
+    final long windowStart, windowEnd;
+
+    /**
+     * Sorted start times of the occurrences.
+     */
+    final long[] startTimes;
+
+    /**
+     * Index of the occurrence represented by the event itself or -1.
+     */
+    final int masterIndex;
+
+    Occurrences(final String fingerprint, final long windowStart, final long windowEnd, final long[] startTimes, final int masterIndex)
+    {
+      this.fingerprint = fingerprint;
+      this.windowStart = windowStart;
+      this.windowEnd = windowEnd;
+      this.startTimes = startTimes;
+      this.masterIndex = masterIndex;
+    }
+
+    boolean covers(final long startTime, final long endTime)
+    {
+      return windowStart <= startTime && endTime <= windowEnd;
+    }
+
+    List<TeamEvent> getEvents(final long startTime, final long endTime, final TeamEventDO event, final TimeZone timeZone)
+    {
+      int i = Arrays.binarySearch(startTimes, startTime);
+      if (i < 0) {
+        i = -i - 1;
+      } else {
+        while (i > 0 && startTimes[i - 1] == startTime) {
+          --i;
+        }
+      }
+      final List<TeamEvent> result = new ArrayList<TeamEvent>();
+      for (; i < startTimes.length && startTimes[i] <= endTime; i++) {
+        if (i == masterIndex) {
+          result.add(event);
+        } else {
+          final Calendar userCal = Calendar.getInstance(timeZone);
+          userCal.setTimeInMillis(startTimes[i]);
+          result.add(new TeamRecurrenceEvent(event, userCal));
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -33,7 +33,10 @@ import org.projectforge.plugins.teamcal.event.TeamEventDO;
 import org.projectforge.plugins.teamcal.event.TeamEventDao;
 
 /**
- * Own abstraction of a RangeMap. You can add TeamEvents and access them through their start and end date.
+ * Own abstraction of a RangeMap. You can add TeamEvents and access them through their start and end date.<br/>
+ * After sorting, the events are indexed as implicit interval tree: the sorted list is the in-order sequence of a balanced binary tree
+ * (the node of a sub range is the middle element) and every node holds the maximum end time of its sub tree. Range queries skip all
+ * sub trees ending before the requested period and all events starting after it.
  * 
  * @author Johannes Unterstein (j.unterstein@micromata.de)
  */
@@ -50,6 +53,16 @@ public class SubscriptionHolder implements Serializable
 
   private boolean sorted;
 
+  /**
+   * Start times of the sorted events.
+   */
+  private long[] startTimes;
+
+  /**
+   * Maximum end time of the sub tree with the given node (middle element of the sub range).
+   */
+  private long[] maxEndTimes;
+
   public SubscriptionHolder()
   {
     eventList = new ArrayList<TeamEventDO>();
@@ -89,9 +102,32 @@ public class SubscriptionHolder implements Serializable
       }
     };
     Collections.sort(eventList, comparator);
+    final int size = eventList.size();
+    startTimes = new long[size];
+    maxEndTimes = new long[size];
+    for (int i = 0; i < size; i++) {
+      final TeamEventDO teamEventDo = eventList.get(i);
+      startTimes[i] = getStartTime(teamEventDo);
+      maxEndTimes[i] = Math.max(startTimes[i], getEndTime(teamEventDo));
+    }
+    buildMaxEndTimes(0, size - 1);
     sorted = true;
   }
 
+  /**
+   * @return The maximum end time of the given sub range.
+   */
+  private long buildMaxEndTimes(final int lo, final int hi)
+  {
+    if (lo > hi) {
+      return Long.MIN_VALUE;
+    }
+    final int mid = (lo + hi) >>> 1;
+    final long maxEndTime = Math.max(maxEndTimes[mid], Math.max(buildMaxEndTimes(lo, mid - 1), buildMaxEndTimes(mid + 1, hi)));
+    maxEndTimes[mid] = maxEndTime;
+    return maxEndTime;
+  }
+
   public List<TeamEventDO> getResultList(final Long startTime, final Long endTime)
   {
     // sorting should by synchronized
@@ -101,20 +137,40 @@ public class SubscriptionHolder implements Serializable
       }
     }
     final List<TeamEventDO> result = new ArrayList<TeamEventDO>();
-    for (final TeamEventDO teamEventDo : eventList) {
-      // all our events are sorted, if we find a event which starts
-      // after the end date, we can break this iteration
-      if (teamEventDo.getStartDate().getTime() > endTime) {
-        break;
-      }
-      if (matches(teamEventDo, startTime, endTime) == true) {
-        result.add(teamEventDo);
-      }
-    }
+    // See matches(TeamEventDO, Long, Long) for the period extension:
+    query(0, eventList.size() - 1, startTime - ONE_DAY, startTime, endTime, result);
     // and return
     return result;
   }
 
+  /**
+   * In-order traversal of the given sub range, therefore the result list is sorted by start date.
+   * @param minEndTime Sub trees with events ending before this time are skipped.
+   */
+  private void query(final int lo, final int hi, final long minEndTime, final Long startTime, final Long endTime,
+      final List<TeamEventDO> result)
+  {
+    if (lo > hi) {
+      return;
+    }
+    final int mid = (lo + hi) >>> 1;
+    if (maxEndTimes[mid] < minEndTime) {
+      // No event of this sub tree ends inside the requested period.
+      return;
+    }
+    query(lo, mid - 1, minEndTime, startTime, endTime, result);
+    // all our events are sorted, if we find a event which starts
+    // after the end date, we can skip the right sub tree
+    if (startTimes[mid] > endTime) {
+      return;
+    }
+    final TeamEventDO teamEventDo = eventList.get(mid);
+    if (matches(teamEventDo, startTime, endTime) == true) {
+      result.add(teamEventDo);
+    }
+    query(mid + 1, hi, minEndTime, startTime, endTime, result);
+  }
+
   public int size()
   {
     return eventList.size();
@@ -134,8 +190,8 @@ public class SubscriptionHolder implements Serializable
     // // get events whose duration overlap with chosen duration.
     // (Restrictions.and(Restrictions.le("startDate", startDate), Restrictions.ge("endDate", endDate)))));
 
-    final Long eventStartTime = teamEventDo.getStartDate() != null ? teamEventDo.getStartDate().getTime() : TeamEventDao.MIN_DATE_1800;
-    final Long eventEndTime = teamEventDo.getEndDate() != null ? teamEventDo.getEndDate().getTime() : TeamEventDao.MAX_DATE_3000;
+    final Long eventStartTime = getStartTime(teamEventDo);
+    final Long eventEndTime = getEndTime(teamEventDo);
     if (between(eventStartTime, startTime, endTime) || between(eventEndTime, startTime, endTime)) {
       return true;
     }
@@ -145,6 +201,16 @@ public class SubscriptionHolder implements Serializable
     return false;
   }
 
+  private long getStartTime(final TeamEventDO teamEventDo)
+  {
+    return teamEventDo.getStartDate() != null ? teamEventDo.getStartDate().getTime() : TeamEventDao.MIN_DATE_1800;
+  }
+
+  private long getEndTime(final TeamEventDO teamEventDo)
+  {
+    return teamEventDo.getEndDate() != null ? teamEventDo.getEndDate().getTime() : TeamEventDao.MAX_DATE_3000;
+  }
+
   private boolean between(final Long searchTime, final Long startTime, final Long endTime)
   {
     return searchTime >= startTime && searchTime <= endTime;
@@ -25,10 +25,16 @@ package org.projectforge.plugins.teamcal.externalsubscription;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hibernate.criterion.Restrictions;
 import org.projectforge.core.QueryFilter;
@@ -38,19 +44,39 @@ import org.projectforge.plugins.teamcal.event.TeamEventDO;
 import org.projectforge.plugins.teamcal.event.TeamEventFilter;
 
 /**
+ * Holds all subscribed external calendars. The subscriptions are refreshed in parallel (see {@link #PARALLEL_UPDATES}).
  * @author Johannes Unterstein (j.unterstein@micromata.de)
  */
 public class TeamEventExternalSubscriptionCache
 {
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(TeamEventExternalSubscriptionCache.class);
+
   private static final TeamEventExternalSubscriptionCache instance = new TeamEventExternalSubscriptionCache();
 
+  /**
+   * Maximum number of subscriptions refreshed simultaneously.
+   */
+  static final int PARALLEL_UPDATES = 4;
+
+  private static final ExecutorService updateExecutor = Executors.newFixedThreadPool(PARALLEL_UPDATES, new ThreadFactory() {
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "calendar-subscription-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
   private final Map<Integer, TeamEventSubscription> subscriptions;
 
   private static final Long SUBSCRIPTION_UPDATE_TIME = 5L * 60 * 1000; // 5 min
 
   private TeamEventExternalSubscriptionCache()
   {
-    subscriptions = new HashMap<Integer, TeamEventSubscription>();
+    subscriptions = new ConcurrentHashMap<Integer, TeamEventSubscription>();
   }
 
   public static TeamEventExternalSubscriptionCache instance()
@@ -65,8 +91,26 @@ public class TeamEventExternalSubscriptionCache
     // internalGetList is valid at this point, because we are calling this method in an asyn thread
     final List<TeamCalDO> subscribedCalendars = dao.internalGetList(filter);
 
+    final List<Future< ? >> futures = new ArrayList<Future< ? >>(subscribedCalendars.size());
     for (final TeamCalDO calendar : subscribedCalendars) {
-      updateCache(dao, calendar);
+      futures.add(updateExecutor.submit(new Runnable() {
+        @Override
+        public void run()
+        {
+          updateCache(dao, calendar);
+        }
+      }));
+    }
+    for (final Future< ? > future : futures) {
+      try {
+        future.get();
+      } catch (final InterruptedException ex) {
+        log.warn("Update of subscribed calendars interrupted.");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (final ExecutionException ex) {
+        log.error("Error while updating subscribed calendar: " + ex.getCause().getMessage(), ex.getCause());
+      }
     }
 
     final List<Integer> idsToRemove = new ArrayList<Integer>();
@@ -117,11 +161,8 @@ public class TeamEventExternalSubscriptionCache
       final TeamEventSubscription teamEventSubscription = new TeamEventSubscription(dao, calendar);
       subscriptions.put(calendar.getId(), teamEventSubscription);
     } else if (force == true || compareSubscription.getLastUpdated() == null || compareSubscription.getLastUpdated() + addedTime <= now) {
-      // update the calendar
-      // we update the cache softly, therefore we create a new instance and replace the old instance in the cached map then
-      // creation and update is therefore the same two lines of code, but semantically different things
-      final TeamEventSubscription teamEventSubscription = new TeamEventSubscription(dao, calendar);
-      subscriptions.put(calendar.getId(), teamEventSubscription);
+      // update the calendar (conditional request, the events are replaced softly by the subscription)
+      compareSubscription.update(calendar);
     }
   }
 
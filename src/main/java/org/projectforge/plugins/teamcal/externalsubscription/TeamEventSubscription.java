@@ -38,6 +38,7 @@ import net.fortuna.ical4j.model.Component;
 import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.VEvent;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.GetMethod;
@@ -46,10 +47,13 @@ import org.apache.commons.lang.StringUtils;
 import org.projectforge.plugins.teamcal.admin.TeamCalDO;
 import org.projectforge.plugins.teamcal.admin.TeamCalDao;
 import org.projectforge.plugins.teamcal.event.TeamEventDO;
+import org.projectforge.plugins.teamcal.event.TeamEventOccurrenceIndex;
 import org.projectforge.plugins.teamcal.event.TeamEventUtils;
 import org.projectforge.web.calendar.CalendarFeed;
 
 /**
+ * A subscribed external calendar. The calendar is refreshed by {@link #update(TeamCalDO)} via conditional http requests (ETag and
+ * Last-Modified of the last response): unmodified calendars (http status 304 or same MD5 hash) aren't parsed again.
  * @author Johannes Unterstein (j.unterstein@micromata.de)
  */
 public class TeamEventSubscription implements Serializable
@@ -60,9 +64,9 @@ public class TeamEventSubscription implements Serializable
 
   private final Integer teamCalId;
 
-  private final SubscriptionHolder eventDurationAccess;
+  private volatile SubscriptionHolder eventDurationAccess;
 
-  private final List<TeamEventDO> recurrenceEvents;
+  private volatile List<TeamEventDO> recurrenceEvents;
 
   private final TeamCalDao teamCalDao;
 
@@ -70,10 +74,24 @@ public class TeamEventSubscription implements Serializable
 
   private Long lastUpdated;
 
+  private String subscriptionUrl;
+
+  /**
+   * ETag of the last response used for conditional requests.
+   */
+  private String eTag;
+
+  /**
+   * Last-Modified of the last response used for conditional requests.
+   */
+  private String lastModified;
+
   private final HttpClient client;
 
   private static final Long TIME_IN_THE_PAST = 60L * 24 * 60 * 60 * 1000; // 60 days in millis in the past to subscribe
 
+  private static final int CONNECTION_TIMEOUT = 30 * 1000; // 30 seconds
+
   public TeamEventSubscription(final TeamCalDao teamCalDao, final TeamCalDO teamCalDo)
   {
     this.teamCalDao = teamCalDao;
@@ -83,10 +101,17 @@ public class TeamEventSubscription implements Serializable
     currentInitializedHash = null;
     lastUpdated = null;
     client = new HttpClient();
-    init(teamCalDo);
+    client.getHttpConnectionManager().getParams().setConnectionTimeout(CONNECTION_TIMEOUT);
+    client.getHttpConnectionManager().getParams().setSoTimeout(CONNECTION_TIMEOUT);
+    update(teamCalDo);
   }
 
-  private void init(final TeamCalDO teamCalDo)
+  /**
+   * Gets the calendar from the subscription url and re-initializes the events if the calendar was modified. The events are replaced
+   * softly, so concurrent readers see the old or the new events.
+   * @param teamCalDo
+   */
+  public synchronized void update(final TeamCalDO teamCalDo)
   {
     String url = teamCalDo.getExternalSubscriptionUrl();
     if (teamCalDo.isExternalSubscription() == false || StringUtils.isEmpty(url) == true) {
@@ -94,6 +119,13 @@ public class TeamEventSubscription implements Serializable
       return;
     }
     url = StringUtils.replace(url, "webcal", "http");
+    if (StringUtils.equals(url, subscriptionUrl) == false) {
+      // New or modified subscription url:
+      subscriptionUrl = url;
+      currentInitializedHash = null;
+      eTag = null;
+      lastModified = null;
+    }
     // Shorten the url or avoiding logging of user credentials as part of the url
     final StringBuffer buf = new StringBuffer();
     boolean dotRead = false;
@@ -119,8 +151,34 @@ public class TeamEventSubscription implements Serializable
 
       // Create a method instance.
       final GetMethod method = new GetMethod(url);
+      if (currentInitializedHash != null) {
+        // Already initialized, so ask only for modifications:
+        if (eTag != null) {
+          method.setRequestHeader("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+          method.setRequestHeader("If-Modified-Since", lastModified);
+        }
+      }
 
-      final int statusCode = client.executeMethod(method);
+      final int statusCode;
+      try {
+        statusCode = client.executeMethod(method);
+        if (statusCode == HttpStatus.SC_NOT_MODIFIED && currentInitializedHash != null) {
+          lastUpdated = System.currentTimeMillis();
+          log.info("No modification of subscribed calendar #" + teamCalDo.getId() + " found from: " + displayUrl + " (http status 304).");
+          return;
+        }
+        if (statusCode == HttpStatus.SC_OK) {
+          // Read the response body.
+          final InputStream stream = method.getResponseBodyAsStream();
+          bytes = IOUtils.toByteArray(stream);
+          eTag = getResponseHeader(method, "ETag");
+          lastModified = getResponseHeader(method, "Last-Modified");
+        }
+      } finally {
+        method.releaseConnection();
+      }
 
       if (statusCode != HttpStatus.SC_OK) {
         log.error("Unable to gather subscription calendar #"
@@ -133,11 +191,6 @@ public class TeamEventSubscription implements Serializable
       }
 
       final MessageDigest md = MessageDigest.getInstance("MD5");
-
-      // Read the response body.
-      final InputStream stream = method.getResponseBodyAsStream();
-      bytes = IOUtils.toByteArray(stream);
-
       final String md5 = calcHexHash(md.digest(bytes));
       if (StringUtils.equals(md5, teamCalDo.getExternalSubscriptionHash()) == false) {
         teamCalDo.setExternalSubscriptionHash(md5);
@@ -160,6 +213,7 @@ public class TeamEventSubscription implements Serializable
     }
     if (currentInitializedHash != null && StringUtils.equals(currentInitializedHash, teamCalDo.getExternalSubscriptionHash()) == true) {
       // nothing to do here if the hashes are equal
+      lastUpdated = System.currentTimeMillis();
       log.info("No modification of subscribed calendar #" + teamCalDo.getId() + " found from: " + displayUrl + " (OK, nothing to be done).");
       return;
     }
@@ -181,9 +235,8 @@ public class TeamEventSubscription implements Serializable
         }
         vEvents.add(event);
       }
-      // clear
-      eventDurationAccess.clear();
-      recurrenceEvents.clear();
+      final SubscriptionHolder newEventDurationAccess = new SubscriptionHolder();
+      final List<TeamEventDO> newRecurrenceEvents = new ArrayList<TeamEventDO>();
 
       // the event id must (!) be negative and decrementing (different on each event)
       Integer startId = -1;
@@ -194,15 +247,20 @@ public class TeamEventSubscription implements Serializable
 
         if (teamEvent.hasRecurrence() == true) {
           // special treatment for recurrence events ..
-          recurrenceEvents.add(teamEvent);
+          newRecurrenceEvents.add(teamEvent);
         } else {
-          eventDurationAccess.add(teamEvent);
+          newEventDurationAccess.add(teamEvent);
         }
 
         startId--;
       }
+      // Build the index before publishing:
+      newEventDurationAccess.sort();
+      eventDurationAccess = newEventDurationAccess;
+      recurrenceEvents = newRecurrenceEvents;
       lastUpdated = System.currentTimeMillis();
       currentInitializedHash = teamCalDo.getExternalSubscriptionHash();
+      TeamEventOccurrenceIndex.instance().invalidateCalendar(teamCalDo.getId());
       log.info("Subscribed calendar #" + teamCalDo.getId() + " successfully received from: " + displayUrl);
     } catch (final Exception e) {
       log.error("Unable to instantiate team event list for calendar #"
@@ -214,6 +272,12 @@ public class TeamEventSubscription implements Serializable
     }
   }
 
+  private String getResponseHeader(final GetMethod method, final String name)
+  {
+    final Header header = method.getResponseHeader(name);
+    return header != null ? header.getValue() : null;
+  }
+
   /**
    * calculates hexadecimal representation of
    * @param md5
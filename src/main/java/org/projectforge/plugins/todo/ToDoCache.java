@@ -23,54 +23,56 @@
 
 package org.projectforge.plugins.todo;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.log4j.Logger;
 import org.projectforge.common.AbstractCache;
+import org.projectforge.common.AbstractCounterCache;
 
 /**
- * The number of open to-do entries is cached. Accessible via ToDoDao.
+ * The number of open (recent) to-do entries per assignee is cached. Accessible via ToDoDao. The counters are maintained incrementally by
+ * ToDoDao after any modification and reconciled every 30 minutes.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
-public class ToDoCache extends AbstractCache
+public class ToDoCache extends AbstractCounterCache
 {
-  private static Logger log = Logger.getLogger(ToDoCache.class);
+  private final ToDoDao toDoDao;
 
-  /** The key is the user id and the value is the number of open to-do entries. */
-  private Map<Integer, Integer> openEntriesMap;
+  public ToDoCache(final ToDoDao toDoDao)
+  {
+    super(30 * AbstractCache.TICKS_PER_MINUTE);
+    this.toDoDao = toDoDao;
+    registerForInvalidation(ToDoDO.class);
+  }
 
-  private ToDoDao toDoDao;
+  int getOpenToDoEntries(final Integer userId)
+  {
+    return getCounter(userId);
+  }
 
   /**
-   * Refreshes every 30 minutes. After any modifications via MebDao this cache will be refreshed.
+   * Should be called after any modification of the given to-do.
+   * @param toDo
    */
-  public ToDoCache(final ToDoDao toDoDao)
+  void update(final ToDoDO toDo)
   {
-    super(30 * TICKS_PER_MINUTE);
-    this.toDoDao = toDoDao;
+    update(toDo.getId(), isCounted(toDo) == true ? toDo.getAssigneeId() : null);
   }
 
-  int getOpenToDoEntries(final Integer userId)
+  /**
+   * @param toDo
+   * @return true if the to-do is recent and not deleted.
+   */
+  static boolean isCounted(final ToDoDO toDo)
   {
-    checkRefresh();
-    final Integer result = openEntriesMap.get(userId);
-    if (result != null) {
-      return result;
-    }
-    final int counter = toDoDao.internalGetOpenEntries(userId);
-    synchronized (openEntriesMap) {
-      openEntriesMap.put(userId, counter);
-    }
-    return counter;
+    return toDo.isRecent() == true && toDo.isDeleted() == false;
   }
 
   /**
-   * This method will be called by CacheHelper and is synchronized via getData();
+   * @see org.projectforge.common.AbstractCounterCache#loadCountedEntities()
    */
-  protected void refresh()
+  @Override
+  protected Map<Integer, Integer> loadCountedEntities()
   {
-    log.info("Clearing cache with open to-do entries.");
-    openEntriesMap = new HashMap<Integer, Integer>();
+    return toDoDao.internalGetOpenEntries();
   }
 }
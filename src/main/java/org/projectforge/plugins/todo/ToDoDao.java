@@ -252,7 +252,13 @@ public class ToDoDao extends BaseDao<ToDoDO>
   @Override
   protected void afterSaveOrModify(final ToDoDO obj)
   {
-    toDoCache.setExpired(); // Force reload of the menu item counters for open to-do entrie.
+    toDoCache.update(obj); // Update the menu item counters for open to-do entries.
+  }
+
+  @Override
+  protected void afterDelete(final ToDoDO obj)
+  {
+    toDoCache.update(obj.getId(), null);
   }
 
   public void setAssignee(final ToDoDO todo, final Integer userId)
@@ -286,7 +292,7 @@ public class ToDoDao extends BaseDao<ToDoDO>
 
   /**
    * Get the number of open to-do entries for the given user. Entries are open (in this context) when they're not deleted or closed. <br/>
-   * The result is cached (therefore you can call this method very often).
+   * The result is cached and lock-free (therefore you can call this method very often, e. g. on every page render).
    * @param userId If null then the current logged in user is assumed.
    * @return Number of open to-do entries.
    */
@@ -299,23 +305,20 @@ public class ToDoDao extends BaseDao<ToDoDO>
   }
 
   /**
-   * Called by ToDoCache to get the number of open entries for the given users.
-   * @param userId
-   * @return Number of open to-do entries.
+   * Called by ToDoCache (asynchronously) to get all open entries of all users.
+   * @return Map with the id of every open to-do entry as key and the assignee id as value.
    */
-  int internalGetOpenEntries(final Integer userId)
+  Map<Integer, Integer> internalGetOpenEntries()
   {
     final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
-    try {
-      return jdbc.queryForInt("SELECT COUNT(*) FROM "
-          + table.getName()
-          + " where assignee_fk="
-          + userId
-          + " and recent=true and deleted=false");
-    } catch (final Exception ex) {
-      log.error(ex.getMessage(), ex);
-      return 0;
+    final List<Map<String, Object>> rows = jdbc.queryForList("SELECT pk, assignee_fk FROM "
+        + table.getName()
+        + " where assignee_fk is not null and recent=true and deleted=false");
+    final Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+    for (final Map<String, Object> row : rows) {
+      result.put(((Number) row.get("pk")).intValue(), ((Number) row.get("assignee_fk")).intValue());
     }
+    return result;
   }
 
   @Override
@@ -142,6 +142,20 @@ public class Registry
     return orderedList;
   }
 
+  /**
+   * @param dao
+   * @return The entry of the given dao instance or null if the dao isn't registered.
+   */
+  public RegistryEntry getEntryByDao(final BaseDao< ? > dao)
+  {
+    for (final RegistryEntry entry : orderedList) {
+      if (entry.getDao() == dao) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
   public BaseDao< ? > getDao(final String id)
   {
     final RegistryEntry entry = getEntry(id);
@@ -0,0 +1,298 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.renderer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.PerformanceMetrics;
+
+/**
+ * Renders charts (JFreeChart, Gantt diagrams etc.) and caches the rendered images. The cache is content-keyed: the key consists of the
+ * chart category, the version of the chart data (e. g. a hash code of all values the chart depends on), the size and the image type. So
+ * the rendered images never have to be invalidated, modified data results in a new key. The cache is bounded by the total size of the
+ * images, the least recently used images are evicted first. <br/>
+ * The render durations are recorded per category as timer "chart.render.&lt;category&gt;" (histogram), the cache usage as counters
+ * "chart.cache.*" (see {@link PerformanceMetrics}).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ */
+public class ChartRenderService
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(ChartRenderService.class);
+
+  /**
+   * Default of the maximum total size of all cached images: 16 MB.
+   */
+  public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+  private static final int MAX_QUEUED_PRERENDER_TASKS = 100;
+
+  private static final ChartRenderService instance = new ChartRenderService();
+
+  public static ChartRenderService getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Renders the image of a chart.
+   */
+  public interface Renderer
+  {
+    public byte[] render();
+  }
+
+  private final Map<String, byte[]> cache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+  private final ConcurrentHashMap<String, FutureTask<byte[]>> inProgress = new ConcurrentHashMap<String, FutureTask<byte[]>>();
+
+  private long maxSize = DEFAULT_MAX_SIZE;
+
+  private long size;
+
+  private final MetricCounter hitCounter, missCounter, evictionCounter, prerenderCounter;
+
+  private ThreadPoolExecutor prerenderExecutor;
+
+  ChartRenderService()
+  {
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    hitCounter = metrics.getCounter("chart.cache.hits");
+    missCounter = metrics.getCounter("chart.cache.misses");
+    evictionCounter = metrics.getCounter("chart.cache.evictions");
+    prerenderCounter = metrics.getCounter("chart.cache.prerendered");
+  }
+
+  /**
+   * Returns the cached image or renders and caches it. Concurrent requests of the same image (e. g. a page view during the pre-rendering)
+   * wait for the rendering in progress instead of rendering the image twice.
+   * @param category The kind of chart, e. g. "timesheetDiscipline" or "gantt" (used as part of the cache key and for the render timer).
+   * @param dataVersion The version of the chart data. If null, the image is rendered without caching.
+   * @param width
+   * @param height
+   * @param imageType The image type, e. g. "PNG".
+   * @param renderer
+   * @return The rendered image.
+   */
+  public byte[] render(final String category, final String dataVersion, final int width, final int height, final String imageType,
+      final Renderer renderer)
+  {
+    if (dataVersion == null) {
+      return render(category, renderer);
+    }
+    final String key = getKey(category, dataVersion, width, height, imageType);
+    byte[] result = get(key);
+    if (result != null) {
+      hitCounter.increment();
+      return result;
+    }
+    final FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+      @Override
+      public byte[] call()
+      {
+        return render(category, renderer);
+      }
+    });
+    final FutureTask<byte[]> running = inProgress.putIfAbsent(key, task);
+    if (running != null) {
+      hitCounter.increment();
+      return getResult(running);
+    }
+    missCounter.increment();
+    try {
+      task.run();
+      result = getResult(task);
+      // Cache the image before removing the task, otherwise a concurrent request may find neither and render the image again:
+      put(key, result);
+    } finally {
+      inProgress.remove(key);
+    }
+    return result;
+  }
+
+  private byte[] getResult(final FutureTask<byte[]> task)
+  {
+    try {
+      return task.get();
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(ex);
+    } catch (final ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  /**
+   * Executes the given task in the background, e. g. for rendering the charts of the personal dashboard after the login. The task should
+   * call {@link #render(String, String, int, int, String, Renderer)}, so the rendered images are cached when the user requests them. If too
+   * many tasks are already queued, the given task is discarded.
+   * @param task
+   */
+  public void prerender(final Runnable task)
+  {
+    try {
+      getPrerenderExecutor().execute(new Runnable() {
+        @Override
+        public void run()
+        {
+          try {
+            task.run();
+            prerenderCounter.increment();
+          } catch (final Exception ex) {
+            log.warn("Exception encountered while pre-rendering charts: " + ex.getMessage(), ex);
+          }
+        }
+      });
+    } catch (final RejectedExecutionException ex) {
+      log.info("Too many charts to pre-render, task discarded.");
+    }
+  }
+
+  /**
+   * @param maxSize The maximum total size of all cached images in bytes.
+   */
+  public void setMaxSize(final long maxSize)
+  {
+    synchronized (cache) {
+      this.maxSize = maxSize;
+      evict();
+    }
+  }
+
+  /**
+   * @return The total size of all cached images in bytes.
+   */
+  public long getSize()
+  {
+    synchronized (cache) {
+      return size;
+    }
+  }
+
+  public int getNumberOfCachedImages()
+  {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public void clear()
+  {
+    synchronized (cache) {
+      cache.clear();
+      size = 0;
+    }
+  }
+
+  static String getKey(final String category, final String dataVersion, final int width, final int height, final String imageType)
+  {
+    return category + ":" + dataVersion + ":" + width + "x" + height + ":" + imageType;
+  }
+
+  private byte[] render(final String category, final Renderer renderer)
+  {
+    final long start = System.nanoTime();
+    try {
+      return renderer.render();
+    } finally {
+      PerformanceMetrics.getInstance().getTimer("chart.render." + category).stop(start);
+    }
+  }
+
+  private byte[] get(final String key)
+  {
+    synchronized (cache) {
+      return cache.get(key);
+    }
+  }
+
+  private void put(final String key, final byte[] image)
+  {
+    if (image == null) {
+      return;
+    }
+    synchronized (cache) {
+      if (image.length > maxSize / 4) {
+        // Don't displace many images by a single huge one.
+        log.info("Rendered image '" + key + "' is too large for caching: " + image.length + " bytes.");
+        return;
+      }
+      final byte[] old = cache.put(key, image);
+      if (old != null) {
+        size -= old.length;
+      }
+      size += image.length;
+      evict();
+    }
+  }
+
+  /**
+   * Removes the least recently used images until the total size doesn't exceed the maximum size. Must be called inside the lock.
+   */
+  private void evict()
+  {
+    final Iterator<byte[]> it = cache.values().iterator();
+    while (size > maxSize && it.hasNext() == true) {
+      size -= it.next().length;
+      it.remove();
+      evictionCounter.increment();
+    }
+  }
+
+  private synchronized ThreadPoolExecutor getPrerenderExecutor()
+  {
+    if (prerenderExecutor == null) {
+      final AtomicInteger threadCounter = new AtomicInteger();
+      prerenderExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(MAX_QUEUED_PRERENDER_TASKS),
+          new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+          final Thread thread = new Thread(runnable, "chart-prerender-" + threadCounter.incrementAndGet());
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        }
+      });
+      prerenderExecutor.allowCoreThreadTimeOut(true);
+    }
+    return prerenderExecutor;
+  }
+}
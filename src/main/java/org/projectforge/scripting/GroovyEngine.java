@@ -121,12 +121,23 @@ public class GroovyEngine
   }
 
   /**
+   * The template with resolved includes is cached (see {@link GroovyScriptCache}), so modifications of included files are visible after
+   * clearing the cache (e. g. on re-reading the configuration).
    * @param template
    * @see GroovyExecutor#executeTemplate(String, Map)
    */
   public String executeTemplate(final String template)
   {
-    final String content = replaceIncludes(template).replaceAll("#HURZ1#", "\\\\").replaceAll("#HURZ2#", "\\$"); // see replaceIncludes
+    if (template == null) {
+      return groovyExecutor.executeTemplate(null, variables);
+    }
+    final GroovyScriptCache cache = GroovyScriptCache.getInstance();
+    final String key = GroovyScriptCache.getKey(template);
+    String content = cache.getTemplateSource(key);
+    if (content == null) {
+      content = replaceIncludes(template).replaceAll("#HURZ1#", "\\\\").replaceAll("#HURZ2#", "\\$"); // see replaceIncludes
+      cache.putTemplateSource(key, content);
+    }
     return groovyExecutor.executeTemplate(content, variables);
   }
 
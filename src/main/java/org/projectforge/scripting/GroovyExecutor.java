@@ -35,13 +35,38 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.projectforge.access.AccessException;
+import org.projectforge.core.ConfigXml;
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.MetricTimer;
+import org.projectforge.core.PerformanceMetrics;
+import org.projectforge.user.PFUserContext;
+import org.projectforge.user.PFUserDO;
+import org.springframework.orm.hibernate3.SessionFactoryUtils;
+import org.springframework.orm.hibernate3.SessionHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
- * Executes groovy templates. For more functionality please refer GroovyEngine.
+ * Executes groovy templates. For more functionality please refer GroovyEngine.<br/>
+ * Compiled scripts and templates are cached by content (see {@link GroovyScriptCache}). Scripts of the users may be executed with a time-out
+ * in a dedicated thread pool (see {@link #executeWithTimeout(GroovyResult, String, Map)}).
  * @author Kai Reinhard (k.reinhard@micromata.de)
  * 
  */
@@ -49,6 +74,40 @@ public class GroovyExecutor
 {
   private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(GroovyExecutor.class);
 
+  private static final int MAX_CONCURRENT_SCRIPTS = 4;
+
+  /**
+   * Maximum number of timed-out scripts still running (ignoring the interrupt). If reached, no further script will be executed.
+   */
+  private static final int MAX_ABANDONED_SCRIPTS = 8;
+
+  /**
+   * Maximum time a request waits for a free script slot. The script's time-out isn't used for this, so a request thread isn't blocked for
+   * minutes if all slots are occupied by long running scripts.
+   */
+  private static final long MAX_PERMIT_WAIT_MILLIS = 1000;
+
+  private static final Semaphore scriptPermits = new Semaphore(MAX_CONCURRENT_SCRIPTS);
+
+  private static final AtomicInteger abandonedScripts = new AtomicInteger();
+
+  private static ThreadPoolExecutor scriptExecutor;
+
+  private static final MetricCounter timeoutCounter = PerformanceMetrics.getInstance().getCounter("groovy.script.timeouts");
+
+  private static final MetricCounter rejectionCounter = PerformanceMetrics.getInstance().getCounter("groovy.script.rejected");
+
+  private static final MetricTimer executionTimer = PerformanceMetrics.getInstance().getTimer("groovy.script.execute");
+
+  private final GroovyScriptCache cache = GroovyScriptCache.getInstance();
+
+  private SessionFactory sessionFactory;
+
+  public void setSessionFactory(final SessionFactory sessionFactory)
+  {
+    this.sessionFactory = sessionFactory;
+  }
+
   public GroovyResult execute(final String script, final Map<String, Object> variables)
   {
     if (script == null) {
@@ -86,7 +145,14 @@ public class GroovyExecutor
       return null;
     }
     try {
-      final Template templateObject = templateEngine.createTemplate(template);
+      final String key = templateEngine.getClass().getName() + ":" + GroovyScriptCache.getKey(template);
+      Template templateObject = cache.getTemplate(key);
+      if (templateObject == null) {
+        final long start = System.nanoTime();
+        templateObject = templateEngine.createTemplate(template);
+        cache.registerCompilation(start);
+        cache.putTemplate(key, templateObject);
+      }
       final Writable writable = templateObject.make(variables);
       final StringWriter writer = new StringWriter();
       writable.writeTo(writer);
@@ -125,20 +191,32 @@ public class GroovyExecutor
   public Script compileGroovy(final GroovyResult result, final String script, final boolean bindScriptResult)
   {
     securityChecks(script);
-    final GroovyClassLoader gcl = new GroovyClassLoader();
-    Class< ? > groovyClass = null;
-    try {
-      groovyClass = gcl.parseClass(script);
-    } catch (final CompilationFailedException ex) {
-      log.info("Groovy-CompilationFailedException: " + ex.getMessage());
-      if (result != null) {
-        result.setException(ex);
+    final String key = GroovyScriptCache.getKey(script);
+    Class< ? extends Script> groovyClass = cache.getScriptClass(key);
+    if (groovyClass == null) {
+      final long start = System.nanoTime();
+      final GroovyClassLoader gcl = new GroovyClassLoader();
+      try {
+        groovyClass = gcl.parseClass(script).asSubclass(Script.class);
+      } catch (final CompilationFailedException ex) {
+        log.info("Groovy-CompilationFailedException: " + ex.getMessage());
+        if (result != null) {
+          result.setException(ex);
+        }
+        return null;
+      } catch (final ClassCastException ex) {
+        log.info("Groovy-Script expected: " + ex.getMessage());
+        if (result != null) {
+          result.setException(ex);
+        }
+        return null;
       }
-      return null;
+      cache.registerCompilation(start);
+      cache.putScriptClass(key, groovyClass);
     }
     Script groovyObject = null;
     try {
-      groovyObject = (Script) groovyClass.newInstance();
+      groovyObject = groovyClass.newInstance();
     } catch (final InstantiationException ex) {
       log.error(ex.getMessage(), ex);
       if (result != null) {
@@ -160,6 +238,166 @@ public class GroovyExecutor
     return groovyObject;
   }
 
+  /**
+   * Compiles the given script in the caller's thread and executes it in a dedicated thread pool. If the execution exceeds the configured
+   * time-out the result contains a {@link TimeoutException} and the script thread will be interrupted and abandoned: its slot is given to
+   * the next script, so scripts ignoring the interrupt can't block the pool. If too many abandoned scripts are still running, further
+   * scripts are rejected until they're finished. The context user and a Hibernate session (open session in view) are bound to the script
+   * thread.
+   * @param result
+   * @param script
+   * @param variables
+   * @see ConfigXml#getScriptExecutionTimeout()
+   */
+  public GroovyResult executeWithTimeout(final GroovyResult result, final String script, final Map<String, Object> variables)
+  {
+    final int timeout = ConfigXml.isInitialized() == true ? ConfigXml.getInstance().getScriptExecutionTimeout() : 0;
+    if (timeout <= 0) {
+      return execute(result, script, variables);
+    }
+    return executeWithTimeout(result, script, variables, timeout * 1000L);
+  }
+
+  GroovyResult executeWithTimeout(final GroovyResult result, final String script, final Map<String, Object> variables,
+      final long timeoutMillis)
+  {
+    if (script == null) {
+      return result;
+    }
+    final Script groovyObject = compileGroovy(result, script, true);
+    if (groovyObject == null) {
+      return result;
+    }
+    if (abandonedScripts.get() >= MAX_ABANDONED_SCRIPTS) {
+      log.error("Too many timed-out groovy scripts are still running (" + abandonedScripts.get() + "), execution rejected.");
+      return reject();
+    }
+    try {
+      if (scriptPermits.tryAcquire(Math.min(timeoutMillis, MAX_PERMIT_WAIT_MILLIS), TimeUnit.MILLISECONDS) == false) {
+        log.warn("Too many concurrent groovy scripts (busy), execution rejected.");
+        return reject();
+      }
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return new GroovyResult(ex);
+    }
+    final PFUserDO user = PFUserContext.getUser();
+    // State of the script: 0 - running, 1 - finished, 2 - abandoned (timed out).
+    final AtomicInteger state = new AtomicInteger();
+    final Future<GroovyResult> future;
+    try {
+      future = getScriptExecutor().submit(new Callable<GroovyResult>() {
+        @Override
+        public GroovyResult call() throws Exception
+        {
+          PFUserContext.setUser(user);
+          final boolean sessionBound = bindSession();
+          try {
+            return execute(result, groovyObject, variables);
+          } finally {
+            if (sessionBound == true) {
+              unbindSession();
+            }
+            PFUserContext.setUser(null);
+            if (state.compareAndSet(0, 1) == true) {
+              scriptPermits.release();
+            } else {
+              log.info("Abandoned groovy script finished.");
+              abandonedScripts.decrementAndGet();
+            }
+          }
+        }
+      });
+    } catch (final RejectedExecutionException ex) {
+      scriptPermits.release();
+      log.warn("Too many concurrent groovy scripts, execution rejected.");
+      return reject();
+    }
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException ex) {
+      log.error("Execution of groovy script exceeded time-out of " + timeoutMillis + "ms, interrupting and abandoning script.");
+      timeoutCounter.increment();
+      abandon(future, state);
+      return new GroovyResult(ex);
+    } catch (final InterruptedException ex) {
+      abandon(future, state);
+      Thread.currentThread().interrupt();
+      return new GroovyResult(ex);
+    } catch (final ExecutionException ex) {
+      log.info("Groovy-Execution-Exception: " + ex.getMessage(), ex);
+      return new GroovyResult(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+    }
+  }
+
+  /**
+   * Releases the slot of the given script for the next script and interrupts it.
+   */
+  private void abandon(final Future<GroovyResult> future, final AtomicInteger state)
+  {
+    abandonedScripts.incrementAndGet();
+    if (state.compareAndSet(0, 2) == true) {
+      scriptPermits.release();
+    } else {
+      // Script finished in the meantime.
+      abandonedScripts.decrementAndGet();
+    }
+    future.cancel(true);
+  }
+
+  private GroovyResult reject()
+  {
+    rejectionCounter.increment();
+    return new GroovyResult(new RejectedExecutionException(
+        "Script execution is busy (too many concurrent groovy scripts), please try again later."));
+  }
+
+  /**
+   * @return The number of timed-out scripts which are still running.
+   */
+  public static int getNumberOfAbandonedScripts()
+  {
+    return abandonedScripts.get();
+  }
+
+  private boolean bindSession()
+  {
+    if (sessionFactory == null || TransactionSynchronizationManager.hasResource(sessionFactory) == true) {
+      return false;
+    }
+    final Session session = SessionFactoryUtils.getSession(sessionFactory, true);
+    session.setFlushMode(FlushMode.MANUAL);
+    TransactionSynchronizationManager.bindResource(sessionFactory, new SessionHolder(session));
+    return true;
+  }
+
+  private void unbindSession()
+  {
+    final SessionHolder sessionHolder = (SessionHolder) TransactionSynchronizationManager.unbindResource(sessionFactory);
+    SessionFactoryUtils.closeSession(sessionHolder.getSession());
+  }
+
+  /**
+   * The number of running scripts is limited by the permits, so the pool needs threads for the abandoned scripts in addition.
+   */
+  private static synchronized ThreadPoolExecutor getScriptExecutor()
+  {
+    if (scriptExecutor == null) {
+      final AtomicInteger threadCounter = new AtomicInteger();
+      scriptExecutor = new ThreadPoolExecutor(0, MAX_CONCURRENT_SCRIPTS + MAX_ABANDONED_SCRIPTS, 60, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+          final Thread thread = new Thread(runnable, "groovy-script-" + threadCounter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return scriptExecutor;
+  }
+
   public GroovyResult execute(final Script groovyScript)
   {
     return execute(groovyScript, null);
@@ -182,11 +420,14 @@ public class GroovyExecutor
       result = new GroovyResult();
     }
     Object res = null;
+    final long start = System.nanoTime();
     try {
       res = groovyScript.run();
     } catch (final Exception ex) {
       log.info("Groovy-Execution-Exception: " + ex.getMessage(), ex);
       return new GroovyResult(ex);
+    } finally {
+      executionTimer.stop(start);
     }
     result.setResult(res);
     return result;
@@ -0,0 +1,218 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.scripting;
+
+import groovy.lang.Script;
+import groovy.text.Template;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.projectforge.common.Crypt;
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.MetricTimer;
+import org.projectforge.core.PerformanceMetrics;
+
+/**
+ * Content-hash keyed LRU cache of compiled Groovy scripts, compiled templates and pre-processed template sources (#INCLUDE directives
+ * resolved). The cache is shared by ScriptDao executions, mail templates and report templates. Identical script content results in the same
+ * key, so modified scripts are compiled again automatically and out-dated entries are dropped by the LRU strategy.<br/>
+ * Hits, misses and compile durations are available as groovy.cache.* counters and groovy.compile timer of {@link PerformanceMetrics}.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class GroovyScriptCache
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(GroovyScriptCache.class);
+
+  /**
+   * Maximum number of entries per cache (scripts, templates and template sources).
+   */
+  public static final int MAX_SIZE = 200;
+
+  private static final GroovyScriptCache instance = new GroovyScriptCache();
+
+  private final Map<String, Class< ? extends Script>> scriptClasses = createLruMap();
+
+  private final Map<String, Template> templates = createLruMap();
+
+  private final Map<String, String> templateSources = createLruMap();
+
+  private final MetricTimer compileTimer = PerformanceMetrics.getInstance().getTimer("groovy.compile");
+
+  private final MetricCounter hitCounter = PerformanceMetrics.getInstance().getCounter("groovy.cache.hits");
+
+  private final MetricCounter missCounter = PerformanceMetrics.getInstance().getCounter("groovy.cache.misses");
+
+  public static GroovyScriptCache getInstance()
+  {
+    return instance;
+  }
+
+  private GroovyScriptCache()
+  {
+  }
+
+  /**
+   * @param content The script or template content.
+   * @return The key (digest) of the given content.
+   */
+  public static String getKey(final String content)
+  {
+    return Crypt.digest(content);
+  }
+
+  public Class< ? extends Script> getScriptClass(final String key)
+  {
+    synchronized (scriptClasses) {
+      return count(scriptClasses.get(key));
+    }
+  }
+
+  public void putScriptClass(final String key, final Class< ? extends Script> scriptClass)
+  {
+    synchronized (scriptClasses) {
+      scriptClasses.put(key, scriptClass);
+    }
+  }
+
+  public Template getTemplate(final String key)
+  {
+    synchronized (templates) {
+      return count(templates.get(key));
+    }
+  }
+
+  public void putTemplate(final String key, final Template template)
+  {
+    synchronized (templates) {
+      templates.put(key, template);
+    }
+  }
+
+  /**
+   * @param key The key of the origin template.
+   * @return The pre-processed template source (e. g. with resolved includes).
+   */
+  public String getTemplateSource(final String key)
+  {
+    synchronized (templateSources) {
+      return templateSources.get(key);
+    }
+  }
+
+  public void putTemplateSource(final String key, final String source)
+  {
+    synchronized (templateSources) {
+      templateSources.put(key, source);
+    }
+  }
+
+  /**
+   * Should be called after every compilation (after a cache miss).
+   * @param startNanos The start of the compilation (System.nanoTime()).
+   */
+  void registerCompilation(final long startNanos)
+  {
+    compileTimer.stop(startNanos);
+  }
+
+  /**
+   * Clears all caches, e. g. if included template files were modified.
+   */
+  public void clear()
+  {
+    log.info("Clearing cache: " + getStatistics());
+    synchronized (scriptClasses) {
+      scriptClasses.clear();
+    }
+    synchronized (templates) {
+      templates.clear();
+    }
+    synchronized (templateSources) {
+      templateSources.clear();
+    }
+  }
+
+  public long getCompileCounter()
+  {
+    return compileTimer.getSnapshot().getCount();
+  }
+
+  /**
+   * @return The total time of all compilations in milliseconds.
+   */
+  public long getCompileTime()
+  {
+    return Math.round(compileTimer.getSnapshot().getTotal());
+  }
+
+  public long getHitCounter()
+  {
+    return hitCounter.getCount();
+  }
+
+  public long getMissCounter()
+  {
+    return missCounter.getCount();
+  }
+
+  public int getSize()
+  {
+    synchronized (scriptClasses) {
+      synchronized (templates) {
+        return scriptClasses.size() + templates.size();
+      }
+    }
+  }
+
+  public String getStatistics()
+  {
+    return "size=" + getSize() + ", hits=" + getHitCounter() + ", misses=" + getMissCounter() + ", compilations=" + getCompileCounter()
+        + ", compileTime=" + getCompileTime() + "ms";
+  }
+
+  private <T> T count(final T value)
+  {
+    if (value != null) {
+      hitCounter.increment();
+    } else {
+      missCounter.increment();
+    }
+    return value;
+  }
+
+  @SuppressWarnings("serial")
+  private static <V> Map<String, V> createLruMap()
+  {
+    return new LinkedHashMap<String, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, V> eldest)
+      {
+        return size() > MAX_SIZE;
+      }
+    };
+  }
+}
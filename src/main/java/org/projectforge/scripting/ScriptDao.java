@@ -117,7 +117,7 @@ public class ScriptDao extends BaseDao<ScriptDO>
       // Package was renamed in version 5.2:
       scriptContent = scriptContent.replace("import org.projectforge.export", "import org.projectforge.export.*\nimport org.projectforge.excel");
     }
-    groovyResult = groovyExecutor.execute(new GroovyResult(), scriptContent, scriptVariables);
+    groovyResult = groovyExecutor.executeWithTimeout(new GroovyResult(), scriptContent, scriptVariables);
     return groovyResult;
   }
 
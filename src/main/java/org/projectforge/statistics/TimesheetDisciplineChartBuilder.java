@@ -36,10 +36,12 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 import org.projectforge.calendar.DayHolder;
 import org.projectforge.charting.XYChartBuilder;
+import org.projectforge.common.Crypt;
 import org.projectforge.core.OrderDirection;
 import org.projectforge.timesheet.TimesheetDO;
 import org.projectforge.timesheet.TimesheetDao;
 import org.projectforge.timesheet.TimesheetFilter;
+import org.projectforge.user.PFUserContext;
 
 /**
  * Erzeugt wahlweise eins von zwei Diagrammen:<br/>
@@ -64,6 +66,8 @@ public class TimesheetDisciplineChartBuilder
 
   private BigDecimal averageDifferenceBetweenTimesheetAndBooking;
 
+  private String dataVersion;
+
   /**
    * Calculated total plan working hours calculated after call of create #1.
    */
@@ -93,6 +97,15 @@ public class TimesheetDisciplineChartBuilder
     return PLANNED_AVERAGE_DIFFERENCE_BETWEEN_TIMESHEET_AND_BOOKING;
   }
 
+  /**
+   * Version of the data of the chart created by the last call of create (user, locale, time sheets, parameters and current day). Use this
+   * version for caching the rendered chart (see {@link org.projectforge.renderer.ChartRenderService}).
+   */
+  public String getDataVersion()
+  {
+    return dataVersion;
+  }
+
   /**
    * Ein Diagramm, welches über die letzten n Tage die kummulierten IST-Arbeitsstunden und als Soll-Wert die tatsächlich gebuchten
    * Zeitberichte aufträgt. Dies wird in einem Differenz-XY-Diagramm visualisiert. Die Darstellung soll motivieren, dass Projektmitarbeiter
@@ -117,6 +130,7 @@ public class TimesheetDisciplineChartBuilder
     filter.setUserId(userId);
     filter.setOrderType(OrderDirection.ASC);
     final List<TimesheetDO> list = timesheetDao.getList(filter);
+    dataVersion = calculateDataVersion(list, userId, 1, filter.getStartTime(), workingHoursPerDay, forLastNDays, showAxisValues);
     final TimeSeries sollSeries = new TimeSeries("Soll");
     final TimeSeries istSeries = new TimeSeries("Ist");
     planWorkingHours = 0;
@@ -182,6 +196,7 @@ public class TimesheetDisciplineChartBuilder
     filter.setUserId(userId);
     filter.setOrderType(OrderDirection.ASC);
     final List<TimesheetDO> list = timesheetDao.getList(filter);
+    dataVersion = calculateDataVersion(list, userId, 2, filter.getStartTime(), forLastNDays, showAxisValues);
     final TimeSeries planSeries = new TimeSeries("Soll");
     final TimeSeries actualSeries = new TimeSeries("Ist");
     final Iterator<TimesheetDO> it = list.iterator();
@@ -231,4 +246,21 @@ public class TimesheetDisciplineChartBuilder
     cb.setDateXAxis(true).setYAxis(true, "days");
     return cb.getChart();
   }
+
+  /**
+   * SHA-1 digest of all values the chart depends on including the locale of the logged-in user (localized axis labels).
+   */
+  private String calculateDataVersion(final List<TimesheetDO> list, final Integer userId, final Object... params)
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append(userId).append('|').append(PFUserContext.getLocale());
+    for (final Object param : params) {
+      buf.append('|').append(param);
+    }
+    for (final TimesheetDO timesheet : list) {
+      buf.append('[').append(timesheet.getId()).append('|').append(timesheet.getLastUpdate()).append('|').append(timesheet.getStartTime())
+      .append('|').append(timesheet.getStopTime()).append(']');
+    }
+    return Crypt.digest(buf.toString(), "SHA-1");
+  }
 }
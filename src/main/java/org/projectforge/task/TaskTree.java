@@ -55,6 +55,7 @@ import org.projectforge.common.DateHelper;
 import org.projectforge.common.NumberHelper;
 import org.projectforge.core.InternalErrorException;
 import org.projectforge.debug.StackTraceHolder;
+import org.projectforge.fibu.AuftragDO;
 import org.projectforge.fibu.AuftragDao;
 import org.projectforge.fibu.AuftragsPositionVO;
 import org.projectforge.fibu.ProjektDO;
@@ -445,6 +446,45 @@ public class TaskTree extends AbstractCache implements Serializable
 
   public TaskTree()
   {
+    registerForInvalidation(TaskDO.class, GroupTaskAccessDO.class, ProjektDO.class, AuftragDO.class);
+  }
+
+  /**
+   * Modified tasks, task accesses and projects of other nodes are updated without reloading the whole tree.
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    if (TaskDO.class.equals(entityClass) == true) {
+      final TaskDO task = taskDao.internalGetById(id);
+      if (task != null) {
+        addOrUpdateTaskNode(task);
+        return;
+      }
+    } else if (GroupTaskAccessDO.class.equals(entityClass) == true) {
+      final GroupTaskAccessDO groupTaskAccess = accessDao.internalGetById(id);
+      if (groupTaskAccess != null && groupTaskAccess.isDeleted() == false) {
+        setGroupTaskAccess(groupTaskAccess);
+        return;
+      }
+    } else if (ProjektDO.class.equals(entityClass) == true) {
+      checkRefresh();
+      for (final TaskNode node : taskMap.values()) {
+        if (node.projekt != null && id.equals(node.projekt.getId()) == true) {
+          node.projekt = null; // The task of the project may be changed.
+        }
+      }
+      final ProjektDO projekt = projektDao.internalGetById(id);
+      if (projekt != null && projekt.getTaskId() != null && getTaskNodeById(projekt.getTaskId()) != null) {
+        internalSetProject(projekt.getTaskId(), projekt);
+      }
+      return;
+    } else if (AuftragDO.class.equals(entityClass) == true) {
+      refreshOrderPositionReferences();
+      return;
+    }
+    super.invalidate(entityClass, id);
   }
 
   public void setTaskDao(final TaskDao taskDao)
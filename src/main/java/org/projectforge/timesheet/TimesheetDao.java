@@ -23,6 +23,7 @@
 
 package org.projectforge.timesheet;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
@@ -97,6 +98,11 @@ public class TimesheetDao extends BaseDao<TimesheetDO>
 
   public static final String HIDDEN_FIELD_MARKER = "[...]";
 
+  /**
+   * Maximum length of the description of time sheets returned by {@link #getCalendarList(TimesheetFilter)}.
+   */
+  public static final int DESCRIPTION_EXCERPT_LENGTH = 255;
+
   private static final Logger log = Logger.getLogger(TimesheetDao.class);
 
   private TaskTree taskTree;
@@ -293,6 +299,81 @@ public class TimesheetDao extends BaseDao<TimesheetDO>
     return result;
   }
 
+  /**
+   * Lightweight variant of {@link #getList(BaseSearchFilter)} for calendar views: Only the fields needed for displaying the time sheets
+   * are selected (the description is abbreviated to {@link #DESCRIPTION_EXCERPT_LENGTH} characters). Tasks and users are taken from the
+   * {@link TaskTree} and the user group cache, the cost units (Kost2) are loaded by one single query.<br/>
+   * The returned time sheets are detached objects for read-only purposes, time period overlaps aren't marked. The full entity should be
+   * loaded by id if the user wants to edit a time sheet.
+   * @param filter The user id is required, start and stop time are used (other filter settings are ignored).
+   * @return The time sheets ordered by start time.
+   */
+  @SuppressWarnings("unchecked")
+  @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+  public List<TimesheetDO> getCalendarList(final TimesheetFilter filter) throws AccessException
+  {
+    Validate.notNull(filter.getUserId());
+    checkLoggedInUserSelectAccess();
+    if (accessChecker.isRestrictedUser() == true) {
+      return null;
+    }
+    final StringBuffer hql = new StringBuffer();
+    hql.append("select t.id, t.startTime, t.stopTime, t.task.id, t.kost2.id, t.location, substring(t.description, 1, ")
+    .append(DESCRIPTION_EXCERPT_LENGTH + 1).append(") from TimesheetDO t where t.user.id = :userId and t.deleted = false");
+    if (filter.getStartTime() != null) {
+      hql.append(" and t.startTime >= :startTime");
+    }
+    Date stopTime = null;
+    if (filter.getStopTime() != null) {
+      final DateHolder date = new DateHolder(filter.getStopTime());
+      date.setEndOfDay();
+      stopTime = date.getDate();
+      hql.append(" and t.startTime <= :stopTime");
+    }
+    hql.append(" order by t.startTime");
+    final Query query = getSession().createQuery(hql.toString()).setInteger("userId", filter.getUserId());
+    if (filter.getStartTime() != null) {
+      query.setTimestamp("startTime", filter.getStartTime());
+    }
+    if (stopTime != null) {
+      query.setTimestamp("stopTime", stopTime);
+    }
+    final List<Object[]> rows = query.list();
+    final PFUserDO user = userGroupCache.getUser(filter.getUserId());
+    final List<TimesheetDO> list = new ArrayList<TimesheetDO>(rows.size());
+    final Map<Integer, List<TimesheetDO>> timesheetsByKost2Id = new HashMap<Integer, List<TimesheetDO>>();
+    for (final Object[] row : rows) {
+      final TimesheetDO timesheet = new TimesheetDO();
+      timesheet.setId((Integer) row[0]);
+      timesheet.setStartTime((Timestamp) row[1]);
+      timesheet.setStopTime((Timestamp) row[2]);
+      timesheet.setTask(taskTree.getTaskById((Integer) row[3]));
+      timesheet.setUser(user);
+      timesheet.setLocation((String) row[5]);
+      timesheet.setDescription(StringUtils.abbreviate((String) row[6], DESCRIPTION_EXCERPT_LENGTH));
+      final Integer kost2Id = (Integer) row[4];
+      if (kost2Id != null) {
+        List<TimesheetDO> timesheets = timesheetsByKost2Id.get(kost2Id);
+        if (timesheets == null) {
+          timesheets = new ArrayList<TimesheetDO>();
+          timesheetsByKost2Id.put(kost2Id, timesheets);
+        }
+        timesheets.add(timesheet);
+      }
+      list.add(timesheet);
+    }
+    if (timesheetsByKost2Id.isEmpty() == false) {
+      final List<Kost2DO> kost2List = getSession().createQuery("from Kost2DO k where k.id in (:ids)")
+          .setParameterList("ids", timesheetsByKost2Id.keySet()).list();
+      for (final Kost2DO kost2 : kost2List) {
+        for (final TimesheetDO timesheet : timesheetsByKost2Id.get(kost2.getId())) {
+          timesheet.setKost2(kost2);
+        }
+      }
+    }
+    return extractEntriesWithSelectAccess(list);
+  }
+
   public List<TimesheetDO> getTimeperiodOverlapList(final TimesheetListFilter actionFilter)
   {
     if (actionFilter.getUserId() != null) {
@@ -281,7 +281,9 @@ public class GroupDao extends BaseDao<GroupDO>
     }
     getSession().flush();
     createHistoryEntry(user, unassignedGroups, assignedGroups);
-    userGroupCache.setExpired();
+    final List<GroupDO> modifiedGroups = new ArrayList<GroupDO>(assignedGroups);
+    modifiedGroups.addAll(unassignedGroups);
+    userGroupCache.updateGroups(modifiedGroups);
       }
 
   private void createHistoryEntry(final PFUserDO user, Collection<GroupDO> unassignedList, Collection<GroupDO> assignedList)
@@ -313,7 +315,7 @@ public class GroupDao extends BaseDao<GroupDO>
   @Override
   protected void afterSaveOrModify(final GroupDO group)
   {
-    userGroupCache.setExpired();
+    userGroupCache.updateGroup(group);
   }
 
   /**
@@ -322,7 +324,7 @@ public class GroupDao extends BaseDao<GroupDO>
   @Override
   protected void afterDelete(final GroupDO obj)
   {
-    userGroupCache.setExpired();
+    userGroupCache.removeGroup(obj.getId());
   }
 
   @Override
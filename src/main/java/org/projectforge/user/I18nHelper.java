@@ -21,17 +21,25 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.user;
 
 import java.text.MessageFormat;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.projectforge.plugins.core.AbstractPlugin;
 import org.projectforge.plugins.core.PluginsRegistry;
+import org.projectforge.web.I18nCore;
 
 /**
- * ThreadLocal context.
+ * ThreadLocal context.<br/>
+ * The translations of the core bundle and of the bundles of all plugins are flattened into one map per locale, so a lookup is a single hash
+ * probe. The compiled MessageFormat objects of the translations are cached as well.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
 public class I18nHelper
@@ -40,6 +48,30 @@ public class I18nHelper
 
   public static final String BUNDLE_NAME = "I18nResources";
 
+  /**
+   * The flattened translations (key is the i18n key) by locale.
+   */
+  private static final Map<Locale, Map<String, String>> translationsByLocale = new ConcurrentHashMap<Locale, Map<String, String>>();
+
+  /**
+   * The compiled message formats by pattern. MessageFormat isn't thread-safe, so every usage is synchronized on the MessageFormat object.
+   */
+  private static final Map<String, MessageFormat> messageFormats = new ConcurrentHashMap<String, MessageFormat>();
+
+  /**
+   * Clears all flattened translations and builds the translations of all supported languages ({@link I18nCore#LOCALIZATIONS}). Should be
+   * called after the plugins are initialized (the resource bundles of the plugins are registered by their initialization).
+   */
+  public static void initialize()
+  {
+    translationsByLocale.clear();
+    messageFormats.clear();
+    for (final String language : I18nCore.LOCALIZATIONS) {
+      getTranslations(new Locale(language));
+    }
+    getTranslations(null);
+  }
+
   /**
    * Use-ful for using the locale of another user (e. g. the receiver of an e-mail).
    * @param locale If null, then the context user's locale is assumed.
@@ -57,41 +89,94 @@ public class I18nHelper
     if (params == null) {
       return getLocalizedString(locale, messageKey);
     }
-    return MessageFormat.format(getLocalizedString(locale, messageKey), params);
+    final String pattern = getLocalizedString(locale, messageKey);
+    MessageFormat messageFormat = messageFormats.get(pattern);
+    if (messageFormat == null) {
+      messageFormat = new MessageFormat(pattern);
+      messageFormats.put(pattern, messageFormat);
+    }
+    synchronized (messageFormat) {
+      return messageFormat.format(params);
+    }
   }
 
-  private static String getString(final String bundleName, final Locale locale, final String key)
+  public static String getLocalizedString(final Locale locale, final String key)
   {
     try {
-      final ResourceBundle bundle = getResourceBundle(bundleName, locale);
-      if (bundle.containsKey(key) == true) {
-        return bundle.getString(key);
+      final String translation = getTranslations(locale).get(key);
+      if (translation != null) {
+        return translation;
       }
-    } catch (final Exception ex) {
+    } catch (final Exception ex) { // NullpointerException
       log.warn("Resource key '" + key + "' not found for locale '" + locale + "'");
     }
-    return null;
+    return "???" + key + "???";
   }
 
-  public static String getLocalizedString(final Locale locale, final String key)
+  /**
+   * @param locale If null, then the default locale is assumed.
+   * @return The flattened translations of the given locale (built on first access).
+   */
+  private static Map<String, String> getTranslations(final Locale locale)
   {
-    try {
-      String translation = getString(BUNDLE_NAME, locale, key);
-      if (translation != null) {
-        return translation;
+    final Locale key = locale != null ? locale : Locale.getDefault();
+    Map<String, String> translations = translationsByLocale.get(key);
+    if (translations == null) {
+      translations = buildTranslations(locale);
+      translationsByLocale.put(key, translations);
+    }
+    return translations;
+  }
+
+  /**
+   * The translation of the core bundle wins, then the translations of the plugins in the order of their registration (as the former
+   * sequential lookup of the bundles). Keys defined by multiple bundles with different translations are logged.
+   * @param locale
+   * @return
+   */
+  private static Map<String, String> buildTranslations(final Locale locale)
+  {
+    final Map<String, String> translations = new HashMap<String, String>();
+    final Map<String, String> bundleNames = new HashMap<String, String>();
+    addTranslations(translations, bundleNames, BUNDLE_NAME, locale);
+    for (final AbstractPlugin plugin : PluginsRegistry.instance().getPlugins()) {
+      if (plugin.getResourceBundleName() == null) {
+        continue;
       }
-      for (final AbstractPlugin plugin : PluginsRegistry.instance().getPlugins()) {
-        if (plugin.getResourceBundleName() == null) {
-          continue;
-        }
-        translation = getString(plugin.getResourceBundleName(), locale, key);
-        if (translation != null) {
-          return translation;
-        }
+      addTranslations(translations, bundleNames, plugin.getResourceBundleName(), locale);
+    }
+    log.info("I18n translations for locale '" + locale + "' built: " + translations.size() + " keys.");
+    return translations;
+  }
+
+  private static void addTranslations(final Map<String, String> translations, final Map<String, String> bundleNames,
+      final String bundleName, final Locale locale)
+  {
+    final ResourceBundle bundle;
+    try {
+      bundle = getResourceBundle(bundleName, locale);
+    } catch (final MissingResourceException ex) {
+      log.warn("Resource bundle '" + bundleName + "' not found for locale '" + locale + "'");
+      return;
+    }
+    for (final String key : bundle.keySet()) {
+      final String translation = bundle.getString(key);
+      final String existing = translations.get(key);
+      if (existing == null) {
+        translations.put(key, translation);
+        bundleNames.put(key, bundleName);
+      } else if (existing.equals(translation) == false) {
+        log.warn("Resource key '"
+            + key
+            + "' of bundle '"
+            + bundleName
+            + "' is already defined by bundle '"
+            + bundleNames.get(key)
+            + "' for locale '"
+            + locale
+            + "', ignoring translation: "
+            + translation);
       }
-    } catch (Exception ex) { // MissingResourceException or NullpointerException
-      log.warn("Resource key '" + key + "' not found for locale '" + locale + "'");
     }
-    return "???" + key + "???";
   }
 }
@@ -24,6 +24,7 @@
 package org.projectforge.user;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.projectforge.web.UserFilter;
@@ -172,6 +173,19 @@ public class Login
     loginHandler.afterUserGroupCacheRefresh(users, groups);
   }
 
+  public void afterUserGroupCacheUpdate(final Collection<Integer> userIds, final Collection<Integer> groupIds)
+  {
+    if (UserFilter.isUpdateRequiredFirst() == true) {
+      // Don't run e. g. LDAP synchronization because user and groups may not be available!
+      return;
+    }
+    if (loginHandler == null) {
+      log.warn("No login handler is defined yet, so can't notify about modified users and groups.");
+      return;
+    }
+    loginHandler.afterUserGroupCacheUpdate(userIds, groupIds);
+  }
+
   /**
    * @param loginHandler the loginHandler to set
    */
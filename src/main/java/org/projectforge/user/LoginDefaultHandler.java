@@ -252,6 +252,15 @@ public class LoginDefaultHandler implements LoginHandler
   {
   }
 
+  /**
+   * Do nothing.
+   * @see org.projectforge.user.LoginHandler#afterUserGroupCacheUpdate(java.util.Collection, java.util.Collection)
+   */
+  @Override
+  public void afterUserGroupCacheUpdate(final Collection<Integer> userIds, final Collection<Integer> groupIds)
+  {
+  }
+
   protected List< ? > selectUnique(final List< ? > list)
   {
     final List< ? > result = (List< ? >) CollectionUtils.select(list, PredicateUtils.uniquePredicate());
@@ -77,6 +77,14 @@ public interface LoginHandler
    */
   public void afterUserGroupCacheRefresh(Collection<PFUserDO> users, Collection<GroupDO> groups);
 
+  /**
+   * Will be called directly after a targeted update of the user group cache (e. g. after the modification of a single user or group).
+   * Only the ids of the modified users and groups are given, the objects are available through the user group cache.
+   * @param userIds The ids of the modified users (may be empty).
+   * @param groupIds The ids of the modified groups (may be empty).
+   */
+  public void afterUserGroupCacheUpdate(Collection<Integer> userIds, Collection<Integer> groupIds);
+
   /**
    * @return true, if the login handler supports an external user management system. This flag is used by {User|Group}EditForm for
    *         displaying/hiding field localUser|loclaGroup.
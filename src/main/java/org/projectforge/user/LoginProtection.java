@@ -79,9 +79,9 @@ public class LoginProtection
    */
   private LoginProtection()
   {
-    mapByUserId = new LoginProtectionMap();
+    mapByUserId = new LoginProtectionMap("userId");
     mapByUserId.setNumberOfFailedLoginsBeforeIncrementing(DEFAULT_NUMBER_OF_FAILED_LOGINS_BEFORE_INCREMENTING_FOR_USER_ID);
-    mapByIpAddress = new LoginProtectionMap();
+    mapByIpAddress = new LoginProtectionMap("ipAddress");
     mapByIpAddress.setNumberOfFailedLoginsBeforeIncrementing(DEFAULT_NUMBER_OF_FAILED_LOGINS_BEFORE_INCREMENTING_FOR_IP);
   }
 
@@ -23,17 +23,41 @@
 
 package org.projectforge.user;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.PerformanceMetrics;
+
 /**
- * Class used by {@link LoginProtection} for handling maps, time offsets etc.
+ * Class used by {@link LoginProtection} for handling maps, time offsets etc.<br/>
+ * The entries are distributed over {@link #STRIPES} stripes with their own locks, so concurrent login attempts don't block each other.
+ * The failed logins of an id are counted in {@link #BUCKETS} time buckets covering the expire time, so old failed logins decay
+ * automatically and every entry needs a constant amount of memory. The number of entries is bounded by {@link #setMaxEntries(int)}: the
+ * entries with the oldest failed logins are evicted first (e. g. during attacks from a huge number of ip addresses).<br/>
+ * The number of failed, blocked and evicted login attempts is available as metrics "loginProtection.&lt;name&gt;.failed|blocked|evicted"
+ * (see {@link PerformanceMetrics}).
  * @author Kai Reinhard (k.reinhard@micromata.de)
  * 
  */
 public class LoginProtectionMap
 {
+  /**
+   * Number of stripes (power of 2).
+   */
+  static final int STRIPES = 32;
+
+  /**
+   * Number of time buckets per entry covering {@link #getLoginOffsetExpiresAfterMs()}.
+   */
+  static final int BUCKETS = 24;
+
+  /**
+   * The whole map is checked for expired entries at the latest after this time.
+   */
+  private static final long SWEEP_INTERVAL_MS = 60 * 1000;
+
   /**
    * Login offset time after failed login attempts expires after 24h.
    */
@@ -46,16 +70,32 @@ public class LoginProtectionMap
 
   private int numberOfFailedLoginsBeforeIncrementing;
 
-  /**
-   * Number of failed logins per IP address/user id.
-   */
-  private final Map<String, Integer> loginFailedAttemptsMap = new HashMap<String, Integer>();
+  private int maxEntries = 100000;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  private final MetricCounter failedCounter, blockedCounter, evictedCounter;
+
+  private volatile long nextSweep;
+
+  public LoginProtectionMap()
+  {
+    this("default");
+  }
 
   /**
-   * Time stamp of last failed login per IP address/user Id in ms since 01/01/1970.
-   * @see System#currentTimeMillis()
+   * @param name Used as name of the metrics.
    */
-  private final Map<String, Long> lastFailedLoginMap = new HashMap<String, Long>();
+  public LoginProtectionMap(final String name)
+  {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    failedCounter = metrics.getCounter("loginProtection." + name + ".failed");
+    blockedCounter = metrics.getCounter("loginProtection." + name + ".blocked");
+    evictedCounter = metrics.getCounter("loginProtection." + name + ".evicted");
+  }
 
   /**
    * Call this before checking the login credentials. If a long > 0 is returned please don't proceed the login-procedure. Please display a
@@ -65,16 +105,24 @@ public class LoginProtectionMap
    */
   public long getFailedLoginTimeOffsetIfExists(final String id)
   {
-    final Long lastFailedLoginInMs = this.lastFailedLoginMap.get(id);
-    if (lastFailedLoginInMs == null) {
-      return 0;
-    }
-    final long offset = getFailedLoginTimeOffset(id, false);
+    final Stripe stripe = getStripe(id);
     final long currentTimeInMs = System.currentTimeMillis();
-    if (lastFailedLoginInMs + offset < currentTimeInMs) {
-      return 0;
+    final long result;
+    synchronized (stripe) {
+      final Entry entry = stripe.get(id);
+      if (entry == null) {
+        return 0;
+      }
+      final long offset = getTimeOffset(entry.getNumberOfFailedLogins(getBucket(currentTimeInMs)));
+      if (entry.lastFailedLogin + offset < currentTimeInMs) {
+        return 0;
+      }
+      result = entry.lastFailedLogin + offset - currentTimeInMs;
     }
-    return lastFailedLoginInMs + offset - currentTimeInMs;
+    if (result > 0) {
+      blockedCounter.increment();
+    }
+    return result;
   }
 
   /**
@@ -84,41 +132,27 @@ public class LoginProtectionMap
    */
   public long incrementFailedLoginTimeOffset(final String id)
   {
-    return getFailedLoginTimeOffset(id, true);
-  }
-
-  /**
-   * @param id This could be the client's ip address, the login name etc.
-   * @param increment If true the login fail counter will be incremented.
-   * @return
-   */
-  private long getFailedLoginTimeOffset(final String id, final boolean increment)
-  {
-    clearExpiredEntries();
     final long currentTimeInMillis = System.currentTimeMillis();
-    Integer numberOfFailedLogins = this.loginFailedAttemptsMap.get(id);
-    if (numberOfFailedLogins == null) {
-      if (increment == false) {
-        return 0;
-      }
-      numberOfFailedLogins = 0;
-    } else {
-      final Long lastFailedLoginInMs = this.lastFailedLoginMap.get(id);
-      if (lastFailedLoginInMs != null && currentTimeInMillis - lastFailedLoginInMs > loginOffsetExpiresAfterMs) {
-        // Last failed login entry is to old, so we'll ignore and clear it:
-        clearLoginTimeOffset(id);
-        if (increment == false) {
-          return 0;
-        }
-        numberOfFailedLogins = 0;
-      }
-    }
-    if (increment == true) {
-      synchronized (this) {
-        this.loginFailedAttemptsMap.put(id, ++numberOfFailedLogins);
-        this.lastFailedLoginMap.put(id, currentTimeInMillis);
+    sweepIfDue(currentTimeInMillis);
+    failedCounter.increment();
+    final Stripe stripe = getStripe(id);
+    final int numberOfFailedLogins;
+    synchronized (stripe) {
+      // Remove and put the entry, so the order of the entries is the order of their last failed logins:
+      Entry entry = stripe.remove(id);
+      if (entry == null || isExpired(entry, currentTimeInMillis) == true) {
+        entry = new Entry();
       }
+      numberOfFailedLogins = entry.add(getBucket(currentTimeInMillis), 1);
+      entry.lastFailedLogin = currentTimeInMillis;
+      stripe.put(id, entry);
+      evictExpiredEntries(stripe, currentTimeInMillis);
     }
+    return getTimeOffset(numberOfFailedLogins);
+  }
+
+  private long getTimeOffset(final int numberOfFailedLogins)
+  {
     return (numberOfFailedLogins / numberOfFailedLoginsBeforeIncrementing) * loginTimeOffsetScale;
   }
 
@@ -128,41 +162,96 @@ public class LoginProtectionMap
    */
   public void clearLoginTimeOffset(final String id)
   {
-    synchronized (this) {
-      this.loginFailedAttemptsMap.remove(id);
-      this.lastFailedLoginMap.remove(id);
+    final Stripe stripe = getStripe(id);
+    synchronized (stripe) {
+      stripe.remove(id);
     }
   }
 
   /**
-   * Clears (removes) all entries for id's (user id's, ip addresses) older than {@link #DEFAULT_LOGIN_OFFSET_EXPIRES_AFTER_MS}.
+   * Clears (removes) all entries for id's (user id's, ip addresses) older than {@link #getLoginOffsetExpiresAfterMs()}. This method is
+   * called automatically every minute.
    */
   public void clearExpiredEntries()
   {
     final long currentTimeInMillis = System.currentTimeMillis();
-    synchronized (this) {
-      final Iterator<String> it = this.lastFailedLoginMap.keySet().iterator();
-      while (it.hasNext() == true) {
-        final String key = it.next();
-        final Long lastFailedLoginInMs = this.lastFailedLoginMap.get(key);
-        if (lastFailedLoginInMs != null && currentTimeInMillis - lastFailedLoginInMs > loginOffsetExpiresAfterMs) {
-          // Last failed login entry is to old, so we'll ignore and clear it:
-          this.loginFailedAttemptsMap.remove(key);
-          it.remove();
+    for (final Stripe stripe : stripes) {
+      synchronized (stripe) {
+        final Iterator<Entry> it = stripe.values().iterator();
+        while (it.hasNext() == true) {
+          if (isExpired(it.next(), currentTimeInMillis) == true) {
+            // Last failed login entry is to old, so we'll ignore and clear it:
+            it.remove();
+          }
         }
       }
     }
   }
 
+  private void sweepIfDue(final long currentTimeInMillis)
+  {
+    if (currentTimeInMillis < nextSweep) {
+      return;
+    }
+    // Concurrent sweeps of two threads are harmless:
+    nextSweep = currentTimeInMillis + SWEEP_INTERVAL_MS;
+    clearExpiredEntries();
+  }
+
+  /**
+   * The entries are ordered by their last failed login, so only the oldest entries have to be checked. Must be called synchronized.
+   */
+  private void evictExpiredEntries(final Stripe stripe, final long currentTimeInMillis)
+  {
+    final Iterator<Entry> it = stripe.values().iterator();
+    while (it.hasNext() == true) {
+      if (isExpired(it.next(), currentTimeInMillis) == false) {
+        break;
+      }
+      it.remove();
+    }
+  }
+
+  private boolean isExpired(final Entry entry, final long currentTimeInMillis)
+  {
+    return currentTimeInMillis - entry.lastFailedLogin > loginOffsetExpiresAfterMs;
+  }
+
+  private long getBucket(final long timeInMillis)
+  {
+    return timeInMillis / Math.max(1, loginOffsetExpiresAfterMs / BUCKETS);
+  }
+
+  private Stripe getStripe(final String id)
+  {
+    final int h = id.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+  }
+
   /**
    * Clears all entries of failed logins (counter and time stamps).
    */
   public void clearAll()
   {
-    synchronized (this) {
-      this.loginFailedAttemptsMap.clear();
-      this.lastFailedLoginMap.clear();
+    for (final Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /**
+   * @return The number of entries (ids with failed logins).
+   */
+  public int getSize()
+  {
+    int size = 0;
+    for (final Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
     }
+    return size;
   }
 
   /**
@@ -170,7 +259,7 @@ public class LoginProtectionMap
    */
   int getSizeOfLastFailedLoginMap()
   {
-    return this.lastFailedLoginMap.size();
+    return getSize();
   }
 
   /**
@@ -178,18 +267,24 @@ public class LoginProtectionMap
    */
   int getSizeOfLoginFailedAttemptsMap()
   {
-    return this.loginFailedAttemptsMap.size();
+    return getSize();
   }
 
   /**
-   * For internal use by test cases.
+   * For internal use by test cases. The given failed login attempts are counted in the time bucket of the given time stamp.
    */
   void setEntry(final String id, final int numberOfFailedLoginAttempts, final long lastFailedAttemptTimestamp)
   {
-    synchronized (this) {
-      this.loginFailedAttemptsMap.put(id, numberOfFailedLoginAttempts);
-      this.lastFailedLoginMap.put(id, lastFailedAttemptTimestamp);
+    final Stripe stripe = getStripe(id);
+    synchronized (stripe) {
+      final Entry entry = new Entry();
+      entry.add(getBucket(lastFailedAttemptTimestamp), numberOfFailedLoginAttempts);
+      entry.lastFailedLogin = lastFailedAttemptTimestamp;
+      stripe.remove(id);
+      stripe.put(id, entry);
     }
+    // The order of the entries may be broken now, so check all entries on next failed login:
+    nextSweep = 0;
   }
 
   /**
@@ -198,13 +293,16 @@ public class LoginProtectionMap
    */
   public int getNumberOfFailedLoginAttempts(final String id)
   {
-    final Integer result = this.loginFailedAttemptsMap.get(id);
-    return result != null ? result : 0;
+    final Stripe stripe = getStripe(id);
+    synchronized (stripe) {
+      final Entry entry = stripe.get(id);
+      return entry != null ? entry.getNumberOfFailedLogins(getBucket(System.currentTimeMillis())) : 0;
+    }
   }
 
   /**
    * After this number of ms (24h is the default value) after the last failed login an entry for a failed login (for both: by user id and by
-   * ip) is removed.
+   * ip) is removed. Failed logins older than this time aren't counted anymore.
    * @return the loginOffsetExpiresAfterMs
    */
   public long getLoginOffsetExpiresAfterMs()
@@ -262,4 +360,99 @@ public class LoginProtectionMap
     this.numberOfFailedLoginsBeforeIncrementing = numberOfFailedLoginsBeforeIncrementing;
     return this;
   }
+
+  /**
+   * The maximum number of entries (100,000 is the default value). If exceeded, the entries with the oldest failed logins are evicted.
+   * @return the maxEntries
+   */
+  public int getMaxEntries()
+  {
+    return maxEntries;
+  }
+
+  /**
+   * @param maxEntries the maxEntries to set
+   * @return this for chaining.
+   * @see #getMaxEntries()
+   */
+  public LoginProtectionMap setMaxEntries(final int maxEntries)
+  {
+    this.maxEntries = maxEntries;
+    return this;
+  }
+
+  /**
+   * Part of the entries (chosen by the hash code of the id) with its own lock. The entries are ordered by their last failed login.
+   */
+  private class Stripe extends LinkedHashMap<String, Entry>
+  {
+    private static final long serialVersionUID = 4296815093260787735L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest)
+    {
+      if (size() > Math.max(1, maxEntries / STRIPES)) {
+        evictedCounter.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The failed logins of an id, counted in time buckets: the counter of bucket number n is stored at index n % BUCKETS.
+   */
+  private static class Entry
+  {
+    private final int[] counters = new int[BUCKETS];
+
+    private long lastBucket = -1;
+
+    private long lastFailedLogin;
+
+    /**
+     * @return The number of failed logins of all not expired buckets.
+     */
+    int add(final long bucket, final int numberOfFailedLogins)
+    {
+      decay(bucket);
+      counters[(int) (bucket % BUCKETS)] += numberOfFailedLogins;
+      return sum();
+    }
+
+    int getNumberOfFailedLogins(final long bucket)
+    {
+      decay(bucket);
+      return sum();
+    }
+
+    /**
+     * Clears the counters of the buckets between the last used bucket and the given (current) one.
+     */
+    private void decay(final long bucket)
+    {
+      if (bucket <= lastBucket) {
+        return;
+      }
+      if (lastBucket < 0 || bucket - lastBucket >= BUCKETS) {
+        for (int i = 0; i < BUCKETS; i++) {
+          counters[i] = 0;
+        }
+      } else {
+        for (long b = lastBucket + 1; b <= bucket; b++) {
+          counters[(int) (b % BUCKETS)] = 0;
+        }
+      }
+      lastBucket = bucket;
+    }
+
+    private int sum()
+    {
+      int sum = 0;
+      for (final int counter : counters) {
+        sum += counter;
+      }
+      return sum;
+    }
+  }
 }
@@ -21,63 +21,129 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.user;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
 import org.projectforge.common.AbstractCache;
 import org.projectforge.common.StringHelper;
+import org.projectforge.core.TransactionHelper;
 import org.projectforge.fibu.EmployeeDO;
 import org.projectforge.fibu.ProjektDO;
 import org.projectforge.web.UserFilter;
 import org.springframework.orm.hibernate3.HibernateTemplate;
 
 /**
- * The group user relations will be cached with this class.
+ * The group user relations will be cached with this class.<br/>
+ * Modifications of single users, groups or user rights are applied as targeted updates (see e. g. {@link #updateUser(PFUserDO)}), the
+ * complete reload of all users, groups and rights is only done after the expire time or if the cache is set to expired explicitly.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  */
 public class UserGroupCache extends AbstractCache
 {
   private static Logger log = Logger.getLogger(UserGroupCache.class);
 
-  /** The key is the user id and the value is a list of assigned groups. */
-  private Map<Integer, Set<Integer>> userGroupIdMap;
-
-  private Map<Integer, GroupDO> groupMap;
-
   /**
-   * List of all rights (value) defined for the user ids (key).
+   * All cached data. A published snapshot is never modified: the refresh and each targeted update build a new snapshot (copy-on-write of
+   * the modified maps only) and replace the current one by a single volatile write.
    */
-  private Map<Integer, List<UserRightDO>> rightMap;
-
-  private Map<Integer, PFUserDO> userMap;
-
-  private Map<Integer, EmployeeDO> employeeMap;
-
-  private Set<Integer> adminUsers;
+  private static class Snapshot
+  {
+    /** The key is the user id and the value is a list of assigned groups. */
+    Map<Integer, Set<Integer>> userGroupIdMap;
+
+    Map<Integer, GroupDO> groupMap;
+
+    /**
+     * List of all rights (value) defined for the user ids (key) and available for the users.
+     */
+    Map<Integer, List<UserRightDO>> rightMap;
+
+    /**
+     * List of all rights (value) defined for the user ids (key), also the rights not available for the users (needed by the security
+     * profiles).
+     */
+    Map<Integer, List<UserRightDO>> allRightsMap;
+
+    Map<Integer, PFUserDO> userMap;
+
+    /** The ids of the members of the system groups (admin, finance, controlling etc.). */
+    Map<ProjectForgeGroup, Set<Integer>> systemGroupUsers;
+
+    /** The index of the groups used by the security profiles. New groups are appended, the index of a group never changes. */
+    Map<Integer, Integer> groupIndex;
+
+    /** The compiled security profiles of all users (key is the user id). */
+    Map<Integer, UserSecurityProfile> securityProfiles;
+
+    Snapshot copy()
+    {
+      final Snapshot copy = new Snapshot();
+      copy.userGroupIdMap = userGroupIdMap;
+      copy.groupMap = groupMap;
+      copy.rightMap = rightMap;
+      copy.allRightsMap = allRightsMap;
+      copy.userMap = userMap;
+      copy.systemGroupUsers = systemGroupUsers;
+      copy.groupIndex = groupIndex;
+      copy.securityProfiles = securityProfiles;
+      return copy;
+    }
+  }
 
-  private Set<Integer> financeUsers;
+  private volatile Snapshot snapshot;
 
-  private Set<Integer> controllingUsers;
+  private volatile Map<Integer, EmployeeDO> employeeMap;
 
-  private Set<Integer> projectManagers;
+  private HibernateTemplate hibernateTemplate;
 
-  private Set<Integer> projectAssistants;
+  /**
+   * True for a read-only view of a snapshot (see {@link #UserGroupCache(Snapshot)}).
+   */
+  private final boolean view;
 
-  private Set<Integer> marketingUsers;
+  public UserGroupCache()
+  {
+    this.view = false;
+    registerForInvalidation(PFUserDO.class, GroupDO.class, UserRightDO.class, EmployeeDO.class);
+  }
 
-  private Set<Integer> orgaUsers;
+  /**
+   * Read-only view of the given snapshot, used for checking the availability of rights against a snapshot not yet published.
+   * @param snapshot
+   */
+  private UserGroupCache(final Snapshot snapshot)
+  {
+    this.view = true;
+    this.snapshot = snapshot;
+  }
 
-  private HibernateTemplate hibernateTemplate;
+  /**
+   * A view is never refreshed.
+   * @see org.projectforge.common.AbstractCache#checkRefresh()
+   */
+  @Override
+  protected void checkRefresh()
+  {
+    if (view == false) {
+      super.checkRefresh();
+    }
+  }
 
   public void setHibernateTemplate(final HibernateTemplate hibernateTemplate)
   {
@@ -92,8 +158,7 @@ public class UserGroupCache extends AbstractCache
 
   public GroupDO getGroup(final ProjectForgeGroup group)
   {
-    checkRefresh();
-    for (final GroupDO g : groupMap.values()) {
+    for (final GroupDO g : getGroupMap().values()) {
       if (group.equals(g.getName()) == true) {
         return g;
       }
@@ -114,7 +179,8 @@ public class UserGroupCache extends AbstractCache
       return null;
     }
     // checkRefresh(); Done by getUserMap().
-    return getUserMap() != null ? userMap.get(userId) : null; // Only null in maintenance mode (if t_user isn't readable).
+    final Map<Integer, PFUserDO> userMap = getUserMap();
+    return userMap != null ? userMap.get(userId) : null; // Only null in maintenance mode (if t_user isn't readable).
   }
 
   public PFUserDO getUser(final String username)
@@ -166,7 +232,7 @@ public class UserGroupCache extends AbstractCache
    */
   public int internalGetNumberOfUsers()
   {
-    if (userMap == null) {
+    if (snapshot == null) {
       return 0;
     } else {
       // checkRefresh(); Done by getUserMap().
@@ -211,9 +277,8 @@ public class UserGroupCache extends AbstractCache
     if (groupId == null) {
       return false;
     }
-    checkRefresh();
-    final Set<Integer> groupSet = getUserGroupIdMap().get(userId);
-    return (groupSet != null) ? groupSet.contains(groupId) : false;
+    final UserSecurityProfile profile = getSecurityProfile(userId);
+    return profile != null && profile.isMemberOfGroup(groupId) == true;
   }
 
   public boolean isUserMemberOfAtLeastOneGroup(final Integer userId, final Integer... groupIds)
@@ -221,7 +286,6 @@ public class UserGroupCache extends AbstractCache
     if (groupIds == null) {
       return false;
     }
-    checkRefresh();
     final Set<Integer> groupSet = getUserGroupIdMap().get(userId);
     if (groupSet == null) {
       return false;
@@ -244,9 +308,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfAdminGroup(final Integer userId)
   {
-    checkRefresh();
-    // adminUsers should only be null in maintenance mode (e. g. if user table isn't readable).
-    return adminUsers != null ? adminUsers.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.ADMIN_GROUP, userId);
   }
 
   public boolean isUserMemberOfFinanceGroup()
@@ -256,9 +318,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfFinanceGroup(final Integer userId)
   {
-    checkRefresh();
-    // financeUsers should only be null in maintenance mode (e. g. if user table isn't readable).
-    return financeUsers != null ? financeUsers.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.FINANCE_GROUP, userId);
   }
 
   public boolean isUserMemberOfProjectManagers()
@@ -268,9 +328,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfProjectManagers(final Integer userId)
   {
-    checkRefresh();
-    // projectManagers should only be null in maintenance mode (e. g. if user table isn't readable).
-    return projectManagers != null ? projectManagers.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.PROJECT_MANAGER, userId);
   }
 
   public boolean isUserMemberOfProjectAssistant()
@@ -280,9 +338,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfProjectAssistant(final Integer userId)
   {
-    checkRefresh();
-    // projectAssistants should only be null in maintenance mode (e. g. if user table isn't readable).
-    return projectAssistants != null ? projectAssistants.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.PROJECT_ASSISTANT, userId);
   }
 
   public boolean isUserProjectManagerOrAssistantForProject(final ProjektDO projekt)
@@ -304,9 +360,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfControllingGroup(final Integer userId)
   {
-    checkRefresh();
-    // controllingUsers should only be null in maintenance mode (e. g. if user table isn't readable).
-    return controllingUsers != null ? controllingUsers.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.CONTROLLING_GROUP, userId);
   }
 
   public boolean isUserMemberOfMarketingGroup()
@@ -316,8 +370,7 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfMarketingGroup(final Integer userId)
   {
-    checkRefresh();
-    return marketingUsers.contains(userId);
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.MARKETING_GROUP, userId);
   }
 
   public boolean isUserMemberOfOrgaGroup()
@@ -327,9 +380,14 @@ public class UserGroupCache extends AbstractCache
 
   public boolean isUserMemberOfOrgaGroup(final Integer userId)
   {
-    checkRefresh();
-    // orgaUsers should only be null in maintenance mode (e. g. if user table isn't readable).
-    return orgaUsers != null ? orgaUsers.contains(userId) : false;
+    return isUserMemberOfSystemGroup(ProjectForgeGroup.ORGA_TEAM, userId);
+  }
+
+  private boolean isUserMemberOfSystemGroup(final ProjectForgeGroup group, final Integer userId)
+  {
+    // The profile should only be null in maintenance mode (e. g. if user table isn't readable) or for unknown users.
+    final UserSecurityProfile profile = getSecurityProfile(userId);
+    return profile != null ? profile.isMemberOfGroup(group) : false;
   }
 
   /**
@@ -343,35 +401,12 @@ public class UserGroupCache extends AbstractCache
       return false;
     }
     Validate.notNull(groups);
-    for (final ProjectForgeGroup group : groups) {
-      boolean result = false;
-      if (group == ProjectForgeGroup.ADMIN_GROUP) {
-        result = isUserMemberOfAdminGroup(user.getId());
-      } else if (group == ProjectForgeGroup.FINANCE_GROUP) {
-        result = isUserMemberOfFinanceGroup(user.getId());
-      } else if (group == ProjectForgeGroup.PROJECT_MANAGER) {
-        result = isUserMemberOfProjectManagers(user.getId());
-      } else if (group == ProjectForgeGroup.PROJECT_ASSISTANT) {
-        result = isUserMemberOfProjectAssistant(user.getId());
-      } else if (group == ProjectForgeGroup.CONTROLLING_GROUP) {
-        result = isUserMemberOfControllingGroup(user.getId());
-      } else if (group == ProjectForgeGroup.MARKETING_GROUP) {
-        result = isUserMemberOfMarketingGroup(user.getId());
-      } else if (group == ProjectForgeGroup.ORGA_TEAM) {
-        result = isUserMemberOfOrgaGroup(user.getId());
-      } else {
-        throw new UnsupportedOperationException("Group not yet supported: " + group);
-      }
-      if (result == true) {
-        return true;
-      }
-    }
-    return false;
+    final UserSecurityProfile profile = getSecurityProfile(user.getId());
+    return profile != null ? profile.isMemberOfGroup(groups) : false;
   }
 
   public String getGroupnames(final Integer userId)
   {
-    checkRefresh();
     final Set<Integer> groupSet = getUserGroupIdMap().get(userId);
     if (groupSet == null) {
       return "";
@@ -388,6 +423,20 @@ public class UserGroupCache extends AbstractCache
     return StringHelper.listToString(list, "; ", true);
   }
 
+  /**
+   * @param userId
+   * @return The security profile of the given user or null, if the user isn't known (e. g. not yet saved) or in maintenance mode.
+   */
+  public UserSecurityProfile getSecurityProfile(final Integer userId)
+  {
+    if (userId == null) {
+      return null;
+    }
+    checkRefresh();
+    final Snapshot data = snapshot;
+    return data != null ? data.securityProfiles.get(userId) : null;
+  }
+
   public List<UserRightDO> getUserRights(final Integer userId)
   {
     return getUserRightMap().get(userId);
@@ -396,7 +445,7 @@ public class UserGroupCache extends AbstractCache
   private Map<Integer, List<UserRightDO>> getUserRightMap()
   {
     checkRefresh();
-    return rightMap;
+    return snapshot.rightMap;
   }
 
   /**
@@ -406,20 +455,20 @@ public class UserGroupCache extends AbstractCache
    */
   public Collection<Integer> getUserGroups(final PFUserDO user)
   {
-    checkRefresh();
     return getUserGroupIdMap().get(user.getId());
   }
 
   public EmployeeDO getEmployee(final Integer userId)
   {
     checkRefresh();
-    EmployeeDO employee = this.employeeMap.get(userId);
+    final Map<Integer, EmployeeDO> map = this.employeeMap;
+    EmployeeDO employee = map.get(userId);
     if (employee == null) {
       @SuppressWarnings("unchecked")
       final List<EmployeeDO> list = this.hibernateTemplate.find("from EmployeeDO e where e.user.id = ?", userId);
       if (list != null && list.size() > 0) {
         employee = list.get(0);
-        this.employeeMap.put(userId, employee);
+        map.put(userId, employee);
       }
     }
     return employee;
@@ -431,36 +480,388 @@ public class UserGroupCache extends AbstractCache
    */
   public void refreshEmployee(final Integer userId)
   {
-    if (this.employeeMap != null) {
-      this.employeeMap.remove(userId);
+    final Map<Integer, EmployeeDO> map = this.employeeMap;
+    if (map != null) {
+      map.remove(userId);
     }
   }
 
   private Map<Integer, GroupDO> getGroupMap()
   {
     checkRefresh();
-    return groupMap;
+    return snapshot.groupMap;
   }
 
   private Map<Integer, Set<Integer>> getUserGroupIdMap()
   {
     checkRefresh();
-    return userGroupIdMap;
+    return snapshot.userGroupIdMap;
+  }
+
+  private Map<Integer, PFUserDO> getUserMap()
+  {
+    checkRefresh();
+    final Snapshot data = snapshot;
+    return data != null ? data.userMap : null;
   }
 
   /**
-   * Should be called after user modifications.
+   * Should be called after user modifications. Only the given user and his security profile is updated (no reload of the whole cache)
+   * after the commit of the current transaction.
    * @param user
    */
   void updateUser(final PFUserDO user)
   {
-    getUserMap().put(user.getId(), user);
+    if (user == null || user.getId() == null) {
+      return;
+    }
+    // The given object may be modified by the caller (e. g. a form) but the snapshots are immutable, so a copy of the saved values is cached
+    // (the rights are cached separately):
+    final PFUserDO copy = new PFUserDO();
+    copy.copyValuesFrom(user, "rights");
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        applyUserUpdate(copy);
+      }
+    });
   }
 
-  private Map<Integer, PFUserDO> getUserMap()
+  private void applyUserUpdate(final PFUserDO user)
+  {
+    synchronized (this) {
+      final Snapshot current = getSnapshotForUpdate();
+      if (current == null) {
+        return;
+      }
+      final Snapshot data = current.copy();
+      data.userMap = new HashMap<Integer, PFUserDO>(current.userMap);
+      data.userMap.put(user.getId(), user);
+      publish(data, Collections.singleton(user.getId()));
+    }
+    Login.getInstance().afterUserGroupCacheUpdate(Collections.singleton(user.getId()), Collections.<Integer> emptySet());
+  }
+
+  /**
+   * Should be called after group modifications (including the modification of the assigned users). Only the given group, the memberships
+   * of the old and new assigned users and their security profiles are updated (no reload of the whole cache) after the commit of the
+   * current transaction.
+   * @param group
+   */
+  void updateGroup(final GroupDO group)
+  {
+    if (group == null) {
+      return;
+    }
+    updateGroups(Collections.singleton(group));
+  }
+
+  /**
+   * Same as {@link #updateGroup(GroupDO)}, but all given groups are updated together.
+   * @param groups
+   */
+  void updateGroups(final Collection<GroupDO> groups)
+  {
+    final Map<Integer, GroupDO> modifiedGroups = new HashMap<Integer, GroupDO>();
+    final Map<Integer, Set<Integer>> members = new HashMap<Integer, Set<Integer>>();
+    for (final GroupDO group : groups) {
+      if (group == null || group.getId() == null) {
+        continue;
+      }
+      modifiedGroups.put(group.getId(), group);
+      // The assigned users are read within the current transaction:
+      final Set<Integer> userIds = new HashSet<Integer>();
+      if (group.getAssignedUsers() != null) {
+        for (final PFUserDO user : group.getAssignedUsers()) {
+          if (user != null) {
+            userIds.add(user.getId());
+          }
+        }
+      }
+      members.put(group.getId(), userIds);
+    }
+    scheduleGroupUpdates(modifiedGroups, members);
+  }
+
+  /**
+   * Should be called after deleting a group from the data-base.
+   * @param groupId
+   */
+  void removeGroup(final Integer groupId)
+  {
+    if (groupId == null) {
+      return;
+    }
+    scheduleGroupUpdates(Collections.<Integer, GroupDO> singletonMap(groupId, null),
+        Collections.singletonMap(groupId, Collections.<Integer> emptySet()));
+  }
+
+  /**
+   * @param groups The modified groups (value is null if the group is removed).
+   * @param members The ids of the assigned users of the modified groups.
+   */
+  private void scheduleGroupUpdates(final Map<Integer, GroupDO> groups, final Map<Integer, Set<Integer>> members)
+  {
+    if (groups.isEmpty() == true) {
+      return;
+    }
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        applyGroupUpdates(groups, members);
+      }
+    });
+  }
+
+  private void applyGroupUpdates(final Map<Integer, GroupDO> groups, final Map<Integer, Set<Integer>> members)
+  {
+    synchronized (this) {
+      final Snapshot current = getSnapshotForUpdate();
+      if (current == null) {
+        return;
+      }
+      final Snapshot data = current.copy();
+      data.groupMap = new HashMap<Integer, GroupDO>(current.groupMap);
+      data.userGroupIdMap = new HashMap<Integer, Set<Integer>>(current.userGroupIdMap);
+      final Set<Integer> userIds = new HashSet<Integer>();
+      final Set<ProjectForgeGroup> systemGroups = EnumSet.noneOf(ProjectForgeGroup.class);
+      for (final Map.Entry<Integer, GroupDO> entry : groups.entrySet()) {
+        final Integer groupId = entry.getKey();
+        final GroupDO group = entry.getValue();
+        // The group may be a system group before or after the modification (e. g. renamed):
+        final ProjectForgeGroup oldSystemGroup = getSystemGroup(data.groupMap.get(groupId));
+        if (oldSystemGroup != null) {
+          systemGroups.add(oldSystemGroup);
+        }
+        if (group != null) {
+          data.groupMap.put(groupId, group);
+          if (data.groupIndex.containsKey(groupId) == false) {
+            data.groupIndex = new HashMap<Integer, Integer>(data.groupIndex);
+            data.groupIndex.put(groupId, data.groupIndex.size());
+          }
+          final ProjectForgeGroup newSystemGroup = getSystemGroup(group);
+          if (newSystemGroup != null) {
+            systemGroups.add(newSystemGroup);
+          }
+        } else {
+          data.groupMap.remove(groupId);
+        }
+        final Set<Integer> groupMembers = members.get(groupId);
+        // Old and new members of the group:
+        final Set<Integer> affectedUserIds = new HashSet<Integer>(groupMembers);
+        for (final Map.Entry<Integer, Set<Integer>> userEntry : data.userGroupIdMap.entrySet()) {
+          if (userEntry.getValue().contains(groupId) == true) {
+            affectedUserIds.add(userEntry.getKey());
+          }
+        }
+        for (final Integer userId : affectedUserIds) {
+          final Set<Integer> oldGroupIds = data.userGroupIdMap.get(userId);
+          final Set<Integer> groupIds = oldGroupIds != null ? new HashSet<Integer>(oldGroupIds) : new HashSet<Integer>();
+          if (groupMembers.contains(userId) == true) {
+            groupIds.add(groupId);
+          } else {
+            groupIds.remove(groupId);
+          }
+          data.userGroupIdMap.put(userId, groupIds);
+        }
+        userIds.addAll(affectedUserIds);
+      }
+      if (systemGroups.isEmpty() == false) {
+        data.systemGroupUsers = new EnumMap<ProjectForgeGroup, Set<Integer>>(current.systemGroupUsers);
+        for (final ProjectForgeGroup systemGroup : systemGroups) {
+          data.systemGroupUsers.put(systemGroup, getSystemGroupUsers(data, systemGroup));
+        }
+      }
+      publish(data, userIds);
+    }
+    Login.getInstance().afterUserGroupCacheUpdate(Collections.<Integer> emptySet(), groups.keySet());
+  }
+
+  /**
+   * Should be called after modifications of the rights of the given user. The rights of the user are reloaded from the data-base within
+   * the current transaction and applied after its commit.
+   * @param userId
+   */
+  @SuppressWarnings("unchecked")
+  void updateUserRights(final Integer userId)
+  {
+    if (userId == null) {
+      return;
+    }
+    final List<UserRightDO> rights = hibernateTemplate.find("from UserRightDO t where t.user.id = ?", userId);
+    TransactionHelper.executeAfterCommit(new Runnable() {
+      @Override
+      public void run()
+      {
+        applyUserRights(userId, rights);
+      }
+    });
+  }
+
+  private synchronized void applyUserRights(final Integer userId, final List<UserRightDO> rights)
+  {
+    final Snapshot current = getSnapshotForUpdate();
+    if (current == null) {
+      return;
+    }
+    final Snapshot data = current.copy();
+    data.allRightsMap = new HashMap<Integer, List<UserRightDO>>(current.allRightsMap);
+    if (rights == null || rights.isEmpty() == true) {
+      data.allRightsMap.remove(userId);
+    } else {
+      data.allRightsMap.put(userId, rights);
+    }
+    publish(data, Collections.singleton(userId));
+  }
+
+  /**
+   * Modifications on other nodes are applied as targeted updates by reloading the modified user, group or user right.
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    if (snapshot == null || id == null) {
+      super.invalidate(entityClass, id);
+    } else if (PFUserDO.class.equals(entityClass) == true) {
+      final PFUserDO user = hibernateTemplate.get(PFUserDO.class, id);
+      if (user != null) {
+        updateUser(user);
+      } else {
+        removeUser((Integer) id);
+      }
+    } else if (GroupDO.class.equals(entityClass) == true) {
+      final GroupDO group = hibernateTemplate.get(GroupDO.class, id);
+      if (group != null) {
+        updateGroup(group);
+      } else {
+        removeGroup((Integer) id);
+      }
+    } else if (UserRightDO.class.equals(entityClass) == true) {
+      final List<Integer> userIds = hibernateTemplate.find("select t.user.id from UserRightDO t where t.id = ?", id);
+      if (userIds != null && userIds.size() > 0) {
+        updateUserRights(userIds.get(0));
+      } else {
+        // The right was deleted, so reload the rights of the user owning this right:
+        final Integer userId = getUserIdOfRight(snapshot, id);
+        if (userId != null) {
+          updateUserRights(userId);
+        }
+      }
+    } else if (EmployeeDO.class.equals(entityClass) == true) {
+      // The employees are loaded lazily by user id:
+      this.employeeMap = new ConcurrentHashMap<Integer, EmployeeDO>();
+    } else {
+      super.invalidate(entityClass, id);
+    }
+  }
+
+  /**
+   * Should be called after deleting a user from the data-base.
+   * @param userId
+   */
+  void removeUser(final Integer userId)
+  {
+    if (userId == null) {
+      return;
+    }
+    synchronized (this) {
+      final Snapshot current = getSnapshotForUpdate();
+      if (current == null) {
+        return;
+      }
+      final Snapshot data = current.copy();
+      data.userMap = new HashMap<Integer, PFUserDO>(current.userMap);
+      data.userMap.remove(userId);
+      data.userGroupIdMap = new HashMap<Integer, Set<Integer>>(current.userGroupIdMap);
+      data.userGroupIdMap.remove(userId);
+      data.allRightsMap = new HashMap<Integer, List<UserRightDO>>(current.allRightsMap);
+      data.allRightsMap.remove(userId);
+      data.rightMap = new HashMap<Integer, List<UserRightDO>>(current.rightMap);
+      data.rightMap.remove(userId);
+      data.securityProfiles = new HashMap<Integer, UserSecurityProfile>(current.securityProfiles);
+      data.securityProfiles.remove(userId);
+      data.systemGroupUsers = new EnumMap<ProjectForgeGroup, Set<Integer>>(current.systemGroupUsers);
+      for (final Map.Entry<ProjectForgeGroup, Set<Integer>> entry : current.systemGroupUsers.entrySet()) {
+        if (entry.getValue().contains(userId) == true) {
+          final Set<Integer> userIds = new HashSet<Integer>(entry.getValue());
+          userIds.remove(userId);
+          data.systemGroupUsers.put(entry.getKey(), userIds);
+        }
+      }
+      this.snapshot = data;
+    }
+  }
+
+  /**
+   * @return The id of the user owning the given right or null if not found.
+   */
+  private static Integer getUserIdOfRight(final Snapshot data, final Serializable rightId)
+  {
+    if (data == null) {
+      return null;
+    }
+    for (final Map.Entry<Integer, List<UserRightDO>> entry : data.allRightsMap.entrySet()) {
+      for (final UserRightDO right : entry.getValue()) {
+        if (rightId.equals(right.getId()) == true) {
+          return entry.getKey();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return The current snapshot (after a refresh if expired) or null in maintenance mode.
+   */
+  private Snapshot getSnapshotForUpdate()
   {
     checkRefresh();
-    return userMap;
+    return snapshot;
+  }
+
+  /**
+   * Compiles the security profiles and the available rights of the given users and publishes the new snapshot by one volatile write. Must
+   * be called synchronized.
+   * @param data The new snapshot (not yet published).
+   * @param userIds The ids of the users whose memberships or rights are modified.
+   */
+  private void publish(final Snapshot data, final Collection<Integer> userIds)
+  {
+    final Map<Integer, UserSecurityProfile> profiles = new HashMap<Integer, UserSecurityProfile>(data.securityProfiles);
+    for (final Integer userId : userIds) {
+      final EnumSet<ProjectForgeGroup> systemGroups = EnumSet.noneOf(ProjectForgeGroup.class);
+      for (final Map.Entry<ProjectForgeGroup, Set<Integer>> entry : data.systemGroupUsers.entrySet()) {
+        if (entry.getValue().contains(userId) == true) {
+          systemGroups.add(entry.getKey());
+        }
+      }
+      profiles.put(userId, new UserSecurityProfile(userId, data.allRightsMap.get(userId), data.groupIndex, data.userGroupIdMap.get(userId),
+          systemGroups));
+    }
+    data.securityProfiles = profiles;
+    // The availability of the rights depends on the group memberships, therefore it's checked against the new snapshot:
+    final UserGroupCache view = new UserGroupCache(data);
+    final Map<Integer, List<UserRightDO>> rMap = new HashMap<Integer, List<UserRightDO>>(data.rightMap);
+    for (final Integer userId : userIds) {
+      final List<UserRightDO> rights = data.allRightsMap.get(userId);
+      if (rights == null) {
+        rMap.remove(userId);
+        continue;
+      }
+      final List<UserRightDO> list = new ArrayList<UserRightDO>();
+      for (final UserRightDO right : rights) {
+        if (UserRights.instance().getRight(right.getRightId()).isAvailable(view, right.getUser()) == true) {
+          list.add(right);
+        }
+      }
+      rMap.put(userId, list);
+    }
+    data.rightMap = rMap;
+    this.snapshot = data;
   }
 
   /**
@@ -472,67 +873,41 @@ public class UserGroupCache extends AbstractCache
   {
     log.info("Initializing UserGroupCache ...");
     // This method must not be synchronized because it works with a new copy of maps.
-    final Map<Integer, PFUserDO> uMap = new HashMap<Integer, PFUserDO>();
+    final Snapshot data = new Snapshot();
+    data.userMap = new HashMap<Integer, PFUserDO>();
     // Could not autowire UserDao because of cyclic reference with AccessChecker.
     final List<PFUserDO> users = Login.getInstance().getAllUsers();
     for (final PFUserDO user : users) {
-      uMap.put(user.getId(), user);
+      data.userMap.put(user.getId(), user);
     }
     final List<GroupDO> groups = Login.getInstance().getAllGroups();
-    final Map<Integer, GroupDO> gMap = new HashMap<Integer, GroupDO>();
-    final Map<Integer, Set<Integer>> ugIdMap = new HashMap<Integer, Set<Integer>>();
-    final Set<Integer> nAdminUsers = new HashSet<Integer>();
-    final Set<Integer> nFinanceUser = new HashSet<Integer>();
-    final Set<Integer> nControllingUsers = new HashSet<Integer>();
-    final Set<Integer> nProjectManagers = new HashSet<Integer>();
-    final Set<Integer> nProjectAssistants = new HashSet<Integer>();
-    final Set<Integer> nMarketingUsers = new HashSet<Integer>();
-    final Set<Integer> nOrgaUsers = new HashSet<Integer>();
+    data.groupMap = new HashMap<Integer, GroupDO>();
+    data.groupIndex = new HashMap<Integer, Integer>();
+    data.userGroupIdMap = new HashMap<Integer, Set<Integer>>();
+    data.systemGroupUsers = new EnumMap<ProjectForgeGroup, Set<Integer>>(ProjectForgeGroup.class);
+    for (final ProjectForgeGroup systemGroup : ProjectForgeGroup.values()) {
+      data.systemGroupUsers.put(systemGroup, new HashSet<Integer>());
+    }
     for (final GroupDO group : groups) {
-      gMap.put(group.getId(), group);
+      data.groupMap.put(group.getId(), group);
+      data.groupIndex.put(group.getId(), data.groupIndex.size());
       if (group.getAssignedUsers() != null) {
+        final ProjectForgeGroup systemGroup = getSystemGroup(group);
         for (final PFUserDO user : group.getAssignedUsers()) {
           if (user != null) {
-            final Set<Integer> groupIdSet = ensureAndGetUserGroupIdMap(ugIdMap, user.getId());
+            final Set<Integer> groupIdSet = ensureAndGetUserGroupIdMap(data.userGroupIdMap, user.getId());
             groupIdSet.add(group.getId());
-            if (ProjectForgeGroup.ADMIN_GROUP.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' as administrator.");
-              nAdminUsers.add(user.getId());
-            } else if (ProjectForgeGroup.FINANCE_GROUP.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' for finance.");
-              nFinanceUser.add(user.getId());
-            } else if (ProjectForgeGroup.CONTROLLING_GROUP.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' for controlling.");
-              nControllingUsers.add(user.getId());
-            } else if (ProjectForgeGroup.PROJECT_MANAGER.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' as project manager.");
-              nProjectManagers.add(user.getId());
-            } else if (ProjectForgeGroup.PROJECT_ASSISTANT.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' as project assistant.");
-              nProjectAssistants.add(user.getId());
-            } else if (ProjectForgeGroup.MARKETING_GROUP.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' as marketing user.");
-              nMarketingUsers.add(user.getId());
-            } else if (ProjectForgeGroup.ORGA_TEAM.equals(group.getName()) == true) {
-              log.debug("Adding user '" + user.getUsername() + "' as orga user.");
-              nOrgaUsers.add(user.getId());
+            if (systemGroup != null) {
+              log.debug("Adding user '" + user.getUsername() + "' to system group " + systemGroup + ".");
+              data.systemGroupUsers.get(systemGroup).add(user.getId());
             }
           }
         }
       }
     }
-    this.userMap = uMap;
-    this.groupMap = gMap;
-    this.adminUsers = nAdminUsers;
-    this.financeUsers = nFinanceUser;
-    this.controllingUsers = nControllingUsers;
-    this.projectManagers = nProjectManagers;
-    this.projectAssistants = nProjectAssistants;
-    this.marketingUsers = nMarketingUsers;
-    this.orgaUsers = nOrgaUsers;
-    this.userGroupIdMap = ugIdMap;
-    this.employeeMap = new HashMap<Integer, EmployeeDO>();
-    final Map<Integer, List<UserRightDO>> rMap = new HashMap<Integer, List<UserRightDO>>();
+    this.employeeMap = new ConcurrentHashMap<Integer, EmployeeDO>();
+    // All rights of the users (also the rights not available for the user) for the security profiles:
+    data.allRightsMap = new HashMap<Integer, List<UserRightDO>>();
     List<UserRightDO> rights;
     try {
       rights = hibernateTemplate.find("from UserRightDO t order by user.id, right_id");
@@ -541,7 +916,7 @@ public class UserGroupCache extends AbstractCache
           + ex.getMessage());
       rights = new ArrayList<UserRightDO>();
     }
-    List<UserRightDO> list = null;
+    List<UserRightDO> allRightsList = null;
     Integer userId = null;
     for (final UserRightDO right : rights) {
       if (right.getUserId() == null) {
@@ -549,21 +924,53 @@ public class UserGroupCache extends AbstractCache
         continue;
       }
       if (right.getUserId().equals(userId) == false) {
-        list = new ArrayList<UserRightDO>();
+        allRightsList = new ArrayList<UserRightDO>();
         userId = right.getUserId();
-        if (userId != null) {
-          rMap.put(userId, list);
-        }
-      }
-      if (UserRights.instance().getRight(right.getRightId()).isAvailable(this, right.getUser()) == true) {
-        list.add(right);
+        data.allRightsMap.put(userId, allRightsList);
       }
+      allRightsList.add(right);
     }
-    this.rightMap = rMap;
+    data.rightMap = new HashMap<Integer, List<UserRightDO>>();
+    data.securityProfiles = new HashMap<Integer, UserSecurityProfile>();
+    final Set<Integer> userIds = new HashSet<Integer>(data.userMap.keySet());
+    userIds.addAll(data.userGroupIdMap.keySet());
+    userIds.addAll(data.allRightsMap.keySet());
+    publish(data, userIds);
     log.info("Initializing of UserGroupCache done.");
     Login.getInstance().afterUserGroupCacheRefresh(users, groups);
   }
 
+  /**
+   * @param group
+   * @return The system group with the name of the given group or null, if the given group isn't a system group.
+   */
+  private static ProjectForgeGroup getSystemGroup(final GroupDO group)
+  {
+    if (group == null) {
+      return null;
+    }
+    for (final ProjectForgeGroup systemGroup : ProjectForgeGroup.values()) {
+      if (systemGroup.equals(group.getName()) == true) {
+        return systemGroup;
+      }
+    }
+    return null;
+  }
+
+  private static Set<Integer> getSystemGroupUsers(final Snapshot data, final ProjectForgeGroup systemGroup)
+  {
+    final Set<Integer> userIds = new HashSet<Integer>();
+    for (final Map.Entry<Integer, Set<Integer>> entry : data.userGroupIdMap.entrySet()) {
+      for (final Integer groupId : entry.getValue()) {
+        if (systemGroup.equals(getSystemGroup(data.groupMap.get(groupId))) == true) {
+          userIds.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return userIds;
+  }
+
   private static Set<Integer> ensureAndGetUserGroupIdMap(final Map<Integer, Set<Integer>> ugIdMap, final Integer userId)
   {
     Set<Integer> set = ugIdMap.get(userId);
@@ -580,7 +987,12 @@ public class UserGroupCache extends AbstractCache
       throw new IllegalStateException(
           "Can't set admin user internally! This method is only available if system is under maintenance (update required first is true)!");
     }
-    checkRefresh();
-    this.adminUsers.add(adminUser.getId());
+    final Snapshot current = getSnapshotForUpdate();
+    final Snapshot data = current.copy();
+    data.systemGroupUsers = new EnumMap<ProjectForgeGroup, Set<Integer>>(current.systemGroupUsers);
+    final Set<Integer> adminUsers = new HashSet<Integer>(current.systemGroupUsers.get(ProjectForgeGroup.ADMIN_GROUP));
+    adminUsers.add(adminUser.getId());
+    data.systemGroupUsers.put(ProjectForgeGroup.ADMIN_GROUP, adminUsers);
+    publish(data, Collections.singleton(adminUser.getId()));
   }
 }
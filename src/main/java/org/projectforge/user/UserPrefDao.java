@@ -24,7 +24,6 @@
 package org.projectforge.user;
 
 import java.io.Serializable;
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.util.List;
 
@@ -35,6 +34,7 @@ import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.projectforge.access.AccessException;
 import org.projectforge.access.OperationType;
+import org.projectforge.common.FieldMetadataRegistry;
 import org.projectforge.common.NumberHelper;
 import org.projectforge.common.StringHelper;
 import org.projectforge.core.BaseDO;
@@ -194,29 +194,25 @@ public class UserPrefDao extends BaseDao<UserPrefDO>
   {
     Validate.notNull(userPref);
     Validate.notNull(beanType);
-    final Field[] fields = beanType.getDeclaredFields();
-    AccessibleObject.setAccessible(fields, true);
     int no = 0;
-    for (final Field field : fields) {
-      if (field.isAnnotationPresent(UserPrefParameter.class) == true) {
-        final UserPrefEntryDO userPrefEntry = new UserPrefEntryDO();
-        userPrefEntry.setParameter(field.getName());
-        if (obj != null) {
-          Object value = null;
-          try {
-            value = field.get(obj);
-            userPrefEntry.setValue(convertParameterValueToString(value));
-          } catch (final IllegalAccessException ex) {
-            log.error(ex.getMessage(), ex);
-          }
-          userPrefEntry.valueAsObject = value;
-        }
-        evaluateAnnotation(userPrefEntry, beanType, field);
-        if (userPrefEntry.orderString == null) {
-          userPrefEntry.orderString = "ZZZ" + StringHelper.format2DigitNumber(no++);
+    for (final Field field : FieldMetadataRegistry.getDeclaredFields(beanType, UserPrefParameter.class)) {
+      final UserPrefEntryDO userPrefEntry = new UserPrefEntryDO();
+      userPrefEntry.setParameter(field.getName());
+      if (obj != null) {
+        Object value = null;
+        try {
+          value = field.get(obj);
+          userPrefEntry.setValue(convertParameterValueToString(value));
+        } catch (final IllegalAccessException ex) {
+          log.error(ex.getMessage(), ex);
         }
-        userPref.addUserPrefEntry(userPrefEntry);
+        userPrefEntry.valueAsObject = value;
+      }
+      evaluateAnnotation(userPrefEntry, beanType, field);
+      if (userPrefEntry.orderString == null) {
+        userPrefEntry.orderString = "ZZZ" + StringHelper.format2DigitNumber(no++);
       }
+      userPref.addUserPrefEntry(userPrefEntry);
     }
   }
 
@@ -225,29 +221,26 @@ public class UserPrefDao extends BaseDao<UserPrefDO>
     if (userPref.getUserPrefEntries() == null) {
       return;
     }
-    final Field[] fields = beanType.getDeclaredFields();
     int no = 0;
-    for (final Field field : fields) {
-      if (field.isAnnotationPresent(UserPrefParameter.class) == true) {
-        UserPrefEntryDO userPrefEntry = null;
-        for (final UserPrefEntryDO entry : userPref.getUserPrefEntries()) {
-          if (field.getName().equals(entry.getParameter()) == true) {
-            userPrefEntry = entry;
-            break;
-          }
-        }
-        if (userPrefEntry == null) {
-          userPrefEntry = new UserPrefEntryDO();
-          evaluateAnnotation(userPrefEntry, beanType, field);
-          userPref.addUserPrefEntry(userPrefEntry);
-        } else {
-          evaluateAnnotation(userPrefEntry, beanType, field);
-        }
-        if (StringUtils.isBlank(userPrefEntry.orderString) == true) {
-          userPrefEntry.orderString = "ZZZ" + StringHelper.format2DigitNumber(no++);
+    for (final Field field : FieldMetadataRegistry.getDeclaredFields(beanType, UserPrefParameter.class)) {
+      UserPrefEntryDO userPrefEntry = null;
+      for (final UserPrefEntryDO entry : userPref.getUserPrefEntries()) {
+        if (field.getName().equals(entry.getParameter()) == true) {
+          userPrefEntry = entry;
+          break;
         }
-        userPrefEntry.setParameter(field.getName());
       }
+      if (userPrefEntry == null) {
+        userPrefEntry = new UserPrefEntryDO();
+        evaluateAnnotation(userPrefEntry, beanType, field);
+        userPref.addUserPrefEntry(userPrefEntry);
+      } else {
+        evaluateAnnotation(userPrefEntry, beanType, field);
+      }
+      if (StringUtils.isBlank(userPrefEntry.orderString) == true) {
+        userPrefEntry.orderString = "ZZZ" + StringHelper.format2DigitNumber(no++);
+      }
+      userPrefEntry.setParameter(field.getName());
     }
   }
 
@@ -288,17 +281,9 @@ public class UserPrefDao extends BaseDao<UserPrefDO>
   {
     Validate.notNull(userPref);
     Validate.notNull(obj);
-    final Field[] fields = obj.getClass().getDeclaredFields();
-    AccessibleObject.setAccessible(fields, true);
     if (userPref.getUserPrefEntries() != null) {
       for (final UserPrefEntryDO entry : userPref.getUserPrefEntries()) {
-        Field field = null;
-        for (final Field f : fields) {
-          if (f.getName().equals(entry.getParameter()) == true) {
-            field = f;
-            break;
-          }
-        }
+        final Field field = FieldMetadataRegistry.getDeclaredField(obj.getClass(), entry.getParameter());
         if (field == null) {
           log.error("Declared field '" + entry.getParameter() + "' not found for " + obj.getClass() + ". Ignoring parameter.");
         } else {
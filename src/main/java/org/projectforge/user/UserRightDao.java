@@ -92,7 +92,7 @@ public class UserRightDao extends BaseDao<UserRightDO>
         update(rightDO);
       }
     }
-    userGroupCache.setExpired();
+    userGroupCache.updateUserRights(user.getId());
   }
 
   private void copy(final UserRightDO dest, final UserRightVO src)
@@ -144,6 +144,16 @@ public class UserRightDao extends BaseDao<UserRightDO>
     return list;
   }
 
+  /**
+   * The compiled security profiles of the user group cache contain the rights, so the rights of the user have to be updated.
+   * @see org.projectforge.core.BaseDao#afterSaveOrModify(org.projectforge.core.ExtendedBaseDO)
+   */
+  @Override
+  protected void afterSaveOrModify(final UserRightDO obj)
+  {
+    userGroupCache.updateUserRights(obj.getUserId());
+  }
+
   @Override
   protected String[] getAdditionalSearchFields()
   {
@@ -24,6 +24,8 @@
 package org.projectforge.user;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.hibernate.search.annotations.ClassBridge;
@@ -42,6 +44,8 @@ public class UserRightId implements I18nEnum, Comparable<UserRightId>, Serializa
 {
   private static final long serialVersionUID = 2328022474754212904L;
 
+  private static final Map<String, Integer> ORDINALS = new HashMap<String, Integer>();
+
   public static UserRightId FIBU_EINGANGSRECHNUNGEN = new UserRightId("FIBU_EINGANGSRECHNUNGEN", "fibu1",
       "access.right.fibu.eingangsrechnungen");
 
@@ -80,6 +84,11 @@ public class UserRightId implements I18nEnum, Comparable<UserRightId>, Serializa
 
   private final String i18nKey;
 
+  /**
+   * Ordinal + 1, 0 means not yet assigned (e. g. after deserialization).
+   */
+  private transient int ordinalPlusOne;
+
   /**
    * @param id Must be unique (including all plugins).
    * @param orderString For displaying the rights in e. g. UserEditPage in the correct order.
@@ -97,6 +106,37 @@ public class UserRightId implements I18nEnum, Comparable<UserRightId>, Serializa
     return id;
   }
 
+  /**
+   * All right ids (including the right ids of the plugins) are numbered consecutively in the order of their first usage. Instances with the
+   * same id have the same ordinal.
+   * @return The index of this right id e. g. for arrays of rights.
+   * @see UserSecurityProfile
+   */
+  public int getOrdinal()
+  {
+    if (ordinalPlusOne == 0) {
+      synchronized (ORDINALS) {
+        Integer ordinal = ORDINALS.get(id);
+        if (ordinal == null) {
+          ordinal = ORDINALS.size();
+          ORDINALS.put(id, ordinal);
+        }
+        ordinalPlusOne = ordinal + 1;
+      }
+    }
+    return ordinalPlusOne - 1;
+  }
+
+  /**
+   * @return The number of ordinals assigned so far.
+   */
+  static int getNumberOfOrdinals()
+  {
+    synchronized (ORDINALS) {
+      return ORDINALS.size();
+    }
+  }
+
   @Override
   public String getI18nKey()
   {
@@ -0,0 +1,201 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.user;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Immutable, pre-compiled security profile of a user, built by the {@link UserGroupCache} on every refresh: The rights are stored in an
+ * array indexed by {@link UserRightId#getOrdinal()}, the group memberships as bit set (indexed by the group index of the cache refresh)
+ * and the memberships of the system groups as enum set. The access checks need therefore no locks, no iterations over the rights and no
+ * hash look-ups of sets.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class UserSecurityProfile
+{
+  private static final UserRightDO[] NO_RIGHTS = new UserRightDO[0];
+
+  private final Integer userId;
+
+  private final UserRightDO[] rights;
+
+  /**
+   * Group id -> index of the bit in the groups bit set. Shared by all profiles of one cache refresh.
+   */
+  private final Map<Integer, Integer> groupIndex;
+
+  private final BitSet groups;
+
+  private final int[] groupIds;
+
+  private final EnumSet<ProjectForgeGroup> systemGroups;
+
+  private volatile String fingerprint;
+
+  /**
+   * @param userId
+   * @param rights All rights of the user (the availability of the rights isn't checked).
+   * @param groupIndex The index of all groups (group id -> bit index).
+   * @param groupIds The ids of the groups the user is member of.
+   * @param systemGroups The system groups the user is member of.
+   */
+  UserSecurityProfile(final Integer userId, final Collection<UserRightDO> rights, final Map<Integer, Integer> groupIndex,
+      final Collection<Integer> groupIds, final Collection<ProjectForgeGroup> systemGroups)
+  {
+    this.userId = userId;
+    if (rights == null || rights.isEmpty() == true) {
+      this.rights = NO_RIGHTS;
+    } else {
+      int max = -1;
+      for (final UserRightDO right : rights) {
+        if (right.getRightId() != null) {
+          max = Math.max(max, right.getRightId().getOrdinal());
+        }
+      }
+      this.rights = new UserRightDO[max + 1];
+      for (final UserRightDO right : rights) {
+        if (right.getRightId() != null) {
+          this.rights[right.getRightId().getOrdinal()] = right;
+        }
+      }
+    }
+    this.groupIndex = groupIndex;
+    this.groups = new BitSet(groupIndex.size());
+    if (groupIds == null) {
+      this.groupIds = new int[0];
+    } else {
+      this.groupIds = new int[groupIds.size()];
+      int i = 0;
+      for (final Integer groupId : groupIds) {
+        this.groupIds[i++] = groupId;
+        final Integer index = groupIndex.get(groupId);
+        if (index != null) {
+          groups.set(index);
+        }
+      }
+    }
+    this.systemGroups = EnumSet.noneOf(ProjectForgeGroup.class);
+    if (systemGroups != null) {
+      this.systemGroups.addAll(systemGroups);
+    }
+  }
+
+  public Integer getUserId()
+  {
+    return userId;
+  }
+
+  /**
+   * @param rightId
+   * @return The right of the user (as stored in the data base) or null if not given.
+   */
+  public UserRightDO getRight(final UserRightId rightId)
+  {
+    final int ordinal = rightId.getOrdinal();
+    return ordinal < rights.length ? rights[ordinal] : null;
+  }
+
+  public boolean isMemberOfGroup(final Integer groupId)
+  {
+    if (groupId == null) {
+      return false;
+    }
+    final Integer index = groupIndex.get(groupId);
+    return index != null && groups.get(index) == true;
+  }
+
+  /**
+   * @return true if the user is member of at least one of the given system groups.
+   */
+  public boolean isMemberOfGroup(final ProjectForgeGroup... systemGroups)
+  {
+    for (final ProjectForgeGroup group : systemGroups) {
+      if (this.systemGroups.contains(group) == true) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if both users are member of at least one common group.
+   */
+  public boolean hasCommonGroup(final UserSecurityProfile other)
+  {
+    if (other.groupIndex == this.groupIndex) {
+      // Same cache refresh:
+      return groups.intersects(other.groups);
+    }
+    for (final int groupId : other.groupIds) {
+      if (isMemberOfGroup(groupId) == true) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The ids of the groups the user is member of. Please don't modify the returned array.
+   */
+  public int[] getGroupIds()
+  {
+    return groupIds;
+  }
+
+  /**
+   * The fingerprint of the effective permissions: the sorted ids of the groups and the values of all rights of the user. Users with the
+   * same fingerprint have the same access (e. g. they share the same menu). The fingerprint is built on first use.
+   * @return The fingerprint.
+   */
+  public String getFingerprint()
+  {
+    String result = fingerprint;
+    if (result != null) {
+      return result;
+    }
+    final int[] ids = groupIds.clone();
+    Arrays.sort(ids);
+    final StringBuilder buf = new StringBuilder();
+    buf.append("g");
+    for (final int id : ids) {
+      buf.append(',').append(id);
+    }
+    buf.append(";r");
+    for (final UserRightDO right : rights) {
+      if (right == null) {
+        continue;
+      }
+      buf.append(',').append(right.getRightId().getOrdinal()).append('=').append(right.getValue() != null ? right.getValue().name() : "");
+    }
+    result = buf.toString();
+    fingerprint = result;
+    return result;
+  }
+}
@@ -23,6 +23,7 @@
 
 package org.projectforge.user;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,11 @@ public class UserXmlPreferencesCache extends AbstractCache
 
   private static UserXmlPreferencesCache instance;
 
+  public UserXmlPreferencesCache()
+  {
+    registerForInvalidation(UserXmlPreferencesDO.class);
+  }
+
   public static void setInternalInstance(final UserXmlPreferencesCache cache)
   {
     instance = cache;
@@ -184,6 +190,20 @@ public class UserXmlPreferencesCache extends AbstractCache
     log.info("Flushing of user preferences to data-base done.");
   }
 
+  /**
+   * The preferences of the given user (id is the user id) were written by another node: The user's preferences will be reloaded on next
+   * access, if not modified by this node.
+   * @see org.projectforge.common.AbstractCache#invalidate(java.lang.Class, java.io.Serializable)
+   */
+  @Override
+  public synchronized void invalidate(final Class< ? > entityClass, final Serializable id)
+  {
+    final UserXmlPreferencesMap data = allPreferences.get(id);
+    if (data != null && data.isModified() == false) {
+      allPreferences.remove(id);
+    }
+  }
+
   /**
    * Clear all volatile data (after logout). Forces refreshing of volatile data after re-login.
    * @param userId
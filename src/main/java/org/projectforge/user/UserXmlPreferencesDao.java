@@ -33,6 +33,7 @@ import org.projectforge.access.AccessChecker;
 import org.projectforge.common.GZIPHelper;
 import org.projectforge.core.BaseDO;
 import org.projectforge.core.BaseDao;
+import org.projectforge.core.CacheInvalidationBus;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskDao;
 import org.projectforge.task.TaskFilter;
@@ -64,6 +65,8 @@ public class UserXmlPreferencesDao extends HibernateDaoSupport
 
   private UserDao userDao;
 
+  private CacheInvalidationBus cacheInvalidationBus;
+
   private final XStream xstream;
 
   public UserXmlPreferencesDao()
@@ -105,6 +108,11 @@ public class UserXmlPreferencesDao extends HibernateDaoSupport
     this.accessChecker = accessChecker;
   }
 
+  public void setCacheInvalidationBus(final CacheInvalidationBus cacheInvalidationBus)
+  {
+    this.cacheInvalidationBus = cacheInvalidationBus;
+  }
+
   /**
    * @param userDao the userDao to set
    */
@@ -267,6 +275,7 @@ public class UserXmlPreferencesDao extends HibernateDaoSupport
       }
       getHibernateTemplate().update(userPrefs);
     }
+    publishCacheInvalidation(userId);
   }
 
   @Transactional(readOnly = false, propagation = Propagation.REQUIRES_NEW, isolation = Isolation.REPEATABLE_READ)
@@ -279,6 +288,18 @@ public class UserXmlPreferencesDao extends HibernateDaoSupport
     final UserXmlPreferencesDO userPreferencesDO = getUserPreferencesByUserId(userId, key, true);
     if (userPreferencesDO != null) {
       getHibernateTemplate().delete(userPreferencesDO);
+      publishCacheInvalidation(userId);
+    }
+  }
+
+  /**
+   * The user preferences of other nodes are invalidated per user (the user id is used as id).
+   * @param userId
+   */
+  private void publishCacheInvalidation(final Integer userId)
+  {
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.publish(UserXmlPreferencesDO.class, userId);
     }
   }
 }
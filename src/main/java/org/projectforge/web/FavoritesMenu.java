@@ -140,7 +140,8 @@ public class FavoritesMenu implements Serializable
     }
     final MenuEntry menuEntry;
     if (menuItemDef != null) {
-      menuEntry = menu.getMenuEntry(menuItemDef);
+      // Copy, because the entries of the menu are shared by all users with the same access rights:
+      menuEntry = menu.getMenuEntry(menuItemDef).copyLeaf();
     } else {
       menuEntry = new MenuEntry();
     }
@@ -219,7 +220,7 @@ public class FavoritesMenu implements Serializable
     if (menuEntry == null) {
       return;
     }
-    parent.addMenuEntry(menuEntry);
+    parent.addMenuEntry(menuEntry.copyLeaf());
   }
 
   private void addFavoriteMenuEntry(final MenuItemDef menuItemDef)
@@ -50,6 +50,7 @@ import org.projectforge.user.UserXmlPreferencesCache;
 import org.projectforge.web.admin.SetupPage;
 import org.projectforge.web.admin.SystemUpdatePage;
 import org.projectforge.web.mobile.LoginMobilePage;
+import org.projectforge.web.statistics.PersonalStatisticsPage;
 import org.projectforge.web.wicket.AbstractUnsecureBasePage;
 import org.projectforge.web.wicket.MySession;
 import org.projectforge.web.wicket.WicketUtils;
@@ -242,6 +243,8 @@ public class LoginPage extends AbstractUnsecureBasePage
     if (UserFilter.isUpdateRequiredFirst() == true) {
       throw new RestartResponseException(SystemUpdatePage.class);
     }
+    // Render the charts of the personal statistics in the background:
+    PersonalStatisticsPage.prerenderCharts(user);
     page.continueToOriginalDestination();
     // Redirect only if not a redirect is set by Wicket.
     throw new RestartResponseException(defaultPage);
@@ -46,6 +46,15 @@ public class Menu implements Serializable
     return rootMenuEntry.getSubMenuEntries();
   }
 
+  /**
+   * Evaluates the lazy initialized fields of all menu entries. Called by the {@link MenuBuilder} after building, because the menu is
+   * shared by all users with the same access rights and mustn't be modified afterwards.
+   */
+  void freeze()
+  {
+    rootMenuEntry.freeze();
+  }
+
   public MenuEntry findById(final String id)
   {
     return rootMenuEntry.findById(id);
@@ -27,10 +27,15 @@ import java.io.Serializable;
 
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.projectforge.access.AccessChecker;
+import org.projectforge.user.Login;
 import org.projectforge.user.PFUserDO;
+import org.projectforge.user.UserRights;
+import org.projectforge.user.UserSecurityProfile;
 
 /**
- * Build of the user's personal menu (depending on the access rights of the user).
+ * Build of the user's personal menu (depending on the access rights of the user). The menus only depend on the access rights, therefore
+ * all users with the same groups and rights (see {@link #getMenuKey(PFUserDO)}) share the same menu instance. The built menus mustn't be
+ * modified, user specific values such as the counters of new entries are evaluated by their models on rendering for the logged-in user.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  *
  */
@@ -48,9 +53,19 @@ public class MenuBuilder implements Serializable
 
   private final MenuCache menuCache = new MenuCache();
 
+  /**
+   * Removes the menus of the given user from the cache. The menus will be re-built on next usage (for all users with the same access
+   * rights).
+   * @param userId
+   */
   public void expireMenu(final Integer userId)
   {
-    menuCache.removeMenu(userId);
+    final PFUserDO user = userId != null ? UserRights.getUserGroupCache().getUser(userId) : null;
+    final String menuKey = getMenuKey(user);
+    if (menuKey != null) {
+      menuCache.removeMenu(menuKey);
+      menuCache.removeMobileMenu(menuKey);
+    }
   }
 
   public void refreshAllMenus()
@@ -78,6 +93,28 @@ public class MenuBuilder implements Serializable
     }
   }
 
+  /**
+   * The key of the menus of the given user: the fingerprint of the user's groups and rights and the flags used by the visibility checks
+   * of the menu items (restricted user, support of password changing).
+   * @param user
+   * @return The key or null if the user isn't known by the user group cache (the menu isn't cached).
+   */
+  String getMenuKey(final PFUserDO user)
+  {
+    if (user == null || user.getId() == null) {
+      return null;
+    }
+    final UserSecurityProfile profile = UserRights.getUserGroupCache().getSecurityProfile(user.getId());
+    if (profile == null) {
+      return null;
+    }
+    final StringBuilder buf = new StringBuilder();
+    buf.append(user.isRestrictedUser() == true ? 'R' : '-');
+    buf.append(Login.getInstance().isPasswordChangeSupported(user) == true ? 'P' : '-');
+    buf.append(';').append(profile.getFingerprint());
+    return buf.toString();
+  }
+
   public Menu getMenu(final PFUserDO user)
   {
     return getMenu(user, false);
@@ -91,11 +128,12 @@ public class MenuBuilder implements Serializable
   private Menu getMenu(final PFUserDO user, final boolean mobileMenu)
   {
     Menu menu = null;
-    if (user != null) {
+    final String menuKey = getMenuKey(user);
+    if (menuKey != null) {
       if (mobileMenu == true) {
-        menu = menuCache.getMobileMenu(user.getId());
+        menu = menuCache.getMobileMenu(menuKey);
       } else {
-        menu = menuCache.getMenu(user.getId());
+        menu = menuCache.getMenu(menuKey);
       }
       if (menu != null) {
         return menu;
@@ -103,11 +141,13 @@ public class MenuBuilder implements Serializable
     }
     menu = new Menu();
     buildMenuTree(menu, user, mobileMenu);
-    if (user != null) {
+    // Evaluate all lazy fields before sharing the menu with other threads:
+    menu.freeze();
+    if (menuKey != null) {
       if (mobileMenu == true) {
-        menuCache.putMobileMenu(user.getId(), menu);
+        menu = menuCache.putMobileMenu(menuKey, menu);
       } else {
-        menuCache.putMenu(user.getId(), menu);
+        menu = menuCache.putMenu(menuKey, menu);
       }
     }
     return menu;
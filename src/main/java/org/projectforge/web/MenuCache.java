@@ -23,64 +23,87 @@
 
 package org.projectforge.web;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.projectforge.common.AbstractCache;
 
 /**
- * Caches the user menus. Expire time is one hour.
+ * Caches the built menus. The menus are stored by the fingerprint of the effective access rights of the users (see
+ * {@link MenuBuilder#getMenuKey(org.projectforge.user.PFUserDO)}), so all users with the same groups and rights share the same (immutable)
+ * menu instance. Expire time is one hour.
  * @author Kai Reinhard (k.reinhard@micromata.de)
  * 
  */
 public class MenuCache extends AbstractCache
 {
-  private Map<Integer, Menu> menuMap;
+  private volatile ConcurrentHashMap<String, Menu> menuMap;
 
-  private Map<Integer, Menu> mobileMenuMap;
+  private volatile ConcurrentHashMap<String, Menu> mobileMenuMap;
 
   public MenuCache()
   {
     super(AbstractCache.TICKS_PER_HOUR); // Expires every hour.
   }
 
-  public Menu getMenu(final Integer userId)
+  public Menu getMenu(final String menuKey)
   {
-    return getMenuMap().get(userId);
+    return getMenuMap().get(menuKey);
   }
 
-  public Menu getMobileMenu(final Integer userId)
+  public Menu getMobileMenu(final String menuKey)
   {
-    return getMobileMenuMap().get(userId);
+    return getMobileMenuMap().get(menuKey);
   }
 
-  public void putMenu(final Integer userId, final Menu menu)
+  /**
+   * @param menuKey
+   * @param menu
+   * @return The menu to use: the given one or the menu put by another thread in the meantime for the same key.
+   */
+  public Menu putMenu(final String menuKey, final Menu menu)
   {
-    getMenuMap().put(userId, menu);
+    return putIfAbsent(getMenuMap(), menuKey, menu);
   }
 
-  public void putMobileMenu(final Integer userId, final Menu menu)
+  /**
+   * @see #putMenu(String, Menu)
+   */
+  public Menu putMobileMenu(final String menuKey, final Menu menu)
   {
-    getMobileMenuMap().put(userId, menu);
+    return putIfAbsent(getMobileMenuMap(), menuKey, menu);
   }
 
-  public void removeMenu(final Integer userId)
+  public void removeMenu(final String menuKey)
   {
-    getMenuMap().remove(userId);
+    getMenuMap().remove(menuKey);
   }
 
-  public void removeMobileMenu(final Integer userId)
+  public void removeMobileMenu(final String menuKey)
   {
-    getMobileMenuMap().remove(userId);
+    getMobileMenuMap().remove(menuKey);
   }
 
-  private Map<Integer, Menu> getMenuMap()
+  /**
+   * @return The number of cached menus (normal and mobile menus).
+   */
+  public int getSize()
+  {
+    return getMenuMap().size() + getMobileMenuMap().size();
+  }
+
+  private Menu putIfAbsent(final ConcurrentHashMap<String, Menu> map, final String menuKey, final Menu menu)
+  {
+    final Menu existing = map.putIfAbsent(menuKey, menu);
+    return existing != null ? existing : menu;
+  }
+
+  private ConcurrentHashMap<String, Menu> getMenuMap()
   {
     checkRefresh();
     return menuMap;
   }
 
-  private Map<Integer, Menu> getMobileMenuMap()
+  private ConcurrentHashMap<String, Menu> getMobileMenuMap()
   {
     checkRefresh();
     return mobileMenuMap;
@@ -89,7 +112,7 @@ public class MenuCache extends AbstractCache
   @Override
   protected void refresh()
   {
-    menuMap = new HashMap<Integer, Menu>();
-    mobileMenuMap = new HashMap<Integer, Menu>();
+    menuMap = new ConcurrentHashMap<String, Menu>();
+    mobileMenuMap = new ConcurrentHashMap<String, Menu>();
   }
 }
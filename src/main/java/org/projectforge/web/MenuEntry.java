@@ -225,6 +225,39 @@ public class MenuEntry implements Serializable, Comparable<MenuEntry>
     return null;
   }
 
+  /**
+   * Evaluates the visibility and the total new counter models of this entry and all sub menu entries.
+   * @see Menu#freeze()
+   */
+  void freeze()
+  {
+    if (subMenuEntries != null) {
+      for (final MenuEntry subMenuEntry : subMenuEntries) {
+        subMenuEntry.freeze();
+        subMenuEntry.isVisible();
+      }
+    }
+    getNewCounterModel();
+  }
+
+  /**
+   * The entries of the built menus are shared by all users with the same access rights, so customized menus (e. g. the favorites menu)
+   * have to use copies.
+   * @return A copy of this entry without parent and sub menu entries.
+   */
+  MenuEntry copyLeaf()
+  {
+    final MenuEntry copy = new MenuEntry();
+    copy.menuItemDef = this.menuItemDef;
+    copy.url = this.url;
+    copy.newCounterModel = this.newCounterModel;
+    copy.newCounterTooltip = this.newCounterTooltip;
+    copy.name = this.name;
+    copy.menu = this.menu;
+    copy.mobileMenu = this.mobileMenu;
+    return copy;
+  }
+
   public boolean hasSubMenuEntries()
   {
     return (this.subMenuEntries != null && subMenuEntries.size() > 0);
@@ -294,6 +327,10 @@ public class MenuEntry implements Serializable, Comparable<MenuEntry>
     return menuItemDef.getParams();
   }
 
+  /**
+   * @param newCounterModel The model is evaluated on rendering and has to return the counter for the logged-in user (the menu entry is
+   *          shared by all users with the same access rights).
+   */
   public void setNewCounterModel(final IModel<Integer> newCounterModel)
   {
     this.newCounterModel = newCounterModel;
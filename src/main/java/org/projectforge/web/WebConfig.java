@@ -26,6 +26,7 @@ package org.projectforge.web;
 import org.apache.wicket.markup.html.WebPage;
 import org.projectforge.core.ConfigXml;
 import org.projectforge.web.calendar.CalendarPage;
+import org.projectforge.web.wicket.PageStoreMode;
 import org.projectforge.web.wicket.WicketApplication;
 import org.projectforge.xml.stream.XmlField;
 import org.projectforge.xml.stream.XmlObject;
@@ -36,7 +37,8 @@ import org.projectforge.xml.stream.XmlObject;
  * <pre>
  * &lt;config&gt;
  *   ...
- *   &lt;web defaultPage="org.projectforge.web.calendar.CalendarPage" /&gt;
+ *   &lt;web defaultPage="org.projectforge.web.calendar.CalendarPage" pageStoreMode="COMPRESSED" maxPagesInMemoryPerSession="5"
+ *     maxPageStoreSizePerSession="10" /&gt;
  *   ...
  * &lt;/config&gt;
  * </pre>
@@ -50,9 +52,22 @@ import org.projectforge.xml.stream.XmlObject;
 @XmlObject(alias = "web")
 public class WebConfig
 {
+  public static final int DEFAULT_MAX_PAGES_IN_MEMORY_PER_SESSION = 5;
+
+  public static final int DEFAULT_MAX_PAGE_STORE_SIZE_PER_SESSION = 10;
+
   @XmlField(asAttribute = true)
   private Class< ? extends WebPage> defaultPage;
 
+  @XmlField(asAttribute = true)
+  private PageStoreMode pageStoreMode;
+
+  @XmlField(asAttribute = true)
+  private Integer maxPagesInMemoryPerSession;
+
+  @XmlField(asAttribute = true)
+  private Integer maxPageStoreSizePerSession;
+
   /**
    * The default page is the standard page shown after login or after finishing any action without an defined page to go next. The default
    * page is at default {@link CalendarPage}.
@@ -76,6 +91,64 @@ public class WebConfig
     return this;
   }
 
+  /**
+   * @return The mode of Wicket's page store, {@link PageStoreMode#DEFAULT} at default.
+   */
+  public PageStoreMode getPageStoreMode()
+  {
+    return pageStoreMode != null ? pageStoreMode : PageStoreMode.DEFAULT;
+  }
+
+  /**
+   * @param pageStoreMode the pageStoreMode to set
+   * @return this for chaining.
+   */
+  public WebConfig setPageStoreMode(final PageStoreMode pageStoreMode)
+  {
+    this.pageStoreMode = pageStoreMode;
+    return this;
+  }
+
+  /**
+   * Only used in {@link PageStoreMode#COMPRESSED}: the number of the most recent serialized pages held in memory per session.
+   * @return The configured value or {@link #DEFAULT_MAX_PAGES_IN_MEMORY_PER_SESSION}.
+   */
+  public int getMaxPagesInMemoryPerSession()
+  {
+    return maxPagesInMemoryPerSession != null && maxPagesInMemoryPerSession > 0 ? maxPagesInMemoryPerSession
+        : DEFAULT_MAX_PAGES_IN_MEMORY_PER_SESSION;
+  }
+
+  /**
+   * @param maxPagesInMemoryPerSession the maxPagesInMemoryPerSession to set
+   * @return this for chaining.
+   */
+  public WebConfig setMaxPagesInMemoryPerSession(final Integer maxPagesInMemoryPerSession)
+  {
+    this.maxPagesInMemoryPerSession = maxPagesInMemoryPerSession;
+    return this;
+  }
+
+  /**
+   * Only used in {@link PageStoreMode#COMPRESSED}: the maximum size of the disk store per session in mega bytes.
+   * @return The configured value or {@link #DEFAULT_MAX_PAGE_STORE_SIZE_PER_SESSION}.
+   */
+  public int getMaxPageStoreSizePerSession()
+  {
+    return maxPageStoreSizePerSession != null && maxPageStoreSizePerSession > 0 ? maxPageStoreSizePerSession
+        : DEFAULT_MAX_PAGE_STORE_SIZE_PER_SESSION;
+  }
+
+  /**
+   * @param maxPageStoreSizePerSession the maxPageStoreSizePerSession to set
+   * @return this for chaining.
+   */
+  public WebConfig setMaxPageStoreSizePerSession(final Integer maxPageStoreSizePerSession)
+  {
+    this.maxPageStoreSizePerSession = maxPageStoreSizePerSession;
+    return this;
+  }
+
   /**
    * @see ConfigXml#toString(Object)
    */
@@ -21,84 +21,105 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.web.address;
 
-import org.apache.log4j.Logger;
+import java.io.InputStream;
+
+import org.apache.wicket.markup.html.form.upload.FileUpload;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.projectforge.address.AddressDO;
-import org.projectforge.address.AddressDao;
-import org.projectforge.address.PersonalAddressDao;
-import org.projectforge.web.wicket.AbstractEditPage;
-import org.projectforge.web.wicket.EditPage;
+import org.projectforge.address.AddressImportDao;
+import org.projectforge.common.ImportStorage;
+import org.projectforge.common.ImportedSheet;
+import org.projectforge.core.MassUpdateStatus;
+import org.projectforge.web.core.importstorage.AbstractImportPage;
 
 /**
+ * Bulk import of vCard files with preview and duplicate detection.
  * @author M. Lauterbach (m.lauterbach@micromata.de)
  * 
  */
-@SuppressWarnings("serial")
-@EditPage(defaultReturnPage = AddressListPage.class)
-public class AddressImportPage extends AbstractEditPage<AddressDO, AddressImportForm, AddressDao>
+public class AddressImportPage extends AbstractImportPage<AddressImportForm>
 {
-  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AddressImportPage.class);
+  private static final long serialVersionUID = -6244627464224498463L;
 
-  @SpringBean(name = "addressDao")
-  private AddressDao addressDao;
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AddressImportPage.class);
 
-  @SpringBean(name = "personalAddressDao")
-  private PersonalAddressDao personalAddressDao;
+  @SpringBean(name = "addressImportDao")
+  private AddressImportDao addressImportDao;
 
   /**
    * @param parameters
    */
   public AddressImportPage(final PageParameters parameters)
   {
-    super(parameters, "address.book.vCardImport");
-    init();
+    super(parameters);
+    form = new AddressImportForm(this);
+    body.add(form);
+    form.init();
   }
 
-  @Override
-  protected void onInitialize()
+  protected void importVCards()
   {
-    super.onInitialize();
-
+    checkAccess();
+    final FileUpload fileUpload = form.fileUploadField.getFileUpload();
+    if (fileUpload != null) {
+      final String clientFilename = fileUpload.getClientFileName();
+      if (clientFilename.toLowerCase().endsWith(".vcf") == false) {
+        error(getString("address.book.vCardImport.wrongFileType"));
+        return;
+      }
+      try {
+        final InputStream is = fileUpload.getInputStream();
+        actionLog.reset();
+        setStorage(addressImportDao.importVCards(is, clientFilename, actionLog));
+      } catch (final Exception ex) {
+        log.error(ex.getMessage(), ex);
+        error("An error occurred (see log files for details): " + ex.getMessage());
+        clear();
+      } finally {
+        fileUpload.closeStreams();
+      }
+    }
   }
 
-  /**
-   * @see org.projectforge.web.wicket.AbstractEditPage#create()
-   */
   @Override
-  protected void create()
+  protected ImportedSheet< ? > reconcile(final String sheetName)
   {
-    getForm().create();
+    checkAccess();
+    final ImportedSheet< ? > sheet = super.reconcile(sheetName);
+    addressImportDao.reconcile(getAddressStorage(), sheetName);
+    return sheet;
   }
 
-  /**
-   * @see org.projectforge.web.wicket.AbstractEditPage#getBaseDao()
-   */
   @Override
-  protected AddressDao getBaseDao()
+  protected ImportedSheet< ? > commit(final String sheetName)
   {
-    return addressDao;
+    checkAccess();
+    final ImportedSheet< ? > sheet = super.commit(sheetName);
+    final MassUpdateStatus status = addressImportDao.commit(getAddressStorage(), sheetName);
+    if (status.getFailed() > 0) {
+      error(getLocalizedMessage("address.book.vCardImport.failed", status.getFailed()));
+    }
+    return sheet;
   }
 
-  /**
-   * @see org.projectforge.web.wicket.AbstractEditPage#getLogger()
-   */
-  @Override
-  protected Logger getLogger()
+  @SuppressWarnings("unchecked")
+  private ImportStorage<AddressDO> getAddressStorage()
   {
-    return log;
+    return (ImportStorage<AddressDO>) getStorage();
   }
 
-  /**
-   * @see org.projectforge.web.wicket.AbstractEditPage#newEditForm(org.projectforge.web.wicket.AbstractEditPage,
-   *      org.projectforge.core.AbstractBaseDO)
-   */
-  @Override
-  protected AddressImportForm newEditForm(final AbstractEditPage< ? , ? , ? > parentPage, final AddressDO data)
+  private void checkAccess()
   {
-    return new AddressImportForm(this, data);
+    accessChecker.checkRestrictedOrDemoUser();
   }
 
+  @Override
+  protected String getTitle()
+  {
+    return getString("address.book.vCardImport.title.add");
+  }
 }
@@ -0,0 +1,80 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.address;
+
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.repeater.RepeatingView;
+import org.projectforge.address.AddressDO;
+import org.projectforge.common.ImportedElement;
+import org.projectforge.web.core.importstorage.AbstractImportStoragePanel;
+import org.projectforge.web.core.importstorage.ImportFilter;
+
+/**
+ * Preview of the imported vCards. Addresses with an old value are merged into existing addresses.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class AddressImportStoragePanel extends AbstractImportStoragePanel<AddressImportPage>
+{
+  private static final long serialVersionUID = 1624926421563208738L;
+
+  /**
+   * @param id
+   */
+  public AddressImportStoragePanel(final String id, final AddressImportPage parentPage, final ImportFilter filter)
+  {
+    super(id, parentPage, filter);
+  }
+
+  /**
+   * @see org.projectforge.web.core.importstorage.AbstractImportStoragePanel#addHeadColumns(org.apache.wicket.markup.repeater.RepeatingView)
+   */
+  @Override
+  protected void addHeadColumns(final RepeatingView headColRepeater)
+  {
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("name")));
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("firstName")));
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("organization")));
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("email")));
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("address.phoneType.business")));
+    headColRepeater.add(new Label(headColRepeater.newChildId(), getString("address.city")));
+  }
+
+  /**
+   * @see org.projectforge.web.core.importstorage.AbstractImportStoragePanel#addColumns(org.apache.wicket.markup.repeater.RepeatingView,
+   *      org.projectforge.common.ImportedElement)
+   */
+  @Override
+  protected void addColumns(final RepeatingView cellRepeater, final ImportedElement< ? > element, final String style)
+  {
+    final AddressDO address = (AddressDO) element.getValue();
+    addCell(cellRepeater, address.getName(), style);
+    addCell(cellRepeater, address.getFirstName(), style);
+    addCell(cellRepeater, address.getOrganization(), style);
+    addCell(cellRepeater, address.getEmail(), style);
+    addCell(cellRepeater, address.getBusinessPhone(), style + " white-space: nowrap;");
+    addCell(cellRepeater, address.getCity(), style);
+  }
+}
@@ -142,6 +142,80 @@ public class AdminForm extends AbstractStandardForm<AdminForm, AdminPage>
         }
       }.getButtonPanel());
     }
+    {
+      final FieldsetPanel fs = gridBuilder.newFieldset(getString("system.admin.reindex.queue")).suppressLabelForWarning();
+      fs.add(new DivTextPanel(fs.newChildId(), new Model<String>() {
+        @Override
+        public String getObject()
+        {
+          return parentPage.getFullTextIndexerStatistics();
+        }
+      }));
+      fs.addHelpIcon(getString("system.admin.reindex.queue.tooltip"));
+    }
+    {
+      final FieldsetPanel fs = gridBuilder.newFieldset(getString("system.admin.cacheInvalidation")).suppressLabelForWarning();
+      fs.add(new DivTextPanel(fs.newChildId(), new Model<String>() {
+        @Override
+        public String getObject()
+        {
+          return parentPage.getCacheInvalidationStatistics();
+        }
+      }));
+      fs.addHelpIcon(getString("system.admin.cacheInvalidation.tooltip"));
+    }
+
+    gridBuilder.newGridPanel();
+    gridBuilder.newFormHeading(getString("system.admin.group.title.performanceMetrics"));
+    {
+      final DivPanel section = gridBuilder.getPanel();
+      final DivTextPanel metrics = new DivTextPanel(section.newChildId(), new Model<String>() {
+        @Override
+        public String getObject()
+        {
+          return parentPage.getPerformanceMetricsSummary();
+        }
+      });
+      metrics.getLabel().setEscapeModelStrings(false);
+      section.add(metrics);
+    }
+    gridBuilder.newFormHeading(getString("system.admin.group.title.pageStore"));
+    {
+      final DivPanel section = gridBuilder.getPanel();
+      final DivTextPanel pageSizes = new DivTextPanel(section.newChildId(), new Model<String>() {
+        @Override
+        public String getObject()
+        {
+          return parentPage.getPageStoreSummary();
+        }
+      });
+      pageSizes.getLabel().setEscapeModelStrings(false);
+      section.add(pageSizes);
+    }
+    {
+      final FieldsetPanel fs = gridBuilder.newFieldset("").suppressLabelForWarning();
+      fs.add(new MyButtonPanel(fs.newChildId(), "exportPerformanceMetricsCsv") {
+        @Override
+        public void onSubmit()
+        {
+          parentPage.exportPerformanceMetrics(false);
+        }
+      }.getButtonPanel());
+      fs.add(new MyButtonPanel(fs.newChildId(), "exportPerformanceMetricsJson") {
+        @Override
+        public void onSubmit()
+        {
+          parentPage.exportPerformanceMetrics(true);
+        }
+      }.getButtonPanel());
+      fs.add(new MyButtonPanel(fs.newChildId(), "resetPerformanceMetrics") {
+        @Override
+        public void onSubmit()
+        {
+          parentPage.resetPerformanceMetrics();
+        }
+      }.getButtonPanel());
+    }
 
     gridBuilder.newGridPanel();
     {
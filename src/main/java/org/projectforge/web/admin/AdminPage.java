@@ -42,10 +42,13 @@ import org.projectforge.book.BookDO;
 import org.projectforge.book.BookDao;
 import org.projectforge.book.BookStatus;
 import org.projectforge.common.DateHelper;
+import org.projectforge.core.CacheInvalidationBus;
 import org.projectforge.core.ConfigXml;
 import org.projectforge.core.Configuration;
 import org.projectforge.core.ConfigurationParam;
+import org.projectforge.core.FullTextIndexer;
 import org.projectforge.core.HibernateSearchReindexer;
+import org.projectforge.core.PerformanceMetrics;
 import org.projectforge.core.ReindexSettings;
 import org.projectforge.core.SystemDao;
 import org.projectforge.database.MyDatabaseUpdater;
@@ -53,6 +56,7 @@ import org.projectforge.database.XmlDump;
 import org.projectforge.meb.MebMailClient;
 import org.projectforge.plugins.core.AbstractPlugin;
 import org.projectforge.plugins.core.PluginsRegistry;
+import org.projectforge.scripting.GroovyScriptCache;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskTree;
 import org.projectforge.user.PFUserContext;
@@ -64,6 +68,7 @@ import org.projectforge.web.fibu.ISelectCallerPage;
 import org.projectforge.web.wicket.AbstractStandardFormPage;
 import org.projectforge.web.wicket.DownloadUtils;
 import org.projectforge.web.wicket.MessagePage;
+import org.projectforge.web.wicket.PageStoreSerializer;
 import org.projectforge.web.wicket.WebConstants;
 import org.projectforge.web.wicket.WicketApplication;
 import org.projectforge.web.wicket.WicketUtils;
@@ -92,6 +97,12 @@ public class AdminPage extends AbstractStandardFormPage implements ISelectCaller
   @SpringBean(name = "hibernateSearchReindexer")
   private HibernateSearchReindexer hibernateSearchReindexer;
 
+  @SpringBean(name = "cacheInvalidationBus")
+  private CacheInvalidationBus cacheInvalidationBus;
+
+  @SpringBean(name = "fullTextIndexer")
+  private FullTextIndexer fullTextIndexer;
+
   @SpringBean(name = "mebMailClient")
   private MebMailClient mebMailClient;
 
@@ -388,6 +399,8 @@ public class AdminPage extends AbstractStandardFormPage implements ISelectCaller
     refreshedCaches += ", UserXmlPreferencesCache";
     menuBuilder.refreshAllMenus();
     refreshedCaches += ", MenuCache";
+    GroovyScriptCache.getInstance().clear();
+    refreshedCaches += ", GroovyScriptCache";
     setResponsePage(new MessagePage("administration.refreshCachesDone", refreshedCaches));
   }
 
@@ -396,6 +409,7 @@ public class AdminPage extends AbstractStandardFormPage implements ISelectCaller
     log.info("Administration: reread configuration file config.xml.");
     checkAccess();
     String result = ConfigXml.getInstance().readConfiguration();
+    GroovyScriptCache.getInstance().clear(); // Included template files may be modified.
     if (result != null) {
       result = result.replaceAll("\n", "<br/>\n");
     }
@@ -522,6 +536,58 @@ public class AdminPage extends AbstractStandardFormPage implements ISelectCaller
     setResponsePage(new MessagePage("administration.databaseSearchIndicesRebuild", tables));
   }
 
+  /**
+   * @return The current queue size and lag of the asynchronous full-text indexer.
+   */
+  String getFullTextIndexerStatistics()
+  {
+    return fullTextIndexer.getStatistics();
+  }
+
+  /**
+   * @return The replication lag of the cache invalidation bus.
+   */
+  String getCacheInvalidationStatistics()
+  {
+    return cacheInvalidationBus.getStatistics();
+  }
+
+  /**
+   * @return Html summary of the slowest operations and the cache hit ratios.
+   */
+  String getPerformanceMetricsSummary()
+  {
+    return PerformanceMetrics.getInstance().getHtmlSummary();
+  }
+
+  /**
+   * @return Html summary of the pages with the largest serialized sizes.
+   */
+  String getPageStoreSummary()
+  {
+    return PageStoreSerializer.getHtmlSummary();
+  }
+
+  protected void exportPerformanceMetrics(final boolean json)
+  {
+    log.info("Administration: export of performance metrics.");
+    checkAccess();
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    final String ts = DateHelper.getTimestampAsFilenameSuffix(new Date());
+    if (json == true) {
+      DownloadUtils.setDownloadTarget(metrics.getJsonSnapshot().getBytes(), "projectforge_metrics_" + ts + ".json");
+    } else {
+      DownloadUtils.setDownloadTarget(metrics.getCsvSnapshot().getBytes(), "projectforge_metrics_" + ts + ".csv");
+    }
+  }
+
+  protected void resetPerformanceMetrics()
+  {
+    log.info("Administration: reset of performance metrics.");
+    checkAccess();
+    PerformanceMetrics.getInstance().reset();
+  }
+
   protected void schemaExport()
   {
     log.info("Administration: schema export.");
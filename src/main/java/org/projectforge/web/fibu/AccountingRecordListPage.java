@@ -248,7 +248,7 @@ IListPageColumnsCreator<BuchungssatzDO>
           if (this.businessAssessmentRowId != null) {
             final BusinessAssessmentRow row = report.getBusinessAssessment().getRow(businessAssessmentRowId);
             if (row != null) {
-              list = row.getAccountRecords();
+              list = report.getAccountRecords(row);
             } else {
               log.info("Business assessment row "
                   + businessAssessmentRowId
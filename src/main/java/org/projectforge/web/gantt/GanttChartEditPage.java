@@ -39,8 +39,8 @@ import org.projectforge.gantt.GanttChartDao;
 import org.projectforge.gantt.GanttChartData;
 import org.projectforge.gantt.GanttChartSettings;
 import org.projectforge.gantt.GanttChartStyle;
+import org.projectforge.gantt.GanttScheduler;
 import org.projectforge.gantt.GanttTask;
-import org.projectforge.renderer.BatikImageRenderer;
 import org.projectforge.renderer.ImageFormat;
 import org.projectforge.web.fibu.ISelectCallerPage;
 import org.projectforge.web.wicket.AbstractEditPage;
@@ -68,6 +68,16 @@ public class GanttChartEditPage extends AbstractEditPage<GanttChartDO, GanttChar
 
   private Component ganttImage;
 
+  /**
+   * Version of the chart shown by ganttImage. The image isn't rendered again if the version is unchanged.
+   */
+  private String ganttImageVersion;
+
+  /**
+   * Scheduler of the shown chart. After editing only the modified tasks and the tasks depending on them are re-calculated.
+   */
+  private transient GanttScheduler ganttScheduler;
+
   public GanttChartEditPage(final PageParameters parameters)
   {
     super(parameters, "gantt");
@@ -115,8 +125,7 @@ public class GanttChartEditPage extends AbstractEditPage<GanttChartDO, GanttChar
     final String filename = FileHelper.createSafeFilename(getData().getName(), suffix, 50, true);
     final byte[] content;
     if (imageFormat != null) {
-      final Document document = ganttChart.create();
-      content = BatikImageRenderer.getByteArray(document, ganttChart.getWidth(), imageFormat);
+      content = ganttChartDao.exportAsImage(getData().getId(), ganttChart, imageFormat);
       DownloadUtils.setDownloadTarget(content, filename);
     } else {
       final MimeType type;
@@ -158,10 +167,24 @@ public class GanttChartEditPage extends AbstractEditPage<GanttChartDO, GanttChar
     final GanttChart ganttChart = createGanttChart();
     final Component oldGanttImage = ganttImage;
     if (ganttChart != null) {
+      if (ganttScheduler != null && ganttScheduler.getRootNode() == ganttChart.getRootNode()) {
+        // Re-calculates only the edited tasks and the tasks depending on them:
+        ganttChart.setScheduler(ganttScheduler);
+        ganttChart.recalculate(ganttScheduler.getModifiedNodes());
+      } else {
+        ganttChart.recalculate();
+        ganttScheduler = ganttChart.getScheduler();
+      }
+      final String version = GanttChartDao.getImageVersion(getData().getId(), ganttChart);
+      if (ganttImage != null && version.equals(ganttImageVersion) == true) {
+        // Chart is unmodified, nothing to do.
+        return;
+      }
+      ganttImageVersion = version;
       final Document document = ganttChart.create();
       if (document != null) {
         ganttImage = new ImagePanel(form.imagePanel.newChildId(), new BatikImage(ImagePanel.IMAGE_ID, document, getGanttChartStyle()
-            .getWidth()));
+            .getWidth()).setDataVersion("gantt", version));
       } else {
         ganttImage = null;
       }
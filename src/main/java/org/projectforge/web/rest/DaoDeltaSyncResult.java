@@ -0,0 +1,140 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.rest;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.projectforge.core.BaseDao;
+import org.projectforge.core.BaseSearchFilter;
+import org.projectforge.core.DefaultBaseDO;
+import org.projectforge.core.QueryFilter;
+import org.projectforge.user.PFUserContext;
+
+/**
+ * Delta sync of the entries of a {@link BaseDao}. The entries are read page by page ordered by id (keyset paging), so only one page is held
+ * in memory. Entries without select access of the logged-in user are skipped.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public abstract class DaoDeltaSyncResult<O extends DefaultBaseDO, T> extends DeltaSyncResult<T>
+{
+  public static final int PAGE_SIZE = 500;
+
+  private final BaseDao<O> dao;
+
+  private Integer lastId;
+
+  /**
+   * @param dao
+   * @param modifiedSince The modifiedSince parameter of the client (milliseconds since 1970 (UTC)) or null for a full sync.
+   * @throws org.projectforge.access.AccessException if the logged-in user has no select access.
+   */
+  protected DaoDeltaSyncResult(final BaseDao<O> dao, final Long modifiedSince)
+  {
+    super(modifiedSince);
+    this.dao = dao;
+    dao.hasLoggedInUserSelectAccess(true);
+  }
+
+  /**
+   * Converts the data object into the object to serialize.
+   * @param obj
+   */
+  protected abstract T convert(O obj);
+
+  /**
+   * Override this method for adding further restrictions, e. g. the user of time sheets.
+   * @param queryFilter
+   */
+  protected void addRestrictions(final QueryFilter queryFilter)
+  {
+  }
+
+  /**
+   * @see org.projectforge.web.rest.DeltaSyncResult#loadNextPage(org.projectforge.web.rest.DeltaSyncResult.Page)
+   */
+  @Override
+  protected boolean loadNextPage(final Page<T> page)
+  {
+    final QueryFilter queryFilter = createQueryFilter();
+    if (lastId != null) {
+      queryFilter.add(Restrictions.gt("id", lastId));
+    }
+    queryFilter.addOrder(Order.asc("id"));
+    queryFilter.setMaxResults(PAGE_SIZE);
+    final List<O> list = dao.internalGetList(queryFilter);
+    for (final O obj : list) {
+      lastId = obj.getId();
+      if (dao.hasLoggedInUserSelectAccess(obj, false) == false) {
+        continue;
+      }
+      if (obj.isDeleted() == true) {
+        page.addDeleted(obj.getId());
+      } else {
+        page.add(convert(obj));
+      }
+    }
+    return list.size() >= PAGE_SIZE;
+  }
+
+  /**
+   * Number and newest lastUpdate of all matching entries and the logged-in user (the result depends on the access rights).
+   * @see org.projectforge.web.rest.DeltaSyncResult#calculateFingerprint()
+   */
+  @Override
+  protected long calculateFingerprint()
+  {
+    final Object[] countAndLastUpdate = dao.internalGetCountAndLastUpdate(createQueryFilter());
+    final Integer userId = PFUserContext.getUserId();
+    long value = userId != null ? userId : 0;
+    if (countAndLastUpdate != null) {
+      value = 31 * value + (countAndLastUpdate[0] != null ? ((Number) countAndLastUpdate[0]).longValue() : 0);
+      value = 31 * value + (countAndLastUpdate[1] != null ? ((Date) countAndLastUpdate[1]).getTime() : 0);
+    }
+    return value;
+  }
+
+  /**
+   * A new query filter is needed for every query because the restrictions are added to the filter.
+   */
+  private QueryFilter createQueryFilter()
+  {
+    final BaseSearchFilter filter = new BaseSearchFilter();
+    filter.setIgnoreDeleted(true); // Restrictions are set here, so they're applied for the fingerprint as well.
+    final QueryFilter queryFilter = new QueryFilter(filter);
+    final Date since = getQuerySince();
+    if (since != null) {
+      // Deleted entries are needed as tombstones.
+      queryFilter.add(Restrictions.ge("lastUpdate", since));
+    } else {
+      queryFilter.add(Restrictions.eq("deleted", false));
+    }
+    addRestrictions(queryFilter);
+    return queryFilter;
+  }
+}
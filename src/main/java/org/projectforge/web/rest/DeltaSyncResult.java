@@ -0,0 +1,172 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.rest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.projectforge.common.DateHelper;
+
+/**
+ * Result of a delta sync call (e. g. for mobile clients). Contains all entries modified since the given date as well as tombstones (ids
+ * only) of all entries deleted since the given date. The client should store the sync token and use it as modifiedSince parameter for the
+ * next sync call.<br/>
+ * The entries aren't held in memory, they're loaded page by page while streaming (see {@link DeltaSyncStreamingOutput}). Transactions
+ * started before the sync token but committed after it would be missed by a strict lastUpdate query, therefore the query starts
+ * {@link #LOOK_BEHIND} milliseconds before modifiedSince. Entries of this window may be sent twice, the client has to update its entries
+ * by id.<br/>
+ * The ETag is built as a fingerprint of the matching entries without serializing them (see {@link #getFingerprint()}).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public abstract class DeltaSyncResult<T>
+{
+  /**
+   * Look behind window of modifiedSince for entries committed late.
+   */
+  public static final long LOOK_BEHIND = 5 * DateHelper.MILLIS_MINUTE;
+
+  /**
+   * Entries of one page, filled by {@link DeltaSyncResult#loadNextPage(Page)}.
+   */
+  public static class Page<T>
+  {
+    private final List<T> entries = new ArrayList<T>();
+
+    private final List<Integer> deletedIds = new ArrayList<Integer>();
+
+    public Page<T> add(final T entry)
+    {
+      entries.add(entry);
+      return this;
+    }
+
+    /**
+     * Adds a tombstone for the given deleted entry.
+     * @param id
+     */
+    public Page<T> addDeleted(final Integer id)
+    {
+      deletedIds.add(id);
+      return this;
+    }
+
+    public List<T> getEntries()
+    {
+      return entries;
+    }
+
+    public List<Integer> getDeletedIds()
+    {
+      return deletedIds;
+    }
+
+    void clear()
+    {
+      entries.clear();
+      deletedIds.clear();
+    }
+  }
+
+  private final long syncToken;
+
+  private final Long modifiedSince;
+
+  private Long fingerprint;
+
+  /**
+   * @param modifiedSince The modifiedSince parameter of the client (milliseconds since 1970 (UTC)) or null for a full sync.
+   */
+  protected DeltaSyncResult(final Long modifiedSince)
+  {
+    // Take the time stamp before querying the data base, so no modifications done during the query get lost.
+    this.syncToken = System.currentTimeMillis();
+    this.modifiedSince = modifiedSince;
+  }
+
+  /**
+   * Loads the next page of entries (ordered, so the pages don't overlap) and adds them (converted) to the given page.
+   * @param page
+   * @return true if more pages may follow, false if this was the last page.
+   */
+  protected abstract boolean loadNextPage(Page<T> page);
+
+  /**
+   * @return A fingerprint of all matching entries, should change on any modification of the result (e. g. number of entries and newest
+   *         lastUpdate).
+   */
+  protected abstract long calculateFingerprint();
+
+  /**
+   * @return The fingerprint including modifiedSince (calculated only once).
+   */
+  public long getFingerprint()
+  {
+    if (fingerprint == null) {
+      long value = 17;
+      if (modifiedSince != null) {
+        value = 31 * value + modifiedSince;
+      }
+      fingerprint = 31 * value + calculateFingerprint();
+    }
+    return fingerprint;
+  }
+
+  /**
+   * @return The time stamp (milliseconds since 1970 (UTC)) of the begin of this sync call. Should be used as modifiedSince parameter for the
+   *         next sync call.
+   */
+  public long getSyncToken()
+  {
+    return syncToken;
+  }
+
+  /**
+   * @return The given modifiedSince parameter or null for a full sync.
+   */
+  public Long getModifiedSince()
+  {
+    return modifiedSince;
+  }
+
+  /**
+   * @return modifiedSince minus {@link #LOOK_BEHIND} or null for a full sync.
+   */
+  public Date getQuerySince()
+  {
+    return modifiedSince != null ? new Date(modifiedSince - LOOK_BEHIND) : null;
+  }
+
+  /**
+   * @return The weak entity tag, the sync token isn't part of it, so unmodified data results in the same ETag.
+   */
+  public EntityTag getETag()
+  {
+    return new EntityTag(Long.toHexString(getFingerprint()), true);
+  }
+}
@@ -0,0 +1,174 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.rest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.projectforge.rest.JsonUtils;
+
+/**
+ * Streams a {@link DeltaSyncResult} page by page directly to the response output stream instead of building the whole json string in
+ * memory. The entries of each page are serialized by {@link JsonUtils} (with all registered type adapters). The output is gzipped if the
+ * client accepts gzip encoding. Format:
+ * 
+ * <pre>
+ * { "syncToken": 1371114290000, "entries": [ {...}, {...} ], "deleted": [ 42, 4711 ] }
+ * </pre>
+ * 
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class DeltaSyncStreamingOutput implements StreamingOutput
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(DeltaSyncStreamingOutput.class);
+
+  private static final String GZIP = "gzip";
+
+  private final DeltaSyncResult< ? > result;
+
+  private final boolean gzip;
+
+  /**
+   * Builds the response: 304 (not modified) if the client's If-None-Match header matches the ETag of the result, otherwise the streamed and
+   * (if accepted by the client) gzipped result.
+   * @param request
+   * @param headers
+   * @param result
+   */
+  public static Response buildResponse(final Request request, final HttpHeaders headers, final DeltaSyncResult< ? > result)
+  {
+    final EntityTag etag = result.getETag();
+    ResponseBuilder builder = request != null ? request.evaluatePreconditions(etag) : null;
+    if (builder != null) {
+      // Client has already the current version.
+      return builder.tag(etag).build();
+    }
+    final boolean gzip = acceptsGzip(headers);
+    builder = Response.ok(new DeltaSyncStreamingOutput(result, gzip)).tag(etag).header("Vary", HttpHeaders.ACCEPT_ENCODING);
+    if (gzip == true) {
+      builder.header("Content-Encoding", GZIP);
+    }
+    return builder.build();
+  }
+
+  static boolean acceptsGzip(final HttpHeaders headers)
+  {
+    if (headers == null) {
+      return false;
+    }
+    final List<String> values = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (values == null) {
+      return false;
+    }
+    for (final String value : values) {
+      if (value != null && value.toLowerCase().contains(GZIP) == true) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public DeltaSyncStreamingOutput(final DeltaSyncResult< ? > result, final boolean gzip)
+  {
+    this.result = result;
+    this.gzip = gzip;
+  }
+
+  /**
+   * @see javax.ws.rs.core.StreamingOutput#write(java.io.OutputStream)
+   */
+  @Override
+  public void write(final OutputStream output) throws IOException, WebApplicationException
+  {
+    final GZIPOutputStream gzipOutput = gzip == true ? new GZIPOutputStream(output) : null;
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(gzipOutput != null ? gzipOutput : output, "UTF-8"));
+    writer.write("{\"syncToken\":");
+    writer.write(String.valueOf(result.getSyncToken()));
+    writer.write(",\"entries\":[");
+    final List<Integer> deletedIds = new ArrayList<Integer>();
+    final int numberOfEntries = writeEntries(writer, result, deletedIds);
+    writer.write("],\"deleted\":[");
+    boolean first = true;
+    for (final Integer id : deletedIds) {
+      if (first == true) {
+        first = false;
+      } else {
+        writer.write(',');
+      }
+      writer.write(String.valueOf(id));
+    }
+    writer.write("]}");
+    writer.flush();
+    if (gzipOutput != null) {
+      gzipOutput.finish();
+    }
+    if (log.isDebugEnabled() == true) {
+      log.debug("Streamed " + numberOfEntries + " entries and " + deletedIds.size() + " tombstones (gzip=" + gzip + ").");
+    }
+  }
+
+  /**
+   * Writes the entries page by page, the tombstones are collected in the given list (they're written after the entries).
+   * @return The number of written entries.
+   */
+  private <T> int writeEntries(final Writer writer, final DeltaSyncResult<T> result, final List<Integer> deletedIds) throws IOException
+  {
+    final DeltaSyncResult.Page<T> page = new DeltaSyncResult.Page<T>();
+    int counter = 0;
+    boolean morePages;
+    do {
+      page.clear();
+      morePages = result.loadNextPage(page);
+      deletedIds.addAll(page.getDeletedIds());
+      if (page.getEntries().isEmpty() == true) {
+        continue;
+      }
+      // Json array of the page without the enclosing brackets:
+      final String json = JsonUtils.toJson(page.getEntries());
+      if (counter > 0) {
+        writer.write(',');
+      }
+      writer.write(json, 1, json.length() - 2);
+      writer.flush();
+      counter += page.getEntries().size();
+    } while (morePages == true);
+    return counter;
+  }
+}
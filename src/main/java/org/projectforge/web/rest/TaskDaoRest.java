@@ -32,7 +32,10 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import org.projectforge.registry.Registry;
@@ -113,6 +116,30 @@ public class TaskDaoRest
     return Response.ok(json).build();
   }
 
+  /**
+   * Delta sync for mobile clients: Returns all tasks modified since the given date and tombstones (ids) of all tasks deleted since then. The
+   * response is streamed and supports gzip and ETags (If-None-Match).
+   * @param modifiedSince The sync token of the last sync call (milliseconds since 1970 (UTC)). If not given, all (not deleted) tasks will be
+   *          returned (full sync).
+   * @see DeltaSyncStreamingOutput
+   */
+  @GET
+  @Path("sync")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response sync(@QueryParam("modifiedSince") final Long modifiedSince, @Context final Request request,
+      @Context final HttpHeaders headers)
+  {
+    final DeltaSyncResult<TaskObject> result = new DaoDeltaSyncResult<TaskDO, TaskObject>(taskDao, modifiedSince) {
+      @Override
+      protected TaskObject convert(final TaskDO obj)
+      {
+        return createRTask(obj);
+      }
+    };
+    log.info("Rest sync call (tasks, modifiedSince=" + modifiedSince + ").");
+    return DeltaSyncStreamingOutput.buildResponse(request, headers, result);
+  }
+
   private List<TaskDO> queryList(final String searchTerm, final Boolean notOpened, final Boolean opened, final Boolean closed,
       final Boolean deleted)
       {
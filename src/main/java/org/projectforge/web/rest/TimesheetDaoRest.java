@@ -32,20 +32,29 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
+import org.hibernate.criterion.Restrictions;
+import org.projectforge.core.QueryFilter;
 import org.projectforge.registry.Registry;
 import org.projectforge.rest.JsonUtils;
 import org.projectforge.rest.RestPaths;
 import org.projectforge.rest.objects.TaskObject;
+import org.projectforge.rest.objects.TimesheetObject;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskDao;
 import org.projectforge.task.TaskFilter;
 import org.projectforge.task.TaskNode;
 import org.projectforge.task.TaskTree;
+import org.projectforge.timesheet.TimesheetDO;
+import org.projectforge.timesheet.TimesheetDao;
 import org.projectforge.user.PFUserContext;
 import org.projectforge.web.rest.converter.TaskDOConverter;
+import org.projectforge.web.rest.converter.TimesheetDOConverter;
 
 /**
  * @author Kai Reinhard (k.reinhard@micromata.de)
@@ -58,9 +67,12 @@ public class TimesheetDaoRest
 
   private final TaskDao taskDao;
 
+  private final TimesheetDao timesheetDao;
+
   public TimesheetDaoRest()
   {
     this.taskDao = Registry.instance().getDao(TaskDao.class);
+    this.timesheetDao = Registry.instance().getDao(TimesheetDao.class);
   }
 
   /**
@@ -110,6 +122,37 @@ public class TimesheetDaoRest
     return Response.ok(json).build();
   }
 
+  /**
+   * Delta sync for mobile clients: Returns all time sheets of the logged-in user modified since the given date and tombstones (ids) of all
+   * time sheets deleted since then. The response is streamed and supports gzip and ETags (If-None-Match).
+   * @param modifiedSince The sync token of the last sync call (milliseconds since 1970 (UTC)). If not given, all (not deleted) time sheets
+   *          will be returned (full sync).
+   * @see DeltaSyncStreamingOutput
+   */
+  @GET
+  @Path("sync")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response sync(@QueryParam("modifiedSince") final Long modifiedSince, @Context final Request request,
+      @Context final HttpHeaders headers)
+  {
+    final Integer userId = PFUserContext.getUserId();
+    final DeltaSyncResult<TimesheetObject> result = new DaoDeltaSyncResult<TimesheetDO, TimesheetObject>(timesheetDao, modifiedSince) {
+      @Override
+      protected void addRestrictions(final QueryFilter queryFilter)
+      {
+        queryFilter.add(Restrictions.eq("user.id", userId));
+      }
+
+      @Override
+      protected TimesheetObject convert(final TimesheetDO obj)
+      {
+        return TimesheetDOConverter.getTimesheetObject(obj);
+      }
+    };
+    log.info("Rest sync call (time sheets, modifiedSince=" + modifiedSince + ").");
+    return DeltaSyncStreamingOutput.buildResponse(request, headers, result);
+  }
+
   private List<TaskDO> queryList(final String searchTerm, final Boolean notOpened, final Boolean opened, final Boolean closed,
       final Boolean deleted)
       {
@@ -143,7 +143,7 @@ public class ScriptingPage extends AbstractScriptingPage
     scriptVariables.put("reportScriptingStorage", getReportScriptingStorage());
     scriptVariables.put("reportList", reportGeneratorList);
     if (StringUtils.isNotBlank(getReportScriptingStorage().getGroovyScript()) == true) {
-      groovyResult = groovyExecutor.execute(new GroovyResult(), getReportScriptingStorage().getGroovyScript(), scriptVariables);
+      groovyResult = groovyExecutor.executeWithTimeout(new GroovyResult(), getReportScriptingStorage().getGroovyScript(), scriptVariables);
       if (groovyResult.hasException() == true) {
         form.error(getLocalizedMessage("exception.groovyError", String.valueOf(groovyResult.getException())));
         return;
@@ -31,11 +31,16 @@ import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.jfree.chart.JFreeChart;
 import org.projectforge.common.NumberHelper;
+import org.projectforge.export.JFreeChartImageType;
 import org.projectforge.fibu.EmployeeDO;
 import org.projectforge.fibu.EmployeeDao;
+import org.projectforge.registry.DaoRegistry;
+import org.projectforge.registry.Registry;
+import org.projectforge.renderer.ChartRenderService;
 import org.projectforge.statistics.TimesheetDisciplineChartBuilder;
 import org.projectforge.timesheet.TimesheetDao;
 import org.projectforge.user.PFUserContext;
+import org.projectforge.user.PFUserDO;
 import org.projectforge.web.wicket.AbstractSecuredPage;
 import org.projectforge.web.wicket.JFreeChartImage;
 
@@ -49,6 +54,8 @@ public class PersonalStatisticsPage extends AbstractSecuredPage
 
   private static final int IMAGE_HEIGHT = 400;
 
+  private static final String CHART_CATEGORY = "timesheetDiscipline";
+
   @SpringBean(name = "employeeDao")
   private EmployeeDao employeeDao;
 
@@ -61,14 +68,11 @@ public class PersonalStatisticsPage extends AbstractSecuredPage
     final Label timesheetDisciplineChartTitle = new Label("timesheetDisciplineChartTitle",
         getString("personal.statistics.timesheetDisciplineChart.title"));
     body.add(timesheetDisciplineChartTitle);
-    final EmployeeDO employee = employeeDao.getByUserId(PFUserContext.getUserId());
-    double workingHoursPerDay = 8;
-    if (employee != null && NumberHelper.greaterZero(employee.getWochenstunden()) == true) {
-      workingHoursPerDay = employee.getWochenstunden() / 5;
-    }
+    final double workingHoursPerDay = getWorkingHoursPerDay(employeeDao, getUser().getId());
     final TimesheetDisciplineChartBuilder chartBuilder = new TimesheetDisciplineChartBuilder();
     final JFreeChart chart1 = chartBuilder.create(timesheetDao, getUser().getId(), workingHoursPerDay, LAST_N_DAYS, true);
-    JFreeChartImage image = new JFreeChartImage("timesheetStatisticsImage1", chart1, IMAGE_WIDTH, IMAGE_HEIGHT);
+    JFreeChartImage image = new JFreeChartImage("timesheetStatisticsImage1", chart1, IMAGE_WIDTH, IMAGE_HEIGHT).setDataVersion(
+        CHART_CATEGORY, chartBuilder.getDataVersion());
     image.add(AttributeModifier.replace("width", String.valueOf(IMAGE_WIDTH)));
     image.add(AttributeModifier.replace("height", String.valueOf(IMAGE_HEIGHT)));
     body.add(image);
@@ -86,7 +90,8 @@ public class PersonalStatisticsPage extends AbstractSecuredPage
     body.add(timesheetDisciplineChart1Legend);
 
     final JFreeChart chart2 = chartBuilder.create(timesheetDao, getUser().getId(), LAST_N_DAYS, true);
-    image = new JFreeChartImage("timesheetStatisticsImage2", chart2, IMAGE_WIDTH, IMAGE_HEIGHT);
+    image = new JFreeChartImage("timesheetStatisticsImage2", chart2, IMAGE_WIDTH, IMAGE_HEIGHT).setDataVersion(CHART_CATEGORY,
+        chartBuilder.getDataVersion());
     image.add(AttributeModifier.replace("width", String.valueOf(IMAGE_WIDTH)));
     image.add(AttributeModifier.replace("height", String.valueOf(IMAGE_HEIGHT)));
     body.add(image);
@@ -102,6 +107,47 @@ public class PersonalStatisticsPage extends AbstractSecuredPage
     body.add(timesheetDisciplineChart2Legend);
   }
 
+  /**
+   * Renders the time sheet discipline charts of the given user in the background (e. g. after the login), so the rendered images are
+   * already cached when the user views this page.
+   * @param user
+   * @see ChartRenderService#prerender(Runnable)
+   */
+  public static void prerenderCharts(final PFUserDO user)
+  {
+    ChartRenderService.getInstance().prerender(new Runnable() {
+      @Override
+      public void run()
+      {
+        PFUserContext.setUser(user);
+        try {
+          final TimesheetDao timesheetDao = Registry.instance().getDao(TimesheetDao.class);
+          if (timesheetDao == null || timesheetDao.hasLoggedInUserSelectAccess(false) == false) {
+            return;
+          }
+          final EmployeeDao employeeDao = (EmployeeDao) Registry.instance().getDao(DaoRegistry.EMPLOYEE);
+          final TimesheetDisciplineChartBuilder chartBuilder = new TimesheetDisciplineChartBuilder();
+          JFreeChart chart = chartBuilder.create(timesheetDao, user.getId(), getWorkingHoursPerDay(employeeDao, user.getId()), LAST_N_DAYS,
+              true);
+          JFreeChartImageType.PNG.render(chart, CHART_CATEGORY, chartBuilder.getDataVersion(), IMAGE_WIDTH, IMAGE_HEIGHT);
+          chart = chartBuilder.create(timesheetDao, user.getId(), LAST_N_DAYS, true);
+          JFreeChartImageType.PNG.render(chart, CHART_CATEGORY, chartBuilder.getDataVersion(), IMAGE_WIDTH, IMAGE_HEIGHT);
+        } finally {
+          PFUserContext.setUser(null);
+        }
+      }
+    });
+  }
+
+  private static double getWorkingHoursPerDay(final EmployeeDao employeeDao, final Integer userId)
+  {
+    final EmployeeDO employee = employeeDao != null ? employeeDao.getByUserId(userId) : null;
+    if (employee != null && NumberHelper.greaterZero(employee.getWochenstunden()) == true) {
+      return employee.getWochenstunden() / 5;
+    }
+    return 8;
+  }
+
   @Override
   protected String getTitle()
   {
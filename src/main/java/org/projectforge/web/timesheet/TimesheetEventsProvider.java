@@ -37,7 +37,6 @@ import org.joda.time.Days;
 import org.projectforge.calendar.TimePeriod;
 import org.projectforge.common.DateHelper;
 import org.projectforge.common.StringHelper;
-import org.projectforge.core.OrderDirection;
 import org.projectforge.fibu.KostFormatter;
 import org.projectforge.fibu.ProjektDO;
 import org.projectforge.fibu.kost.Kost2DO;
@@ -125,8 +124,8 @@ public class TimesheetEventsProvider extends MyFullCalendarEventsProvider
     filter.setUserId(userId);
     filter.setStartTime(start.toDate());
     filter.setStopTime(end.toDate());
-    filter.setOrderType(OrderDirection.ASC);
-    timesheets = timesheetDao.getList(filter);
+    // Only the fields needed for the events are selected, the full time sheet is loaded if the user opens it:
+    timesheets = timesheetDao.getCalendarList(filter);
     boolean longFormat = false;
     days = Days.daysBetween(start, end).getDays();
     if (days < 10) {
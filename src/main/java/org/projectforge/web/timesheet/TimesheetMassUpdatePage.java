@@ -160,9 +160,17 @@ public class TimesheetMassUpdatePage extends AbstractMassEditPage implements ISe
   @Override
   protected void updateAll()
   {
+    if (isMassUpdateInProgress() == true) {
+      // Mass update is already running.
+      return;
+    }
     if (form.updateTask == false) {
       form.data.setTask(null);
     }
+    if (isAsynchronousMassUpdate(timesheets.size()) == true) {
+      showMassUpdateProgress(timesheetDao.startMassUpdate(timesheets, form.data));
+      return;
+    }
     timesheetDao.massUpdate(timesheets, form.data);
     super.updateAll();
   }
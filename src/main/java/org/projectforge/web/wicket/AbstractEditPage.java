@@ -317,6 +317,10 @@ AbstractSecuredPage implements IEditPage<O, D>
   {
     if (getData().getId() != null) {
       if (page instanceof AbstractListPage< ? , ? , ? >) {
+        if (((AbstractListPage< ? , ? , ? >) page).isFullTextSearch() == true) {
+          // Read your writes: The refreshed full-text search result has to contain the modifications done by this page.
+          getBaseDao().waitForFullTextIndex();
+        }
         // Force reload/refresh of calling AbstractListPage, otherwise the data object will not be updated.
         ((AbstractListPage< ? , ? , ? >) page).setHighlightedRowId(getHighlightedRowId());
         ((AbstractListPage< ? , ? , ? >) page).refresh();
@@ -409,6 +413,10 @@ AbstractSecuredPage implements IEditPage<O, D>
       final PageParameters params = new PageParameters();
       if (getData().getId() != null) {
         params.add(AbstractListPage.PARAMETER_HIGHLIGHTED_ROW, getData().getId());
+        if (AbstractListPage.class.isAssignableFrom(redirectPage) == true) {
+          // Read your writes: The search filter of the new list page is restored from the user's preferences and may be a full-text search.
+          getBaseDao().waitForFullTextIndex();
+        }
       }
       setResponsePage(redirectPage, params);
     }
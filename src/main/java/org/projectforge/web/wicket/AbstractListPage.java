@@ -487,6 +487,14 @@ extends AbstractSecuredPage implements ISelectCallerPage
     setResponsePage(new MessagePage("message.notYetImplemented"));
   }
 
+  /**
+   * @return true, if the search filter has a search string, so the list is built by a full-text search.
+   */
+  public boolean isFullTextSearch()
+  {
+    return form != null && form.searchFilter != null && StringUtils.isNotBlank(form.searchFilter.getSearchString()) == true;
+  }
+
   /**
    * Called, if the list must be refreshed. Sets list to null and page size of data table.
    */
@@ -23,8 +23,14 @@
 
 package org.projectforge.web.wicket;
 
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
+import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.model.Model;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.time.Duration;
+import org.projectforge.core.BaseDao;
+import org.projectforge.core.MassUpdateStatus;
 
 public abstract class AbstractMassEditPage extends AbstractSecuredPage
 {
@@ -32,6 +38,19 @@ public abstract class AbstractMassEditPage extends AbstractSecuredPage
 
   protected final AbstractSecuredPage callerPage;
 
+  /**
+   * Id of the asynchronous mass update (if started).
+   */
+  private String massUpdateStatusId;
+
+  private final Label massUpdateProgressLabel;
+
+  /**
+   * Timer of the last shown mass update, removed before showing the progress of the next mass update of this page.
+   */
+  private AbstractAjaxTimerBehavior massUpdateProgressTimer;
+
+  @SuppressWarnings("serial")
   public AbstractMassEditPage(final PageParameters parameters, final AbstractSecuredPage callerPage)
   {
     super(parameters);
@@ -42,6 +61,77 @@ public abstract class AbstractMassEditPage extends AbstractSecuredPage
         + "');\n"
         + "}\n") //
     .setEscapeModelStrings(false));
+    massUpdateProgressLabel = new Label("massUpdateProgress", new Model<String>() {
+      @Override
+      public String getObject()
+      {
+        return getMassUpdateProgress();
+      }
+    }) {
+      @Override
+      public boolean isVisible()
+      {
+        return massUpdateStatusId != null;
+      }
+    };
+    body.add(massUpdateProgressLabel.setOutputMarkupPlaceholderTag(true));
+  }
+
+  /**
+   * Mass updates of more than {@link BaseDao#MAX_MASS_UPDATE} entries are processed asynchronously. The progress is shown by this page until
+   * the mass update is finished.
+   * @param size Number of entries to update.
+   * @return true, if the mass update should be started asynchronously.
+   */
+  protected boolean isAsynchronousMassUpdate(final int size)
+  {
+    return size > BaseDao.MAX_MASS_UPDATE;
+  }
+
+  /**
+   * @return true, if an asynchronous mass update of this page is running.
+   */
+  protected boolean isMassUpdateInProgress()
+  {
+    final MassUpdateStatus status = MassUpdateStatus.get(massUpdateStatusId);
+    return status != null && status.isFinished() == false;
+  }
+
+  /**
+   * Shows the progress of the given asynchronous mass update (refreshed via Ajax until the mass update is finished).
+   * @param status
+   */
+  @SuppressWarnings("serial")
+  protected void showMassUpdateProgress(final MassUpdateStatus status)
+  {
+    massUpdateStatusId = status.getId();
+    if (massUpdateProgressTimer != null) {
+      massUpdateProgressLabel.remove(massUpdateProgressTimer);
+    }
+    massUpdateProgressTimer = new AbstractAjaxTimerBehavior(Duration.seconds(2)) {
+      @Override
+      protected void onTimer(final AjaxRequestTarget target)
+      {
+        target.add(massUpdateProgressLabel);
+        if (isMassUpdateInProgress() == false) {
+          stop(target);
+        }
+      }
+    };
+    massUpdateProgressLabel.add(massUpdateProgressTimer);
+  }
+
+  private String getMassUpdateProgress()
+  {
+    final MassUpdateStatus status = MassUpdateStatus.get(massUpdateStatusId);
+    if (status == null) {
+      return "";
+    }
+    if (status.isFinished() == true) {
+      return getLocalizedMessage("massUpdate.finished", status.getTotal(), status.getUpdated(), status.getSkipped(), status.getFailed());
+    }
+    return getLocalizedMessage("massUpdate.progress", status.getProcessed(), status.getTotal(), status.getProgressInPercent(),
+        status.getUpdated(), status.getFailed());
   }
 
   protected void cancel()
@@ -29,6 +29,7 @@ import org.apache.wicket.request.resource.AbstractResource;
 import org.apache.wicket.request.resource.DynamicImageResource;
 import org.apache.wicket.util.time.Duration;
 import org.projectforge.renderer.BatikImageRenderer;
+import org.projectforge.renderer.ChartRenderService;
 import org.projectforge.renderer.ImageFormat;
 import org.w3c.dom.Document;
 
@@ -40,6 +41,10 @@ public class BatikImage extends Image
 
   private byte[] ba;
 
+  private String category;
+
+  private String dataVersion;
+
   private transient Document document;
 
   public BatikImage(final String id, final Document document, final int width)
@@ -49,10 +54,31 @@ public class BatikImage extends Image
     this.width = width;
   }
 
+  /**
+   * If a data version is given, the rendered image is shared via the {@link ChartRenderService} with all other images of the same category
+   * and version, e. g. the Gantt export of the same diagram.
+   * @param category
+   * @param dataVersion
+   * @return this for chaining.
+   */
+  public BatikImage setDataVersion(final String category, final String dataVersion)
+  {
+    this.category = category;
+    this.dataVersion = dataVersion;
+    return this;
+  }
+
   private byte[] getByteArray()
   {
     if (ba == null) {
-      ba = BatikImageRenderer.getByteArray(document, width, ImageFormat.PNG);
+      ba = ChartRenderService.getInstance().render(category != null ? category : "svg", dataVersion, width, 0, ImageFormat.PNG.name(),
+          new ChartRenderService.Renderer() {
+            @Override
+            public byte[] render()
+            {
+              return BatikImageRenderer.getByteArray(document, width, ImageFormat.PNG);
+            }
+          });
     }
     return ba;
   }
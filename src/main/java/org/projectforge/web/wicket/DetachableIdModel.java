@@ -0,0 +1,94 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.wicket;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.projectforge.core.BaseDao;
+import org.projectforge.core.IdObject;
+import org.projectforge.registry.Registry;
+
+/**
+ * Model which stores only the id of the data base object and the id of its dao ({@link Registry}). The object itself isn't serialized
+ * with the page (DO's may contain large object graphs including Hibernate proxies) and is re-loaded on demand after detaching.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class DetachableIdModel<T extends IdObject< ? >> extends LoadableDetachableModel<T>
+{
+  private static final long serialVersionUID = -5410718227473512406L;
+
+  private final Serializable id;
+
+  private final String daoId;
+
+  /**
+   * @param object The object (with id) to use until the first detach.
+   * @param daoId The id of the registry entry of the dao responsible for the given object.
+   * @see Registry#getDao(String)
+   */
+  public DetachableIdModel(final T object, final String daoId)
+  {
+    super(object);
+    this.id = object.getId();
+    this.daoId = daoId;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected T load()
+  {
+    final BaseDao< ? > dao = Registry.instance().getDao(daoId);
+    if (dao == null || id == null) {
+      return null;
+    }
+    // The object was already displayed to the user (the list pages load the objects the same way):
+    return (T) dao.internalGetById(id);
+  }
+
+  /**
+   * Important! Models must be identifyable by their contained object.
+   */
+  @Override
+  public boolean equals(final Object obj)
+  {
+    if (obj instanceof DetachableIdModel) {
+      final DetachableIdModel< ? > other = (DetachableIdModel< ? >) obj;
+      return ObjectUtils.equals(id, other.id) == true && ObjectUtils.equals(daoId, other.daoId) == true;
+    }
+    return false;
+  }
+
+  /**
+   * Important! Models must be identifyable by their contained object.
+   */
+  @Override
+  public int hashCode()
+  {
+    return id != null ? id.hashCode() : 0;
+  }
+}
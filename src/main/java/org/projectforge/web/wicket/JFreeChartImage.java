@@ -23,16 +23,12 @@
 
 package org.projectforge.web.wicket;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
 import org.apache.wicket.markup.html.image.Image;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.request.http.WebResponse.CacheScope;
 import org.apache.wicket.request.resource.AbstractResource;
 import org.apache.wicket.request.resource.DynamicImageResource;
 import org.apache.wicket.util.time.Duration;
-import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.projectforge.export.JFreeChartImageType;
 
@@ -48,6 +44,10 @@ public class JFreeChartImage extends Image
 
   private final JFreeChartImageType imageType;
 
+  private String category;
+
+  private String dataVersion;
+
   public JFreeChartImage(final String id, final JFreeChart chart, final int width, final int height)
   {
     this(id, chart, null, width, height);
@@ -61,11 +61,24 @@ public class JFreeChartImage extends Image
     this.imageType = imageType;
   }
 
+  /**
+   * The rendered image will be cached for the given data version (see {@link org.projectforge.renderer.ChartRenderService}).
+   * @param category The kind of the chart, e. g. "liquidityForecast".
+   * @param dataVersion Version of the chart data (e. g. a hash code of all values the chart depends on).
+   * @return this for chaining.
+   */
+  public JFreeChartImage setDataVersion(final String category, final String dataVersion)
+  {
+    this.category = category;
+    this.dataVersion = dataVersion;
+    return this;
+  }
+
   @SuppressWarnings("serial")
   @Override
   protected AbstractResource getImageResource()
   {
-    final String format = this.imageType == JFreeChartImageType.JPEG ? "jpg" : "png";
+    final JFreeChartImageType type = this.imageType == JFreeChartImageType.JPEG ? JFreeChartImageType.JPEG : JFreeChartImageType.PNG;
     return new DynamicImageResource() {
 
       @Override
@@ -73,15 +86,8 @@ public class JFreeChartImage extends Image
       {
         try {
           final JFreeChart chart = (JFreeChart) getDefaultModelObject();
-          final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-          if (imageType == JFreeChartImageType.JPEG) {
-            ChartUtilities.writeChartAsJPEG(baos, chart, width, height);
-          } else {
-            ChartUtilities.writeChartAsPNG(baos, chart, width, height);
-          }
-          final byte[] ba = baos.toByteArray();
-          return ba;
-        } catch (final IOException ex) {
+          return type.render(chart, category != null ? category : "image", dataVersion, width, height);
+        } catch (final RuntimeException ex) {
           log.error(ex.getMessage(), ex);
           return null;
         }
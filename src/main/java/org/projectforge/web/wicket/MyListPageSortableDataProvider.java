@@ -41,6 +41,8 @@ import org.apache.wicket.model.Model;
 import org.projectforge.common.MyBeanComparator;
 import org.projectforge.core.BaseDao;
 import org.projectforge.core.IdObject;
+import org.projectforge.registry.Registry;
+import org.projectforge.registry.RegistryEntry;
 
 /**
  * Stores list of result sets (id's) for pagination and provides iterator of data-base objects on demand.
@@ -69,6 +71,11 @@ public class MyListPageSortableDataProvider<T extends IdObject< ? >> extends Sor
 
   private final AbstractListPage< ? , ? , T> listPage;
 
+  /**
+   * Id of the registry entry of the list page's dao, empty if the dao isn't a registered {@link BaseDao}.
+   */
+  private String daoId;
+
   public MyListPageSortableDataProvider(final SortParam<String> sortParam, final SortParam<String> secondSortParam,
       final AbstractListPage< ? , ? , T> listPage)
   {
@@ -199,9 +206,26 @@ public class MyListPageSortableDataProvider<T extends IdObject< ? >> extends Sor
   @Override
   public IModel<T> model(final T object)
   {
+    if (object != null && object.getId() != null) {
+      final String daoId = getDaoId();
+      if (daoId != null) {
+        // Don't serialize the data base objects of the rows with the page:
+        return new DetachableIdModel<T>(object, daoId);
+      }
+    }
     return new Model<T>(object);
   }
 
+  private String getDaoId()
+  {
+    if (daoId == null) {
+      final Object baseDao = listPage.getBaseDao();
+      final RegistryEntry entry = baseDao instanceof BaseDao ? Registry.instance().getEntryByDao((BaseDao< ? >) baseDao) : null;
+      daoId = entry != null ? entry.getId() : "";
+    }
+    return daoId.length() > 0 ? daoId : null;
+  }
+
   /**
    * @see ISortableDataProvider#detach()
    */
@@ -0,0 +1,44 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.wicket;
+
+/**
+ * Modes of the Wicket page store (configurable in the web config of config.xml).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see org.projectforge.web.WebConfig#getPageStoreMode()
+ */
+public enum PageStoreMode
+{
+  /**
+   * Wicket's default page store: uncompressed pages, application wide in-memory cache and disk store.
+   */
+  DEFAULT,
+
+  /**
+   * The serialized pages are compressed and only the most recent pages of each session are held in memory, older pages are spilled to the
+   * disk store.
+   */
+  COMPRESSED;
+}
@@ -0,0 +1,187 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.wicket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.wicket.serialize.ISerializer;
+import org.projectforge.common.NumberHelper;
+import org.projectforge.core.PerformanceMetrics;
+
+/**
+ * Serializer of Wicket's page store. Compresses the serialized pages (if enabled) and measures the serialized sizes per page class (see
+ * {@link PerformanceMetrics}, counters pageStore.*). The report {@link #getHtmlSummary()} helps to find pages with large object graphs.
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * @see PageStoreMode
+ */
+public class PageStoreSerializer implements ISerializer
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(PageStoreSerializer.class);
+
+  static final String METRICS_PREFIX = "pageStore.";
+
+  /**
+   * Pages larger than this size (serialized, uncompressed) are logged once per page class.
+   */
+  private static final int WARN_SIZE = 1024 * 1024;
+
+  /**
+   * First byte of compressed data. Uncompressed data written by Java serialization starts always with 0xAC (stream magic).
+   */
+  private static final byte COMPRESSED = 1;
+
+  private final ISerializer delegate;
+
+  private final boolean compress;
+
+  private final Set<String> warnedPageClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * @param delegate The serializer to use (Wicket's JavaSerializer).
+   * @param compress If true, the serialized pages are compressed.
+   */
+  public PageStoreSerializer(final ISerializer delegate, final boolean compress)
+  {
+    this.delegate = delegate;
+    this.compress = compress;
+  }
+
+  @Override
+  public byte[] serialize(final Object object)
+  {
+    final byte[] data = delegate.serialize(object);
+    if (data == null) {
+      return null;
+    }
+    byte[] result = data;
+    if (compress == true) {
+      final byte[] compressed = compress(data);
+      if (compressed != null && compressed.length < data.length) {
+        result = compressed;
+      }
+    }
+    if (object != null) {
+      count(object.getClass(), data.length, result.length);
+    }
+    return result;
+  }
+
+  @Override
+  public Object deserialize(final byte[] data)
+  {
+    if (data == null || data.length == 0 || data[0] != COMPRESSED) {
+      return delegate.deserialize(data);
+    }
+    final InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+    try {
+      return delegate.deserialize(IOUtils.toByteArray(in));
+    } catch (final IOException ex) {
+      log.error("Can't decompress page: " + ex.getMessage(), ex);
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private byte[] compress(final byte[] data)
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 16);
+    out.write(COMPRESSED);
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    final DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater);
+    try {
+      deflaterOut.write(data);
+      deflaterOut.finish();
+      return out.toByteArray();
+    } catch (final IOException ex) {
+      log.error("Can't compress page: " + ex.getMessage(), ex);
+      return null;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private void count(final Class< ? > pageClass, final int size, final int storedSize)
+  {
+    final String name = pageClass.getName().substring(pageClass.getName().lastIndexOf('.') + 1);
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    metrics.getCounter(METRICS_PREFIX + name + ".pages").increment();
+    metrics.getCounter(METRICS_PREFIX + name + ".bytes").add(size);
+    metrics.getCounter(METRICS_PREFIX + name + ".storedBytes").add(storedSize);
+    if (size > WARN_SIZE && warnedPageClasses.add(name) == true) {
+      log.warn("Large serialized page of class '" + pageClass.getName() + "': " + size + " bytes (stored: " + storedSize + " bytes).");
+    }
+  }
+
+  /**
+   * @return Html table of the page classes with the largest mean serialized size (at maximum 20).
+   */
+  public static String getHtmlSummary()
+  {
+    final Map<String, Long> counterValues = PerformanceMetrics.getInstance().getCounterValues();
+    final List<Object[]> rows = new ArrayList<Object[]>();
+    for (final Map.Entry<String, Long> entry : counterValues.entrySet()) {
+      final String name = entry.getKey();
+      if (name.startsWith(METRICS_PREFIX) == false || name.endsWith(".pages") == false || entry.getValue() == 0) {
+        continue;
+      }
+      final String pageClass = name.substring(METRICS_PREFIX.length(), name.length() - ".pages".length());
+      final long pages = entry.getValue();
+      final Long bytes = counterValues.get(METRICS_PREFIX + pageClass + ".bytes");
+      final Long storedBytes = counterValues.get(METRICS_PREFIX + pageClass + ".storedBytes");
+      rows.add(new Object[] { pageClass, pages, (bytes != null ? bytes : 0) / pages, (storedBytes != null ? storedBytes : 0) / pages});
+    }
+    Collections.sort(rows, new Comparator<Object[]>() {
+      @Override
+      public int compare(final Object[] o1, final Object[] o2)
+      {
+        return ((Long) o2[2]).compareTo((Long) o1[2]);
+      }
+    });
+    final StringBuilder buf = new StringBuilder();
+    buf.append("<table class=\"table table-condensed\"><tr><th>page</th><th>serializations</th><th>mean size</th><th>mean stored size</th></tr>");
+    for (final Object[] row : rows.subList(0, Math.min(20, rows.size()))) {
+      buf.append("<tr><td>").append(StringEscapeUtils.escapeHtml((String) row[0])).append("</td><td>").append(row[1]).append("</td><td>")
+      .append(NumberHelper.formatBytes((Long) row[2])).append("</td><td>").append(NumberHelper.formatBytes((Long) row[3]))
+      .append("</td></tr>");
+    }
+    buf.append("</table>");
+    return buf.toString();
+  }
+}
@@ -0,0 +1,154 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.wicket;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.pageStore.IDataStore;
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.PerformanceMetrics;
+
+/**
+ * Data store of {@link PageStoreMode#COMPRESSED}: Holds the most recently used serialized pages of each session in memory. If the maximum
+ * number of pages of a session is exceeded, the least recently used pages are spilled to the given disk store (Wicket's DiskDataStore).
+ * @author Kai Reinhard (k.reinhard@micromata.de)
+ * 
+ */
+public class SessionPageDataStore implements IDataStore
+{
+  private final IDataStore diskDataStore;
+
+  private final int maxPagesPerSession;
+
+  private final ConcurrentMap<String, Map<Integer, byte[]>> sessions = new ConcurrentHashMap<String, Map<Integer, byte[]>>();
+
+  private final MetricCounter memoryHits, diskHits, spills;
+
+  /**
+   * @param diskDataStore The store for the pages spilled out of memory.
+   * @param maxPagesPerSession The maximum number of pages per session held in memory.
+   */
+  public SessionPageDataStore(final IDataStore diskDataStore, final int maxPagesPerSession)
+  {
+    this.diskDataStore = diskDataStore;
+    this.maxPagesPerSession = maxPagesPerSession;
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    memoryHits = metrics.getCounter(PageStoreSerializer.METRICS_PREFIX + "memoryHits");
+    diskHits = metrics.getCounter(PageStoreSerializer.METRICS_PREFIX + "diskHits");
+    spills = metrics.getCounter(PageStoreSerializer.METRICS_PREFIX + "spills");
+  }
+
+  @Override
+  public byte[] getData(final String sessionId, final int id)
+  {
+    final Map<Integer, byte[]> pages = sessions.get(sessionId);
+    if (pages != null) {
+      final byte[] data;
+      synchronized (pages) {
+        data = pages.get(id);
+      }
+      if (data != null) {
+        memoryHits.increment();
+        return data;
+      }
+    }
+    final byte[] data = diskDataStore.getData(sessionId, id);
+    if (data != null) {
+      diskHits.increment();
+    }
+    return data;
+  }
+
+  @Override
+  public void removeData(final String sessionId, final int id)
+  {
+    final Map<Integer, byte[]> pages = sessions.get(sessionId);
+    if (pages != null) {
+      synchronized (pages) {
+        pages.remove(id);
+      }
+    }
+    diskDataStore.removeData(sessionId, id);
+  }
+
+  @Override
+  public void removeData(final String sessionId)
+  {
+    sessions.remove(sessionId);
+    diskDataStore.removeData(sessionId);
+  }
+
+  @Override
+  public void storeData(final String sessionId, final int id, final byte[] data)
+  {
+    Map<Integer, byte[]> pages = sessions.get(sessionId);
+    if (pages == null) {
+      // Access order: the least recently used page is the first one.
+      pages = new LinkedHashMap<Integer, byte[]>(maxPagesPerSession + 1, 0.75f, true);
+      final Map<Integer, byte[]> existing = sessions.putIfAbsent(sessionId, pages);
+      if (existing != null) {
+        pages = existing;
+      }
+    }
+    synchronized (pages) {
+      pages.put(id, data);
+      final Iterator<Map.Entry<Integer, byte[]>> it = pages.entrySet().iterator();
+      while (pages.size() > maxPagesPerSession && it.hasNext() == true) {
+        final Map.Entry<Integer, byte[]> eldest = it.next();
+        // Spill inside the lock, so the page is always found by getData (this method runs in Wicket's asynchronous store thread).
+        diskDataStore.storeData(sessionId, eldest.getKey(), eldest.getValue());
+        it.remove();
+        spills.increment();
+      }
+    }
+  }
+
+  @Override
+  public void destroy()
+  {
+    sessions.clear();
+    diskDataStore.destroy();
+  }
+
+  @Override
+  public boolean isReplicated()
+  {
+    return false;
+  }
+
+  /**
+   * This store is wrapped by Wicket's AsynchronousDataStore, so the spilling doesn't block the request threads.
+   * @see org.apache.wicket.pageStore.IDataStore#canBeAsynchronous()
+   */
+  @Override
+  public boolean canBeAsynchronous()
+  {
+    return true;
+  }
+}
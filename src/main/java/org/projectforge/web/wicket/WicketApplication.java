@@ -32,13 +32,17 @@ import javax.servlet.ServletContext;
 import org.apache.commons.lang.StringUtils;
 import org.apache.wicket.Application;
 import org.apache.wicket.ConverterLocator;
+import org.apache.wicket.DefaultPageManagerProvider;
 import org.apache.wicket.IConverterLocator;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Page;
 import org.apache.wicket.RuntimeConfigurationType;
 import org.apache.wicket.Session;
+import org.apache.wicket.core.request.handler.IPageClassRequestHandler;
 import org.apache.wicket.core.request.handler.PageProvider;
 import org.apache.wicket.core.request.handler.RenderPageRequestHandler;
 import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.protocol.http.PageExpiredException;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.IRequestHandler;
@@ -47,12 +51,14 @@ import org.apache.wicket.request.Response;
 import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.resource.loader.BundleStringResourceLoader;
+import org.apache.wicket.serialize.java.JavaSerializer;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.apache.wicket.spring.injection.annot.SpringComponentInjector;
 import org.apache.wicket.util.lang.Bytes;
 import org.projectforge.common.BeanHelper;
 import org.projectforge.common.ExceptionHelper;
 import org.projectforge.core.Configuration;
+import org.projectforge.core.PerformanceMetrics;
 import org.projectforge.core.ProjectForgeApp;
 import org.projectforge.database.MyDatabaseUpdateDao;
 import org.projectforge.plugins.core.PluginsRegistry;
@@ -63,6 +69,7 @@ import org.projectforge.user.LoginHandler;
 import org.projectforge.user.PFUserContext;
 import org.projectforge.user.UserDao;
 import org.projectforge.web.UserFilter;
+import org.projectforge.web.WebConfig;
 import org.projectforge.web.WebConfiguration;
 import org.projectforge.web.calendar.CalendarPage;
 import org.projectforge.web.registry.WebRegistry;
@@ -98,6 +105,14 @@ public class WicketApplication extends WebApplication implements WicketApplicati
 
   private static String alertMessage;
 
+  private static final MetaDataKey<Long> REQUEST_START_KEY = new MetaDataKey<Long>() {
+    private static final long serialVersionUID = 3217264375185958374L;
+  };
+
+  private static final MetaDataKey<String> REQUEST_PAGE_CLASS_KEY = new MetaDataKey<String>() {
+    private static final long serialVersionUID = -4263640553916358791L;
+  };
+
   private static Map<Class< ? extends Page>, String> mountedPages = new HashMap<Class< ? extends Page>, String>();
 
   @SpringBean(name = "wicketApplicationFilter")
@@ -255,7 +270,39 @@ public class WicketApplication extends WebApplication implements WicketApplicati
         }
       }
     });
+    // Request timings per page class (see PerformanceMetrics):
+    getRequestCycleListeners().add(new AbstractRequestCycleListener() {
+      @Override
+      public void onBeginRequest(final RequestCycle cycle)
+      {
+        cycle.setMetaData(REQUEST_START_KEY, System.nanoTime());
+      }
+
+      @Override
+      public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+      {
+        if (handler instanceof IPageClassRequestHandler == false || cycle.getMetaData(REQUEST_PAGE_CLASS_KEY) != null) {
+          return;
+        }
+        try {
+          cycle.setMetaData(REQUEST_PAGE_CLASS_KEY, ((IPageClassRequestHandler) handler).getPageClass().getSimpleName());
+        } catch (final RuntimeException ex) {
+          // Page class not available (e. g. page expired), don't measure this request.
+        }
+      }
+
+      @Override
+      public void onEndRequest(final RequestCycle cycle)
+      {
+        final Long start = cycle.getMetaData(REQUEST_START_KEY);
+        final String pageClass = cycle.getMetaData(REQUEST_PAGE_CLASS_KEY);
+        if (start != null && pageClass != null) {
+          PerformanceMetrics.getInstance().getTimer("wicket." + pageClass).stop(start);
+        }
+      }
+    });
 
+    initPageStore();
     getApplicationSettings().setDefaultMaximumUploadSize(Bytes.megabytes(100));
     getMarkupSettings().setDefaultMarkupEncoding("utf-8");
     final MyAuthorizationStrategy authStrategy = new MyAuthorizationStrategy();
@@ -357,6 +404,36 @@ public class WicketApplication extends WebApplication implements WicketApplicati
     getPageSettings().setRecreateMountedPagesAfterExpiry(false);
   }
 
+  /**
+   * Configures the serializer and the page store of Wicket as defined by the {@link PageStoreMode} of the web config.
+   */
+  private void initPageStore()
+  {
+    final WebConfig webConfig = projectForgeApp.getConfigXml().getWebConfig();
+    final PageStoreMode mode = webConfig != null ? webConfig.getPageStoreMode() : PageStoreMode.DEFAULT;
+    // The serialized page sizes are measured in all modes:
+    getFrameworkSettings().setSerializer(
+        new PageStoreSerializer(new JavaSerializer(getApplicationKey()), mode == PageStoreMode.COMPRESSED));
+    if (mode != PageStoreMode.COMPRESSED) {
+      log.info("Using Wicket's default page store.");
+      return;
+    }
+    final int maxPagesInMemoryPerSession = webConfig.getMaxPagesInMemoryPerSession();
+    getStoreSettings().setMaxSizePerSession(Bytes.megabytes(webConfig.getMaxPageStoreSizePerSession()));
+    setPageManagerProvider(new DefaultPageManagerProvider(this) {
+      @Override
+      protected IDataStore newDataStore()
+      {
+        return new SessionPageDataStore(super.newDataStore(), maxPagesInMemoryPerSession);
+      }
+    });
+    log.info("Using compressed page store (max. pages in memory per session: "
+        + maxPagesInMemoryPerSession
+        + ", max. size of disk store per session: "
+        + webConfig.getMaxPageStoreSizePerSession()
+        + "MB).");
+  }
+
   private void mountPageWithPageParameterAwareness(final String path, final Class< ? extends WebPage> pageClass)
   {
     mount(new PageParameterAwareMountedMapper(path, pageClass));
@@ -23,7 +23,6 @@
 
 package org.projectforge.xml.stream;
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,12 +33,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.dom4j.Attribute;
 import org.dom4j.Element;
 import org.projectforge.common.BeanHelper;
+import org.projectforge.common.FieldMetadataRegistry;
 import org.projectforge.common.StringHelper;
 import org.projectforge.xml.stream.converter.IConverter;
 
@@ -54,6 +55,10 @@ public class XmlObjectReader
 
   private static final int ABBREVIATE_WARNING = 500;
 
+  private static final Map<Class< ? >, Class< ? >[]> aliasedClassesMap = new ConcurrentHashMap<Class< ? >, Class< ? >[]>();
+
+  private static final Map<Class< ? >, Map<String, Field>> fieldsByKeyMap = new ConcurrentHashMap<Class< ? >, Map<String, Field>>();
+
   private AliasMap aliasMap;
 
   private Map<Class< ? >, Class< ? >> implementationMapping;
@@ -131,14 +136,24 @@ public class XmlObjectReader
   }
 
   /**
-   * Could be called multiple times. Parses the given object and all field recursively for annotations from type {@link XmlObject}.
+   * Could be called multiple times. Parses the given object and all field recursively for annotations from type {@link XmlObject}. The
+   * result of the recursive parsing is cached per class.
    */
   public void initialize(final Class< ? > clazz)
   {
-    initialize(new HashSet<Class< ? >>(), clazz);
+    Class< ? >[] aliasedClasses = aliasedClassesMap.get(clazz);
+    if (aliasedClasses == null) {
+      final List<Class< ? >> list = new ArrayList<Class< ? >>();
+      collectAliasedClasses(new HashSet<Class< ? >>(), list, clazz);
+      aliasedClasses = list.toArray(new Class< ? >[list.size()]);
+      aliasedClassesMap.put(clazz, aliasedClasses);
+    }
+    for (final Class< ? > aliasedClass : aliasedClasses) {
+      getAliasMap().put(aliasedClass, aliasedClass.getAnnotation(XmlObject.class).alias());
+    }
   }
 
-  private void initialize(final Set<Class< ? >> processed, final Class< ? > clazz)
+  private static void collectAliasedClasses(final Set<Class< ? >> processed, final List<Class< ? >> aliasedClasses, final Class< ? > clazz)
   {
     if (processed.contains(clazz) == true) {
       // Already processed, avoid endless loops:
@@ -148,16 +163,43 @@ public class XmlObjectReader
     if (clazz.isAnnotationPresent(XmlObject.class) == true) {
       final XmlObject xmlObject = clazz.getAnnotation(XmlObject.class);
       if (StringUtils.isNotEmpty(xmlObject.alias()) == true) {
-        getAliasMap().put(clazz, xmlObject.alias());
+        aliasedClasses.add(clazz);
       }
     }
-    for (final Field field : BeanHelper.getAllDeclaredFields(clazz)) {
+    for (final Field field : FieldMetadataRegistry.getAllDeclaredFields(clazz)) {
       if (field.getType().isPrimitive() == false && XmlObjectWriter.ignoreField(field) == false) {
-        initialize(processed, field.getType());
+        collectAliasedClasses(processed, aliasedClasses, field.getType());
       }
     }
   }
 
+  /**
+   * @param clazz
+   * @return All not ignored fields of the given class (including super classes) by field name and by alias name (if given).
+   */
+  private static Map<String, Field> getFieldsByKey(final Class< ? > clazz)
+  {
+    Map<String, Field> map = fieldsByKeyMap.get(clazz);
+    if (map != null) {
+      return map;
+    }
+    map = new HashMap<String, Field>();
+    for (final Field field : FieldMetadataRegistry.getAllDeclaredFields(clazz)) {
+      if (XmlObjectWriter.ignoreField(field) == true) {
+        continue;
+      }
+      if (map.containsKey(field.getName()) == false) {
+        map.put(field.getName(), field);
+      }
+      final XmlField ann = field.isAnnotationPresent(XmlField.class) == true ? field.getAnnotation(XmlField.class) : null;
+      if (ann != null && map.containsKey(ann.alias()) == false) {
+        map.put(ann.alias(), field);
+      }
+    }
+    fieldsByKeyMap.put(clazz, map);
+    return map;
+  }
+
   /**
    * @return Any warning messages produced during the xml reading.
    */
@@ -411,8 +453,7 @@ public class XmlObjectReader
     if (el == null) {
       return;
     }
-    final Field[] fields = BeanHelper.getAllDeclaredFields(obj.getClass());
-    AccessibleObject.setAccessible(fields, true);
+    final Map<String, Field> fields = getFieldsByKey(obj.getClass());
     for (final Object listObject : el.attributes()) {
       final Attribute attr = (Attribute) listObject;
       final String key = attr.getName();
@@ -466,21 +507,10 @@ public class XmlObjectReader
     }
   }
 
-  private void proceedElement(final Object obj, final Field[] fields, final Element el, final String key, final String attrValue,
-      final boolean isAttribute)
+  private void proceedElement(final Object obj, final Map<String, Field> fields, final Element el, final String key,
+      final String attrValue, final boolean isAttribute)
   {
-    Field foundField = null;
-    for (final Field field : fields) {
-      if (XmlObjectWriter.ignoreField(field) == true) {
-        continue;
-      }
-      final XmlField ann = field.isAnnotationPresent(XmlField.class) == true ? field.getAnnotation(XmlField.class) : null;
-      if (key.equals(field.getName()) == false && (ann == null || key.equals(ann.alias()) == false)) {
-        continue;
-      }
-      foundField = field;
-      break;
-    }
+    final Field foundField = fields.get(key);
     if (foundField != null) {
       // Field found:
       final Class< ? > type = foundField.getType();
@@ -0,0 +1,246 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.address;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+import org.junit.Test;
+import org.projectforge.common.ImportedElement;
+import org.projectforge.common.ImportStorage;
+import org.projectforge.common.ImportedSheet;
+import org.projectforge.core.ActionLog;
+import org.projectforge.core.MassUpdateStatus;
+import org.projectforge.task.TaskDO;
+import org.projectforge.test.TestBase;
+
+public class AddressImportTest extends TestBase
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(AddressImportTest.class);
+
+  private AddressDao addressDao;
+
+  private AddressImportDao addressImportDao;
+
+  public void setAddressDao(final AddressDao addressDao)
+  {
+    this.addressDao = addressDao;
+  }
+
+  public void setAddressImportDao(final AddressImportDao addressImportDao)
+  {
+    this.addressImportDao = addressImportDao;
+  }
+
+  @Test
+  public void testDuplicateIndex()
+  {
+    final AddressDuplicateIndex index = new AddressDuplicateIndex("+49");
+    index.add(1, "Reinhard", "Kai", new String[] { "K.Reinhard@micromata.de", null}, new String[] { "0561 316793-0", null, "12", null});
+    index.add(2, "Müller", "Jürgen", new String[] { null, null}, new String[] { null, null, null, null});
+    index.add(3, "Reinhard", "Kai", new String[] { "kai@example.org", null}, new String[] { null, null, null, null});
+    index.add(4, "Doe", "John", new String[] { null, null}, new String[] { "0561 999999", null, null, null});
+    index.add(5, "Doe", "Jane", new String[] { null, null}, new String[] { "0561 999999", null, null, null});
+    AddressDO address = createAddress("Mueller", "Juergen", null, "0561 316793-0");
+    assertNull("Phone number without the same name isn't enough.", index.getBestCandidate(address));
+    address = createAddress("müller ", "Jürgen", null, null);
+    assertNull("The same name isn't enough.", index.getBestCandidate(address));
+    address = createAddress("Reinhard", "Kai", null, null);
+    assertTrue(index.getCandidates(address).isEmpty());
+    address = createAddress("Reinhard", "Kai", null, "+49 561 3167930");
+    assertEquals(new Integer(1), index.getBestCandidate(address));
+    address = createAddress("Reinhard", "Kai", " kai@EXAMPLE.org", "+49 561 3167930");
+    assertEquals(2, index.getCandidates(address).size());
+    assertEquals("E-mail address is more significant than the phone number.", new Integer(3), index.getBestCandidate(address));
+    address = createAddress("Doe", "John", "k.reinhard@micromata.de", null);
+    assertEquals(new Integer(1), index.getBestCandidate(address));
+    // Short phone numbers (extensions) are ignored:
+    address = createAddress("Reinhard", "Kai", null, "12");
+    assertNull(index.getBestCandidate(address));
+    // Phone numbers of several addresses are ignored:
+    address = createAddress("Doe", "John", null, "0561 999999");
+    assertNull(index.getBestCandidate(address));
+  }
+
+  @Test
+  public void testReadVCards() throws Exception
+  {
+    final StringBuilder buf = new StringBuilder();
+    appendVCard(buf, "Reinhard", "Kai", "k.reinhard@micromata.de", "0561 316793-0");
+    buf.append("BEGIN:VCARD\r\nVERSION:3.0\r\nBDAY:no date\r\nEND:VCARD\r\n");
+    appendVCard(buf, "Doe", "John", null, null);
+    final VCardAddressReader reader = new VCardAddressReader(new StringReader(buf.toString()));
+    AddressDO address = reader.next();
+    assertEquals("Reinhard", address.getName());
+    assertEquals("Kai", address.getFirstName());
+    assertEquals("k.reinhard@micromata.de", address.getEmail());
+    assertEquals("+49 561 316793-0", address.getBusinessPhone());
+    address = reader.next();
+    assertEquals("Doe", address.getName());
+    assertNull(address.getEmail());
+    assertNull(reader.next());
+    assertEquals(3, reader.getNumberOfCards());
+    assertEquals(1, reader.getNumberOfSkippedCards());
+  }
+
+  @Test
+  public void testImport() throws Exception
+  {
+    logon(ADMIN);
+    final AddressDO existing = createAddress("Import-Test", "Kai", "import-test@micromata.de", null);
+    existing.setTask(getTask("1.1"));
+    addressDao.save(existing);
+    final StringBuilder buf = new StringBuilder();
+    appendVCard(buf, "Import-Test", "Kai", "IMPORT-TEST@micromata.de", "0561 316793-99");
+    appendVCard(buf, "Import-Test", "John", "john.import-test@example.org", null);
+    appendVCard(buf, "Import-Test", "John", "john.import-test@example.org", "0561 123456");
+    final ImportStorage<AddressDO> storage = readVCards(buf.toString());
+    final ImportedSheet<AddressDO> sheet = storage.getNamedSheet(AddressImportDao.SHEET_NAME);
+    assertEquals(3, sheet.getElements().size());
+    addressImportDao.reconcile(storage, AddressImportDao.SHEET_NAME);
+    final List<ImportedElement<AddressDO>> elements = sheet.getElements();
+    assertEquals(1, sheet.getNumberOfModifiedElements());
+    assertEquals(existing.getId(), elements.get(0).getOldValue().getId());
+    assertEquals("Merged address keeps the existing e-mail.", "import-test@micromata.de", elements.get(0).getValue().getEmail());
+    assertEquals("+49 561 316793-99", elements.get(0).getValue().getBusinessPhone());
+    assertTrue(elements.get(0).isSelected());
+    assertTrue(elements.get(1).isNew());
+    assertTrue(elements.get(1).isSelected());
+    assertFalse("Duplicate within the vCard file.", elements.get(2).isSelected());
+    final MassUpdateStatus status = addressImportDao.commit(storage, AddressImportDao.SHEET_NAME);
+    assertEquals(2, status.getUpdated());
+    assertEquals(0, status.getFailed());
+    final AddressDO dbAddress = addressDao.getById(existing.getId());
+    assertEquals("+49 561 316793-99", dbAddress.getBusinessPhone());
+    assertEquals(existing.getId(), addressDao.buildDuplicateIndex().getBestCandidate(dbAddress));
+  }
+
+  @Test
+  public void testImportWithoutSelectAccess() throws Exception
+  {
+    logon(ADMIN);
+    final AddressDO existing = createAddress("Import-Test", "Hidden", "hidden.import-test@micromata.de", null);
+    existing.setTask(getTask("ta_4_xxxx"));
+    addressDao.save(existing);
+    logon(TEST_USER);
+    final StringBuilder buf = new StringBuilder();
+    appendVCard(buf, "Import-Test", "Hidden", "hidden.import-test@micromata.de", null);
+    final ImportStorage<AddressDO> storage = readVCards(buf.toString());
+    addressImportDao.reconcile(storage, AddressImportDao.SHEET_NAME);
+    final ImportedElement<AddressDO> element = storage.getNamedSheet(AddressImportDao.SHEET_NAME).getElements().get(0);
+    assertNull("Addresses without select access aren't merge candidates.", element.getOldValue());
+    assertTrue(element.isNew());
+  }
+
+  /**
+   * Import of a vCard file with many cards (run with e. g. -DaddressImportBenchmark.cards=20000, the benchmark is skipped without this
+   * property).
+   */
+  @Test
+  public void benchmark() throws Exception
+  {
+    final Integer sizeProperty = Integer.getInteger("addressImportBenchmark.cards");
+    if (sizeProperty == null) {
+      log.info("Property addressImportBenchmark.cards not given. Skipping benchmark.");
+      return;
+    }
+    final int size = sizeProperty;
+    logon(ADMIN);
+    final StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      appendVCard(buf, "Benchmark" + i, "John", "john" + i + "@benchmark.example.org", "0561 " + (1000000 + i));
+    }
+    long start = System.currentTimeMillis();
+    final ImportStorage<AddressDO> storage = readVCards(buf.toString());
+    final long read = System.currentTimeMillis() - start;
+    final ImportedSheet<AddressDO> sheet = storage.getNamedSheet(AddressImportDao.SHEET_NAME);
+    assertEquals(size, sheet.getElements().size());
+    start = System.currentTimeMillis();
+    addressImportDao.reconcile(storage, AddressImportDao.SHEET_NAME);
+    final long reconcile = System.currentTimeMillis() - start;
+    assertEquals(size, sheet.getNumberOfNewElements());
+    start = System.currentTimeMillis();
+    final MassUpdateStatus status = addressImportDao.commit(storage, AddressImportDao.SHEET_NAME);
+    final long commit = System.currentTimeMillis() - start;
+    assertEquals(size, status.getUpdated());
+    start = System.currentTimeMillis();
+    final AddressDuplicateIndex index = addressDao.buildDuplicateIndex();
+    final long buildIndex = System.currentTimeMillis() - start;
+    assertTrue(index.getBestCandidate(createAddress("Benchmark42", "John", "john42@benchmark.example.org", null)) != null);
+    log.info("Import of "
+        + size
+        + " vCards: reading "
+        + read
+        + "ms, reconciling "
+        + reconcile
+        + "ms, committing "
+        + commit
+        + "ms, building of the duplicate index "
+        + buildIndex
+        + "ms.");
+  }
+
+  private ImportStorage<AddressDO> readVCards(final String vCards) throws UnsupportedEncodingException
+  {
+    final ImportStorage<AddressDO> storage = addressImportDao.importVCards(new ByteArrayInputStream(vCards.getBytes("UTF-8")), "test.vcf",
+        new ActionLog());
+    final TaskDO task = getTask("1.1");
+    for (final ImportedElement<AddressDO> el : storage.getNamedSheet(AddressImportDao.SHEET_NAME).getElements()) {
+      el.getValue().setTask(task);
+    }
+    return storage;
+  }
+
+  private AddressDO createAddress(final String name, final String firstName, final String email, final String businessPhone)
+  {
+    final AddressDO address = new AddressDO();
+    address.setName(name);
+    address.setFirstName(firstName);
+    address.setEmail(email);
+    address.setBusinessPhone(businessPhone);
+    return address;
+  }
+
+  private void appendVCard(final StringBuilder buf, final String name, final String firstName, final String email, final String phone)
+  {
+    buf.append("BEGIN:VCARD\r\nVERSION:3.0\r\n");
+    buf.append("N:").append(name).append(";").append(firstName).append(";;;\r\n");
+    buf.append("FN:").append(firstName).append(" ").append(name).append("\r\n");
+    if (email != null) {
+      buf.append("EMAIL;TYPE=WORK:").append(email).append("\r\n");
+    }
+    if (phone != null) {
+      buf.append("TEL;TYPE=WORK;TYPE=VOICE:").append(phone).append("\r\n");
+    }
+    buf.append("END:VCARD\r\n");
+  }
+}
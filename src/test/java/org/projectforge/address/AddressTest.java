@@ -230,6 +230,7 @@ public class AddressTest extends TestBase
     assertEquals("testa3", address.getName());
 
     // Select filter
+    waitForFullTextIndex();
     BaseSearchFilter searchFilter = new BaseSearchFilter();
     searchFilter.setSearchString("testa*");
     QueryFilter filter = new QueryFilter(searchFilter);
@@ -0,0 +1,94 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.projectforge.common.DateHelper;
+import org.projectforge.core.ConfigXmlTest;
+import org.projectforge.core.Configuration;
+
+public class WorkingDayIndexTest
+{
+  @BeforeClass
+  public static void setUp()
+  {
+    // Needed if this tests runs before the ConfigurationTest.
+    ConfigXmlTest.createTestConfiguration();
+    Configuration.init4TestMode();
+  }
+
+  @Test
+  public void compareWithDayByDay()
+  {
+    final WorkingDayIndex index = WorkingDayIndex.getInstance();
+    final DayHolder day = new DayHolder(new Date(), DateHelper.EUROPE_BERLIN, Locale.GERMAN);
+    day.setDate(2009, Calendar.DECEMBER, 1);
+    for (int i = 0; i < 800; i += 3) { // Over several years and holidays (Christmas, Easter etc.)
+      for (final int workingDays : new int[] { -400, -30, -7, -2, -1, 1, 2, 5, 20, 300}) {
+        final DayHolder expected = day.clone();
+        addWorkingDaysDayByDay(expected, workingDays);
+        final DayHolder actual = day.clone();
+        actual.add(Calendar.DAY_OF_MONTH, index.getCalendarDays(day.getYear(), day.getDayOfYear(), workingDays));
+        assertEquals(day + " + " + workingDays, expected.getDate(), actual.getDate());
+      }
+      day.add(Calendar.DAY_OF_MONTH, 3);
+    }
+    assertEquals(0, (int) index.getCalendarDays(2010, 1, 0));
+  }
+
+  @Test
+  public void holidayConfigurationChanged()
+  {
+    final WorkingDayIndex index = WorkingDayIndex.getInstance();
+    // Thursday, 2012-05-31 + 1 working day is Friday:
+    assertEquals(1, (int) index.getCalendarDays(2012, 152, 1));
+    final int version = Holidays.getInstance().getVersion();
+    Holidays.getInstance().afterRead();
+    assertTrue(Holidays.getInstance().getVersion() != version);
+    assertEquals(1, (int) index.getCalendarDays(2012, 152, 1));
+    // New configuration instance:
+    ConfigXmlTest.createTestConfiguration();
+    assertTrue(Holidays.getInstance().getVersion() != version + 1);
+    assertEquals(1, (int) index.getCalendarDays(2012, 152, 1));
+  }
+
+  private void addWorkingDaysDayByDay(final DayHolder day, final int workingDays)
+  {
+    final int sign = workingDays < 0 ? -1 : 1;
+    for (int counter = 0; counter != workingDays; counter += sign) {
+      do {
+        day.add(Calendar.DAY_OF_MONTH, sign);
+      } while (day.isWorkingDay() == false);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AbstractCacheTest
+{
+  private static final int SIZE = 1000;
+
+  @Test
+  public void readerDuringRefresh() throws InterruptedException
+  {
+    final TestCache cache = new TestCache();
+    assertEquals(SIZE, cache.getSize());
+    // Expired by time (not by setExpired):
+    cache.setExpireTime(-1);
+    final Thread refresher = new Thread() {
+      @Override
+      public void run()
+      {
+        cache.getSize();
+      }
+    };
+    refresher.start();
+    assertTrue(cache.refreshStarted.await(10, TimeUnit.SECONDS));
+    final AtomicInteger readerSize = new AtomicInteger(-1);
+    final Thread reader = new Thread() {
+      @Override
+      public void run()
+      {
+        readerSize.set(cache.getSize());
+      }
+    };
+    reader.start();
+    reader.join(200);
+    assertTrue("Reader has to wait for the refresh.", reader.isAlive());
+    cache.continueRefresh.countDown();
+    refresher.join(10000);
+    reader.join(10000);
+    assertEquals(SIZE, readerSize.get());
+  }
+
+  @Test
+  public void setExpiredDuringRefresh()
+  {
+    final TestCache cache = new TestCache();
+    cache.getSize();
+    cache.setExpiredDuringRefresh = true;
+    cache.forceReload();
+    final int refreshCounter = cache.refreshCounter;
+    cache.getSize();
+    assertEquals("Cache expired during the last refresh has to be refreshed again.", refreshCounter + 1, cache.refreshCounter);
+  }
+
+  private static class TestCache extends AbstractCache
+  {
+    private final List<Integer> data = new ArrayList<Integer>();
+
+    private final CountDownLatch refreshStarted = new CountDownLatch(1);
+
+    private final CountDownLatch continueRefresh = new CountDownLatch(1);
+
+    private volatile boolean setExpiredDuringRefresh;
+
+    private int refreshCounter;
+
+    private void setExpireTime(final long expireTime)
+    {
+      this.expireTime = expireTime;
+    }
+
+    int getSize()
+    {
+      checkRefresh();
+      return data.size();
+    }
+
+    /**
+     * Modifies the data in place (not copy-on-write).
+     * @see org.projectforge.common.AbstractCache#refresh()
+     */
+    @Override
+    protected void refresh()
+    {
+      ++refreshCounter;
+      data.clear();
+      if (refreshCounter > 1) {
+        if (expireTime < 0) {
+          // Not expired by time anymore:
+          expireTime = TICKS_PER_HOUR;
+          refreshStarted.countDown();
+          try {
+            continueRefresh.await(10, TimeUnit.SECONDS);
+          } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        if (setExpiredDuringRefresh == true) {
+          setExpiredDuringRefresh = false;
+          setExpired();
+        }
+      }
+      for (int i = 0; i < SIZE; i++) {
+        data.add(i);
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class AbstractCounterCacheTest
+{
+  @Test
+  public void testCounters()
+  {
+    final Map<Integer, Integer> entities = new HashMap<Integer, Integer>();
+    entities.put(1, 100);
+    entities.put(2, 100);
+    entities.put(3, 101);
+    final AbstractCounterCache cache = createCache(entities);
+    cache.reconcile();
+    assertEquals(2, cache.getCounter(100));
+    assertEquals(1, cache.getCounter(101));
+    assertEquals(0, cache.getCounter(102));
+    assertEquals(0, cache.getCounter(null));
+    cache.update(4, 102); // New entity.
+    assertEquals(1, cache.getCounter(102));
+    cache.update(1, 102); // Re-assigned.
+    assertEquals(1, cache.getCounter(100));
+    assertEquals(2, cache.getCounter(102));
+    cache.update(1, 102); // Unmodified.
+    assertEquals(2, cache.getCounter(102));
+    cache.update(3, null); // Not counted anymore.
+    assertEquals(0, cache.getCounter(101));
+    cache.update(3, null);
+    assertEquals(0, cache.getCounter(101));
+    cache.update(null, 101);
+    assertEquals(0, cache.getCounter(101));
+    // Reconciliation replaces the incremental counters by the data base state:
+    cache.reconcile();
+    assertEquals(2, cache.getCounter(100));
+    assertEquals(1, cache.getCounter(101));
+    assertEquals(0, cache.getCounter(102));
+  }
+
+  @Test
+  public void testUpdateAfterCommit()
+  {
+    final Map<Integer, Integer> entities = new HashMap<Integer, Integer>();
+    entities.put(1, 100);
+    final AbstractCounterCache cache = createCache(entities);
+    cache.reconcile();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.update(2, 100);
+      assertEquals("Not yet committed.", 1, cache.getCounter(100));
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+      assertEquals(2, cache.getCounter(100));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.update(3, 100);
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+      assertEquals("Rolled back.", 2, cache.getCounter(100));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  private AbstractCounterCache createCache(final Map<Integer, Integer> entities)
+  {
+    return new AbstractCounterCache(AbstractCache.TICKS_PER_HOUR) {
+      @Override
+      protected Map<Integer, Integer> loadCountedEntities()
+      {
+        return entities;
+      }
+    };
+  }
+}
@@ -25,6 +25,8 @@ package org.projectforge.core;
 
 import static org.junit.Assert.assertEquals;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Locale;
@@ -34,8 +36,10 @@ import org.junit.Test;
 import org.projectforge.common.DateHelper;
 import org.projectforge.common.DateHolder;
 import org.projectforge.common.DatePrecision;
+import org.projectforge.fibu.AuftragDO;
+import org.projectforge.fibu.AuftragsPositionDO;
 import org.projectforge.test.TestConfiguration;
-
+import org.projectforge.timesheet.TimesheetDO;
 
 public class AbstractBaseDOTest
 {
@@ -121,4 +125,49 @@ public class AbstractBaseDOTest
     assertEquals("dest5", list.get(0).getTestString());
     assertEquals("dest6", list.get(1).getTestString());
   }
+
+  @Test
+  public void copyValuesModificationStatus()
+  {
+    final TimesheetDO src = createTimesheet(1, "Hurzel");
+    final TimesheetDO dest = createTimesheet(1, "Hurzel");
+    assertEquals(ModificationStatus.NONE, dest.copyValuesFrom(src));
+    src.setDescription("Changed");
+    assertEquals(ModificationStatus.MAJOR, dest.copyValuesFrom(src));
+    assertEquals("Changed", dest.getDescription());
+    src.setDescription("Ignored");
+    assertEquals(ModificationStatus.NONE, dest.copyValuesFrom(src, "description"));
+    assertEquals("Changed", dest.getDescription());
+
+    final AuftragDO srcAuftrag = createAuftrag(1, "src");
+    final AuftragDO destAuftrag = createAuftrag(1, "dest");
+    assertEquals(ModificationStatus.MAJOR, destAuftrag.copyValuesFrom(srcAuftrag));
+    assertEquals("src 1", destAuftrag.getPosition((short) 1).getTitel()); // autoUpdateCollectionEntries
+    assertEquals(ModificationStatus.NONE, destAuftrag.copyValuesFrom(srcAuftrag));
+  }
+
+  private TimesheetDO createTimesheet(final int id, final String description)
+  {
+    final TimesheetDO timesheet = new TimesheetDO();
+    timesheet.setId(id);
+    timesheet.setDescription(description);
+    timesheet.setLocation("Kassel");
+    timesheet.setStartTime(new Timestamp(1000000000000L));
+    timesheet.setStopTime(new Timestamp(1000003600000L));
+    return timesheet;
+  }
+
+  private AuftragDO createAuftrag(final int id, final String titel)
+  {
+    final AuftragDO auftrag = new AuftragDO();
+    auftrag.setId(id);
+    auftrag.setTitel(titel);
+    for (int i = 1; i <= 10; i++) {
+      final AuftragsPositionDO position = new AuftragsPositionDO();
+      position.setTitel(titel + " " + i);
+      position.setNettoSumme(new BigDecimal(i * 100));
+      auftrag.addPosition(position);
+    }
+    return auftrag;
+  }
 }
@@ -0,0 +1,105 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+
+public class CacheInvalidationBusTest
+{
+  private CacheInvalidationBus bus;
+
+  private final List<Serializable> invalidations = new ArrayList<Serializable>();
+
+  @Before
+  public void setUp()
+  {
+    final HibernateTemplate hibernateTemplate = mock(HibernateTemplate.class);
+    when(hibernateTemplate.getSessionFactory()).thenReturn(mock(SessionFactory.class));
+    bus = new CacheInvalidationBus();
+    bus.setHibernateTemplate(hibernateTemplate);
+    bus.setLookBehindPolls(2);
+    invalidations.clear();
+    CacheInvalidationBus.register(new CacheInvalidationListener() {
+      @Override
+      public void invalidate(final Class< ? > entityClass, final Serializable id)
+      {
+        invalidations.add(id);
+      }
+    }, TestEntity.class);
+  }
+
+  @Test
+  public void lateCommits()
+  {
+    bus.initHighWaterMark(100);
+    assertEquals(100, (int) bus.getLowWaterMark());
+    // Entry 102 is written before 101 is committed:
+    bus.process(Arrays.asList(create(102, "node2", 2)), System.currentTimeMillis());
+    assertEquals(Arrays.asList((Serializable) 2), invalidations);
+    assertEquals(100, (int) bus.getLowWaterMark());
+    // The next poll reads all entries above 100, 102 is skipped:
+    bus.process(Arrays.asList(create(101, "node2", 1), create(102, "node2", 2), create(103, "node3", 3)), System.currentTimeMillis());
+    assertEquals(Arrays.asList((Serializable) 2, 1, 3), invalidations);
+    assertEquals(102, (int) bus.getLowWaterMark());
+    bus.process(Arrays.asList(create(103, "node3", 3)), System.currentTimeMillis());
+    assertEquals("Already processed.", 3, invalidations.size());
+    assertEquals(103, (int) bus.getLowWaterMark());
+  }
+
+  @Test
+  public void ownEntriesAndCoalescing()
+  {
+    bus.initHighWaterMark(0);
+    bus.process(Arrays.asList(create(1, bus.getNodeId(), 1), create(2, "node2", 2), create(3, "node2", 2)), System.currentTimeMillis());
+    assertEquals("Own entries are skipped, multiple modifications are coalesced.", Arrays.asList((Serializable) 2), invalidations);
+    bus.process(new ArrayList<CacheInvalidationDO>(), System.currentTimeMillis());
+    assertEquals("Own entries raise the high-water mark.", 3, (int) bus.getLowWaterMark());
+  }
+
+  private CacheInvalidationDO create(final int id, final String nodeId, final int entityId)
+  {
+    final CacheInvalidationDO entry = new CacheInvalidationDO().setEntityClass(TestEntity.class.getName())
+        .setEntityId(String.valueOf(entityId)).setNodeId(nodeId).setCreated(new Date());
+    entry.setId(id);
+    return entry;
+  }
+
+  private static class TestEntity
+  {
+  }
+}
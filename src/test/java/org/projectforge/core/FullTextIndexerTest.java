@@ -0,0 +1,179 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+
+import org.hibernate.EntityMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.event.EventSource;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.Test;
+import org.projectforge.humanresources.HRPlanningDO;
+import org.projectforge.humanresources.HRPlanningEntryDO;
+import org.projectforge.task.TaskDO;
+import org.projectforge.user.PFUserContext;
+import org.projectforge.user.PFUserDO;
+import org.projectforge.user.UserXmlPreferencesDO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class FullTextIndexerTest
+{
+  @Test
+  public void scheduleAfterCommit()
+  {
+    final FullTextIndexer indexer = createIndexer(null);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      indexer.schedule(TaskDO.class, 1);
+      assertEquals("Not scheduled before the commit.", 0, indexer.getQueueSize());
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+      assertEquals(1, indexer.getQueueSize());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      indexer.schedule(TaskDO.class, 2);
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+      assertEquals("Rolled back modifications aren't indexed.", 1, indexer.getQueueSize());
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void coalesce()
+  {
+    final FullTextIndexer indexer = createIndexer(null);
+    indexer.schedule(TaskDO.class, 1);
+    indexer.schedule(TaskDO.class, 2);
+    indexer.schedule(TaskDO.class, 1);
+    assertEquals(2, indexer.getQueueSize());
+    indexer.schedule(UserXmlPreferencesDO.class, 1);
+    assertEquals("Objects without full-text index are ignored.", 2, indexer.getQueueSize());
+    final FullTextIndexer synchronous = new FullTextIndexer();
+    synchronous.schedule(TaskDO.class, 1);
+    assertEquals("Synchronous indexing on commit by Hibernate Search.", 0, synchronous.getQueueSize());
+  }
+
+  @Test
+  public void eventListener()
+  {
+    final FullTextIndexer indexer = createIndexer(null);
+    final FullTextIndexerEventListener listener = new FullTextIndexerEventListener();
+    indexer.setEventListener(listener);
+    final EntityPersister persister = mock(EntityPersister.class);
+    when(persister.getMappedClass(EntityMode.POJO)).thenReturn(TaskDO.class);
+    final TaskDO task = new TaskDO();
+    listener.onPostInsert(new PostInsertEvent(task, 1, null, persister, null));
+    listener.onPostDelete(new PostDeleteEvent(task, 2, null, persister, null));
+    assertEquals(2, indexer.getQueueSize());
+  }
+
+  @Test
+  public void containedIn()
+  {
+    final FullTextIndexer indexer = createIndexer(null);
+    final FullTextIndexerEventListener listener = new FullTextIndexerEventListener();
+    indexer.setEventListener(listener);
+    final HRPlanningDO planning = new HRPlanningDO();
+    final HRPlanningEntryDO entry = new HRPlanningEntryDO();
+    planning.addEntry(entry);
+    assertEquals(1, FullTextIndexer.getContainedIn(planning, true).size());
+    assertTrue(FullTextIndexer.getContainedIn(entry, true).isEmpty());
+    final EntityPersister persister = mock(EntityPersister.class);
+    when(persister.getMappedClass(EntityMode.POJO)).thenReturn(HRPlanningDO.class);
+    final EventSource session = mock(EventSource.class);
+    when(session.getContextEntityIdentifier(entry)).thenReturn(2);
+    listener.onPostDelete(new PostDeleteEvent(planning, 1, null, persister, session));
+    assertEquals("Entries of the deleted planning (@ContainedIn) are scheduled too.", 2, indexer.getQueueSize());
+  }
+
+  @Test
+  public void journal() throws Exception
+  {
+    final File file = File.createTempFile("indexing-queue", ".journal");
+    file.deleteOnExit();
+    final FullTextIndexer indexer = createIndexer(file);
+    indexer.schedule(TaskDO.class, 1);
+    indexer.schedule(TaskDO.class, 2);
+    indexer.writeJournal();
+    indexer.schedule(TaskDO.class, 3); // Appended.
+    indexer.schedule(TaskDO.class, 1); // Coalesced on replay.
+    final FullTextIndexer replay = createIndexer(file);
+    synchronized (replay) {
+      replay.readJournal();
+    }
+    assertEquals(3, replay.getQueueSize());
+    replay.writeJournal();
+    final FullTextIndexer replay2 = createIndexer(file);
+    synchronized (replay2) {
+      replay2.readJournal();
+    }
+    assertEquals("Rewritten journal contains the pending entries only.", 3, replay2.getQueueSize());
+  }
+
+  @Test
+  public void waitUntilIndexed()
+  {
+    final FullTextIndexer indexer = createIndexer(null);
+    final PFUserDO user = new PFUserDO();
+    user.setId(42);
+    PFUserContext.setUser(user);
+    try {
+      assertTrue("No modifications of this user.", indexer.waitUntilIndexed(42, 0));
+      indexer.schedule(TaskDO.class, 1);
+      assertTrue(indexer.waitUntilIndexed(43, 0));
+      assertFalse("Modification of this user isn't yet indexed.", indexer.waitUntilIndexed(42, 0));
+    } finally {
+      PFUserContext.setUser(null);
+    }
+  }
+
+  private FullTextIndexer createIndexer(final File journalFile)
+  {
+    final FullTextIndexer indexer = new FullTextIndexer();
+    indexer.setSessionFactory(mock(SessionFactory.class));
+    indexer.setAsynchronous(true);
+    if (journalFile != null) {
+      indexer.setJournalFile(journalFile.getAbsolutePath());
+    }
+    return indexer;
+  }
+}
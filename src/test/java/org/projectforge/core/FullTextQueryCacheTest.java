@@ -0,0 +1,214 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.queryParser.MultiFieldQueryParser;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.Test;
+import org.projectforge.lucene.ClassicAnalyzer;
+
+public class FullTextQueryCacheTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(FullTextQueryCacheTest.class);
+
+  private static final String[] ADDRESS_FIELDS = { "name", "firstName", "organization", "comment"};
+
+  private static final String[] TIMESHEET_FIELDS = { "location", "description", "task.title"};
+
+  private static final String[] TASK_FIELDS = { "title", "shortDescription", "description"};
+
+  private static final String[] WORDS = { "meeting", "release", "kai", "reinhard", "micromata", "kassel", "projectforge", "review",
+    "customer", "support", "travel", "hotline", "design", "test", "berlin", "invoice", "concept", "workshop", "planning", "bugfix"};
+
+  private final Analyzer analyzer = new ClassicAnalyzer(BaseDao.LUCENE_VERSION);
+
+  @Test
+  public void cache() throws ParseException
+  {
+    final FullTextQueryCache cache = new FullTextQueryCache("FullTextQueryCacheTest");
+    assertNull(cache.get(ADDRESS_FIELDS, "kai*"));
+    final Query query = parse(ADDRESS_FIELDS, "kai*");
+    cache.put(ADDRESS_FIELDS, "kai*", query);
+    final Query cached = cache.get(ADDRESS_FIELDS, "kai*");
+    assertNotNull(cached);
+    assertEquals(query, cached);
+    assertFalse("Copy expected.", query == cached);
+    assertNull("Other search fields.", cache.get(TASK_FIELDS, "kai*"));
+    for (int i = 0; i < FullTextQueryCache.MAX_SIZE; i++) {
+      cache.put(TASK_FIELDS, "word" + i, parse(TASK_FIELDS, "word" + i));
+      if (i % 10 == 0) {
+        // Last access keeps entry in cache:
+        assertNotNull(cache.get(ADDRESS_FIELDS, "kai*"));
+      }
+    }
+    assertEquals(FullTextQueryCache.MAX_SIZE, cache.getSize());
+    assertNull("Eldest entry expected to be removed.", cache.get(TASK_FIELDS, "word0"));
+    assertNotNull(cache.get(TASK_FIELDS, "word99"));
+    cache.clear();
+    assertEquals(0, cache.getSize());
+  }
+
+  /**
+   * Typical address, time sheet and task searches against a memory mapped index (run with e. g. -DfullTextBenchmark.documents=1000000 for
+   * an index with 1M documents, the benchmark is skipped without this property): Parsing of every search string and opening a new searcher for every search versus cached queries and a
+   * shared searcher which is reopened after index modifications.
+   */
+  @Test
+  public void benchmark() throws IOException, ParseException
+  {
+    final Integer sizeProperty = Integer.getInteger("fullTextBenchmark.documents");
+    if (sizeProperty == null) {
+      log.info("Property fullTextBenchmark.documents not given. Skipping benchmark.");
+      return;
+    }
+    final int size = sizeProperty;
+    final File dir = new File(System.getProperty("java.io.tmpdir"), "projectforge-lucene-benchmark-" + System.currentTimeMillis());
+    final Directory directory = new MMapDirectory(dir);
+    try {
+      long start = System.currentTimeMillis();
+      final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(BaseDao.LUCENE_VERSION, analyzer));
+      for (int i = 0; i < size; i++) {
+        writer.addDocument(createDocument(i));
+      }
+      writer.commit();
+      log.info("Index with " + size + " documents created in " + (System.currentTimeMillis() - start) + "ms.");
+      final String[][] fields = { ADDRESS_FIELDS, TIMESHEET_FIELDS, TASK_FIELDS, ADDRESS_FIELDS, TIMESHEET_FIELDS};
+      final String[] searchStrings = { "kai* reinhard*", "meeting* kassel*", "release* -bugfix", "micromata*", "customer* support*"};
+      final int loops = 50;
+
+      // Without caching:
+      start = System.currentTimeMillis();
+      int hits = 0;
+      for (int loop = 0; loop < loops; loop++) {
+        for (int i = 0; i < searchStrings.length; i++) {
+          final IndexReader reader = IndexReader.open(directory, true);
+          final IndexSearcher searcher = new IndexSearcher(reader);
+          hits += searcher.search(parse(fields[i], searchStrings[i]), 100).totalHits;
+          searcher.close();
+          reader.close();
+        }
+      }
+      final long uncached = System.currentTimeMillis() - start;
+
+      // Cached queries and shared searcher:
+      final FullTextQueryCache cache = new FullTextQueryCache("FullTextQueryCacheTest");
+      start = System.currentTimeMillis();
+      IndexReader reader = IndexReader.open(directory, true);
+      IndexSearcher searcher = new IndexSearcher(reader);
+      int cachedHits = 0;
+      for (int loop = 0; loop < loops; loop++) {
+        for (int i = 0; i < searchStrings.length; i++) {
+          Query query = cache.get(fields[i], searchStrings[i]);
+          if (query == null) {
+            query = parse(fields[i], searchStrings[i]);
+            cache.put(fields[i], searchStrings[i], query);
+          }
+          cachedHits += searcher.search(query, 100).totalHits;
+        }
+      }
+      final long cached = System.currentTimeMillis() - start;
+      assertEquals(hits, cachedHits);
+
+      // Modification of the index: only the new segment is opened by the shared reader.
+      writer.addDocument(createDocument(size));
+      writer.commit();
+      start = System.currentTimeMillis();
+      final IndexReader newReader = reader.reopen();
+      assertTrue(newReader != reader);
+      searcher.close();
+      reader.close();
+      reader = newReader;
+      searcher = new IndexSearcher(reader);
+      final long reopen = System.currentTimeMillis() - start;
+      assertEquals(size + 1, reader.numDocs());
+      searcher.close();
+      reader.close();
+      writer.close();
+      log.info("Full text searches ("
+          + loops * searchStrings.length
+          + ") on "
+          + size
+          + " documents: uncached "
+          + uncached
+          + "ms, cached queries and shared searcher "
+          + cached
+          + "ms, reopen after modification "
+          + reopen
+          + "ms.");
+    } finally {
+      directory.close();
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+  private Query parse(final String[] fields, final String searchString) throws ParseException
+  {
+    final MultiFieldQueryParser parser = new MultiFieldQueryParser(BaseDao.LUCENE_VERSION, fields, analyzer);
+    parser.setAllowLeadingWildcard(true);
+    return parser.parse(searchString);
+  }
+
+  private Document createDocument(final int i)
+  {
+    final Document doc = new Document();
+    doc.add(new Field("id", String.valueOf(i), Field.Store.YES, Field.Index.NOT_ANALYZED));
+    addField(doc, "name", i, 1);
+    addField(doc, "firstName", i, 3);
+    addField(doc, "organization", i, 7);
+    addField(doc, "comment", i, 11);
+    addField(doc, "location", i, 13);
+    addField(doc, "description", i, 17);
+    addField(doc, "task.title", i, 19);
+    addField(doc, "title", i, 23);
+    addField(doc, "shortDescription", i, 29);
+    return doc;
+  }
+
+  private void addField(final Document doc, final String field, final int i, final int prime)
+  {
+    final String value = WORDS[(i * prime) % WORDS.length] + " " + WORDS[(i / prime) % WORDS.length] + i % 1000;
+    doc.add(new Field(field, value, Field.Store.NO, Field.Index.ANALYZED));
+  }
+}
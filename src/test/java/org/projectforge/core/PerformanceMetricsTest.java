@@ -0,0 +1,114 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PerformanceMetricsTest
+{
+  @Test
+  public void buckets()
+  {
+    assertEquals(0, MetricTimer.getBucket(0));
+    assertEquals(0, MetricTimer.getBucket(999));
+    assertEquals(1, MetricTimer.getBucket(1000));
+    assertEquals(2, MetricTimer.getBucket(2000));
+    assertEquals(2, MetricTimer.getBucket(3999));
+    assertEquals(3, MetricTimer.getBucket(4000));
+    assertEquals(MetricTimer.BUCKETS - 1, MetricTimer.getBucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentiles()
+  {
+    final MetricTimer timer = new MetricTimer("test");
+    for (int i = 0; i < 98; i++) {
+      timer.record(1000000); // 1ms
+    }
+    timer.record(100000000); // 100ms
+    timer.record(200000000); // 200ms
+    final MetricTimer.Snapshot snapshot = timer.getSnapshot();
+    assertEquals(100, snapshot.getCount());
+    assertEquals(398.0, snapshot.getTotal(), 0.0001);
+    assertEquals(3.98, snapshot.getMean(), 0.0001);
+    assertEquals(200.0, snapshot.getMax(), 0.0001);
+    // Upper bounds of the buckets: 1ms -> 1.024ms, 100ms -> 131.072ms.
+    assertEquals(1.024, snapshot.getP50(), 0.0001);
+    assertEquals(1.024, snapshot.getP95(), 0.0001);
+    assertEquals(131.072, snapshot.getP99(), 0.0001);
+    timer.reset();
+    assertEquals(0, timer.getSnapshot().getCount());
+    assertEquals(0.0, timer.getSnapshot().getP99(), 0.0);
+  }
+
+  @Test
+  public void concurrentRecording() throws InterruptedException
+  {
+    final MetricTimer timer = new MetricTimer("concurrent");
+    final MetricCounter counter = new MetricCounter("concurrent");
+    final int threadCount = 16;
+    final int loops = 10000;
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      final Thread thread = new Thread() {
+        @Override
+        public void run()
+        {
+          for (int j = 0; j < loops; j++) {
+            timer.record(j * 1000);
+            counter.increment();
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(threadCount * loops, timer.getSnapshot().getCount());
+    assertEquals(threadCount * loops, counter.getCount());
+    assertEquals((loops - 1) / 1000.0, timer.getSnapshot().getMax(), 0.0001);
+  }
+
+  @Test
+  public void snapshots()
+  {
+    final PerformanceMetrics metrics = PerformanceMetrics.getInstance();
+    metrics.getTimer("test.PerformanceMetricsTest.timer").record(5000000);
+    metrics.getCounter("test.PerformanceMetricsTest.counter").increment();
+    assertTrue(metrics.getTimer("test.PerformanceMetricsTest.timer") == metrics.getTimer("test.PerformanceMetricsTest.timer"));
+    assertTrue(metrics.getCsvSnapshot().contains("test.PerformanceMetricsTest.timer"));
+    assertTrue(metrics.getCsvSnapshot().contains("test.PerformanceMetricsTest.counter"));
+    assertTrue(metrics.getJsonSnapshot().contains("test.PerformanceMetricsTest.timer"));
+    assertTrue(metrics.getHtmlSummary().contains("test.PerformanceMetricsTest.timer"));
+  }
+}
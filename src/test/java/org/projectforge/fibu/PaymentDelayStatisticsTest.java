@@ -0,0 +1,126 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.projectforge.calendar.DayHolder;
+import org.projectforge.statistics.IntAggregatedValues;
+
+public class PaymentDelayStatisticsTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(PaymentDelayStatisticsTest.class);
+
+  @Test
+  public void testUpdates()
+  {
+    final PaymentDelayStatistics stats = new PaymentDelayStatistics(365);
+    final Date today = new DayHolder().getDate();
+    stats.update(1, getDate(-100), getDate(-70), 1000, "customer#1", "project#1"); // 30 days
+    stats.update(2, getDate(-50), getDate(-40), 3000, "customer#1"); // 10 days
+    assertEquals(15, stats.getValues("customer#1").getWeightedAverage()); // (30*1000 + 10*3000) / 4000
+    assertEquals(2, stats.getValues("customer#1").getNumberOfValues());
+    assertEquals(30, stats.getValues("project#1").getWeightedAverage());
+    stats.update(2, getDate(-50), getDate(-30), 3000, "customer#1"); // Modified: 20 days
+    assertEquals(22, stats.getValues("customer#1").getWeightedAverage()); // (30*1000 + 20*3000) / 4000
+    assertEquals(2, stats.getValues("customer#1").getNumberOfValues());
+    stats.update(1, getDate(-100), null, 1000, "customer#1", "project#1"); // Not paid anymore.
+    assertEquals(20, stats.getValues("customer#1").getWeightedAverage());
+    assertNull(stats.getValues("project#1"));
+    stats.remove(2);
+    assertNull(stats.getValues("customer#1"));
+    stats.update(3, getDate(-400), today, 1000, "customer#2"); // Out of time window.
+    assertNull(stats.getValues("customer#2"));
+    assertEquals(0, stats.size());
+  }
+
+  /**
+   * Full recalculation versus incremental update of the payment statistics (run with e. g. -DpaymentDelayBenchmark.invoices=100000, the
+   * benchmark is skipped without this property).
+   */
+  @Test
+  public void benchmark()
+  {
+    final Integer sizeProperty = Integer.getInteger("paymentDelayBenchmark.invoices");
+    if (sizeProperty == null) {
+      log.info("Property paymentDelayBenchmark.invoices not given. Skipping benchmark.");
+      return;
+    }
+    final int size = sizeProperty;
+    final Date[] dates = new Date[size];
+    final Date[] paymentDates = new Date[size];
+    for (int i = 0; i < size; i++) {
+      dates[i] = getDate(-(i % 360));
+      paymentDates[i] = getDate(-(i % 360) + 10 + i % 30);
+    }
+    // Full recalculation as done before on every call of the liquidity forecast:
+    long start = System.currentTimeMillis();
+    final Map<String, IntAggregatedValues> map = new HashMap<String, IntAggregatedValues>();
+    for (int i = 0; i < size; i++) {
+      final String group = "customer#" + (i % 500);
+      IntAggregatedValues values = map.get(group);
+      if (values == null) {
+        values = new IntAggregatedValues();
+        map.put(group, values);
+      }
+      values.add(new DayHolder(dates[i]).daysBetween(new DayHolder(paymentDates[i])), 100 + i % 1000);
+    }
+    final int expected = map.get("customer#42").getWeightedAverage();
+    final long fullRecalculation = System.currentTimeMillis() - start;
+    final PaymentDelayStatistics stats = new PaymentDelayStatistics(365);
+    for (int i = 0; i < size; i++) {
+      stats.update(i, dates[i], paymentDates[i], 100 + i % 1000, "customer#" + (i % 500));
+    }
+    assertEquals(expected, stats.getValues("customer#42").getWeightedAverage());
+    // Incremental update of a single invoice:
+    start = System.currentTimeMillis();
+    stats.update(42, dates[42], getDate(0), 100 + 42, "customer#42");
+    final int average = stats.getValues("customer#42").getWeightedAverage();
+    final long incrementalUpdate = System.currentTimeMillis() - start;
+    log.info("Payment statistics of "
+        + size
+        + " invoices: full recalculation "
+        + fullRecalculation
+        + "ms, incremental update "
+        + incrementalUpdate
+        + "ms (average of customer#42: "
+        + expected
+        + " -> "
+        + average
+        + " days).");
+  }
+
+  private Date getDate(final int days)
+  {
+    return new DayHolder().add(Calendar.DAY_OF_YEAR, days).getDate();
+  }
+}
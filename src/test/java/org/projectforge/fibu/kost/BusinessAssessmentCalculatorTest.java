@@ -0,0 +1,135 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.fibu.kost;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.projectforge.fibu.KontoDO;
+
+public class BusinessAssessmentCalculatorTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(BusinessAssessmentCalculatorTest.class);
+
+  @Test
+  public void testRowIndex()
+  {
+    final BusinessAssessmentConfig bwaConfig = BusinessAssessmentConfigTest.getBusinessAssessmentConfig();
+    final BusinessAssessmentCalculator calculator = new BusinessAssessmentCalculator(bwaConfig);
+    final List<BusinessAssessmentRowConfig> rows = bwaConfig.getRows();
+    for (int accountNumber = -1; accountNumber <= 100000; accountNumber++) {
+      int expected = -1;
+      for (int i = 0; i < rows.size(); i++) {
+        if (rows.get(i).getAccountNumberRanges().doesMatch(accountNumber) == true) {
+          expected = i;
+          break;
+        }
+      }
+      assertEquals("Row of account number " + accountNumber, expected, calculator.getRowIndex(accountNumber));
+    }
+  }
+
+  @Test
+  public void testIgnoredRecords()
+  {
+    final BusinessAssessmentCalculator calculator = new BusinessAssessmentCalculator(BusinessAssessmentConfigTest
+        .getBusinessAssessmentConfig());
+    int unmatchedAccountNumber = -1;
+    for (int accountNumber = 0; accountNumber <= 100000; accountNumber++) {
+      if (calculator.getRowIndex(accountNumber) < 0) {
+        unmatchedAccountNumber = accountNumber;
+        break;
+      }
+    }
+    assertTrue(unmatchedAccountNumber >= 0);
+    final BuchungssatzDO unmatched = createRecord(BigDecimal.ONE, unmatchedAccountNumber);
+    final BuchungssatzDO withoutAccount = new BuchungssatzDO();
+    withoutAccount.setBetrag(BigDecimal.ONE);
+    final BuchungssatzDO matched = createRecord(BigDecimal.ONE, 4000);
+    final List<BuchungssatzDO> records = new ArrayList<BuchungssatzDO>();
+    records.add(unmatched);
+    records.add(withoutAccount);
+    records.add(matched);
+    assertEquals(-1, calculator.getRowIndex(unmatched));
+    assertFalse("Getter without side effects expected.", unmatched.isIgnore());
+    calculator.calculate(records);
+    assertTrue("Record without matching row should be marked as ignored.", unmatched.isIgnore());
+    assertFalse(withoutAccount.isIgnore());
+    assertFalse(matched.isIgnore());
+  }
+
+  @Test
+  public void testCents()
+  {
+    assertEquals(808, BusinessAssessmentCalculator.toCents(new BigDecimal("8.08")));
+    assertEquals(-101, BusinessAssessmentCalculator.toCents(new BigDecimal("-1.01")));
+    assertEquals(1000, BusinessAssessmentCalculator.toCents(BigDecimal.TEN));
+    assertEquals(0, BusinessAssessmentCalculator.toCents(null));
+    assertEquals(new BigDecimal("-15.15"), BusinessAssessmentCalculator.fromCents(-1515));
+  }
+
+  @Test
+  public void testAmounts()
+  {
+    final BusinessAssessmentConfig bwaConfig = BusinessAssessmentConfigTest.getBusinessAssessmentConfig();
+    final List<BuchungssatzDO> records = new ArrayList<BuchungssatzDO>();
+    for (int i = 0; i < 200000; i++) {
+      records.add(createRecord(new BigDecimal(i % 1000).movePointLeft(2), 4000 + (i % 800)));
+    }
+    long start = System.currentTimeMillis();
+    final BusinessAssessment bwa = new BusinessAssessment(bwaConfig, records);
+    log.info("Business assessment of " + records.size() + " records calculated in " + (System.currentTimeMillis() - start) + "ms.");
+    start = System.currentTimeMillis();
+    BigDecimal expected = BigDecimal.ZERO;
+    for (final BuchungssatzDO record : records) {
+      if (bwaConfig.getRow("umsatzErloese").getAccountNumberRanges().doesMatch(record.getKonto().getNummer()) == true) {
+        expected = expected.add(record.getBetrag());
+      }
+    }
+    log.info("Reference sum calculated in " + (System.currentTimeMillis() - start) + "ms.");
+    assertEquals(expected, bwa.getRow("umsatzErloese").getAmount());
+    final BusinessAssessmentCalculator.Amounts amounts = new BusinessAssessmentCalculator(bwaConfig).calculate(records);
+    final BusinessAssessment bwa2 = new BusinessAssessment(bwaConfig);
+    bwa2.setAmounts(amounts);
+    assertEquals(expected, bwa2.getRow("umsatzErloese").getAmount());
+    assertEquals(bwa.getRow("1380").getAmount(), bwa2.getRow("1380").getAmount());
+  }
+
+  private BuchungssatzDO createRecord(final BigDecimal amount, final int accountNumber)
+  {
+    final BuchungssatzDO record = new BuchungssatzDO();
+    final KontoDO konto = new KontoDO();
+    konto.setNummer(accountNumber);
+    record.setKonto(konto);
+    record.setBetrag(amount);
+    return record;
+  }
+}
@@ -0,0 +1,170 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.gantt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.projectforge.calendar.DayHolder;
+import org.projectforge.core.ConfigXmlTest;
+import org.projectforge.test.TestConfiguration;
+
+public class GanttSchedulerTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(GanttSchedulerTest.class);
+
+  @BeforeClass
+  public static void setUp()
+  {
+    // Needed if this tests runs before the ConfigurationTest.
+    ConfigXmlTest.createTestConfiguration();
+    TestConfiguration.initAsTestConfiguration();
+  }
+
+  @Test
+  public void topologicalOrder()
+  {
+    final GanttTaskImpl root = new GanttTaskImpl(0);
+    final GanttTaskImpl summary = new GanttTaskImpl(1);
+    final GanttTaskImpl a1 = new GanttTaskImpl(2).setDuration(BigDecimal.TEN);
+    final GanttTaskImpl a2 = new GanttTaskImpl(3).setDuration(BigDecimal.ONE);
+    final GanttTaskImpl milestone = new GanttTaskImpl(4).setType(GanttObjectType.MILESTONE);
+    root.addChild(milestone).addChild(summary);
+    summary.addChild(a2).addChild(a1);
+    a2.setPredecessor(a1);
+    milestone.setPredecessor(summary);
+    final List<GanttTask> order = new GanttScheduler(root).schedule().getOrder();
+    assertEquals(5, order.size());
+    assertTrue(order.indexOf(a1) < order.indexOf(a2));
+    assertTrue(order.indexOf(a2) < order.indexOf(summary));
+    assertTrue(order.indexOf(summary) < order.indexOf(milestone));
+    assertTrue(order.indexOf(milestone) < order.indexOf(root));
+  }
+
+  @Test
+  public void compareWithGanttUtils()
+  {
+    final Random random = new Random(42);
+    final GanttTaskImpl root = new GanttTaskImpl(0);
+    final List<GanttTaskImpl> activities = new ArrayList<GanttTaskImpl>();
+    final DayHolder day = new DayHolder();
+    day.setDate(2012, Calendar.JANUARY, 2);
+    int id = 1;
+    for (int i = 0; i < 25; i++) {
+      final GanttTaskImpl summary = new GanttTaskImpl(id++).setTitle("summary " + i);
+      root.addChild(summary);
+      for (int j = 0; j < 40; j++) {
+        final GanttTaskImpl activity = new GanttTaskImpl(id++).setTitle("activity " + i + "." + j);
+        activity.setDuration(new BigDecimal(1 + random.nextInt(10)));
+        if (activities.isEmpty() == true) {
+          activity.setStartDate(day.getDate());
+        } else if (j % 7 == 3) {
+          activity.setPredecessor(activities.get(random.nextInt(activities.size()))).setRelationType(GanttRelationType.START_START);
+          activity.setPredecessorOffset(random.nextInt(5));
+        } else {
+          activity.setPredecessor(activities.get(activities.size() - 1));
+        }
+        summary.addChild(activity);
+        activities.add(activity);
+      }
+    }
+    final GanttScheduler scheduler = new GanttScheduler(root);
+    long start = System.currentTimeMillis();
+    scheduler.schedule();
+    final long scheduleDuration = System.currentTimeMillis() - start;
+    final List<Date[]> scheduled = getDates(scheduler.getOrder());
+    start = System.currentTimeMillis();
+    final List<Date[]> expected = recalculate(root, scheduler.getOrder());
+    final long recursiveDuration = System.currentTimeMillis() - start;
+    assertDates(expected, scheduled);
+
+    assertEquals(0, scheduler.getModifiedNodes().length);
+
+    // Modify one activity in the middle:
+    final GanttTaskImpl modified = activities.get(500);
+    modified.setDuration(new BigDecimal(20));
+    final GanttTask[] modifiedNodes = scheduler.getModifiedNodes();
+    assertEquals(1, modifiedNodes.length);
+    assertTrue(modifiedNodes[0] == modified);
+    start = System.currentTimeMillis();
+    scheduler.reschedule(modifiedNodes);
+    final long rescheduleDuration = System.currentTimeMillis() - start;
+    final List<Date[]> rescheduled = getDates(scheduler.getOrder());
+    assertDates(recalculate(root, scheduler.getOrder()), rescheduled);
+    assertEquals(2, scheduler.getVersion());
+
+    // Move an activity to another summary:
+    final GanttTaskImpl moved = activities.get(100);
+    final GanttTask oldParent = root.findParent(moved.getId());
+    oldParent.removeChild(moved);
+    root.getChildren().get(20).addChild(moved);
+    assertEquals("Old and new parent are modified.", 2, scheduler.getModifiedNodes().length);
+    scheduler.reschedule(scheduler.getModifiedNodes());
+    final List<Date[]> rescheduledAfterMove = getDates(scheduler.getOrder());
+    assertDates(recalculate(root, scheduler.getOrder()), rescheduledAfterMove);
+    log.info("Calculation of " + scheduler.getOrder().size() + " Gantt tasks: recursive " + recursiveDuration + "ms, scheduler "
+        + scheduleDuration + "ms, rescheduling after modification of one task " + rescheduleDuration + "ms.");
+  }
+
+  /**
+   * Recalculation as done before by GanttChart.
+   */
+  private List<Date[]> recalculate(final GanttTaskImpl root, final List<GanttTask> order)
+  {
+    root.recalculate();
+    final List<Date[]> result = new ArrayList<Date[]>();
+    for (final GanttTask node : order) {
+      result.add(new Date[] { GanttUtils.getCalculatedStartDate(node), GanttUtils.getCalculatedEndDate(node)});
+    }
+    return result;
+  }
+
+  private List<Date[]> getDates(final List<GanttTask> order)
+  {
+    final List<Date[]> result = new ArrayList<Date[]>();
+    for (final GanttTask node : order) {
+      result.add(new Date[] { node.getCalculatedStartDate(), node.getCalculatedEndDate()});
+    }
+    return result;
+  }
+
+  private void assertDates(final List<Date[]> expected, final List<Date[]> actual)
+  {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i)[0], actual.get(i)[0]);
+      assertEquals(expected.get(i)[1], actual.get(i)[1]);
+    }
+  }
+}
@@ -21,26 +21,221 @@
 //
 /////////////////////////////////////////////////////////////////////////////
 
+
 package org.projectforge.meb;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import javax.mail.Flags;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
 import org.junit.Test;
+import org.projectforge.mail.Mail;
+import org.projectforge.mail.MailAccount;
+import org.projectforge.mail.MailAccountConfig;
+import org.projectforge.mail.MailFilter;
 import org.projectforge.test.TestBase;
 
 public class MebMailClientTest extends TestBase
 {
   private MebMailClient mebMailClient;
 
+  private MebDao mebDao;
+
   @Test
   public void testGetMail()
   {
     mebMailClient.getNewMessages(false, false);
     assertEquals("", "");
   }
-  
+
+  @Test
+  public void testUIDSynchronization() throws MessagingException
+  {
+    final MebMailClient client = new MebMailClient();
+    client.setMebDao(mebDao);
+    final InMemoryMailAccount account = new InMemoryMailAccount();
+    final long date = System.currentTimeMillis() / 1000 * 1000;
+    for (int i = 0; i < 3; i++) {
+      account.addMail(new Date(date + i * 1000), "sender=0170111\nmsg=UID test " + i);
+    }
+    // First synchronization checks all unseen mails:
+    assertEquals(3, client.getNewMessages(account, "test@localhost", true, true));
+    assertEquals(3, account.fetchedMails);
+
+    account.addMail(new Date(date + 3000), "sender=0170111\nmsg=UID test 3");
+    account.addMail(new Date(date + 4000), "sender=0170111\nmsg=UID test 4");
+    // Only the new mails are fetched:
+    assertEquals(2, client.getNewMessages(account, "test@localhost", true, true));
+    assertEquals(5, account.fetchedMails);
+    assertEquals(0, client.getNewMessages(account, "test@localhost", true, true));
+    assertEquals(5, account.fetchedMails);
+
+    // More mails than the batch size:
+    for (int i = 5; i < MebMailClient.BATCH_SIZE + 10; i++) {
+      account.addMail(new Date(date + i * 1000), "sender=0170111\nmsg=UID test " + i);
+    }
+    assertEquals(MebMailClient.BATCH_SIZE + 5, client.getNewMessages(account, "test@localhost", true, true));
+    assertEquals(MebMailClient.BATCH_SIZE + 10, account.fetchedMails);
+
+    // UIDVALIDITY changed, all mails are seen:
+    account.uidValidity++;
+    assertEquals(0, client.getNewMessages(account, "test@localhost", true, true));
+    assertEquals(MebMailClient.BATCH_SIZE + 10, account.fetchedMails);
+
+    // Import all mails, all of them are already imported:
+    assertEquals(0, client.getNewMessages(account, "test@localhost", false, false));
+    assertEquals(2 * (MebMailClient.BATCH_SIZE + 10), account.fetchedMails);
+  }
+
+  @Test
+  public void testCheckAndAddEntries()
+  {
+    final Date date = new Date(System.currentTimeMillis() / 1000 * 1000);
+    final List<MebEntryDO> entries = new ArrayList<MebEntryDO>();
+    entries.add(createEntry(date, "0170222", "Bulk test 1"));
+    entries.add(createEntry(date, "0170222", "Bulk test 1")); // Twice.
+    entries.add(createEntry(date, "0170222", "Bulk test 2"));
+    assertEquals(2, mebDao.checkAndAddEntries(entries, "MAIL"));
+    entries.add(createEntry(date, "0170222", "Bulk test 3"));
+    assertEquals(1, mebDao.checkAndAddEntries(entries, "MAIL"));
+  }
+
+  @Test
+  public void testCreateEntry()
+  {
+    final Date date = new Date();
+    MebEntryDO entry = MebMailClient.createEntry(date, "sender=0170333\nmsg=Hello\nworld");
+    assertEquals("0170333", entry.getSender());
+    assertEquals("Helloworld", entry.getMessage());
+    assertEquals(date, entry.getDate());
+    entry = MebMailClient.createEntry(date, "0170333\nHello world");
+    assertEquals("0170333", entry.getSender());
+    assertEquals("Hello world", entry.getMessage());
+  }
+
+  private MebEntryDO createEntry(final Date date, final String sender, final String message)
+  {
+    final MebEntryDO entry = new MebEntryDO().setDate(date).setSender(sender);
+    entry.setMessage(message);
+    return entry;
+  }
+
   public void setMebMailClient(MebMailClient mebMailClient)
   {
     this.mebMailClient = mebMailClient;
   }
+
+  public void setMebDao(final MebDao mebDao)
+  {
+    this.mebDao = mebDao;
+  }
+
+  /**
+   * In-memory stand-in of an IMAP INBOX with UIDs.
+   */
+  private static class InMemoryMailAccount extends MailAccount
+  {
+    private final Session session = Session.getInstance(new Properties());
+
+    private final List<Message> messages = new ArrayList<Message>();
+
+    private final List<Long> uids = new ArrayList<Long>();
+
+    private long nextUID = 1;
+
+    long uidValidity = 1;
+
+    int fetchedMails;
+
+    InMemoryMailAccount()
+    {
+      super(new MailAccountConfig());
+    }
+
+    void addMail(final Date date, final String content) throws MessagingException
+    {
+      final MimeMessage message = new MimeMessage(session);
+      message.setFrom(new InternetAddress("meb@localhost"));
+      message.setSentDate(date);
+      message.setText(content);
+      message.saveChanges();
+      messages.add(message);
+      uids.add(nextUID++);
+    }
+
+    @Override
+    public boolean connect(final String mbox, final boolean readwrite)
+    {
+      return true;
+    }
+
+    @Override
+    public boolean disconnect()
+    {
+      return true;
+    }
+
+    @Override
+    public long getUIDValidity()
+    {
+      return uidValidity;
+    }
+
+    @Override
+    public long getLastUID()
+    {
+      return nextUID - 1;
+    }
+
+    @Override
+    public long getUID(final Message message)
+    {
+      return uids.get(messages.indexOf(message));
+    }
+
+    @Override
+    public Message[] getMessagesSinceUID(final long lastUID)
+    {
+      final List<Message> result = new ArrayList<Message>();
+      for (int i = 0; i < messages.size(); i++) {
+        if (uids.get(i) > lastUID) {
+          result.add(messages.get(i));
+        }
+      }
+      return result.toArray(new Message[result.size()]);
+    }
+
+    @Override
+    public Mail[] getMails(final MailFilter filter)
+    {
+      final List<Message> result = new ArrayList<Message>();
+      for (final Message message : messages) {
+        try {
+          if (filter.isOnlyRecent() == false || message.isSet(Flags.Flag.SEEN) == false) {
+            result.add(message);
+          }
+        } catch (final MessagingException ex) {
+          throw new RuntimeException(ex);
+        }
+      }
+      return getMails(result.toArray(new Message[result.size()]));
+    }
+
+    @Override
+    public Mail[] getMails(final Message[] msgs)
+    {
+      fetchedMails += msgs.length;
+      return super.getMails(msgs);
+    }
+  }
 }
@@ -0,0 +1,239 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.skillmatrix;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectforge.user.PFUserDO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class SkillMatrixIndexTest
+{
+  private SkillDO root, java, web, wicket;
+
+  private SkillTree skillTree;
+
+  private List<SkillRatingDO> ratings;
+
+  private SkillRatingDao skillRatingDao;
+
+  private SkillMatrixIndex index;
+
+  @Before
+  public void setUp()
+  {
+    root = createSkill(1, null);
+    java = createSkill(2, root);
+    web = createSkill(3, root);
+    wicket = createSkill(4, web);
+    final SkillDao skillDao = mock(SkillDao.class);
+    when(skillDao.internalLoadAll()).thenReturn(Arrays.asList(root, java, web, wicket));
+    skillTree = new SkillTree().setSkillDao(skillDao);
+    ratings = new ArrayList<SkillRatingDO>();
+    ratings.add(createRating(100, wicket, 10, SkillRating.EXPERT));
+    ratings.add(createRating(101, web, 11, SkillRating.LOW));
+    ratings.add(createRating(102, java, 11, SkillRating.HIGH));
+    ratings.add(createRating(103, java, 12, SkillRating.MIDDLE));
+    skillRatingDao = new SkillRatingDao() {
+      @Override
+      public List<SkillRatingDO> internalLoadAll()
+      {
+        return ratings;
+      }
+    };
+    index = skillRatingDao.getSkillMatrixIndex().setSkillTree(skillTree);
+  }
+
+  @Test
+  public void rollups()
+  {
+    assertUserIds(index.getUserIds(3, null, false), 11);
+    assertUserIds(index.getUserIds(3, null, true), 10, 11);
+    assertUserIds(index.getUserIds(3, SkillRating.HIGH, true), 10);
+    assertUserIds(index.getUserIds(4, SkillRating.EXPERT, false), 10);
+    assertUserIds(index.getUserIds(1, null, false));
+    assertUserIds(index.getUserIds(1, SkillRating.MIDDLE, true), 10, 11, 12);
+    assertUserIds(index.getUserIds(1, SkillRating.EXPERT, true), 10);
+    assertUserIds(index.getUserIds(999, null, true));
+    assertEquals(new HashSet<Integer>(Arrays.asList(3, 4)), index.getSkillIds(Arrays.asList(3), true));
+  }
+
+  @Test
+  public void multiSkillQueries()
+  {
+    final List<Integer> skillIds = Arrays.asList(2, 3);
+    assertUserIds(index.getUserIds(skillIds, null, true, true), 11);
+    assertUserIds(index.getUserIds(skillIds, null, true, false), 10, 11, 12);
+    assertUserIds(index.getUserIds(skillIds, null, false, false), 11, 12);
+    assertUserIds(index.getUserIds(skillIds, SkillRating.MIDDLE, true, true));
+    assertUserIds(index.getUserIds(skillIds, SkillRating.MIDDLE, true, false), 10, 11, 12);
+    assertUserIds(index.getUserIds(skillIds, SkillRating.HIGH, true, false), 10, 11);
+  }
+
+  @Test
+  public void bestMatches()
+  {
+    final List<Integer> skillIds = Arrays.asList(2, 3);
+    List<SkillMatch> matches = index.getBestMatches(skillIds, null, true, 10);
+    assertEquals(3, matches.size());
+    // Two matched skills first, then the score (EXPERT of user 10 is better than MIDDLE of user 12):
+    assertMatch(matches.get(0), 11, 2, SkillRating.HIGH.ordinal() + 1 + SkillRating.LOW.ordinal() + 1);
+    assertMatch(matches.get(1), 10, 1, SkillRating.EXPERT.ordinal() + 1);
+    assertMatch(matches.get(2), 12, 1, SkillRating.MIDDLE.ordinal() + 1);
+    matches = index.getBestMatches(skillIds, null, true, 2);
+    assertEquals(2, matches.size());
+    assertEquals(Integer.valueOf(11), matches.get(0).getUserId());
+    assertEquals(Integer.valueOf(10), matches.get(1).getUserId());
+    // Without sub skills and with minimal rating user 10 and the low rating of user 11 in web don't match:
+    matches = index.getBestMatches(skillIds, SkillRating.MIDDLE, false, 10);
+    assertEquals(2, matches.size());
+    assertMatch(matches.get(0), 11, 1, SkillRating.HIGH.ordinal() + 1);
+    assertMatch(matches.get(1), 12, 1, SkillRating.MIDDLE.ordinal() + 1);
+  }
+
+  @Test
+  public void updateRating()
+  {
+    assertUserIds(index.getUserIds(3, null, true), 10, 11);
+    // Skill and user of the rating changed:
+    final SkillRatingDO rating = ratings.get(0);
+    rating.setSkill(java);
+    rating.setUser(createUser(13));
+    index.updateRating(rating);
+    assertUserIds(index.getUserIds(4, null, false));
+    assertUserIds(index.getUserIds(3, null, true), 11);
+    assertUserIds(index.getUserIds(2, SkillRating.EXPERT, false), 13);
+    assertUserIds(index.getUserIds(1, SkillRating.EXPERT, true), 13);
+    // Rating lowered:
+    rating.setSkillRating(SkillRating.ZERO);
+    index.updateRating(rating);
+    assertUserIds(index.getUserIds(2, SkillRating.EXPERT, true));
+    assertUserIds(index.getUserIds(2, null, false), 11, 12, 13);
+    // Deleted:
+    final SkillRatingDO webRating = ratings.get(1);
+    webRating.setDeleted(true);
+    index.updateRating(webRating);
+    assertUserIds(index.getUserIds(3, null, true));
+    assertUserIds(index.getUserIds(1, SkillRating.LOW, true), 11, 12);
+    // New rating:
+    index.updateRating(createRating(104, wicket, 14, SkillRating.LOW));
+    assertUserIds(index.getUserIds(3, null, true), 14);
+    assertUserIds(index.getUserIds(1, SkillRating.LOW, true), 11, 12, 14);
+  }
+
+  @Test
+  public void skillTreeMoved()
+  {
+    assertUserIds(index.getUserIds(2, SkillRating.EXPERT, true));
+    assertUserIds(index.getUserIds(3, SkillRating.EXPERT, true), 10);
+    // Wicket is moved from web to java:
+    wicket.setParent(java);
+    skillTree.addOrUpdateSkillNode(wicket);
+    index.setRollupsExpired();
+    assertUserIds(index.getUserIds(2, SkillRating.EXPERT, true), 10);
+    assertUserIds(index.getUserIds(3, SkillRating.EXPERT, true));
+    assertUserIds(index.getUserIds(3, null, true), 11);
+    assertUserIds(index.getUserIds(1, SkillRating.EXPERT, true), 10);
+  }
+
+  @Test
+  public void updateAfterCommit()
+  {
+    assertUserIds(index.getUserIds(4, null, false), 10);
+    final SkillRatingDO rating = ratings.get(0);
+    rating.setDeleted(true);
+    // Rolled back:
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      skillRatingDao.afterSaveOrModify(rating);
+      assertUserIds(index.getUserIds(4, null, false), 10);
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertUserIds(index.getUserIds(4, null, false), 10);
+    // Committed:
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      skillRatingDao.afterSaveOrModify(rating);
+      // Modifications of the object before the commit are ignored:
+      rating.setDeleted(false);
+      assertUserIds(index.getUserIds(4, null, false), 10);
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertUserIds(index.getUserIds(4, null, false));
+    assertUserIds(index.getUserIds(3, null, true), 11);
+  }
+
+  private void assertUserIds(final Set<Integer> userIds, final Integer... expected)
+  {
+    assertEquals(new HashSet<Integer>(Arrays.asList(expected)), userIds);
+  }
+
+  private void assertMatch(final SkillMatch match, final int userId, final int numberOfMatchedSkills, final int score)
+  {
+    assertEquals(Integer.valueOf(userId), match.getUserId());
+    assertEquals(numberOfMatchedSkills, match.getNumberOfMatchedSkills());
+    assertEquals(score, match.getScore());
+  }
+
+  private SkillDO createSkill(final Integer id, final SkillDO parent)
+  {
+    final SkillDO skill = new SkillDO().setTitle("skill" + id).setParent(parent).setRateable(true);
+    skill.setId(id);
+    return skill;
+  }
+
+  private SkillRatingDO createRating(final Integer id, final SkillDO skill, final Integer userId, final SkillRating skillRating)
+  {
+    final SkillRatingDO rating = new SkillRatingDO().setSkill(skill).setUser(createUser(userId)).setSkillRating(skillRating);
+    rating.setId(id);
+    return rating;
+  }
+
+  private PFUserDO createUser(final Integer id)
+  {
+    final PFUserDO user = new PFUserDO();
+    user.setId(id);
+    return user;
+  }
+}
@@ -0,0 +1,217 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.teamcal.event;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+
+import junit.framework.Assert;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.projectforge.common.DateHelper;
+import org.projectforge.common.RecurrenceFrequency;
+import org.projectforge.core.Configuration;
+import org.projectforge.core.ConfigurationParam;
+import org.projectforge.plugins.teamcal.admin.TeamCalDO;
+import org.projectforge.test.AbstractTestBase;
+
+public class TeamEventOccurrenceIndexTest extends AbstractTestBase
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(TeamEventOccurrenceIndexTest.class);
+
+  private static final long ONE_DAY = 1000L * 60 * 60 * 24;
+
+  @BeforeClass
+  public static void setUp() throws Exception
+  {
+    preInit();
+    init(true);
+    Configuration.getInstance().forceReload();
+    Configuration.init4TestMode().put(ConfigurationParam.CALENDAR_DOMAIN, "projectforge.org");
+  }
+
+  @Test
+  public void sameOccurrencesAsTeamEventUtils()
+  {
+    final TeamEventOccurrenceIndex index = TeamEventOccurrenceIndex.instance();
+    index.clear();
+    final long now = System.currentTimeMillis();
+    final List<TeamEventDO> events = new ArrayList<TeamEventDO>();
+    events.add(createEvent(1, now - 700 * ONE_DAY, false, RecurrenceFrequency.WEEKLY, 1));
+    events.add(createEvent(2, now - 300 * ONE_DAY, true, RecurrenceFrequency.WEEKLY, 2));
+    events.add(createEvent(3, now - 20 * ONE_DAY, false, RecurrenceFrequency.DAILY, 1));
+    events.add(createEvent(4, now - 1000 * ONE_DAY, false, RecurrenceFrequency.MONTHLY, 1));
+    final TeamEventDO exEvent = createEvent(5, now - 10 * ONE_DAY, false, RecurrenceFrequency.WEEKLY, 1);
+    exEvent.addRecurrenceExDate(new Date(exEvent.getStartDate().getTime() + 7 * ONE_DAY), DateHelper.EUROPE_BERLIN);
+    events.add(exEvent);
+    for (final TimeZone timeZone : new TimeZone[] { DateHelper.EUROPE_BERLIN, DateHelper.UTC, TimeZone.getTimeZone("America/Los_Angeles")}) {
+      for (int month = -11; month <= 23; month += 2) {
+        final Date startDate = new Date(now + month * 30 * ONE_DAY);
+        final Date endDate = new Date(startDate.getTime() + 31 * ONE_DAY);
+        for (final TeamEventDO event : events) {
+          assertEquals(TeamEventUtils.getRecurrenceEvents(startDate, endDate, event, timeZone),
+              index.getRecurrenceEvents(startDate, endDate, event, timeZone));
+        }
+      }
+    }
+    Assert.assertEquals(15, index.getSize());
+    // Outside of the indexed time period:
+    final Date startDate = new Date(now - 600 * ONE_DAY);
+    final Date endDate = new Date(startDate.getTime() + 31 * ONE_DAY);
+    assertEquals(TeamEventUtils.getRecurrenceEvents(startDate, endDate, events.get(0), DateHelper.EUROPE_BERLIN),
+        index.getRecurrenceEvents(startDate, endDate, events.get(0), DateHelper.EUROPE_BERLIN));
+  }
+
+  @Test
+  public void invalidation()
+  {
+    final TeamEventOccurrenceIndex index = TeamEventOccurrenceIndex.instance();
+    index.clear();
+    final long now = System.currentTimeMillis();
+    final TimeZone timeZone = DateHelper.EUROPE_BERLIN;
+    final TeamEventDO event = createEvent(1, now - 100 * ONE_DAY, false, RecurrenceFrequency.WEEKLY, 1);
+    final Date startDate = new Date(now);
+    final Date endDate = new Date(now + 21 * ONE_DAY);
+    final int size = index.getRecurrenceEvents(startDate, endDate, event, timeZone).size();
+    Assert.assertEquals(1, index.getSize());
+    // Recurrence exception: entry has to be re-calculated.
+    final TeamEvent first = index.getRecurrenceEvents(startDate, endDate, event, timeZone).iterator().next();
+    event.addRecurrenceExDate(first.getStartDate(), timeZone);
+    Assert.assertEquals(size - 1, index.getRecurrenceEvents(startDate, endDate, event, timeZone).size());
+    Assert.assertEquals(1, index.getSize());
+    index.invalidate(TeamEventDO.class, event.getId());
+    Assert.assertEquals(0, index.getSize());
+    index.getRecurrenceEvents(startDate, endDate, event, timeZone);
+    index.invalidateCalendar(event.getCalendarId());
+    Assert.assertEquals(0, index.getSize());
+  }
+
+  /**
+   * Calendar views (one month each) of many recurring events (run with e. g. -DteamEventBenchmark.events=10000, the benchmark is skipped
+   * without this property).
+   */
+  @Test
+  public void benchmark()
+  {
+    final Integer sizeProperty = Integer.getInteger("teamEventBenchmark.events");
+    if (sizeProperty == null) {
+      log.info("Property teamEventBenchmark.events not given. Skipping benchmark.");
+      return;
+    }
+    final int size = sizeProperty;
+    final TeamEventOccurrenceIndex index = TeamEventOccurrenceIndex.instance();
+    index.clear();
+    final long now = System.currentTimeMillis();
+    final TimeZone timeZone = DateHelper.EUROPE_BERLIN;
+    final List<TeamEventDO> events = new ArrayList<TeamEventDO>(size);
+    for (int i = 0; i < size; i++) {
+      events.add(createEvent(i + 1, now - (i % 1000) * ONE_DAY, false, RecurrenceFrequency.WEEKLY, 1));
+    }
+    final Date startDate = new Date(now);
+    final Date endDate = new Date(now + 31 * ONE_DAY);
+    long start = System.currentTimeMillis();
+    int counter = 0;
+    for (final TeamEventDO event : events) {
+      counter += TeamEventUtils.getRecurrenceEvents(startDate, endDate, event, timeZone).size();
+    }
+    final long direct = System.currentTimeMillis() - start;
+    start = System.currentTimeMillis();
+    for (final TeamEventDO event : events) {
+      index.getRecurrenceEvents(startDate, endDate, event, timeZone);
+    }
+    final long build = System.currentTimeMillis() - start;
+    start = System.currentTimeMillis();
+    int indexCounter = 0;
+    for (final TeamEventDO event : events) {
+      indexCounter += index.getRecurrenceEvents(startDate, endDate, event, timeZone).size();
+    }
+    final long lookup = System.currentTimeMillis() - start;
+    Assert.assertEquals(counter, indexCounter);
+    log.info("Calendar view of "
+        + size
+        + " recurring events ("
+        + counter
+        + " occurrences): ical4j "
+        + direct
+        + "ms, building of the occurrence index "
+        + build
+        + "ms, view from occurrence index "
+        + lookup
+        + "ms.");
+    index.clear();
+  }
+
+  private void assertEquals(final Collection<TeamEvent> expected, final Collection<TeamEvent> actual)
+  {
+    if (expected == null) {
+      Assert.assertTrue(actual == null || actual.isEmpty() == true);
+      return;
+    }
+    Assert.assertEquals(expected.size(), actual.size());
+    final Iterator<TeamEvent> it = actual.iterator();
+    for (final TeamEvent expectedEvent : expected) {
+      final TeamEvent actualEvent = it.next();
+      Assert.assertEquals(expectedEvent.getStartDate().getTime(), actualEvent.getStartDate().getTime());
+      Assert.assertEquals(expectedEvent.getEndDate().getTime(), actualEvent.getEndDate().getTime());
+      Assert.assertEquals(expectedEvent instanceof TeamEventDO, actualEvent instanceof TeamEventDO);
+    }
+  }
+
+  private TeamEventDO createEvent(final int id, final long startTime, final boolean allDay, final RecurrenceFrequency frequency,
+      final int interval)
+  {
+    final TimeZone timeZone = DateHelper.EUROPE_BERLIN;
+    final TeamCalDO calendar = new TeamCalDO();
+    calendar.setId(42);
+    final TeamEventDO event = new TeamEventDO();
+    event.setId(id);
+    event.setCalendar(calendar);
+    if (allDay == true) {
+      final Calendar cal = Calendar.getInstance(timeZone);
+      cal.setTimeInMillis(startTime);
+      cal.set(Calendar.HOUR_OF_DAY, 0);
+      cal.set(Calendar.MINUTE, 0);
+      cal.set(Calendar.SECOND, 0);
+      cal.set(Calendar.MILLISECOND, 0);
+      event.setStartDate(new Timestamp(cal.getTimeInMillis())).setEndDate(new Timestamp(cal.getTimeInMillis()));
+      event.setAllDay(true);
+    } else {
+      final long time = startTime / 60000 * 60000; // Minute precision.
+      event.setStartDate(new Timestamp(time)).setEndDate(new Timestamp(time + 90 * 60000));
+    }
+    final TeamEventRecurrenceData recurData = new TeamEventRecurrenceData(timeZone);
+    recurData.setFrequency(frequency);
+    recurData.setInterval(interval);
+    event.setRecurrence(recurData);
+    return event;
+  }
+}
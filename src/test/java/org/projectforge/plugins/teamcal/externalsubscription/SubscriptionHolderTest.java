@@ -0,0 +1,117 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.teamcal.externalsubscription;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.projectforge.plugins.teamcal.event.TeamEventDO;
+
+public class SubscriptionHolderTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(SubscriptionHolderTest.class);
+
+  private static final long ONE_HOUR = 60L * 60 * 1000;
+
+  private static final long ONE_DAY = 24 * ONE_HOUR;
+
+  @Test
+  public void getResultList()
+  {
+    final SubscriptionHolder holder = new SubscriptionHolder();
+    holder.add(createEvent(1, 10 * ONE_DAY, 10 * ONE_DAY + ONE_HOUR));
+    holder.add(createEvent(2, 0, 100 * ONE_DAY)); // Long running event.
+    holder.add(createEvent(3, 30 * ONE_DAY, 30 * ONE_DAY + ONE_HOUR));
+    holder.add(createEvent(4, 5 * ONE_DAY, 5 * ONE_DAY + ONE_HOUR));
+    assertIds(holder.getResultList(20 * ONE_DAY, 25 * ONE_DAY), 2);
+    assertIds(holder.getResultList(0L, 11 * ONE_DAY), 2, 4, 1);
+    assertIds(holder.getResultList(29 * ONE_DAY, 40 * ONE_DAY), 2, 3);
+    assertIds(holder.getResultList(200 * ONE_DAY, 300 * ONE_DAY));
+    holder.add(createEvent(5, 250 * ONE_DAY, 251 * ONE_DAY));
+    assertIds(holder.getResultList(200 * ONE_DAY, 300 * ONE_DAY), 5);
+    holder.clear();
+    Assert.assertEquals(0, holder.getResultList(0L, 300 * ONE_DAY).size());
+  }
+
+  /**
+   * Compares the result of the interval tree with a linear scan of all events and logs the time of both.
+   */
+  @Test
+  public void compareWithLinearScan()
+  {
+    final Random random = new Random(42);
+    final SubscriptionHolder holder = new SubscriptionHolder();
+    final List<TeamEventDO> events = new ArrayList<TeamEventDO>();
+    for (int i = 0; i < 100000; i++) {
+      final long start = (long) random.nextInt(3650) * ONE_DAY + random.nextInt(24) * ONE_HOUR;
+      final long duration = i % 100 == 0 ? random.nextInt(365) * ONE_DAY : random.nextInt(8) * ONE_HOUR;
+      final TeamEventDO event = createEvent(i, start, start + duration);
+      holder.add(event);
+      events.add(event);
+    }
+    holder.sort();
+    long linearDuration = 0, treeDuration = 0;
+    for (int i = 0; i < 100; i++) {
+      final long startTime = (long) random.nextInt(3650) * ONE_DAY;
+      final long endTime = startTime + 31 * ONE_DAY;
+      long start = System.nanoTime();
+      final List<TeamEventDO> expected = new ArrayList<TeamEventDO>();
+      for (final TeamEventDO event : events) {
+        if (event.getStartDate().getTime() <= endTime && event.getEndDate().getTime() >= startTime - ONE_DAY) {
+          expected.add(event);
+        }
+      }
+      linearDuration += System.nanoTime() - start;
+      start = System.nanoTime();
+      final List<TeamEventDO> result = holder.getResultList(startTime, endTime);
+      treeDuration += System.nanoTime() - start;
+      Assert.assertEquals(expected.size(), result.size());
+      Assert.assertTrue(result.containsAll(expected));
+    }
+    log.info("100 range queries of 100,000 events: linear scan " + linearDuration / 1000000 + "ms, interval tree " + treeDuration / 1000000
+        + "ms.");
+  }
+
+  private void assertIds(final List<TeamEventDO> result, final Integer... ids)
+  {
+    Assert.assertEquals(ids.length, result.size());
+    for (int i = 0; i < ids.length; i++) {
+      Assert.assertEquals(ids[i], result.get(i).getId());
+    }
+  }
+
+  private TeamEventDO createEvent(final Integer id, final long startTime, final long endTime)
+  {
+    final TeamEventDO event = new TeamEventDO();
+    event.setId(id);
+    event.setStartDate(new Timestamp(startTime)).setEndDate(new Timestamp(endTime));
+    return event;
+  }
+}
@@ -0,0 +1,171 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.plugins.teamcal.externalsubscription;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectforge.core.ModificationStatus;
+import org.projectforge.plugins.teamcal.admin.TeamCalDO;
+import org.projectforge.plugins.teamcal.admin.TeamCalDao;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the conditional requests of subscribed calendars against a local http stub.
+ */
+public class TeamEventSubscriptionTest
+{
+  private static final long TIME_RANGE_START = 1893456000000L; // 2030-01-01
+
+  private static final long TIME_RANGE_END = TIME_RANGE_START + 365L * 24 * 60 * 60 * 1000;
+
+  private HttpServer server;
+
+  private String url;
+
+  private volatile String calendar;
+
+  private volatile String eTag;
+
+  private volatile int requests, notModified;
+
+  private int updates;
+
+  @Before
+  public void startServer() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/calendar.ics", new HttpHandler() {
+      @Override
+      public void handle(final HttpExchange exchange) throws IOException
+      {
+        ++requests;
+        final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.equals(eTag) == true) {
+          ++notModified;
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        final byte[] bytes = calendar.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("ETag", eTag);
+        exchange.sendResponseHeaders(200, bytes.length);
+        final OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+      }
+    });
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/calendar.ics";
+  }
+
+  @After
+  public void stopServer()
+  {
+    server.stop(0);
+  }
+
+  @Test
+  public void conditionalRefresh()
+  {
+    final TeamCalDao teamCalDao = new TeamCalDao() {
+      @Override
+      public ModificationStatus internalUpdate(final TeamCalDO obj)
+      {
+        ++updates;
+        return ModificationStatus.MAJOR;
+      }
+    };
+    final TeamCalDO teamCal = new TeamCalDO();
+    teamCal.setId(1);
+    teamCal.setExternalSubscription(true);
+    teamCal.setExternalSubscriptionUrl(url);
+    setCalendar("\"v1\"", "20300110T100000Z", "20300111T100000Z");
+
+    final TeamEventSubscription subscription = new TeamEventSubscription(teamCalDao, teamCal);
+    Assert.assertEquals(1, requests);
+    Assert.assertEquals(1, updates);
+    Assert.assertEquals(2, subscription.getEvents(TIME_RANGE_START, TIME_RANGE_END).size());
+
+    // Unmodified calendar: http status 304, nothing to parse.
+    final SubscriptionHolder holder = getHolder(subscription);
+    subscription.update(teamCal);
+    Assert.assertEquals(2, requests);
+    Assert.assertEquals(1, notModified);
+    Assert.assertEquals(1, updates);
+    Assert.assertSame(holder, getHolder(subscription));
+
+    // New ETag, but same content (same MD5 hash): nothing to parse.
+    eTag = "\"v2\"";
+    subscription.update(teamCal);
+    Assert.assertEquals(3, requests);
+    Assert.assertEquals(1, notModified);
+    Assert.assertEquals(1, updates);
+    Assert.assertSame(holder, getHolder(subscription));
+
+    // Modified calendar:
+    setCalendar("\"v3\"", "20300110T100000Z", "20300111T100000Z", "20300112T100000Z");
+    subscription.update(teamCal);
+    Assert.assertEquals(4, requests);
+    Assert.assertEquals(2, updates);
+    Assert.assertNotSame(holder, getHolder(subscription));
+    Assert.assertEquals(3, subscription.getEvents(TIME_RANGE_START, TIME_RANGE_END).size());
+  }
+
+  private SubscriptionHolder getHolder(final TeamEventSubscription subscription)
+  {
+    try {
+      final java.lang.reflect.Field field = TeamEventSubscription.class.getDeclaredField("eventDurationAccess");
+      field.setAccessible(true);
+      return (SubscriptionHolder) field.get(subscription);
+    } catch (final Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private void setCalendar(final String eTag, final String... startDates)
+  {
+    final StringBuilder buf = new StringBuilder();
+    buf.append("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//ProjectForge//Test//EN\r\n");
+    int uid = 0;
+    for (final String startDate : startDates) {
+      buf.append("BEGIN:VEVENT\r\nUID:event-").append(++uid).append("\r\nDTSTAMP:20300101T000000Z\r\nDTSTART:").append(startDate)
+      .append("\r\nDTEND:").append(startDate.replace("T10", "T11")).append("\r\nSUMMARY:Event ").append(uid)
+      .append("\r\nEND:VEVENT\r\n");
+    }
+    buf.append("END:VCALENDAR\r\n");
+    this.calendar = buf.toString();
+    this.eTag = eTag;
+  }
+}
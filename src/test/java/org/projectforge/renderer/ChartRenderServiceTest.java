@@ -0,0 +1,114 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.renderer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ChartRenderServiceTest
+{
+  private final ChartRenderService service = ChartRenderService.getInstance();
+
+  @After
+  public void tearDown()
+  {
+    service.setMaxSize(ChartRenderService.DEFAULT_MAX_SIZE);
+    service.clear();
+  }
+
+  @Test
+  public void cache()
+  {
+    service.clear();
+    final AtomicInteger counter = new AtomicInteger();
+    final ChartRenderService.Renderer renderer = createRenderer(counter, 10);
+    final byte[] image = service.render("test", "1", 500, 400, "PNG", renderer);
+    assertEquals(10, image.length);
+    assertArrayEquals(image, service.render("test", "1", 500, 400, "PNG", renderer));
+    assertEquals(1, counter.get());
+    service.render("test", "2", 500, 400, "PNG", renderer); // Modified data.
+    service.render("test", "2", 600, 400, "PNG", renderer); // Other size.
+    service.render("test", "2", 600, 400, "JPEG", renderer); // Other type.
+    assertEquals(4, counter.get());
+    assertEquals(4, service.getNumberOfCachedImages());
+    assertEquals(40, service.getSize());
+    service.render("test", null, 500, 400, "PNG", renderer); // No data version, no caching.
+    service.render("test", null, 500, 400, "PNG", renderer);
+    assertEquals(6, counter.get());
+    assertEquals(4, service.getNumberOfCachedImages());
+    assertNull(service.render("test", "3", 500, 400, "PNG", createRenderer(counter, -1)));
+    assertEquals(4, service.getNumberOfCachedImages());
+  }
+
+  @Test
+  public void eviction()
+  {
+    service.clear();
+    service.setMaxSize(400);
+    final AtomicInteger counter = new AtomicInteger();
+    for (int i = 0; i < 4; i++) {
+      service.render("test", String.valueOf(i), 500, 400, "PNG", createRenderer(counter, 100));
+    }
+    assertEquals(4, service.getNumberOfCachedImages());
+    service.render("test", "0", 500, 400, "PNG", createRenderer(counter, 100)); // Most recently used.
+    assertEquals(4, counter.get());
+    service.render("test", "4", 500, 400, "PNG", createRenderer(counter, 100)); // Evicts "1".
+    assertEquals(4, service.getNumberOfCachedImages());
+    assertEquals(400, service.getSize());
+    service.render("test", "0", 500, 400, "PNG", createRenderer(counter, 100));
+    assertEquals(5, counter.get());
+    service.render("test", "1", 500, 400, "PNG", createRenderer(counter, 100));
+    assertEquals(6, counter.get());
+    service.render("test", "huge", 500, 400, "PNG", createRenderer(counter, 101)); // Larger than a quarter of the max size.
+    assertEquals(4, service.getNumberOfCachedImages());
+    service.setMaxSize(200);
+    assertEquals(2, service.getNumberOfCachedImages());
+    assertEquals(200, service.getSize());
+  }
+
+  @Test
+  public void key()
+  {
+    assertEquals("gantt:42:800x0:SVG", ChartRenderService.getKey("gantt", "42", 800, 0, "SVG"));
+  }
+
+  private ChartRenderService.Renderer createRenderer(final AtomicInteger counter, final int size)
+  {
+    return new ChartRenderService.Renderer() {
+      @Override
+      public byte[] render()
+      {
+        counter.incrementAndGet();
+        return size < 0 ? null : new byte[size];
+      }
+    };
+  }
+}
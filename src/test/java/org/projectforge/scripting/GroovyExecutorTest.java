@@ -0,0 +1,170 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.scripting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import groovy.lang.Script;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.projectforge.core.ConfigXmlTest;
+
+public class GroovyExecutorTest
+{
+  @BeforeClass
+  public static void setUp()
+  {
+    ConfigXmlTest.createTestConfiguration();
+  }
+
+  @Test
+  public void compiledScriptCache()
+  {
+    final GroovyScriptCache cache = GroovyScriptCache.getInstance();
+    final GroovyExecutor executor = new GroovyExecutor();
+    final String script = "return a * 2 // " + System.currentTimeMillis();
+    final long compilations = cache.getCompileCounter();
+    final Script script1 = executor.compileGroovy(script, false);
+    assertEquals(compilations + 1, cache.getCompileCounter());
+    final long hits = cache.getHitCounter();
+    final Script script2 = executor.compileGroovy(script, false);
+    assertEquals("Script should be compiled only once.", compilations + 1, cache.getCompileCounter());
+    assertEquals(hits + 1, cache.getHitCounter());
+    assertNotSame("Every call should get its own script instance (binding).", script1, script2);
+    assertSame(script1.getClass(), script2.getClass());
+    final Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("a", 21);
+    assertEquals(42, executor.execute(script1, variables).getResult());
+  }
+
+  @Test
+  public void compiledTemplateCache()
+  {
+    final GroovyScriptCache cache = GroovyScriptCache.getInstance();
+    final GroovyExecutor executor = new GroovyExecutor();
+    final String template = "Hello $name (" + System.currentTimeMillis() + ")";
+    final Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("name", "Kai");
+    final long compilations = cache.getCompileCounter();
+    assertTrue(executor.executeTemplate(template, variables).startsWith("Hello Kai"));
+    variables.put("name", "Horst");
+    assertTrue(executor.executeTemplate(template, variables).startsWith("Hello Horst"));
+    assertEquals("Template should be compiled only once.", compilations + 1, cache.getCompileCounter());
+  }
+
+  @Test
+  public void executeWithTimeout()
+  {
+    final GroovyExecutor executor = new GroovyExecutor();
+    final Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("a", 21);
+    final GroovyResult result = executor.executeWithTimeout(new GroovyResult(), "return a * 2", variables);
+    assertEquals(false, result.hasException());
+    assertEquals(42, result.getResult());
+  }
+
+  @Test
+  public void executeWithTimeoutExceeded() throws InterruptedException
+  {
+    final GroovyExecutor executor = new GroovyExecutor();
+    GroovyResult result = executor.executeWithTimeout(new GroovyResult(), "Thread.sleep(60000); return 1", null, 100);
+    assertTrue(result.getException() instanceof TimeoutException);
+    waitForAbandonedScripts();
+
+    // Scripts ignoring the interrupt mustn't block the pool:
+    final AtomicBoolean stop = new AtomicBoolean();
+    final Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("stop", stop);
+    variables.put("a", 21);
+    final String script = "while (stop.get() == false) { try { Thread.sleep(10) } catch (InterruptedException ex) { } }; return a * 2";
+    for (int i = 0; i < 6; i++) {
+      result = executor.executeWithTimeout(new GroovyResult(), script, variables, 100);
+      assertTrue(result.getException() instanceof TimeoutException);
+    }
+    assertEquals(6, GroovyExecutor.getNumberOfAbandonedScripts());
+    result = executor.executeWithTimeout(new GroovyResult(), "return a * 2", variables, 1000);
+    assertEquals(false, result.hasException());
+    assertEquals(42, result.getResult());
+    stop.set(true);
+    waitForAbandonedScripts();
+  }
+
+  @Test
+  public void busy() throws InterruptedException
+  {
+    final GroovyExecutor executor = new GroovyExecutor();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicInteger running = new AtomicInteger();
+    final Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("stop", stop);
+    variables.put("running", running);
+    final String script = "running.incrementAndGet(); while (stop.get() == false) { Thread.sleep(10) }; return 1";
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run()
+        {
+          executor.executeWithTimeout(new GroovyResult(), script, variables, 60000);
+        }
+      };
+      threads[i].start();
+    }
+    try {
+      for (int i = 0; i < 200 && running.get() < threads.length; i++) {
+        Thread.sleep(50);
+      }
+      assertEquals(threads.length, running.get());
+      // All slots are occupied: rejected after a short wait instead of waiting for the script time-out (60s):
+      final long start = System.currentTimeMillis();
+      final GroovyResult result = executor.executeWithTimeout(new GroovyResult(), "return 1", null, 60000);
+      assertTrue(result.getException() instanceof RejectedExecutionException);
+      assertTrue(System.currentTimeMillis() - start < 30000);
+    } finally {
+      stop.set(true);
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+    }
+  }
+
+  private void waitForAbandonedScripts() throws InterruptedException
+  {
+    for (int i = 0; i < 100 && GroovyExecutor.getNumberOfAbandonedScripts() > 0; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(0, GroovyExecutor.getNumberOfAbandonedScripts());
+  }
+}
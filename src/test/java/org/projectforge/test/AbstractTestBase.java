@@ -44,6 +44,7 @@ import org.projectforge.access.AccessType;
 import org.projectforge.access.OperationType;
 import org.projectforge.common.DateHelper;
 import org.projectforge.continuousdb.DatabaseSupport;
+import org.projectforge.core.FullTextIndexer;
 import org.projectforge.core.SimpleHistoryEntry;
 import org.projectforge.database.HibernateUtils;
 import org.projectforge.plugins.core.AbstractPlugin;
@@ -136,6 +137,8 @@ public class AbstractTestBase
 
   protected AccessChecker accessChecker;
 
+  protected FullTextIndexer fullTextIndexer;
+
   public static InitTestDB initTestDB;
 
   protected int mCount = 0;
@@ -335,6 +338,20 @@ public class AbstractTestBase
     this.accessChecker = accessChecker;
   }
 
+  public void setFullTextIndexer(final FullTextIndexer fullTextIndexer)
+  {
+    this.fullTextIndexer = fullTextIndexer;
+  }
+
+  /**
+   * The full-text index is updated asynchronously (as in production), so call this method before full-text searches for objects saved
+   * or modified by the test.
+   */
+  protected void waitForFullTextIndex()
+  {
+    assertTrue("Time-out while waiting for the full-text indexer.", fullTextIndexer.waitUntilAllIndexed(60 * 1000));
+  }
+
   @AfterClass
   public static void shutdown()
   {
@@ -26,6 +26,7 @@ package org.projectforge.timesheet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
@@ -38,6 +39,7 @@ import org.junit.Test;
 import org.projectforge.common.DateHolder;
 import org.projectforge.common.DatePrecision;
 import org.projectforge.core.BaseDao;
+import org.projectforge.core.MassUpdateStatus;
 import org.projectforge.core.UserException;
 import org.projectforge.fibu.KundeDO;
 import org.projectforge.fibu.KundeDao;
@@ -111,6 +113,35 @@ public class TimesheetMassUpdateTest extends TestBase
     assertAll(list, master);
   }
 
+  @Test
+  public void asynchronousMassUpdate() throws InterruptedException
+  {
+    final String prefix = "ts-mu2-";
+    final List<TimesheetDO> list = new ArrayList<TimesheetDO>();
+    getInitTestDB().addTask(prefix + "1", "root");
+    getInitTestDB().addTask(prefix + "2", "root");
+    getInitTestDB().addUser(prefix + "user1");
+    logon(getUser(TEST_FINANCE_USER));
+    for (int i = 0; i < 5; i++) {
+      list.add(createTimesheet(prefix, "1", "user1", 2009, 10, 22, i, 0, i, 30, "Office", "A lot of stuff done and more."));
+    }
+    final TimesheetDO master = new TimesheetDO();
+    master.setTask(getInitTestDB().getTask(prefix + "2"));
+    master.setLocation("Headquarter");
+    final MassUpdateStatus status = timesheetDao.startMassUpdate(list, master);
+    assertNotNull(MassUpdateStatus.get(status.getId()));
+    for (int i = 0; i < 100 && status.isFinished() == false; i++) {
+      Thread.sleep(100);
+    }
+    assertTrue(status.isFinished());
+    assertEquals(5, status.getProcessed());
+    assertEquals(5, status.getUpdated());
+    assertEquals(0, status.getFailed());
+    for (final TimesheetDO sheet : list) {
+      assertSheet(timesheetDao.getById(sheet.getId()), master);
+    }
+  }
+
   @Test
   public void massUpdateWithKost2Transformation()
   {
@@ -324,6 +355,22 @@ public class TimesheetMassUpdateTest extends TestBase
     }
   }
 
+  @Test
+  public void checkMaxBulkMassUpdateNumber()
+  {
+    final List<TimesheetDO> list = new ArrayList<TimesheetDO>();
+    for (int i = 0; i <= BaseDao.MAX_BULK_MASS_UPDATE; i++) {
+      list.add(new TimesheetDO());
+    }
+    try {
+      timesheetDao.startMassUpdate(list, new TimesheetDO());
+      fail("Maximum number of allowed bulk mass updates exceeded. Not detected!");
+    } catch (UserException ex) {
+      assertEquals(BaseDao.MAX_MASS_UPDATE_EXCEEDED_EXCEPTION_I18N, ex.getI18nKey());
+      // OK.
+    }
+  }
+
   private ProjektDO createProjekt(final KundeDO kunde, final Integer projektNummer, final String projektName, final Integer... kost2ArtIds)
   {
     return initTestDB.addProjekt(kunde, projektNummer, projektName, kost2ArtIds);
@@ -24,18 +24,22 @@
 package org.projectforge.timesheet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
 import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 import org.projectforge.access.AccessException;
 import org.projectforge.common.DateHolder;
 import org.projectforge.common.DatePrecision;
+import org.projectforge.core.OrderDirection;
 import org.projectforge.core.UserException;
 import org.projectforge.task.TaskDO;
 import org.projectforge.task.TaskDao;
@@ -267,6 +271,62 @@ public class TimesheetTestFork extends TestBase
     }
   }
 
+  @Test
+  public void calendarList()
+  {
+    logon(ADMIN);
+    getInitTestDB().addTask("ts-calendarList-task", "root");
+    getInitTestDB().addUser("ts-calendarList-user");
+    final String longDescription = StringUtils.repeat("0123456789", 50);
+    TimesheetDO ts = new TimesheetDO().setTask(getTask("ts-calendarList-task")).setUser(getUser("ts-calendarList-user"))
+        .setLocation("Office").setDescription(longDescription);
+    setTimeperiod(ts, 1971, Calendar.DECEMBER, 2, 8, 0, 2, 10, 0);
+    final Serializable id1 = timesheetDao.save(ts);
+    ts = new TimesheetDO().setTask(getTask("ts-calendarList-task")).setUser(getUser("ts-calendarList-user")).setDescription("Short");
+    setTimeperiod(ts, 1971, Calendar.DECEMBER, 1, 8, 0, 1, 9, 30);
+    final Serializable id2 = timesheetDao.save(ts);
+    ts = new TimesheetDO().setTask(getTask("ts-calendarList-task")).setUser(getUser("ts-calendarList-user"));
+    setTimeperiod(ts, 1971, Calendar.DECEMBER, 1, 10, 0, 1, 11, 0);
+    final Serializable id3 = timesheetDao.save(ts);
+    txTemplate.execute(new TransactionCallback() {
+      public Object doInTransaction(final TransactionStatus status)
+      {
+        timesheetDao.markAsDeleted(timesheetDao.internalGetById(id3));
+        return null;
+      }
+    });
+    ts = new TimesheetDO().setTask(getTask("ts-calendarList-task")).setUser(getUser("ts-calendarList-user"));
+    setTimeperiod(ts, 1971, Calendar.DECEMBER, 5, 8, 0, 5, 9, 0); // Out of range.
+    timesheetDao.save(ts);
+
+    final TimesheetFilter filter = new TimesheetFilter();
+    filter.setUserId(getUser("ts-calendarList-user").getId());
+    date.setDate(1971, Calendar.DECEMBER, 1, 0, 0, 0);
+    filter.setStartTime(date.getDate());
+    date.setDate(1971, Calendar.DECEMBER, 2, 0, 0, 0);
+    filter.setStopTime(date.getDate()); // Whole day is included.
+    final List<TimesheetDO> list = timesheetDao.getCalendarList(filter);
+    assertEquals(2, list.size());
+    assertEquals(id2, list.get(0).getId());
+    assertEquals(id1, list.get(1).getId());
+    assertEquals(90 * 60 * 1000, list.get(0).getDuration());
+    assertEquals("Short", list.get(0).getDescription());
+    assertEquals(TimesheetDao.DESCRIPTION_EXCERPT_LENGTH, list.get(1).getDescription().length());
+    assertTrue(longDescription.startsWith(StringUtils.removeEnd(list.get(1).getDescription(), "...")));
+    assertEquals("Office", list.get(1).getLocation());
+    assertEquals("ts-calendarList-task", list.get(1).getTask().getTitle());
+    assertEquals("ts-calendarList-user", list.get(1).getUser().getUsername());
+    // The lightweight list contains the same time sheets as the full list:
+    filter.setOrderType(OrderDirection.ASC);
+    final List<TimesheetDO> fullList = timesheetDao.getList(filter);
+    assertEquals(fullList.size(), list.size());
+    for (int i = 0; i < list.size(); i++) {
+      assertEquals(fullList.get(i).getId(), list.get(i).getId());
+      assertEquals(fullList.get(i).getStartTime(), list.get(i).getStartTime());
+      assertEquals(fullList.get(i).getStopTime(), list.get(i).getStopTime());
+    }
+  }
+
   @Test
   public void testTaskBookable()
   {
@@ -0,0 +1,115 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.user;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.junit.Test;
+import org.projectforge.plugins.core.AbstractPlugin;
+import org.projectforge.plugins.core.PluginsRegistry;
+
+public class I18nHelperTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(I18nHelperTest.class);
+
+  private static final Locale[] LOCALES = { Locale.ENGLISH, Locale.GERMAN, Locale.GERMANY};
+
+  @Test
+  public void flattenedTranslations()
+  {
+    I18nHelper.initialize();
+    for (final Locale locale : LOCALES) {
+      for (final String key : ResourceBundle.getBundle(I18nHelper.BUNDLE_NAME, locale).keySet()) {
+        assertEquals(getLocalizedStringSequentially(locale, key), I18nHelper.getLocalizedString(locale, key));
+      }
+    }
+    assertEquals("???not.existing.key???", I18nHelper.getLocalizedString(Locale.ENGLISH, "not.existing.key"));
+  }
+
+  @Test
+  public void localizedMessages()
+  {
+    I18nHelper.initialize();
+    final String pattern = I18nHelper.getLocalizedString(Locale.GERMAN, "access.exception.userHasNotRight");
+    final Object[] params = { 42, "test"};
+    final String expected = MessageFormat.format(pattern, params);
+    assertEquals(expected, I18nHelper.getLocalizedMessage(Locale.GERMAN, "access.exception.userHasNotRight", params));
+    assertEquals(expected, I18nHelper.getLocalizedMessage(Locale.GERMAN, "access.exception.userHasNotRight", params)); // Cached format.
+  }
+
+  /**
+   * Compares the lookup of the flattened translations with the former sequential lookup of the resource bundles (run with e. g.
+   * -Di18nBenchmark.lookups=100000, the benchmark is skipped without this property).
+   */
+  @Test
+  public void benchmark()
+  {
+    final Integer lookupsProperty = Integer.getInteger("i18nBenchmark.lookups");
+    if (lookupsProperty == null) {
+      log.info("Property i18nBenchmark.lookups not given. Skipping benchmark.");
+      return;
+    }
+    final int lookups = lookupsProperty;
+    I18nHelper.initialize();
+    final String[] keys = { "task", "timesheet.description", "fibu.rechnung.nummer", "not.existing.key"};
+    long start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      getLocalizedStringSequentially(Locale.GERMAN, keys[i % keys.length]);
+    }
+    final long sequentialNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      I18nHelper.getLocalizedString(Locale.GERMAN, keys[i % keys.length]);
+    }
+    final long flattenedNanos = System.nanoTime() - start;
+    log.info("I18n benchmark with " + lookups + " lookups: sequential bundle lookup " + sequentialNanos / 1000000 + "ms, flattened lookup "
+        + flattenedNanos / 1000000 + "ms.");
+  }
+
+  /**
+   * The former lookup: the core bundle first and then the bundle of every plugin.
+   */
+  private String getLocalizedStringSequentially(final Locale locale, final String key)
+  {
+    ResourceBundle bundle = ResourceBundle.getBundle(I18nHelper.BUNDLE_NAME, locale);
+    if (bundle.containsKey(key) == true) {
+      return bundle.getString(key);
+    }
+    for (final AbstractPlugin plugin : PluginsRegistry.instance().getPlugins()) {
+      if (plugin.getResourceBundleName() == null) {
+        continue;
+      }
+      bundle = ResourceBundle.getBundle(plugin.getResourceBundleName(), locale);
+      if (bundle.containsKey(key) == true) {
+        return bundle.getString(key);
+      }
+    }
+    return "???" + key + "???";
+  }
+}
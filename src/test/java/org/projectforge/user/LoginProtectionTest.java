@@ -26,6 +26,8 @@ package org.projectforge.user;
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.projectforge.core.MetricCounter;
+import org.projectforge.core.PerformanceMetrics;
 
 public class LoginProtectionTest
 {
@@ -90,4 +92,54 @@ public class LoginProtectionTest
         lp.getFailedLoginTimeOffsetIfExists("kai", ip) < 3001);
     Assert.assertEquals("No offset for new ip address expected.", 0, (int) lp.getFailedLoginTimeOffsetIfExists("horst", "192.168.76.2"));
   }
+
+  @Test
+  public void testManyIpAddresses() throws InterruptedException
+  {
+    final LoginProtectionMap map = new LoginProtectionMap("test").setNumberOfFailedLoginsBeforeIncrementing(1000).setMaxEntries(20000);
+    final MetricCounter evictedCounter = PerformanceMetrics.getInstance().getCounter("loginProtection.test.evicted");
+    final long evicted = evictedCounter.getCount();
+    final int numberOfThreads = 4;
+    final int ipsPerThread = 25000; // 100,000 distinct ip addresses.
+    final Thread[] threads = new Thread[numberOfThreads];
+    for (int t = 0; t < numberOfThreads; t++) {
+      final int threadNumber = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run()
+        {
+          for (int i = 0; i < ipsPerThread; i++) {
+            final String ip = "10." + threadNumber + "." + (i / 256) + "." + (i % 256);
+            map.incrementFailedLoginTimeOffset(ip);
+            map.getFailedLoginTimeOffsetIfExists(ip);
+            // One attacker from a fixed ip address:
+            map.incrementFailedLoginTimeOffset("192.168.0.1");
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertTrue("Size of map should be bounded.", map.getSize() <= 20000);
+    Assert.assertTrue("Evicted entries expected.", evictedCounter.getCount() - evicted >= 100000 - 20000);
+    Assert.assertTrue("Recent failed login of the attacker's ip address expected.",
+        map.getNumberOfFailedLoginAttempts("192.168.0.1") == numberOfThreads * ipsPerThread);
+    Assert.assertTrue("Time offset for the attacker's ip address expected.", map.getFailedLoginTimeOffsetIfExists("192.168.0.1") > 0);
+  }
+
+  @Test
+  public void testDecay()
+  {
+    final LoginProtectionMap map = new LoginProtectionMap("test").setNumberOfFailedLoginsBeforeIncrementing(1);
+    final long current = System.currentTimeMillis();
+    map.setEntry("horst", 5, current - DURATION_4_HOURS);
+    map.incrementFailedLoginTimeOffset("horst");
+    Assert.assertEquals(6, map.getNumberOfFailedLoginAttempts("horst"));
+    map.setEntry("horst", 5, current - 25 * 60 * 60 * 1000);
+    Assert.assertEquals("Failed logins older than 24h should decay.", 0, map.getNumberOfFailedLoginAttempts("horst"));
+    map.incrementFailedLoginTimeOffset("horst");
+    Assert.assertEquals(1, map.getNumberOfFailedLoginAttempts("horst"));
+  }
 }
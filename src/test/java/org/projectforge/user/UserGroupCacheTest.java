@@ -23,7 +23,11 @@
 
 package org.projectforge.user;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
@@ -31,7 +35,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.junit.Test;
+import org.projectforge.core.MetricTimer;
+import org.projectforge.core.PerformanceMetrics;
 import org.projectforge.test.TestBase;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public class UserGroupCacheTest extends TestBase
 {
@@ -39,6 +47,13 @@ public class UserGroupCacheTest extends TestBase
 
   private UserGroupCache userGroupCache;
 
+  private UserDao userDao;
+
+  public void setUserDao(final UserDao userDao)
+  {
+    this.userDao = userDao;
+  }
+
   public void setGroupDao(final GroupDao groupDao)
   {
     this.groupDao = groupDao;
@@ -81,4 +96,101 @@ public class UserGroupCacheTest extends TestBase
     assertTrue(userGroupCache.isUserMemberOfAtLeastOneGroup(getUser(TEST_ADMIN_USER).getId(), null, group1.getId(), null, group2.getId(), null));
     assertTrue(userGroupCache.isUserMemberOfAtLeastOneGroup(getUser(TEST_ADMIN_USER).getId(), group2.getId(), group1.getId()));
   }
+
+  @Test
+  public void testTargetedUpdates()
+  {
+    logon(TEST_ADMIN_USER);
+    final Integer userId = getUser(TEST_USER).getId();
+    final Integer adminId = getUser(TEST_ADMIN_USER).getId();
+    userGroupCache.getAllUsers(); // Initial load.
+    final MetricTimer refreshTimer = PerformanceMetrics.getInstance().getTimer("cache.UserGroupCache.refresh");
+    final long refreshCount = refreshTimer.getSnapshot().getCount();
+
+    GroupDO group = new GroupDO();
+    group.setName("testusergroupcache3");
+    group.setAssignedUsers(new HashSet<PFUserDO>());
+    group.getAssignedUsers().add(getUser(TEST_USER));
+    final Integer groupId = (Integer) groupDao.save(group);
+    assertNotNull(userGroupCache.getGroup(groupId));
+    assertTrue(userGroupCache.isUserMemberOfGroup(userId, groupId));
+    assertTrue(userGroupCache.getSecurityProfile(userId).isMemberOfGroup(groupId));
+    assertFalse(userGroupCache.isUserMemberOfGroup(adminId, groupId));
+
+    // Unassign the user and assign the admin user:
+    group = groupDao.getById(groupId);
+    group.setAssignedUsers(new HashSet<PFUserDO>());
+    group.getAssignedUsers().add(getUser(TEST_ADMIN_USER));
+    groupDao.update(group);
+    assertFalse(userGroupCache.isUserMemberOfGroup(userId, groupId));
+    assertFalse(userGroupCache.getSecurityProfile(userId).isMemberOfGroup(groupId));
+    assertTrue(userGroupCache.isUserMemberOfGroup(adminId, groupId));
+    assertTrue(userGroupCache.getUserGroups(getUser(TEST_ADMIN_USER)).contains(groupId));
+
+    // Assign the admin user to a system group:
+    assertFalse(userGroupCache.isUserMemberOfMarketingGroup(adminId));
+    final Set<GroupDO> marketingGroup = new HashSet<GroupDO>();
+    marketingGroup.add(userGroupCache.getGroup(ProjectForgeGroup.MARKETING_GROUP));
+    groupDao.assignGroups(getUser(TEST_ADMIN_USER), marketingGroup, null);
+    assertTrue(userGroupCache.isUserMemberOfMarketingGroup(adminId));
+    assertTrue(userGroupCache.getSecurityProfile(adminId).isMemberOfGroup(ProjectForgeGroup.MARKETING_GROUP));
+    assertTrue(userGroupCache.isUserMemberOfMarketingGroup(getUser(TEST_MARKETING_USER).getId()));
+    groupDao.assignGroups(getUser(TEST_ADMIN_USER), null, marketingGroup);
+    assertFalse(userGroupCache.isUserMemberOfMarketingGroup(adminId));
+
+    // Modify a single user:
+    final PFUserDO user = userDao.internalGetById(userId);
+    user.setDescription("Modified by testTargetedUpdates.");
+    userDao.internalUpdate(user);
+    assertEquals("Modified by testTargetedUpdates.", userGroupCache.getUser(userId).getDescription());
+    assertNotSame("The cache should hold a copy of the saved user.", user, userGroupCache.getUser(userId));
+    user.setDescription("Modified without saving.");
+    assertEquals("Modified by testTargetedUpdates.", userGroupCache.getUser(userId).getDescription());
+
+    assertEquals("No full refresh of the cache expected.", refreshCount, refreshTimer.getSnapshot().getCount());
+  }
+
+  @Test
+  public void testUpdateAfterCommit()
+  {
+    logon(TEST_ADMIN_USER);
+    final Integer userId = getUser(TEST_USER).getId();
+    userGroupCache.getAllUsers(); // Initial load.
+    final Integer groupId = 987654;
+    final GroupDO group = new GroupDO();
+    group.setId(groupId);
+    group.setName("testusergroupcache-aftercommit");
+    group.setAssignedUsers(new HashSet<PFUserDO>());
+    group.getAssignedUsers().add(getUser(TEST_USER));
+    // Rolled back:
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      userGroupCache.updateGroup(group);
+      assertNull(userGroupCache.getGroup(groupId));
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertNull(userGroupCache.getGroup(groupId));
+    assertFalse(userGroupCache.isUserMemberOfGroup(userId, groupId));
+    // Committed:
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      userGroupCache.updateGroup(group);
+      assertNull(userGroupCache.getGroup(groupId));
+      for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+        synchronization.afterCommit();
+      }
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertNotNull(userGroupCache.getGroup(groupId));
+    assertTrue(userGroupCache.isUserMemberOfGroup(userId, groupId));
+    // Outside of a transaction the update is applied immediately:
+    userGroupCache.removeGroup(groupId);
+    assertNull(userGroupCache.getGroup(groupId));
+    assertFalse(userGroupCache.isUserMemberOfGroup(userId, groupId));
+  }
 }
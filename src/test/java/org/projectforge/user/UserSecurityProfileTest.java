@@ -0,0 +1,194 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class UserSecurityProfileTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(UserSecurityProfileTest.class);
+
+  private static final UserRightId[] RIGHT_IDS = { UserRightId.FIBU_EINGANGSRECHNUNGEN, UserRightId.FIBU_AUSGANGSRECHNUNGEN,
+    UserRightId.FIBU_EMPLOYEE, UserRightId.FIBU_EMPLOYEE_SALARY, UserRightId.FIBU_DATEV_IMPORT, UserRightId.FIBU_COST_UNIT,
+    UserRightId.FIBU_ACCOUNTS, UserRightId.MISC_MEB, UserRightId.PM_GANTT, UserRightId.PM_ORDER_BOOK, UserRightId.PM_HR_PLANNING,
+    UserRightId.PM_PROJECT, UserRightId.ORGA_CONTRACTS, UserRightId.ORGA_INCOMING_MAIL, UserRightId.ORGA_OUTGOING_MAIL};
+
+  @Test
+  public void ordinals()
+  {
+    final Set<Integer> ordinals = new HashSet<Integer>();
+    for (final UserRightId rightId : RIGHT_IDS) {
+      ordinals.add(rightId.getOrdinal());
+    }
+    assertEquals("Ordinals must be unique.", RIGHT_IDS.length, ordinals.size());
+    final UserRightId copy = new UserRightId(UserRightId.PM_GANTT.getId(), "pm1", "access.right.pm.gantt");
+    assertEquals("Same id, same ordinal.", UserRightId.PM_GANTT.getOrdinal(), copy.getOrdinal());
+    assertTrue(UserRightId.getNumberOfOrdinals() >= RIGHT_IDS.length);
+  }
+
+  @Test
+  public void profile()
+  {
+    final Map<Integer, Integer> groupIndex = createGroupIndex(10, 20, 30, 40);
+    final List<UserRightDO> rights = new ArrayList<UserRightDO>();
+    rights.add(new UserRightDO(UserRightId.PM_PROJECT, UserRightValue.READONLY));
+    rights.add(new UserRightDO(UserRightId.FIBU_DATEV_IMPORT, UserRightValue.TRUE));
+    final UserSecurityProfile profile = new UserSecurityProfile(1, rights, groupIndex, Arrays.asList(10, 30),
+        EnumSet.of(ProjectForgeGroup.FINANCE_GROUP));
+    assertEquals(UserRightValue.READONLY, profile.getRight(UserRightId.PM_PROJECT).getValue());
+    assertEquals(UserRightValue.TRUE, profile.getRight(UserRightId.FIBU_DATEV_IMPORT).getValue());
+    assertNull(profile.getRight(UserRightId.ORGA_CONTRACTS));
+    assertNull(profile.getRight(new UserRightId("UserSecurityProfileTest", "test", "test"))); // Ordinal out of array bounds.
+    assertTrue(profile.isMemberOfGroup(10));
+    assertFalse(profile.isMemberOfGroup(20));
+    assertTrue(profile.isMemberOfGroup(30));
+    assertFalse(profile.isMemberOfGroup(50)); // Unknown group.
+    assertFalse(profile.isMemberOfGroup((Integer) null));
+    for (final ProjectForgeGroup group : ProjectForgeGroup.values()) {
+      assertEquals(group == ProjectForgeGroup.FINANCE_GROUP, profile.isMemberOfGroup(group));
+    }
+    assertTrue(profile.isMemberOfGroup(ProjectForgeGroup.ADMIN_GROUP, ProjectForgeGroup.FINANCE_GROUP));
+    assertFalse(profile.isMemberOfGroup(ProjectForgeGroup.ADMIN_GROUP, ProjectForgeGroup.CONTROLLING_GROUP));
+
+    final UserSecurityProfile other = new UserSecurityProfile(2, null, groupIndex, Arrays.asList(20, 30),
+        EnumSet.noneOf(ProjectForgeGroup.class));
+    final UserSecurityProfile noGroups = new UserSecurityProfile(3, null, groupIndex, null, EnumSet.noneOf(ProjectForgeGroup.class));
+    assertTrue(profile.hasCommonGroup(other));
+    assertTrue(other.hasCommonGroup(profile));
+    assertFalse(profile.hasCommonGroup(noGroups));
+    assertEquals(0, noGroups.getGroupIds().length);
+    // Profiles of different cache refreshes:
+    final UserSecurityProfile otherRefresh = new UserSecurityProfile(2, null, createGroupIndex(30, 20, 10), Arrays.asList(20, 30),
+        EnumSet.noneOf(ProjectForgeGroup.class));
+    assertTrue(profile.hasCommonGroup(otherRefresh));
+    assertTrue(otherRefresh.hasCommonGroup(profile));
+  }
+
+  /**
+   * Access checks of 32 threads: Linear search of the rights and group look-ups under one monitor (as done before by UserGroupCache) versus
+   * the lock-free look-up in the compiled profile (run with e. g. -DsecurityProfileBenchmark.loops=200000, the benchmark is skipped
+   * without this property).
+   */
+  @Test
+  public void benchmark() throws InterruptedException
+  {
+    final Integer loopsProperty = Integer.getInteger("securityProfileBenchmark.loops");
+    if (loopsProperty == null) {
+      log.info("Property securityProfileBenchmark.loops not given. Skipping benchmark.");
+      return;
+    }
+    final int loops = loopsProperty;
+    final int threadCount = 32;
+    final Map<Integer, Integer> groupIndex = createGroupIndex(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    final PFUserDO user = new PFUserDO();
+    for (final UserRightId rightId : RIGHT_IDS) {
+      user.addRight(new UserRightDO(rightId, UserRightValue.READWRITE));
+    }
+    final Set<Integer> groupIds = new HashSet<Integer>(Arrays.asList(2, 4, 6, 8));
+    final UserSecurityProfile profile = new UserSecurityProfile(1, user.getRights(), groupIndex, groupIds,
+        EnumSet.of(ProjectForgeGroup.PROJECT_MANAGER));
+    final Object monitor = new Object();
+    final AtomicInteger lockedMatches = new AtomicInteger();
+    final long locked = runThreads(threadCount, new Runnable() {
+      @Override
+      public void run()
+      {
+        int matches = 0;
+        for (int i = 0; i < loops; i++) {
+          synchronized (monitor) {
+            if (user.getRight(RIGHT_IDS[i % RIGHT_IDS.length]) != null && groupIds.contains(i % 10) == true) {
+              ++matches;
+            }
+          }
+        }
+        lockedMatches.addAndGet(matches);
+      }
+    });
+    final AtomicInteger profileMatches = new AtomicInteger();
+    final long lockFree = runThreads(threadCount, new Runnable() {
+      @Override
+      public void run()
+      {
+        int matches = 0;
+        for (int i = 0; i < loops; i++) {
+          if (profile.getRight(RIGHT_IDS[i % RIGHT_IDS.length]) != null && profile.isMemberOfGroup(i % 10) == true) {
+            ++matches;
+          }
+        }
+        profileMatches.addAndGet(matches);
+      }
+    });
+    assertEquals(lockedMatches.get(), profileMatches.get());
+    log.info("Access checks ("
+        + threadCount
+        + " threads x "
+        + loops
+        + "): synchronized linear search "
+        + locked
+        + "ms, compiled security profile "
+        + lockFree
+        + "ms.");
+  }
+
+  private long runThreads(final int threadCount, final Runnable runnable) throws InterruptedException
+  {
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      threads.add(new Thread(runnable));
+    }
+    final long start = System.currentTimeMillis();
+    for (final Thread thread : threads) {
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private Map<Integer, Integer> createGroupIndex(final Integer... groupIds)
+  {
+    final Map<Integer, Integer> groupIndex = new HashMap<Integer, Integer>();
+    for (final Integer groupId : groupIds) {
+      groupIndex.put(groupId, groupIndex.size());
+    }
+    return groupIndex;
+  }
+}
@@ -25,10 +25,14 @@ package org.projectforge.web;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.projectforge.test.TestBase;
+import org.projectforge.user.PFUserDO;
+import org.projectforge.user.UserDao;
 import org.projectforge.xml.stream.XmlHelper;
 import org.projectforge.xml.stream.XmlObjectReader;
 
@@ -43,6 +47,13 @@ public class MenuBuilderTest extends TestBase
       + "  </sub-menu>\n"
       + "</menu-entry>\n");
 
+  private UserDao userDao;
+
+  public void setUserDao(final UserDao userDao)
+  {
+    this.userDao = userDao;
+  }
+
   @Test
   public void testTranslations()
   {
@@ -56,4 +67,30 @@ public class MenuBuilderTest extends TestBase
     assertTrue(menu1.isVisible());
     assertEquals(MenuItemDefId.PROJECT_MANAGEMENT.getId(), menu1.getMenuItemId());
   }
+
+  @Test
+  public void testMenuKey()
+  {
+    logon(TEST_ADMIN_USER);
+    final MenuBuilder menuBuilder = new MenuBuilder();
+    final PFUserDO user1 = createUser("menuBuilderTest1");
+    final PFUserDO user2 = createUser("menuBuilderTest2");
+    final String key1 = menuBuilder.getMenuKey(user1);
+    assertNotNull(key1);
+    assertEquals("Users with same access rights should share their menus.", key1, menuBuilder.getMenuKey(user2));
+    assertFalse(key1.equals(menuBuilder.getMenuKey(getUser(TEST_ADMIN_USER))));
+    assertFalse(menuBuilder.getMenuKey(getUser(TEST_ADMIN_USER)).equals(menuBuilder.getMenuKey(getUser(TEST_FINANCE_USER))));
+    assertNull(menuBuilder.getMenuKey(null));
+    user2.setRestrictedUser(true);
+    userDao.internalUpdate(user2);
+    assertFalse(key1.equals(menuBuilder.getMenuKey(userDao.internalGetById(user2.getId()))));
+  }
+
+  private PFUserDO createUser(final String username)
+  {
+    final PFUserDO user = new PFUserDO();
+    user.setUsername(username);
+    final Integer id = (Integer) userDao.internalSave(user);
+    return userDao.internalGetById(id);
+  }
 }
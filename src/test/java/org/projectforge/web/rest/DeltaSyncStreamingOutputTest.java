@@ -0,0 +1,271 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.projectforge.rest.objects.TaskObject;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares payload size and latency of full and delta sync for a tree of 20,000 tasks.
+ */
+public class DeltaSyncStreamingOutputTest
+{
+  private static final org.apache.log4j.Logger log = org.apache.log4j.Logger.getLogger(DeltaSyncStreamingOutputTest.class);
+
+  private static final int NUMBER_OF_TASKS = 20000;
+
+  private static final int NUMBER_OF_MODIFIED_TASKS = 200;
+
+  private static final int NUMBER_OF_DELETED_TASKS = 20;
+
+  private static final int PAGE_SIZE = 500;
+
+  /**
+   * In memory result, pages through the given lists.
+   */
+  private static class ListDeltaSyncResult extends DeltaSyncResult<TaskObject>
+  {
+    private final List<TaskObject> entries = new ArrayList<TaskObject>();
+
+    private final List<Integer> deletedIds = new ArrayList<Integer>();
+
+    private int pos, pageCounter;
+
+    ListDeltaSyncResult(final Long modifiedSince)
+    {
+      super(modifiedSince);
+    }
+
+    ListDeltaSyncResult add(final TaskObject task)
+    {
+      entries.add(task);
+      return this;
+    }
+
+    ListDeltaSyncResult addDeleted(final Integer id)
+    {
+      deletedIds.add(id);
+      return this;
+    }
+
+    @Override
+    protected boolean loadNextPage(final Page<TaskObject> page)
+    {
+      ++pageCounter;
+      final int end = Math.min(pos + PAGE_SIZE, entries.size());
+      for (; pos < end; pos++) {
+        page.add(entries.get(pos));
+      }
+      if (pos < entries.size()) {
+        return true;
+      }
+      for (final Integer id : deletedIds) {
+        page.addDeleted(id);
+      }
+      return false;
+    }
+
+    @Override
+    protected long calculateFingerprint()
+    {
+      long value = entries.size();
+      for (final TaskObject task : entries) {
+        value = 31 * value + task.getId();
+      }
+      for (final Integer id : deletedIds) {
+        value = 31 * value + id;
+      }
+      return value;
+    }
+  }
+
+  @Test
+  public void testStreaming() throws IOException
+  {
+    final ListDeltaSyncResult result = new ListDeltaSyncResult(1000L).add(createTask(1)).add(createTask(2)).addDeleted(3);
+    final JsonObject json = parse(write(result, false), false);
+    assertEquals(result.getSyncToken(), json.get("syncToken").getAsLong());
+    assertEquals(2, json.getAsJsonArray("entries").size());
+    assertEquals("Task 2", json.getAsJsonArray("entries").get(1).getAsJsonObject().get("title").getAsString());
+    assertEquals(3, json.getAsJsonArray("deleted").get(0).getAsInt());
+
+    final ListDeltaSyncResult same = new ListDeltaSyncResult(1000L).add(createTask(1)).add(createTask(2)).addDeleted(3);
+    assertEquals("Same content should result in same ETag.", result.getETag(), same.getETag());
+    final ListDeltaSyncResult other = new ListDeltaSyncResult(1000L).add(createTask(1)).add(createTask(2)).add(createTask(4)).addDeleted(3);
+    assertFalse(result.getETag().equals(other.getETag()));
+
+    final ListDeltaSyncResult empty = new ListDeltaSyncResult(null);
+    final JsonObject emptyJson = parse(write(empty, false), false);
+    assertEquals(0, emptyJson.getAsJsonArray("entries").size());
+    assertEquals(0, emptyJson.getAsJsonArray("deleted").size());
+    assertNull(empty.getQuerySince());
+    assertEquals(1000L - DeltaSyncResult.LOOK_BEHIND, result.getQuerySince().getTime());
+  }
+
+  @Test
+  public void testPaging() throws IOException
+  {
+    final ListDeltaSyncResult result = new ListDeltaSyncResult(null);
+    final int size = 3 * PAGE_SIZE + 7;
+    for (int i = 1; i <= size; i++) {
+      result.add(createTask(i));
+    }
+    final JsonObject json = parse(write(result, false), false);
+    assertEquals(4, result.pageCounter);
+    assertEquals(size, json.getAsJsonArray("entries").size());
+    assertEquals(size, json.getAsJsonArray("entries").get(size - 1).getAsJsonObject().get("id").getAsInt());
+  }
+
+  @Test
+  public void testNotModified()
+  {
+    final ListDeltaSyncResult result = new ListDeltaSyncResult(1000L).add(createTask(1));
+    final Request request = mock(Request.class);
+    when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(Response.notModified());
+    final Response response = DeltaSyncStreamingOutput.buildResponse(request, null, result);
+    assertEquals(304, response.getStatus());
+    assertNull(response.getEntity());
+    assertEquals(result.getETag(), response.getMetadata().getFirst("ETag"));
+    assertEquals("No entry should be loaded for a 304 response.", 0, result.pageCounter);
+  }
+
+  @Test
+  public void testGzip() throws IOException
+  {
+    final ListDeltaSyncResult result = new ListDeltaSyncResult(1000L).add(createTask(1)).addDeleted(2);
+    final Request request = mock(Request.class);
+    final HttpHeaders headers = mock(HttpHeaders.class);
+    when(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn(Arrays.asList("gzip, deflate"));
+    Response response = DeltaSyncStreamingOutput.buildResponse(request, headers, result);
+    assertEquals(200, response.getStatus());
+    assertEquals("gzip", response.getMetadata().getFirst("Content-Encoding"));
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((DeltaSyncStreamingOutput) response.getEntity()).write(out);
+    final JsonObject json = parse(out.toByteArray(), true);
+    assertEquals(1, json.getAsJsonArray("entries").size());
+    assertEquals(2, json.getAsJsonArray("deleted").get(0).getAsInt());
+
+    when(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn(Arrays.asList("deflate"));
+    response = DeltaSyncStreamingOutput.buildResponse(request, headers, new ListDeltaSyncResult(1000L).add(createTask(1)));
+    assertNull(response.getMetadata().getFirst("Content-Encoding"));
+    assertFalse(DeltaSyncStreamingOutput.acceptsGzip(null));
+  }
+
+  @Test
+  public void compareFullAndDeltaSync() throws IOException
+  {
+    final ListDeltaSyncResult full = new ListDeltaSyncResult(null);
+    for (int i = 1; i <= NUMBER_OF_TASKS; i++) {
+      full.add(createTask(i));
+    }
+    final ListDeltaSyncResult delta = new ListDeltaSyncResult(System.currentTimeMillis());
+    for (int i = 1; i <= NUMBER_OF_MODIFIED_TASKS; i++) {
+      delta.add(createTask(i));
+    }
+    for (int i = 1; i <= NUMBER_OF_DELETED_TASKS; i++) {
+      delta.addDeleted(NUMBER_OF_TASKS + i);
+    }
+    write(full, false); // Warm up.
+    final long fullSize = measure("full", full, false);
+    final long fullGzipSize = measure("full (gzip)", full, true);
+    final long deltaSize = measure("delta", delta, false);
+    final long deltaGzipSize = measure("delta (gzip)", delta, true);
+    assertTrue(fullGzipSize < fullSize);
+    assertTrue(deltaGzipSize < deltaSize);
+    assertTrue(deltaSize * 10 < fullSize);
+  }
+
+  private long measure(final String name, final ListDeltaSyncResult result, final boolean gzip) throws IOException
+  {
+    final long start = System.currentTimeMillis();
+    final byte[] bytes = write(result, gzip);
+    log.info("Sync "
+        + name
+        + " of "
+        + (result.entries.size() + result.deletedIds.size())
+        + " tasks: "
+        + bytes.length
+        + " bytes in "
+        + (System.currentTimeMillis() - start)
+        + "ms.");
+    return bytes.length;
+  }
+
+  private byte[] write(final ListDeltaSyncResult result, final boolean gzip) throws IOException
+  {
+    result.pos = 0;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DeltaSyncStreamingOutput(result, gzip).write(out);
+    return out.toByteArray();
+  }
+
+  private JsonObject parse(final byte[] bytes, final boolean gzip) throws IOException
+  {
+    if (gzip == false) {
+      return new JsonParser().parse(new String(bytes, "UTF-8")).getAsJsonObject();
+    }
+    final InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes)), "UTF-8");
+    try {
+      return new JsonParser().parse(reader).getAsJsonObject();
+    } finally {
+      reader.close();
+    }
+  }
+
+  private TaskObject createTask(final int id)
+  {
+    final TaskObject task = new TaskObject();
+    task.setId(id);
+    task.setParentTaskId(id / 10);
+    task.setTitle("Task " + id);
+    task.setShortDescription("Short description of task " + id);
+    return task;
+  }
+}
@@ -149,6 +149,9 @@ public abstract class ListAndEditPagesTestBase extends WicketPageTestBase
    */
   protected void startListPage(final String searchString)
   {
+    if (searchString != null) {
+      waitForFullTextIndex();
+    }
     tester.startPage(getListPageClass());
     tester.assertRenderedPage(getListPageClass());
     final FormTester form = tester.newFormTester(PATH_LISTPAGE_FORM);
@@ -0,0 +1,167 @@
+/////////////////////////////////////////////////////////////////////////////
+//
+// Project ProjectForge Community Edition
+//         www.projectforge.org
+//
+// Copyright (C) 2001-2013 Kai Reinhard (k.reinhard@micromata.de)
+//
+// ProjectForge is dual-licensed.
+//
+// This community edition is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License as published
+// by the Free Software Foundation; version 3 of the License.
+//
+// This community edition is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+// Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along
+// with this program; if not, see http://www.gnu.org/licenses/.
+//
+/////////////////////////////////////////////////////////////////////////////
+
+
+package org.projectforge.web.wicket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.pageStore.IDataStore;
+import org.apache.wicket.serialize.ISerializer;
+import org.junit.Test;
+
+public class PageStoreTest
+{
+  @Test
+  public void serializer()
+  {
+    final List<String> list = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      list.add("Entry " + i % 10);
+    }
+    final PageStoreSerializer uncompressed = new PageStoreSerializer(new SimpleSerializer(), false);
+    final PageStoreSerializer compressed = new PageStoreSerializer(new SimpleSerializer(), true);
+    final byte[] data = uncompressed.serialize(list);
+    final byte[] compressedData = compressed.serialize(list);
+    assertTrue(compressedData.length < data.length / 2);
+    assertEquals(list, uncompressed.deserialize(data));
+    assertEquals(list, compressed.deserialize(compressedData));
+    // Uncompressed data (e. g. written before switching the mode) is still readable:
+    assertEquals(list, compressed.deserialize(data));
+  }
+
+  @Test
+  public void spillToDisk()
+  {
+    final MapDataStore disk = new MapDataStore();
+    final SessionPageDataStore store = new SessionPageDataStore(disk, 2);
+    store.storeData("s1", 1, new byte[] { 1});
+    store.storeData("s1", 2, new byte[] { 2});
+    store.storeData("s2", 1, new byte[] { 3});
+    assertEquals(0, disk.map.size());
+    store.getData("s1", 1); // Page 2 is now the least recently used page.
+    store.storeData("s1", 3, new byte[] { 4});
+    assertEquals(1, disk.map.size());
+    assertArrayEquals(new byte[] { 2}, disk.map.get("s1#2"));
+    assertArrayEquals(new byte[] { 2}, store.getData("s1", 2));
+    assertArrayEquals(new byte[] { 1}, store.getData("s1", 1));
+    assertArrayEquals(new byte[] { 3}, store.getData("s2", 1));
+    store.removeData("s1", 2);
+    assertNull(store.getData("s1", 2));
+    store.removeData("s1");
+    assertNull(store.getData("s1", 1));
+    assertNotNull(store.getData("s2", 1));
+  }
+
+  private static class SimpleSerializer implements ISerializer
+  {
+    @Override
+    public byte[] serialize(final Object object)
+    {
+      try {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(object);
+        oos.close();
+        return out.toByteArray();
+      } catch (final IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    @Override
+    public Object deserialize(final byte[] data)
+    {
+      try {
+        return new ObjectInputStream(new ByteArrayInputStream(data)).readObject();
+      } catch (final Exception ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+  }
+
+  private static class MapDataStore implements IDataStore
+  {
+    private final Map<String, byte[]> map = new HashMap<String, byte[]>();
+
+    @Override
+    public byte[] getData(final String sessionId, final int id)
+    {
+      return map.get(sessionId + "#" + id);
+    }
+
+    @Override
+    public void removeData(final String sessionId, final int id)
+    {
+      map.remove(sessionId + "#" + id);
+    }
+
+    @Override
+    public void removeData(final String sessionId)
+    {
+      for (final String key : new ArrayList<String>(map.keySet())) {
+        if (key.startsWith(sessionId + "#") == true) {
+          map.remove(key);
+        }
+      }
+    }
+
+    @Override
+    public void storeData(final String sessionId, final int id, final byte[] data)
+    {
+      map.put(sessionId + "#" + id, data);
+    }
+
+    @Override
+    public void destroy()
+    {
+      map.clear();
+    }
+
+    @Override
+    public boolean isReplicated()
+    {
+      return false;
+    }
+
+    @Override
+    public boolean canBeAsynchronous()
+    {
+      return false;
+    }
+  }
+}